@@ -3,14 +3,18 @@ package harmonysoft.tech.chartexample.data;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
-import tech.harmonysoft.android.leonardo.model.DataPoint;
 import tech.harmonysoft.android.leonardo.model.config.LeonardoConfigFactory;
+import tech.harmonysoft.android.leonardo.model.data.BatchChartDataLoader;
+import tech.harmonysoft.android.leonardo.model.data.BatchChartDataSeriesLoader;
 import tech.harmonysoft.android.leonardo.model.data.ChartDataSource;
+import tech.harmonysoft.android.leonardo.model.data.file.ChartFileWriter;
+import tech.harmonysoft.android.leonardo.model.data.file.MappedChartFile;
 
 import javax.annotation.Nonnull;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
 
@@ -22,16 +26,17 @@ import static java.util.Arrays.asList;
  */
 public class JsonDataSourceParser {
 
-    private static final Collection<String> LEGENDS = asList(
+    /** Input format constants are shared with {@link StreamingJsonDataSourceParser} */
+    static final List<String> LEGENDS = asList(
             "Followers", "Notifications", "Sheldons Population", "Zergs", "Wasted Hours"
     );
 
-    private static final String NAME_COLUMNS_DATA  = "columns";
-    private static final String NAME_COLUMN_TYPES  = "types";
-    private static final String NAME_COLUMN_NAMES  = "names";
-    private static final String NAME_COLUMN_COLORS = "colors";
+    static final String NAME_COLUMNS_DATA  = "columns";
+    static final String NAME_COLUMN_TYPES  = "types";
+    static final String NAME_COLUMN_NAMES  = "names";
+    static final String NAME_COLUMN_COLORS = "colors";
 
-    private static final String VALUE_COLUMN_X = "x";
+    static final String VALUE_COLUMN_X = "x";
 
     @Nonnull
     public Map<String, Collection<ChartDataSource>> parse(InputStream in) throws IOException, JSONException {
@@ -64,6 +69,32 @@ public class JsonDataSourceParser {
 
     @Nonnull
     public Collection<ChartDataSource> parse(JSONObject json) throws JSONException {
+        return build(parseContext(json));
+    }
+
+    /**
+     * Converts given chart's data to the {@link MappedChartFile binary chart file format}, that way
+     * the data might be served from a memory-mapped file without parsing on startup.
+     *
+     * @param json  chart data in the same layout as for {@link #parse(JSONObject)}
+     * @param out   destination stream
+     */
+    public void convert(JSONObject json, OutputStream out) throws JSONException, IOException {
+        ParseContext context = parseContext(json);
+        ChartFileWriter writer = new ChartFileWriter(toArray(getXValues(context)));
+        for (Map.Entry<String, List<Long>> entry : context.columnData.entrySet()) {
+            if (!VALUE_COLUMN_X.equals(entry.getKey())) {
+                writer.addSeries(entry.getKey(),
+                                 context.names.get(entry.getKey()),
+                                 context.colors.get(entry.getKey()),
+                                 toArray(entry.getValue()));
+            }
+        }
+        writer.write(out);
+    }
+
+    @Nonnull
+    private ParseContext parseContext(JSONObject json) throws JSONException {
         ParseContext context = new ParseContext();
         JSONArray columnsDataJson = json.getJSONArray(NAME_COLUMNS_DATA);
         for (int i = 0; i < columnsDataJson.length(); i++) {
@@ -74,7 +105,7 @@ public class JsonDataSourceParser {
         fillColumnNames(json.getJSONObject(NAME_COLUMN_NAMES), context);
         fillColumnColors(json.getJSONObject(NAME_COLUMN_COLORS), context);
         validate(context);
-        return build(context);
+        return context;
     }
 
     @Nonnull
@@ -218,15 +249,18 @@ public class JsonDataSourceParser {
     private Collection<ChartDataSource> build(ParseContext context) {
         Collection<ChartDataSource> result = new ArrayList<>();
         List<Long> xValues = getXValues(context);
+        Map<String, long[]> yValues = new HashMap<>();
         for (Map.Entry<String, List<Long>> entry : context.columnData.entrySet()) {
-            if (VALUE_COLUMN_X.equals(entry.getKey())) {
-                continue;
+            if (!VALUE_COLUMN_X.equals(entry.getKey())) {
+                yValues.put(entry.getKey(), toArray(entry.getValue()));
             }
+        }
+        // All series share the same X column, so they are loaded together
+        BatchChartDataLoader loader = new PreDefinedBatchChartDataLoader(toArray(xValues), yValues);
 
-            List<DataPoint> dataPoints = new ArrayList<>();
-            for (int i = 0; i < entry.getValue().size(); i++) {
-                Long y = entry.getValue().get(i);
-                dataPoints.add(new DataPoint(xValues.get(i), y));
+        for (Map.Entry<String, List<Long>> entry : context.columnData.entrySet()) {
+            if (VALUE_COLUMN_X.equals(entry.getKey())) {
+                continue;
             }
 
             String legend = context.names.get(entry.getKey());
@@ -244,7 +278,7 @@ public class JsonDataSourceParser {
             }
 
             result.add(LeonardoConfigFactory.newDataSourceBuilder()
-                                            .withLoader(new PreDefinedChartDataLoader(dataPoints))
+                                            .withLoader(new BatchChartDataSeriesLoader(loader, entry.getKey()))
                                             .withLegend(legend)
                                             .withColor(color)
                                             .withMinX(xValues.get(0))
@@ -254,6 +288,15 @@ public class JsonDataSourceParser {
         return result;
     }
 
+    @Nonnull
+    private static long[] toArray(List<Long> values) {
+        long[] result = new long[values.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = values.get(i);
+        }
+        return result;
+    }
+
     private List<Long> getXValues(ParseContext context) {
         for (Map.Entry<String, String> entry : context.types.entrySet()) {
             if (VALUE_COLUMN_X.equals(entry.getValue())) {
@@ -0,0 +1,371 @@
+package harmonysoft.tech.chartexample.data;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * <p>
+ *     Minimal streaming JSON pull parser with {@code android.util.JsonReader}-like API. Unlike the platform
+ *     reader it works directly on the input bytes and parses numbers without creating intermediate strings,
+ *     that way reading a large numeric array doesn't allocate anything per value.
+ * </p>
+ * <p>
+ *     Not thread-safe.
+ * </p>
+ *
+ * @author Denis Zhdanov
+ * @since 1/4/19
+ */
+class JsonPullReader {
+
+    enum Token {
+        BEGIN_ARRAY, END_ARRAY, BEGIN_OBJECT, END_OBJECT, NAME, STRING, NUMBER, BOOLEAN, NULL, END_DOCUMENT
+    }
+
+    private static final int EMPTY_DOCUMENT    = 0;
+    private static final int NONEMPTY_DOCUMENT = 1;
+    private static final int EMPTY_ARRAY       = 2;
+    private static final int NONEMPTY_ARRAY    = 3;
+    private static final int EMPTY_OBJECT      = 4;
+    private static final int DANGLING_NAME     = 5;
+    private static final int NONEMPTY_OBJECT   = 6;
+
+    private final StringBuilder mStringBuffer = new StringBuilder();
+    private final byte[]        mBuffer       = new byte[8192];
+    private final InputStream   mIn;
+
+    private int[] mStack = new int[32];
+    private int   mStackSize;
+
+    private Token mPeeked;
+    /** Stream offset of the first byte in the buffer */
+    private long  mBufferOffset;
+    private int   mPosition;
+    private int   mLimit;
+
+    JsonPullReader(InputStream in) {
+        mIn = in;
+        push(EMPTY_DOCUMENT);
+    }
+
+    /**
+     * @return  offset of the next byte to be read from the underlying stream, relative to the stream
+     *          position on the current reader's construction
+     */
+    long getOffset() {
+        return mBufferOffset + mPosition;
+    }
+
+    @Nonnull
+    Token peek() throws IOException {
+        if (mPeeked == null) {
+            mPeeked = doPeek();
+        }
+        return mPeeked;
+    }
+
+    boolean hasNext() throws IOException {
+        Token token = peek();
+        return token != Token.END_ARRAY && token != Token.END_OBJECT && token != Token.END_DOCUMENT;
+    }
+
+    void beginArray() throws IOException {
+        expect(Token.BEGIN_ARRAY);
+        push(EMPTY_ARRAY);
+    }
+
+    void endArray() throws IOException {
+        expect(Token.END_ARRAY);
+        mStackSize--;
+    }
+
+    void beginObject() throws IOException {
+        expect(Token.BEGIN_OBJECT);
+        push(EMPTY_OBJECT);
+    }
+
+    void endObject() throws IOException {
+        expect(Token.END_OBJECT);
+        mStackSize--;
+    }
+
+    @Nonnull
+    String nextName() throws IOException {
+        expect(Token.NAME);
+        return readString();
+    }
+
+    @Nonnull
+    String nextString() throws IOException {
+        expect(Token.STRING);
+        return readString();
+    }
+
+    long nextLong() throws IOException {
+        expect(Token.NUMBER);
+        boolean negative = false;
+        int c = read();
+        if (c == '-') {
+            negative = true;
+            c = read();
+        }
+        if (c < '0' || c > '9') {
+            throw syntaxError("Expected a digit but got '" + (char) c + "'");
+        }
+        // Accumulate as a negative number in order to support Long.MIN_VALUE
+        long result = 0;
+        while (c >= '0' && c <= '9') {
+            int digit = c - '0';
+            if (result < (Long.MIN_VALUE + digit) / 10) {
+                throw syntaxError("Number is out of the long range");
+            }
+            result = result * 10 - digit;
+            c = read();
+        }
+        if (c == '.' || c == 'e' || c == 'E') {
+            throw syntaxError("Expected an integer number");
+        }
+        unread(c);
+        if (negative) {
+            return result;
+        }
+        if (result == Long.MIN_VALUE) {
+            throw syntaxError("Number is out of the long range");
+        }
+        return -result;
+    }
+
+    void skipValue() throws IOException {
+        int depth = 0;
+        do {
+            Token token = peek();
+            switch (token) {
+                case BEGIN_ARRAY: beginArray(); depth++; break;
+                case BEGIN_OBJECT: beginObject(); depth++; break;
+                case END_ARRAY: endArray(); depth--; break;
+                case END_OBJECT: endObject(); depth--; break;
+                case NAME: nextName(); break;
+                case STRING: nextString(); break;
+                case NUMBER: skipNumber(); break;
+                case BOOLEAN: case NULL: mPeeked = null; break;
+                default: throw syntaxError("Unexpected token " + token);
+            }
+        } while (depth > 0);
+    }
+
+    private void skipNumber() throws IOException {
+        mPeeked = null;
+        int c;
+        do {
+            c = read();
+        } while ((c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E');
+        unread(c);
+    }
+
+    private void expect(Token expected) throws IOException {
+        Token actual = peek();
+        if (actual != expected) {
+            throw syntaxError("Expected " + expected + " but got " + actual);
+        }
+        mPeeked = null;
+    }
+
+    @Nonnull
+    private Token doPeek() throws IOException {
+        int c;
+        switch (mStack[mStackSize - 1]) {
+            case EMPTY_ARRAY:
+                mStack[mStackSize - 1] = NONEMPTY_ARRAY;
+                c = readNonWhitespace();
+                if (c == ']') {
+                    return Token.END_ARRAY;
+                }
+                unread(c);
+                break;
+            case NONEMPTY_ARRAY:
+                c = readNonWhitespace();
+                if (c == ']') {
+                    return Token.END_ARRAY;
+                } else if (c != ',') {
+                    throw syntaxError("Unterminated array");
+                }
+                break;
+            case EMPTY_OBJECT:
+            case NONEMPTY_OBJECT:
+                boolean empty = mStack[mStackSize - 1] == EMPTY_OBJECT;
+                mStack[mStackSize - 1] = DANGLING_NAME;
+                c = readNonWhitespace();
+                if (c == '}') {
+                    return Token.END_OBJECT;
+                }
+                if (!empty) {
+                    if (c != ',') {
+                        throw syntaxError("Unterminated object");
+                    }
+                    c = readNonWhitespace();
+                }
+                if (c != '"') {
+                    throw syntaxError("Expected a name");
+                }
+                return Token.NAME;
+            case DANGLING_NAME:
+                mStack[mStackSize - 1] = NONEMPTY_OBJECT;
+                if (readNonWhitespace() != ':') {
+                    throw syntaxError("Expected ':'");
+                }
+                break;
+            case EMPTY_DOCUMENT:
+                mStack[mStackSize - 1] = NONEMPTY_DOCUMENT;
+                break;
+            default:
+                c = readNonWhitespace();
+                if (c < 0) {
+                    return Token.END_DOCUMENT;
+                }
+                throw syntaxError("Expected the end of the document");
+        }
+
+        c = readNonWhitespace();
+        switch (c) {
+            case '[': return Token.BEGIN_ARRAY;
+            case '{': return Token.BEGIN_OBJECT;
+            case '"': return Token.STRING;
+            case 't': skipLiteral("rue"); return Token.BOOLEAN;
+            case 'f': skipLiteral("alse"); return Token.BOOLEAN;
+            case 'n': skipLiteral("ull"); return Token.NULL;
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) {
+                    unread(c);
+                    return Token.NUMBER;
+                }
+                throw syntaxError(c < 0 ? "Unexpected end of input" : "Unexpected character '" + (char) c + "'");
+        }
+    }
+
+    private void skipLiteral(String rest) throws IOException {
+        for (int i = 0; i < rest.length(); i++) {
+            if (read() != rest.charAt(i)) {
+                throw syntaxError("Unexpected literal");
+            }
+        }
+    }
+
+    /**
+     * Reads a string which opening quote is already consumed.
+     *
+     * @return  string's value
+     */
+    @Nonnull
+    private String readString() throws IOException {
+        mStringBuffer.setLength(0);
+        while (true) {
+            int c = read();
+            if (c == '"') {
+                return mStringBuffer.toString();
+            } else if (c == '\\') {
+                readEscapeCharacter();
+            } else if (c < 0) {
+                throw syntaxError("Unterminated string");
+            } else if (c < 0x80) {
+                mStringBuffer.append((char) c);
+            } else {
+                readMultiByteCharacter(c);
+            }
+        }
+    }
+
+    private void readEscapeCharacter() throws IOException {
+        int c = read();
+        switch (c) {
+            case 'b': mStringBuffer.append('\b'); break;
+            case 'f': mStringBuffer.append('\f'); break;
+            case 'n': mStringBuffer.append('\n'); break;
+            case 'r': mStringBuffer.append('\r'); break;
+            case 't': mStringBuffer.append('\t'); break;
+            case 'u':
+                int value = 0;
+                for (int i = 0; i < 4; i++) {
+                    int digit = Character.digit(read(), 16);
+                    if (digit < 0) {
+                        throw syntaxError("Invalid unicode escape sequence");
+                    }
+                    value = (value << 4) | digit;
+                }
+                mStringBuffer.append((char) value);
+                break;
+            case '"': case '\\': case '/':
+                mStringBuffer.append((char) c);
+                break;
+            default:
+                throw syntaxError("Invalid escape sequence");
+        }
+    }
+
+    private void readMultiByteCharacter(int firstByte) throws IOException {
+        int continuationBytes;
+        int codePoint;
+        if ((firstByte & 0xE0) == 0xC0) {
+            continuationBytes = 1;
+            codePoint = firstByte & 0x1F;
+        } else if ((firstByte & 0xF0) == 0xE0) {
+            continuationBytes = 2;
+            codePoint = firstByte & 0x0F;
+        } else if ((firstByte & 0xF8) == 0xF0) {
+            continuationBytes = 3;
+            codePoint = firstByte & 0x07;
+        } else {
+            throw syntaxError("Malformed UTF-8 input");
+        }
+        for (int i = 0; i < continuationBytes; i++) {
+            int c = read();
+            if ((c & 0xC0) != 0x80) {
+                throw syntaxError("Malformed UTF-8 input");
+            }
+            codePoint = (codePoint << 6) | (c & 0x3F);
+        }
+        mStringBuffer.appendCodePoint(codePoint);
+    }
+
+    private int readNonWhitespace() throws IOException {
+        int c;
+        do {
+            c = read();
+        } while (c == ' ' || c == '\n' || c == '\r' || c == '\t');
+        return c;
+    }
+
+    private int read() throws IOException {
+        if (mPosition >= mLimit) {
+            mBufferOffset += mLimit;
+            mPosition = 0;
+            mLimit = 0;
+            int read = mIn.read(mBuffer);
+            if (read <= 0) {
+                return -1;
+            }
+            mLimit = read;
+        }
+        return mBuffer[mPosition++] & 0xFF;
+    }
+
+    private void unread(int c) {
+        if (c >= 0) {
+            mPosition--;
+        }
+    }
+
+    private void push(int state) {
+        if (mStackSize == mStack.length) {
+            int[] newStack = new int[mStackSize * 2];
+            System.arraycopy(mStack, 0, newStack, 0, mStackSize);
+            mStack = newStack;
+        }
+        mStack[mStackSize++] = state;
+    }
+
+    @Nonnull
+    private IOException syntaxError(String message) {
+        return new IOException(message + " at offset " + getOffset());
+    }
+}
@@ -0,0 +1,65 @@
+package harmonysoft.tech.chartexample.data;
+
+import tech.harmonysoft.android.leonardo.model.Interval;
+import tech.harmonysoft.android.leonardo.model.Range;
+import tech.harmonysoft.android.leonardo.model.data.BatchChartDataLoader;
+
+import javax.annotation.Nonnull;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Serves pre-defined series which share the same X values.
+ *
+ * @author Denis Zhdanov
+ * @since 29/3/19
+ */
+public class PreDefinedBatchChartDataLoader implements BatchChartDataLoader {
+
+    private final Map<String, long[]> mYs = new HashMap<>();
+    private final long[]              mXs;
+
+    /**
+     * @param xs    sorted X values
+     * @param ys    Y values by series id, every array is expected to have the same size as the X values array
+     */
+    public PreDefinedBatchChartDataLoader(long[] xs, Map<String, long[]> ys) {
+        mXs = xs;
+        for (Map.Entry<String, long[]> entry : ys.entrySet()) {
+            if (entry.getValue().length != xs.length) {
+                throw new IllegalArgumentException(String.format(
+                        "Expected that series '%s' has %d values but it has %d values",
+                        entry.getKey(), xs.length, entry.getValue().length
+                ));
+            }
+            mYs.put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    @Nonnull
+    @Override
+    public Map<String, Interval> load(Range range, Collection<String> seriesIds) {
+        Map<String, Interval> result = new HashMap<>();
+        int from = Arrays.binarySearch(mXs, range.getStart());
+        if (from < 0) {
+            from = -(from + 1);
+        }
+        int to = Arrays.binarySearch(mXs, range.getEnd());
+        if (to < 0) {
+            to = -(to + 1) - 1;
+        }
+        if (from > to) {
+            return result;
+        }
+        for (String seriesId : seriesIds) {
+            long[] ys = mYs.get(seriesId);
+            if (ys != null) {
+                // The data is never modified, so it's safe to expose it without copying
+                result.put(seriesId, new Interval(mXs, ys, from, to - from + 1));
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,289 @@
+package harmonysoft.tech.chartexample.data;
+
+import tech.harmonysoft.android.leonardo.model.config.LeonardoConfigFactory;
+import tech.harmonysoft.android.leonardo.model.data.BatchChartDataLoader;
+import tech.harmonysoft.android.leonardo.model.data.BatchChartDataSeriesLoader;
+import tech.harmonysoft.android.leonardo.model.data.ChartDataSource;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+
+import static harmonysoft.tech.chartexample.data.JsonDataSourceParser.LEGENDS;
+import static harmonysoft.tech.chartexample.data.JsonDataSourceParser.NAME_COLUMNS_DATA;
+import static harmonysoft.tech.chartexample.data.JsonDataSourceParser.NAME_COLUMN_COLORS;
+import static harmonysoft.tech.chartexample.data.JsonDataSourceParser.NAME_COLUMN_NAMES;
+import static harmonysoft.tech.chartexample.data.JsonDataSourceParser.NAME_COLUMN_TYPES;
+import static harmonysoft.tech.chartexample.data.JsonDataSourceParser.VALUE_COLUMN_X;
+
+/**
+ * <p>
+ *     Parses the same input as {@link JsonDataSourceParser} but reads it as a stream - column values
+ *     go straight into primitive arrays without building a whole document tree and boxing every value.
+ *     The input is validated as it's read, e.g. column sizes are checked as soon as a column is parsed.
+ * </p>
+ * <p>
+ *     Not thread-safe.
+ * </p>
+ *
+ * @author Denis Zhdanov
+ * @since 1/4/19
+ */
+public class StreamingJsonDataSourceParser {
+
+    /** Holds values of the column being parsed, is re-used for all columns */
+    private long[] mColumnBuffer = new long[1024];
+
+    @Nonnull
+    public Map<String, Collection<ChartDataSource>> parse(InputStream in) throws IOException {
+        Map<String, Collection<ChartDataSource>> result = new HashMap<>();
+        JsonPullReader reader = new JsonPullReader(in);
+        reader.beginArray();
+        while (reader.hasNext()) {
+            result.put(getLegend(result.size()), parseChart(reader));
+        }
+        reader.endArray();
+        return result;
+    }
+
+    /**
+     * Scans given input without parsing charts' data.
+     *
+     * @param in    input stream which contains an array of charts
+     * @return      offsets of the charts' objects in the given stream by chart names
+     */
+    @Nonnull
+    public Map<String, Long> index(InputStream in) throws IOException {
+        Map<String, Long> result = new LinkedHashMap<>();
+        JsonPullReader reader = new JsonPullReader(in);
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (reader.peek() != JsonPullReader.Token.BEGIN_OBJECT) {
+                throw new IllegalArgumentException(String.format(
+                        "Expected to find a chart object at offset %d but got %s", reader.getOffset(), reader.peek()
+                ));
+            }
+            // Opening brace is already consumed by peek()
+            result.put(getLegend(result.size()), reader.getOffset() - 1);
+            reader.skipValue();
+        }
+        reader.endArray();
+        return result;
+    }
+
+    /**
+     * Parses a single chart.
+     *
+     * @param in    input stream which is positioned at the chart's object start, e.g. at an offset
+     *              returned from {@link #index(InputStream)}
+     * @return      chart's data sources
+     */
+    @Nonnull
+    public Collection<ChartDataSource> parseChart(InputStream in) throws IOException {
+        return parseChart(new JsonPullReader(in));
+    }
+
+    @Nonnull
+    private static String getLegend(int chartIndex) {
+        if (chartIndex < LEGENDS.size()) {
+            return LEGENDS.get(chartIndex);
+        }
+        return "SomeStats" + (chartIndex - LEGENDS.size() + 1);
+    }
+
+    @Nonnull
+    private Collection<ChartDataSource> parseChart(JsonPullReader reader) throws IOException {
+        ParseContext context = new ParseContext();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            switch (name) {
+                case NAME_COLUMNS_DATA: parseColumns(reader, context); break;
+                case NAME_COLUMN_TYPES: parseTypes(reader, context); break;
+                case NAME_COLUMN_NAMES: parseNames(reader, context); break;
+                case NAME_COLUMN_COLORS: parseColors(reader, context); break;
+                default: reader.skipValue();
+            }
+        }
+        reader.endObject();
+        validate(context);
+        return build(context);
+    }
+
+    private void parseColumns(JsonPullReader reader, ParseContext context) throws IOException {
+        reader.beginArray();
+        while (reader.hasNext()) {
+            reader.beginArray();
+            if (reader.peek() != JsonPullReader.Token.STRING) {
+                throw new IllegalArgumentException(String.format(
+                        "Bad input: every column data array (defined in the '%s' element) is expected to have its "
+                        + "name as the first element and values as subsequent. However, column data #%d (zero-based) "
+                        + "starts from %s", NAME_COLUMNS_DATA, context.columns.size(), reader.peek()));
+            }
+            String columnName = reader.nextString();
+            long[] values = parseColumnValues(reader, columnName);
+            reader.endArray();
+
+            if (context.columns.put(columnName, values) != null) {
+                throw new IllegalArgumentException(String.format("Duplicate data column '%s'", columnName));
+            }
+            if (context.columnSize < 0) {
+                context.columnSize = values.length;
+                context.firstColumnName = columnName;
+            } else if (context.columnSize != values.length) {
+                throw new IllegalArgumentException(String.format(
+                        "Expected that all data columns have the same number of values but detected that "
+                        + "column '%s' has %d values and column '%s' has %d values",
+                        context.firstColumnName, context.columnSize, columnName, values.length
+                ));
+            }
+        }
+        reader.endArray();
+    }
+
+    @Nonnull
+    private long[] parseColumnValues(JsonPullReader reader, String columnName) throws IOException {
+        int size = 0;
+        while (reader.hasNext()) {
+            if (reader.peek() != JsonPullReader.Token.NUMBER) {
+                throw new IllegalArgumentException(String.format(
+                        "Failed parsing data for column '%s'. Expected to get a numeric value but got %s (index %d)",
+                        columnName, reader.peek(), size + 1
+                ));
+            }
+            if (size == mColumnBuffer.length) {
+                mColumnBuffer = Arrays.copyOf(mColumnBuffer, size * 2);
+            }
+            mColumnBuffer[size++] = reader.nextLong();
+        }
+        return Arrays.copyOf(mColumnBuffer, size);
+    }
+
+    private void parseTypes(JsonPullReader reader, ParseContext context) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String columnId = reader.nextName().trim();
+            String type = reader.nextString().trim();
+            if (VALUE_COLUMN_X.equals(type)) {
+                if (context.xColumnId != null) {
+                    throw new IllegalArgumentException(String.format(
+                            "Found more than one X column - '%s' and '%s'", context.xColumnId, columnId
+                    ));
+                }
+                context.xColumnId = columnId;
+            }
+            context.types.put(columnId, type);
+        }
+        reader.endObject();
+    }
+
+    private void parseNames(JsonPullReader reader, ParseContext context) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String columnId = reader.nextName().trim();
+            String name = reader.nextString().trim();
+            if (name.isEmpty()) {
+                throw new IllegalArgumentException(String.format("No name is given for column '%s'", columnId));
+            }
+            context.names.put(columnId, name);
+        }
+        reader.endObject();
+    }
+
+    private void parseColors(JsonPullReader reader, ParseContext context) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String columnId = reader.nextName().trim();
+            String colorHex = reader.nextString().trim();
+            if (colorHex.length() != 7 || colorHex.charAt(0) != '#') {
+                throw new IllegalArgumentException(String.format(
+                        "Expected color of column '%s' to be in the '#RRGGBB' format but got '%s'", columnId, colorHex
+                ));
+            }
+            try {
+                context.colors.put(columnId, Integer.parseInt(colorHex.substring(1), 16) | 0xFF000000);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(String.format(
+                        "Expected color of column '%s' to be in the '#RRGGBB' format but got '%s'", columnId, colorHex
+                ), e);
+            }
+        }
+        reader.endObject();
+    }
+
+    private void validate(ParseContext context) {
+        if (context.xColumnId == null) {
+            throw new IllegalArgumentException(String.format(
+                    "No X column is found. Available mappings: %s", context.types
+            ));
+        }
+        long[] xs = context.columns.get(context.xColumnId);
+        if (xs == null) {
+            throw new IllegalArgumentException(String.format(
+                    "No data is found for X column '%s'. Available columns: %s",
+                    context.xColumnId, context.columns.keySet()
+            ));
+        }
+        if (xs.length == 0) {
+            throw new IllegalArgumentException(String.format("X column '%s' has no values", context.xColumnId));
+        }
+        for (int i = 1; i < xs.length; i++) {
+            if (xs[i] <= xs[i - 1]) {
+                throw new IllegalArgumentException(String.format(
+                        "Expected that X values are sorted in ascending order but got %d at index %d after %d",
+                        xs[i], i, xs[i - 1]
+                ));
+            }
+        }
+        if (context.columns.size() != context.types.size()) {
+            throw new IllegalArgumentException(String.format(
+                    "Found %d data columns (%s) but there are %d types (%s)",
+                    context.columns.size(), context.columns.keySet(), context.types.size(), context.types
+            ));
+        }
+        for (String columnId : context.columns.keySet()) {
+            if (context.xColumnId.equals(columnId)) {
+                continue;
+            }
+            if (!context.names.containsKey(columnId)) {
+                throw new IllegalArgumentException(String.format("No name is given for column '%s'", columnId));
+            }
+            if (!context.colors.containsKey(columnId)) {
+                throw new IllegalArgumentException(String.format("No color is provided for column '%s'", columnId));
+            }
+        }
+    }
+
+    @Nonnull
+    private Collection<ChartDataSource> build(ParseContext context) {
+        long[] xs = context.columns.get(context.xColumnId);
+        Map<String, long[]> ys = new HashMap<>(context.columns);
+        ys.remove(context.xColumnId);
+        // All series share the same X column, so they are loaded together
+        BatchChartDataLoader loader = new PreDefinedBatchChartDataLoader(xs, ys);
+
+        Collection<ChartDataSource> result = new ArrayList<>();
+        for (String columnId : ys.keySet()) {
+            result.add(LeonardoConfigFactory.newDataSourceBuilder()
+                                            .withLoader(new BatchChartDataSeriesLoader(loader, columnId))
+                                            .withLegend(context.names.get(columnId))
+                                            .withColor(context.colors.get(columnId))
+                                            .withMinX(xs[0])
+                                            .withMaxX(xs[xs.length - 1])
+                                            .build());
+        }
+        return result;
+    }
+
+    private static class ParseContext {
+        public final Map<String, long[]>  columns = new LinkedHashMap<>();
+        public final Map<String, String>  types   = new HashMap<>();
+        public final Map<String, String>  names   = new HashMap<>();
+        public final Map<String, Integer> colors  = new HashMap<>();
+
+        public String xColumnId;
+        public String firstColumnName;
+        public int    columnSize = -1;
+    }
+}
@@ -11,7 +11,7 @@ import android.widget.ImageView;
 import android.widget.Spinner;
 import android.widget.TextView;
 import harmonysoft.tech.chartexample.R;
-import harmonysoft.tech.chartexample.data.JsonDataSourceParser;
+import harmonysoft.tech.chartexample.data.StreamingJsonDataSourceParser;
 import tech.harmonysoft.android.leonardo.log.LogUtil;
 import tech.harmonysoft.android.leonardo.model.config.LeonardoConfigFactory;
 import tech.harmonysoft.android.leonardo.model.config.axis.AxisConfig;
@@ -25,15 +25,24 @@ import tech.harmonysoft.android.leonardo.view.NavigatorChartView;
 import tech.harmonysoft.android.leonardo.view.selector.ChartSelectorView;
 
 import javax.annotation.Nullable;
+import java.io.EOFException;
+import java.io.IOException;
 import java.io.InputStream;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class ChartActivity extends Activity {
 
     private final SparseArray<UiAction> mReloadableStyleMixins   = buildStyleReloadMixins();
     private final UiAction              mGlobalStyleReloadAction = buildGlobalStyleReloadAction();
 
-    private final NavigableMap<String, Collection<ChartDataSource>> mInputs = new TreeMap<>();
+    /** Offsets of the charts' data in the input file by chart names */
+    private final NavigableMap<String, Long>               mInputOffsets      = new TreeMap<>();
+    /** Parsed charts by names */
+    private final Map<String, Collection<ChartDataSource>> mInputs            = new HashMap<>();
+    private final Set<String>                              mInputsBeingParsed = new HashSet<>();
+    private final ExecutorService                          mInputParser       = Executors.newSingleThreadExecutor();
 
     private ViewGroup                   mContent;
     private Spinner                     mInputSelectorSpinner;
@@ -42,6 +51,7 @@ public class ChartActivity extends Activity {
     private NavigatorChartView          mNavigatorChartView;
     private ChartSelectorView           mChartSelectorView;
     private ImageView                   mThemeSwitcherView;
+    private String                      mSelectedInput;
 
     @SuppressWarnings("CodeBlock2Expr")
     private SparseArray<UiAction> buildStyleReloadMixins() {
@@ -82,45 +92,123 @@ public class ChartActivity extends Activity {
         LogUtil.putMarker(mChartView, "main-chart");
         LogUtil.putMarker(mChartSelectorView, "chart-selector");
 
+        mNavigatorChartView.apply(LeonardoConfigFactory.asNavigatorShowCase(mChartView));
+        initThemeSwitcher();
+        applyConfigs();
+
         prepareInputs();
 //        prepareTestInputs();
+    }
+
+    @Override
+    protected void onDestroy() {
+        mInputParser.shutdownNow();
+        super.onDestroy();
+    }
+
+    /**
+     * Indexes the input on a background thread, charts' data is parsed only when a chart is selected.
+     */
+    private void prepareInputs() {
+        mInputParser.execute(() -> {
+            final Map<String, Long> offsets;
+            try (InputStream in = getResources().openRawResource(R.raw.input)) {
+                offsets = new StreamingJsonDataSourceParser().index(in);
+            } catch (Exception e) {
+                runOnUiThread(() -> {
+                    throw new RuntimeException("Failed indexing chart inputs", e);
+                });
+                return;
+            }
+            runOnUiThread(() -> onInputsIndexed(offsets));
+        });
+    }
+
+    private void onInputsIndexed(Map<String, Long> offsets) {
+        if (isDestroyed()) {
+            return;
+        }
+        mInputOffsets.putAll(offsets);
         final String firstDataSetName;
-        if (mInputs.containsKey("Followers")) {
+        if (mInputOffsets.containsKey("Followers")) {
             firstDataSetName = "Followers";
         } else {
-            firstDataSetName = mInputs.firstKey();
+            firstDataSetName = mInputOffsets.firstKey();
         }
+        initInputSelector(firstDataSetName);
+        selectInput(firstDataSetName);
+    }
 
-        initInputSelector();
+    private void selectInput(String name) {
+        if (name.equals(mSelectedInput)) {
+            return;
+        }
+        mSelectedInput = name;
 
-        mNavigatorChartView.apply(LeonardoConfigFactory.asNavigatorShowCase(mChartView));
-        initThemeSwitcher();
-        initData(firstDataSetName);
-        applyConfigs();
+        Collection<ChartDataSource> dataSources = mInputs.get(name);
+        if (dataSources != null) {
+            initData(dataSources);
+            return;
+        }
+
+        Long offset = mInputOffsets.get(name);
+        if (offset == null) {
+            throw new IllegalArgumentException(String.format(
+                    "Can't find an input with name '%s'. Available names: %s", name, mInputOffsets.keySet()
+            ));
+        }
+        if (!mInputsBeingParsed.add(name)) {
+            return;
+        }
+        mInputParser.execute(() -> {
+            final Collection<ChartDataSource> parsed;
+            try (InputStream in = getResources().openRawResource(R.raw.input)) {
+                skip(in, offset);
+                parsed = new StreamingJsonDataSourceParser().parseChart(in);
+            } catch (Exception e) {
+                runOnUiThread(() -> {
+                    throw new RuntimeException(String.format("Failed parsing chart input '%s'", name), e);
+                });
+                return;
+            }
+            runOnUiThread(() -> onInputParsed(name, parsed));
+        });
     }
 
-    private void prepareInputs() {
-        try (InputStream in = getResources().openRawResource(R.raw.input)) {
-            JsonDataSourceParser parser = new JsonDataSourceParser();
-            Map<String, Collection<ChartDataSource>> inputs = parser.parse(in);
-            mInputs.putAll(inputs);
-        } catch (Exception e) {
-            throw new RuntimeException(e);
+    private static void skip(InputStream in, long bytesNumber) throws IOException {
+        long remaining = bytesNumber;
+        while (remaining > 0) {
+            long skipped = in.skip(remaining);
+            if (skipped <= 0) {
+                if (in.read() < 0) {
+                    throw new EOFException(String.format("Can't skip %d bytes of input", bytesNumber));
+                }
+                skipped = 1;
+            }
+            remaining -= skipped;
         }
     }
 
-    private void initInputSelector() {
-        mInputSelectorAdapter = new EscapingViewArrayAdapter<>(this,
-                                                               R.layout.spinner_input_item,
-                                                               new ArrayList<>(mInputs.keySet()));
+    private void onInputParsed(String name, Collection<ChartDataSource> dataSources) {
+        mInputsBeingParsed.remove(name);
+        mInputs.put(name, dataSources);
+        if (!isDestroyed() && name.equals(mSelectedInput)) {
+            initData(dataSources);
+        }
+    }
+
+    private void initInputSelector(String selectedInput) {
+        List<String> names = new ArrayList<>(mInputOffsets.keySet());
+        mInputSelectorAdapter = new EscapingViewArrayAdapter<>(this, R.layout.spinner_input_item, names);
         mInputSelectorAdapter.setDropDownViewResource(R.layout.spinner_input_drop_down_item);
         mInputSelectorSpinner.setAdapter(mInputSelectorAdapter);
+        mInputSelectorSpinner.setSelection(names.indexOf(selectedInput));
 
         mInputSelectorSpinner.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
             @Override
             public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
                 String item = parent.getItemAtPosition(position).toString();
-                initData(item);
+                selectInput(item);
             }
 
             @Override
@@ -157,8 +245,10 @@ public class ChartActivity extends Activity {
     }
 
     private void doForChildren(UiAction action) {
-        for (View view : mInputSelectorAdapter.getDropDownViews()) {
-            action.apply(view);
+        if (mInputSelectorAdapter != null) {
+            for (View view : mInputSelectorAdapter.getDropDownViews()) {
+                action.apply(view);
+            }
         }
         Stack<ViewGroup> toProcess = new Stack<>();
         toProcess.push(mContent);
@@ -200,14 +290,7 @@ public class ChartActivity extends Activity {
                                                       .build());
     }
 
-    private void initData(String name) {
-        Collection<ChartDataSource> dataSources = mInputs.get(name);
-        if (dataSources == null) {
-            throw new IllegalArgumentException(String.format(
-                    "Can't find an input with name '%s'. Available names: %s", name, mInputs.keySet()
-            ));
-        }
-
+    private void initData(Collection<ChartDataSource> dataSources) {
         ChartModel chartModel = LeonardoUtil.spinUpMvc(3);
         for (ChartDataSource dataSource : dataSources) {
             chartModel.addDataSource(dataSource);
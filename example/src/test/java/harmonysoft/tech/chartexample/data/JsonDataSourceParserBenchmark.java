@@ -0,0 +1,149 @@
+package harmonysoft.tech.chartexample.data;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+import tech.harmonysoft.android.leonardo.model.data.ChartDataSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Compares parse time and peak heap usage of {@link JsonDataSourceParser} and {@link StreamingJsonDataSourceParser}
+ * on a multi-megabyte input. Results are published as test report entries.
+ * <p/>
+ * Is excluded from the default test run, use {@code ./gradlew test -Pbenchmark} to run benchmarks.
+ *
+ * @author Denis Zhdanov
+ * @since 1/4/19
+ */
+@Tag("benchmark")
+class JsonDataSourceParserBenchmark {
+
+    private static final int CHARTS_NUMBER    = 5;
+    private static final int SERIES_NUMBER    = 4;
+    private static final int POINTS_NUMBER    = 20_000;
+    private static final int WARM_UP_RUNS     = 3;
+    private static final int MEASUREMENT_RUNS = 5;
+
+    private byte[]       mInput;
+    private TestReporter mReporter;
+
+    @BeforeEach
+    public void setUp(TestReporter reporter) {
+        mReporter = reporter;
+        Random random = new Random(1);
+        StringBuilder buffer = new StringBuilder("[");
+        for (int chart = 0; chart < CHARTS_NUMBER; chart++) {
+            if (chart > 0) {
+                buffer.append(',');
+            }
+            buffer.append("{\"columns\":[[\"x\"");
+            for (int i = 0; i < POINTS_NUMBER; i++) {
+                buffer.append(',').append(1_542_412_800_000L + i * 86_400_000L);
+            }
+            buffer.append(']');
+            for (int series = 0; series < SERIES_NUMBER; series++) {
+                buffer.append(",[\"y").append(series).append('"');
+                for (int i = 0; i < POINTS_NUMBER; i++) {
+                    buffer.append(',').append(random.nextInt(1_000_000));
+                }
+                buffer.append(']');
+            }
+            buffer.append("],\"types\":{\"x\":\"x\"");
+            for (int series = 0; series < SERIES_NUMBER; series++) {
+                buffer.append(",\"y").append(series).append("\":\"line\"");
+            }
+            buffer.append("},\"names\":{");
+            for (int series = 0; series < SERIES_NUMBER; series++) {
+                buffer.append(series > 0 ? "," : "").append("\"y").append(series);
+                buffer.append("\":\"Series ").append(series).append('"');
+            }
+            buffer.append("},\"colors\":{");
+            for (int series = 0; series < SERIES_NUMBER; series++) {
+                buffer.append(series > 0 ? "," : "").append("\"y").append(series).append("\":\"#3DC23F\"");
+            }
+            buffer.append("}}");
+        }
+        buffer.append(']');
+        mInput = buffer.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void compareParsers() throws Exception {
+        mReporter.publishEntry("input size, MB", format(mInput.length / (1024.0 * 1024.0)));
+        Map<String, Collection<ChartDataSource>> expected = measure("DOM", in -> new JsonDataSourceParser().parse(in));
+        Map<String, Collection<ChartDataSource>> actual = measure("streaming",
+                                                                 in -> new StreamingJsonDataSourceParser().parse(in));
+        StreamingJsonDataSourceParserTest.assertSameData(actual, expected);
+    }
+
+    private Map<String, Collection<ChartDataSource>> measure(String name, Parser parser) throws Exception {
+        for (int i = 0; i < WARM_UP_RUNS; i++) {
+            parser.parse(new ByteArrayInputStream(mInput));
+        }
+
+        long totalTimeNanos = 0;
+        long maxPeakBytes = 0;
+        Map<String, Collection<ChartDataSource>> result = null;
+        for (int i = 0; i < MEASUREMENT_RUNS; i++) {
+            result = null;
+            System.gc();
+            long baselineBytes = getUsedHeapBytes();
+            resetPeakUsage();
+            long start = System.nanoTime();
+            result = parser.parse(new ByteArrayInputStream(mInput));
+            totalTimeNanos += System.nanoTime() - start;
+            maxPeakBytes = Math.max(maxPeakBytes, getPeakHeapBytes() - baselineBytes);
+        }
+        mReporter.publishEntry(name + " parser, ms per parse",
+                               format(totalTimeNanos / (MEASUREMENT_RUNS * 1_000_000.0)));
+        mReporter.publishEntry(name + " parser, peak heap growth MB", format(maxPeakBytes / (1024.0 * 1024.0)));
+        return result;
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.US, "%.1f", value);
+    }
+
+    private static long getUsedHeapBytes() {
+        long result = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                result += pool.getUsage().getUsed();
+            }
+        }
+        return result;
+    }
+
+    private static long getPeakHeapBytes() {
+        long result = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                result += pool.getPeakUsage().getUsed();
+            }
+        }
+        return result;
+    }
+
+    private static void resetPeakUsage() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    private interface Parser {
+        Map<String, Collection<ChartDataSource>> parse(InputStream in) throws Exception;
+    }
+}
@@ -0,0 +1,152 @@
+package harmonysoft.tech.chartexample.data;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import tech.harmonysoft.android.leonardo.model.Interval;
+import tech.harmonysoft.android.leonardo.model.data.ChartDataSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * @author Denis Zhdanov
+ * @since 1/4/19
+ */
+class StreamingJsonDataSourceParserTest {
+
+    static final String INPUT_PATH = "src/main/res/raw/input.json";
+
+    private StreamingJsonDataSourceParser mParser;
+
+    @BeforeEach
+    public void setUp() {
+        mParser = new StreamingJsonDataSourceParser();
+    }
+
+    @Test
+    public void whenBundledInputIsParsed_thenResultIsTheSameAsForDomParser() throws Exception {
+        Map<String, Collection<ChartDataSource>> expected;
+        try (InputStream in = new FileInputStream(INPUT_PATH)) {
+            expected = new JsonDataSourceParser().parse(in);
+        }
+        Map<String, Collection<ChartDataSource>> actual;
+        try (InputStream in = new FileInputStream(INPUT_PATH)) {
+            actual = mParser.parse(in);
+        }
+        assertSameData(actual, expected);
+    }
+
+    @Test
+    public void whenInputIsIndexed_thenEveryChartCanBeParsedFromItsOffset() throws Exception {
+        Map<String, Collection<ChartDataSource>> expected;
+        try (InputStream in = new FileInputStream(INPUT_PATH)) {
+            expected = mParser.parse(in);
+        }
+        Map<String, Long> offsets;
+        try (InputStream in = new FileInputStream(INPUT_PATH)) {
+            offsets = mParser.index(in);
+        }
+        assertThat(offsets.keySet()).isEqualTo(expected.keySet());
+
+        Map<String, Collection<ChartDataSource>> actual = new HashMap<>();
+        for (Map.Entry<String, Long> entry : offsets.entrySet()) {
+            try (InputStream in = new FileInputStream(INPUT_PATH)) {
+                assertThat(in.skip(entry.getValue())).isEqualTo(entry.getValue());
+                actual.put(entry.getKey(), mParser.parseChart(in));
+            }
+        }
+        assertSameData(actual, expected);
+    }
+
+    @Test
+    public void whenInputHasExtraWhitespacesAndProperties_thenItIsParsed() throws IOException {
+        Map<String, Collection<ChartDataSource>> result = parse(
+                " [ {\"unknown\": {\"a\": [1, true, null, \"\\\"\"]},\n"
+                + "\"columns\": [[\"x\", 1, 2, 3], [\"y0\", -1, 0, 9223372036854775807]],\n"
+                + "\"types\": {\"x\": \"x\", \"y0\": \"line\"},\n"
+                + "\"names\": {\"y0\": \"\\u0421\u0435\u0440\u0438\u044f\"},\n"
+                + "\"colors\": {\"y0\": \"#3DC23F\"}} ] ");
+        assertThat(result).hasSize(1);
+        ChartDataSource dataSource = result.values().iterator().next().iterator().next();
+        assertThat(dataSource.getLegend()).isEqualTo("Серия");
+        assertThat(dataSource.getColor()).isEqualTo(0xFF3DC23F);
+        Interval interval = dataSource.getLoader().load(dataSource.getDataRange());
+        assertThat(interval.size()).isEqualTo(3);
+        assertThat(interval.getY(0)).isEqualTo(-1);
+        assertThat(interval.getY(2)).isEqualTo(Long.MAX_VALUE);
+    }
+
+    @Test
+    public void whenColumnSizesDiffer_thenExceptionIsThrown() {
+        assertThatThrownBy(() -> parse("[{\"columns\": [[\"x\", 1, 2], [\"y0\", 1]]}]"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("same number of values");
+    }
+
+    @Test
+    public void whenColumnValueIsNotNumber_thenExceptionIsThrown() {
+        assertThatThrownBy(() -> parse("[{\"columns\": [[\"x\", 1, \"2\"]]}]"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Expected to get a numeric value");
+    }
+
+    @Test
+    public void whenColorIsMalformed_thenExceptionIsThrown() {
+        assertThatThrownBy(() -> parse("[{\"colors\": {\"y0\": \"red\"}}]"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("#RRGGBB");
+    }
+
+    @Test
+    public void whenColumnHasNoColor_thenExceptionIsThrown() {
+        assertThatThrownBy(() -> parse("[{\"columns\": [[\"x\", 1], [\"y0\", 1]],"
+                                       + "\"types\": {\"x\": \"x\", \"y0\": \"line\"},"
+                                       + "\"names\": {\"y0\": \"name\"}}]"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("No color");
+    }
+
+    @Test
+    public void whenJsonIsMalformed_thenExceptionIsThrown() {
+        assertThatThrownBy(() -> parse("[{\"columns\": [[\"x\", 1 2]]}]")).isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> parse("[{\"columns\": [[\"x\", 1.5]]}]")).isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> parse("[{\"columns\": [[\"x\", 99999999999999999999]]}]"))
+                .isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> parse("[{\"columns\"")).isInstanceOf(IOException.class);
+    }
+
+    private Map<String, Collection<ChartDataSource>> parse(String json) throws IOException {
+        return mParser.parse(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    static void assertSameData(Map<String, Collection<ChartDataSource>> actual,
+                               Map<String, Collection<ChartDataSource>> expected)
+    {
+        assertThat(actual.keySet()).isEqualTo(expected.keySet());
+        for (Map.Entry<String, Collection<ChartDataSource>> entry : expected.entrySet()) {
+            Map<String, ChartDataSource> actualByLegend = new HashMap<>();
+            for (ChartDataSource dataSource : actual.get(entry.getKey())) {
+                actualByLegend.put(dataSource.getLegend(), dataSource);
+            }
+            assertThat(actualByLegend).hasSameSizeAs(entry.getValue());
+            for (ChartDataSource expectedDataSource : entry.getValue()) {
+                ChartDataSource actualDataSource = actualByLegend.get(expectedDataSource.getLegend());
+                assertThat(actualDataSource).isNotNull();
+                assertThat(actualDataSource.getColor()).isEqualTo(expectedDataSource.getColor());
+                assertThat(actualDataSource.getDataRange()).isEqualTo(expectedDataSource.getDataRange());
+                Interval expectedInterval = expectedDataSource.getLoader().load(expectedDataSource.getDataRange());
+                Interval actualInterval = actualDataSource.getLoader().load(actualDataSource.getDataRange());
+                assertThat(actualInterval.getPoints()).isEqualTo(expectedInterval.getPoints());
+            }
+        }
+    }
+}
@@ -1,19 +1,28 @@
 package tech.harmonysoft.android.leonardo.controller;
 
-import android.annotation.SuppressLint;
-import android.os.AsyncTask;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
 import tech.harmonysoft.android.leonardo.log.LogUtil;
 import tech.harmonysoft.android.leonardo.model.Interval;
 import tech.harmonysoft.android.leonardo.model.Range;
+import tech.harmonysoft.android.leonardo.model.data.BatchChartDataLoader;
+import tech.harmonysoft.android.leonardo.model.data.BatchChartDataSeriesLoader;
+import tech.harmonysoft.android.leonardo.model.data.ChartDataLoader;
 import tech.harmonysoft.android.leonardo.model.data.ChartDataSource;
+import tech.harmonysoft.android.leonardo.model.data.ResolutionAwareChartDataLoader;
+import tech.harmonysoft.android.leonardo.model.runtime.ChartDataChange;
 import tech.harmonysoft.android.leonardo.model.runtime.ChartModel;
 import tech.harmonysoft.android.leonardo.model.runtime.ChartModelListener;
 import tech.harmonysoft.android.leonardo.util.RangesList;
 
 import javax.annotation.Nonnull;
-import java.util.Collection;
-import java.util.HashSet;
-import java.util.Set;
+import javax.annotation.Nullable;
+import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadPoolExecutor;
 
 /**
  * @author Denis Zhdanov
@@ -21,26 +30,114 @@ import java.util.Set;
  */
 public class ChartDataManager implements ChartModelListener {
 
-    private final Set<ChartDataLoadTask> mTasks = new HashSet<>();
+    private final Set<ChartDataLoadTask> mTasks            = new HashSet<>();
+    private final List<LoadRequest>      mRequestsToSubmit = new ArrayList<>();
+    /**
+     * Pages found in cache during a loading pass. They are delivered to the model after the pass, as the model
+     * changes its loaded ranges on delivery and the pass iterates over them
+     */
+    private final List<LoadResult>       mCachedResults    = new ArrayList<>();
+
+    /** Holders re-used for every {@link #getRangesToLoad(ChartDataSource, long, Range) ranges calculation} */
+    private final RangesList mPendingRanges    = new RangesList();
+    private final RangesList mMissingRanges    = new RangesList();
+    private final RangesList mNotPendingRanges = new RangesList();
+
+    private final Choreographer.FrameCallback mLoadCallback = frameTimeNanos -> mayBeLoadRanges();
+    private final Runnable                    mLoadTask     = this::mayBeLoadRanges;
 
     private final ChartModel mModel;
+    private final Executor   mExecutor;
+    private final PageCache  mCache;
+    /** Runs given task on the model's thread, loaded data is delivered to the model there */
+    private final Executor   mModelThreadExecutor;
+    /** Runs given task at the next frame, {@code null} means current thread's {@link Choreographer} */
+    private final Executor   mFrameExecutor;
+
+    private Choreographer mChoreographer;
+    private boolean       mLoadScheduled;
+
+    /**
+     * @param model     target model
+     * @param executor  executor to load the data in. Load requests for different data sources and ranges
+     *                  are submitted independently, so they are processed in parallel if the executor allows that
+     */
+    public ChartDataManager(ChartModel model, Executor executor) {
+        this(model, executor, null);
+    }
+
+    /**
+     * @param model     target model
+     * @param executor  executor to load the data in, see {@link #ChartDataManager(ChartModel, Executor)}
+     * @param cache     cache to keep loaded pages in, {@code null} means that no cache should be used
+     */
+    public ChartDataManager(ChartModel model, Executor executor, @Nullable PageCache cache) {
+        // Loaded data is delivered to the model on the thread which created current manager, usually the UI thread
+        this(model, executor, cache, new Handler(getModelLooper())::post, null);
+    }
 
-    public ChartDataManager(ChartModel model) {
+    /**
+     * Allows to run the manager without the Android runtime, e.g. in tests.
+     *
+     * @param model                 target model
+     * @param executor              executor to load the data in, see {@link #ChartDataManager(ChartModel, Executor)}
+     * @param cache                 cache to keep loaded pages in, {@code null} means that no cache should be used
+     * @param modelThreadExecutor   executor which runs given task on the model's thread
+     * @param frameExecutor         executor which runs given task at the next frame, {@code null} means that
+     *                              current thread's {@link Choreographer} should be used
+     */
+    ChartDataManager(ChartModel model,
+                     Executor executor,
+                     @Nullable PageCache cache,
+                     Executor modelThreadExecutor,
+                     @Nullable Executor frameExecutor)
+    {
         mModel = model;
+        mExecutor = executor;
+        mCache = cache;
+        mModelThreadExecutor = modelThreadExecutor;
+        mFrameExecutor = frameExecutor;
         model.addListener(this);
         mayBeLoadRanges();
     }
 
+    /**
+     * @return      looper of the current thread, e.g. an engine thread of a
+     *              {@link tech.harmonysoft.android.leonardo.model.runtime.impl.ThreadConfinedChartModel};
+     *              main looper if current thread has no looper
+     */
+    @Nonnull
+    private static Looper getModelLooper() {
+        Looper looper = Looper.myLooper();
+        return looper == null ? Looper.getMainLooper() : looper;
+    }
+
     @Override
     public void onRangeChanged(Object anchor) {
-        mayBeLoadRanges();
+        scheduleLoad();
     }
 
-    private void mayBeLoadRanges() {
-        for (ChartDataLoadTask task : mTasks) {
-            task.cancel(true);
+    /**
+     * Range might be changed many times per frame during scroll, so we coalesce all the changes
+     * and check what should be loaded only once per frame.
+     */
+    private void scheduleLoad() {
+        if (!mLoadScheduled) {
+            mLoadScheduled = true;
+            if (mFrameExecutor != null) {
+                mFrameExecutor.execute(mLoadTask);
+                return;
+            }
+            if (mChoreographer == null) {
+                mChoreographer = Choreographer.getInstance();
+            }
+            mChoreographer.postFrameCallback(mLoadCallback);
         }
-        mTasks.clear();
+    }
+
+    private void mayBeLoadRanges() {
+        mLoadScheduled = false;
+        cancelIrrelevantTasks();
         Range bufferRange = mModel.getBufferRange();
 
         LogUtil.debug(this, "mayBeLoadRanges(): buffer range=%s", bufferRange);
@@ -48,22 +145,249 @@ public class ChartDataManager implements ChartModelListener {
         if (bufferRange.isEmpty()) {
             return;
         }
+        // Sources which share the same batch loader are loaded together
+        Map<BatchChartDataLoader, Map<ChartDataSource, Collection<Range>>> batches = new HashMap<>();
         for (ChartDataSource dataSource : mModel.getRegisteredDataSources()) {
-            RangesList loadedRanges = mModel.getLoadedRanges(dataSource);
-            LogUtil.debug(this,
-                          "mayBeLoadRanges(): loaded ranges for source '%s'=%s",
-                          dataSource, loadedRanges);
-            Collection<Range> rangesToLoad = loadedRanges.getMissing(bufferRange);
-            LogUtil.debug(this,
-                          "mayBeLoadRanges(): ranges to load for source '%s'=%s",
-                          dataSource, rangesToLoad);
+            if (mModel.isLive(dataSource)) {
+                // Points are pushed to the model by the data source's owner
+                continue;
+            }
+            if (dataSource instanceof ResolutionAwareChartDataLoader) {
+                mayBeLoadRangesWithResolution(dataSource);
+                continue;
+            }
+            Collection<Range> rangesToLoad = getRangesToLoad(dataSource, ChartModel.RAW_STEP, bufferRange);
+            if (rangesToLoad.isEmpty()) {
+                continue;
+            }
+            ChartDataLoader loader = dataSource.getLoader();
+            if (!(loader instanceof BatchChartDataSeriesLoader)) {
+                for (Range range : rangesToLoad) {
+                    load(new LoadRequest(Collections.singletonList(dataSource), range, ChartModel.RAW_STEP));
+                }
+                continue;
+            }
+            BatchChartDataLoader batchLoader = getBatchLoader(dataSource);
+            Map<ChartDataSource, Collection<Range>> batch = batches.get(batchLoader);
+            if (batch == null) {
+                batch = new LinkedHashMap<>();
+                batches.put(batchLoader, batch);
+            }
+            batch.put(dataSource, rangesToLoad);
+        }
+
+        for (Map<ChartDataSource, Collection<Range>> batch : batches.values()) {
+            loadBatch(batch);
+        }
+        deliverCachedResults();
+        submitRequests();
+    }
+
+    /**
+     * Data sources which share a batch loader might miss different ranges, e.g. when one of them is added
+     * later or some pages are cached only for some of them. Overlapping and adjacent ranges are merged, so that
+     * every merged range is loaded by a single batch request for all data sources which miss any part of it.
+     *
+     * @param batch     ranges to load for the data sources which share the same batch loader
+     */
+    private void loadBatch(Map<ChartDataSource, Collection<Range>> batch) {
+        RangesList mergedRanges = new RangesList();
+        for (Collection<Range> ranges : batch.values()) {
+            for (Range range : ranges) {
+                mergedRanges.add(range);
+            }
+        }
+        for (int i = 0; i < mergedRanges.size(); i++) {
+            Range mergedRange = new Range(mergedRanges.getStart(i), mergedRanges.getEnd(i));
+            List<ChartDataSource> dataSources = new ArrayList<>();
+            for (Map.Entry<ChartDataSource, Collection<Range>> entry : batch.entrySet()) {
+                for (Range range : entry.getValue()) {
+                    if (range.intersects(mergedRange)) {
+                        dataSources.add(entry.getKey());
+                        break;
+                    }
+                }
+            }
+            load(new LoadRequest(dataSources, mergedRange, ChartModel.RAW_STEP));
+        }
+    }
+
+    /**
+     * Loads data for every anchor in resolution implied by the anchor's active range and visual width.
+     *
+     * @param dataSource    target data source, assumed to be a {@link ResolutionAwareChartDataLoader}
+     */
+    private void mayBeLoadRangesWithResolution(ChartDataSource dataSource) {
+        for (Object anchor : mModel.getAnchors()) {
+            Range bufferRange = mModel.getBufferRange(anchor);
+            if (bufferRange.isEmpty()) {
+                continue;
+            }
+            long step = mModel.getStep(anchor);
+            for (Range range : getRangesToLoad(dataSource, step, bufferRange)) {
+                load(new LoadRequest(Collections.singletonList(dataSource), range, step));
+            }
+        }
+    }
+
+    @Nonnull
+    private Collection<Range> getRangesToLoad(ChartDataSource dataSource, long step, Range bufferRange) {
+        RangesList loadedRanges = mModel.getLoadedRanges(dataSource, step);
+        loadedRanges.getMissing(bufferRange, mMissingRanges);
+        if (mMissingRanges.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        RangesList pendingRanges = getPendingRanges(dataSource, step);
+        LogUtil.debug(this,
+                      "getRangesToLoad(): source '%s', step %d, loaded ranges=%s, pending ranges=%s",
+                      dataSource, step, loadedRanges, pendingRanges);
+        Collection<Range> result = new ArrayList<>();
+        for (int i = 0; i < mMissingRanges.size(); i++) {
+            // Don't re-request data which is being loaded at the moment
+            pendingRanges.getMissing(mMissingRanges.getStart(i), mMissingRanges.getEnd(i), mNotPendingRanges);
+            for (int j = 0; j < mNotPendingRanges.size(); j++) {
+                Range range = new Range(mNotPendingRanges.getStart(j), mNotPendingRanges.getEnd(j));
+                result.addAll(mayBeLoadFromCache(dataSource, step, range));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Collects cached data for the given range to be {@link #deliverCachedResults() delivered} to the model
+     * after the current loading pass.
+     *
+     * @param dataSource    target data source
+     * @param step          target resolution
+     * @param range         target range
+     * @return              ranges which are not found in cache
+     */
+    @Nonnull
+    private Collection<Range> mayBeLoadFromCache(ChartDataSource dataSource, long step, Range range) {
+        if (mCache == null) {
+            return Collections.singletonList(range);
+        }
+        List<PageCache.Page> pages = mCache.get(dataSource, step, range);
+        if (pages.isEmpty()) {
+            return Collections.singletonList(range);
+        }
+        RangesList cachedRanges = new RangesList();
+        for (PageCache.Page page : pages) {
+            Range cachedRange = new Range(Math.max(range.getStart(), page.getRange().getStart()),
+                                          Math.min(range.getEnd(), page.getRange().getEnd()));
+            Interval interval = page.getInterval().getSubInterval(cachedRange.getStart(), cachedRange.getEnd());
+            LogUtil.debug(this, "mayBeLoadFromCache(): source '%s', step %d, cached range %s",
+                          dataSource, step, cachedRange);
+            mCachedResults.add(new LoadResult(Collections.singletonMap(dataSource, interval), cachedRange, step));
+            cachedRanges.add(cachedRange);
+        }
+        return cachedRanges.getMissing(range);
+    }
+
+    @Nonnull
+    private RangesList getPendingRanges(ChartDataSource dataSource, long step) {
+        RangesList result = mPendingRanges;
+        result.clear();
+        for (ChartDataLoadTask task : mTasks) {
+            addIfMatches(task.getRequest(), dataSource, step, result);
+        }
+        for (LoadRequest request : mRequestsToSubmit) {
+            addIfMatches(request, dataSource, step, result);
+        }
+        for (LoadResult cachedResult : mCachedResults) {
+            if (cachedResult.getStep() == step && cachedResult.getIntervals().containsKey(dataSource)) {
+                result.add(cachedResult.getRange());
+            }
+        }
+        return result;
+    }
 
-            for (Range rangeToLoad : rangesToLoad) {
-                ChartDataLoadTask task = new ChartDataLoadTask();
-                mTasks.add(task);
-                task.execute(new LoadRequest(dataSource, rangeToLoad));
+    private void deliverCachedResults() {
+        for (LoadResult result : mCachedResults) {
+            for (Map.Entry<ChartDataSource, Interval> entry : result.getIntervals().entrySet()) {
+                mModel.onPointsLoaded(entry.getKey(), result.getRange(), result.getStep(), entry.getValue());
             }
         }
+        mCachedResults.clear();
+    }
+
+    private static void addIfMatches(LoadRequest request, ChartDataSource dataSource, long step, RangesList holder) {
+        if (request.getStep() == step && request.getDataSources().contains(dataSource)) {
+            holder.add(request.getRange());
+        }
+    }
+
+    /**
+     * Cancels load tasks which results are not necessary anymore. Tasks which ranges intersect the current
+     * buffer range are kept intact.
+     */
+    private void cancelIrrelevantTasks() {
+        if (mTasks.isEmpty()) {
+            return;
+        }
+        Collection<ChartDataSource> dataSources = mModel.getRegisteredDataSources();
+        for (Iterator<ChartDataLoadTask> iterator = mTasks.iterator(); iterator.hasNext(); ) {
+            ChartDataLoadTask task = iterator.next();
+            if (isRelevant(task.getRequest(), dataSources)) {
+                continue;
+            }
+            LogUtil.debug(this, "cancelIrrelevantTasks(): cancelling load of %s", task.getRequest());
+            iterator.remove();
+            task.cancel(true);
+            if (mExecutor instanceof ThreadPoolExecutor) {
+                // Don't keep cancelled tasks in the executor's queue
+                ((ThreadPoolExecutor) mExecutor).remove(task);
+            }
+        }
+    }
+
+    private boolean isRelevant(LoadRequest request, Collection<ChartDataSource> dataSources) {
+        if (Collections.disjoint(request.getDataSources(), dataSources)) {
+            return false;
+        }
+        if (!(request.getDataSources().get(0) instanceof ResolutionAwareChartDataLoader)) {
+            return request.getRange().intersects(mModel.getBufferRange());
+        }
+        for (Object anchor : mModel.getAnchors()) {
+            if (mModel.getStep(anchor) == request.getStep()
+                && request.getRange().intersects(mModel.getBufferRange(anchor)))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void load(LoadRequest request) {
+        mRequestsToSubmit.add(request);
+    }
+
+    /**
+     * Submits {@link #load(LoadRequest) collected requests} for execution. Requests closer to the model's
+     * {@link ChartModel#getFocusX() focus} are submitted first, i.e. data ahead of the scroll direction
+     * is loaded before the data behind the active range.
+     */
+    private void submitRequests() {
+        if (mRequestsToSubmit.isEmpty()) {
+            return;
+        }
+        long focusX = mModel.getFocusX();
+        Collections.sort(mRequestsToSubmit, (r1, r2) -> Long.compare(getDistance(r1.getRange(), focusX),
+                                                                     getDistance(r2.getRange(), focusX)));
+        for (LoadRequest request : mRequestsToSubmit) {
+            ChartDataLoadTask task = new ChartDataLoadTask(request);
+            mTasks.add(task);
+            mExecutor.execute(task);
+        }
+        mRequestsToSubmit.clear();
+    }
+
+    private static long getDistance(Range range, long x) {
+        if (range.contains(x)) {
+            return 0;
+        }
+        return x < range.getStart() ? range.getStart() - x : x - range.getEnd();
     }
 
     @Override
@@ -76,80 +400,177 @@ public class ChartDataManager implements ChartModelListener {
 
     @Override
     public void onDataSourceAdded(ChartDataSource dataSource) {
-        mayBeLoadRanges();
+        scheduleLoad();
     }
 
     @Override
     public void onDataSourceRemoved(ChartDataSource dataSource) {
+        if (mCache != null) {
+            mCache.remove(dataSource);
+        }
     }
 
     @Override
-    public void onActiveDataPointsLoaded(Object anchor) {
+    public void onDataPointsChanged(ChartDataChange change) {
     }
 
     @Override
     public void onSelectionChange() {
     }
 
-    @SuppressLint("StaticFieldLeak")
-    private class ChartDataLoadTask extends AsyncTask<LoadRequest, Void, LoadResult> {
+    /**
+     * Loads the data in background and delivers the result to the model on the main thread.
+     */
+    private class ChartDataLoadTask extends FutureTask<LoadResult> {
+
+        private final LoadRequest mRequest;
+
+        ChartDataLoadTask(LoadRequest request) {
+            super(() -> doLoad(request));
+            mRequest = request;
+        }
+
+        @Nonnull
+        LoadRequest getRequest() {
+            return mRequest;
+        }
 
         @Override
-        protected LoadResult doInBackground(LoadRequest... requests) {
-            if (requests.length != 1) {
-                throw new IllegalArgumentException(String.format("Expected to get a single load request but got %d",
-                                                                 requests.length));
+        protected void done() {
+            if (isCancelled()) {
+                return;
             }
-            LoadRequest request = requests[0];
-            Interval interval = request.getDataSource().load(request.getRange());
-            return new LoadResult(interval == null ? Interval.EMPTY : interval,
-                                  request.getRange(),
-                                  request.getDataSource());
+            mModelThreadExecutor.execute(this::deliver);
         }
 
-        @Override
-        protected void onPostExecute(LoadResult loadResult) {
-            mTasks.remove(this);
-            mModel.onPointsLoaded(loadResult.getSource(), loadResult.getRange(), loadResult.getInterval());
+        private void deliver() {
+            if (!mTasks.remove(this)) {
+                // Cancelled after the data is loaded
+                return;
+            }
+            LoadResult loadResult;
+            try {
+                loadResult = get();
+            } catch (InterruptedException e) {
+                // Never happens - the task is already done here
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof Error) {
+                    // Not a page failure, e.g. out of memory
+                    throw (Error) cause;
+                }
+                // A disk or network loader might fail occasionally. The range is neither loaded nor pending
+                // now, so it's requested again by the next loading pass, e.g. on the next active range change
+                LogUtil.error(ChartDataManager.this, cause, "Failed to load chart data for %s", mRequest);
+                return;
+            }
+            for (Map.Entry<ChartDataSource, Interval> entry : loadResult.getIntervals().entrySet()) {
+                if (mCache != null) {
+                    mCache.put(entry.getKey(), loadResult.getStep(), loadResult.getRange(), entry.getValue());
+                }
+                mModel.onPointsLoaded(entry.getKey(), loadResult.getRange(), loadResult.getStep(), entry.getValue());
+            }
+        }
+    }
+
+    @Nonnull
+    private static LoadResult doLoad(LoadRequest request) {
+        List<ChartDataSource> dataSources = request.getDataSources();
+        Range range = request.getRange();
+        long step = request.getStep();
+        Map<ChartDataSource, Interval> intervals = new HashMap<>();
+        if (dataSources.size() > 1) {
+            // All sources share the same batch loader
+            BatchChartDataLoader batchLoader = getBatchLoader(dataSources.get(0));
+            // Different data sources might show the same series, every one of them gets its points
+            Set<String> seriesIds = new HashSet<>();
+            for (ChartDataSource dataSource : dataSources) {
+                seriesIds.add(getSeriesId(dataSource));
+            }
+            Map<String, Interval> loaded = batchLoader.load(range, seriesIds);
+            for (ChartDataSource dataSource : dataSources) {
+                Interval interval = loaded.get(getSeriesId(dataSource));
+                intervals.put(dataSource, interval == null ? Interval.EMPTY : interval);
+            }
+        } else {
+            ChartDataSource dataSource = dataSources.get(0);
+            Interval interval;
+            if (step > ChartModel.RAW_STEP && dataSource instanceof ResolutionAwareChartDataLoader) {
+                interval = ((ResolutionAwareChartDataLoader) dataSource).load(range, step);
+            } else {
+                interval = dataSource.load(range);
+            }
+            intervals.put(dataSource, interval == null ? Interval.EMPTY : interval);
         }
+        return new LoadResult(intervals, range, step);
+    }
+
+    @Nonnull
+    private static BatchChartDataLoader getBatchLoader(ChartDataSource dataSource) {
+        return ((BatchChartDataSeriesLoader) dataSource.getLoader()).getBatchLoader();
+    }
+
+    @Nonnull
+    private static String getSeriesId(ChartDataSource dataSource) {
+        return ((BatchChartDataSeriesLoader) dataSource.getLoader()).getSeriesId();
     }
 
     private static final class LoadRequest {
 
-        private final ChartDataSource mDataSource;
-        private final Range           mRange;
+        private final List<ChartDataSource> mDataSources;
+        private final Range                 mRange;
+        private final long                  mStep;
 
-        public LoadRequest(ChartDataSource dataSource, Range range) {
-            mDataSource = dataSource;
+        /**
+         * @param dataSources   data sources to load, multiple sources are expected only when they share
+         *                      the same {@link BatchChartDataLoader}
+         * @param range         range to load
+         * @param step          resolution to load
+         */
+        public LoadRequest(List<ChartDataSource> dataSources, Range range, long step) {
+            mDataSources = dataSources;
             mRange = range;
+            mStep = step;
         }
 
         @Nonnull
-        public ChartDataSource getDataSource() {
-            return mDataSource;
+        public List<ChartDataSource> getDataSources() {
+            return mDataSources;
         }
 
         @Nonnull
         public Range getRange() {
             return mRange;
         }
+
+        public long getStep() {
+            return mStep;
+        }
+
+        @Nonnull
+        @Override
+        public String toString() {
+            return "sources=" + mDataSources + ", range=" + mRange + ", step=" + mStep;
+        }
     }
 
     private static class LoadResult {
 
-        private final Interval        mInterval;
-        private final Range           mRange;
-        private final ChartDataSource mSource;
+        private final Map<ChartDataSource, Interval> mIntervals;
+        private final Range                          mRange;
+        private final long                           mStep;
 
-        public LoadResult(Interval interval, Range range, ChartDataSource source) {
-            mInterval = interval;
+        public LoadResult(Map<ChartDataSource, Interval> intervals, Range range, long step) {
+            mIntervals = intervals;
             mRange = range;
-            mSource = source;
+            mStep = step;
         }
 
         @Nonnull
-        public Interval getInterval() {
-            return mInterval;
+        public Map<ChartDataSource, Interval> getIntervals() {
+            return mIntervals;
         }
 
         @Nonnull
@@ -157,9 +578,8 @@ public class ChartDataManager implements ChartModelListener {
             return mRange;
         }
 
-        @Nonnull
-        public ChartDataSource getSource() {
-            return mSource;
+        public long getStep() {
+            return mStep;
         }
     }
 }
@@ -0,0 +1,238 @@
+package tech.harmonysoft.android.leonardo.controller;
+
+import tech.harmonysoft.android.leonardo.model.Interval;
+import tech.harmonysoft.android.leonardo.model.Range;
+import tech.harmonysoft.android.leonardo.model.data.ChartDataSource;
+
+import javax.annotation.Nonnull;
+import java.util.*;
+
+/**
+ * <p>
+ *     Size-bounded LRU cache of loaded data pages. {@link ChartDataManager} puts every loaded page here
+ *     and consults the cache before scheduling a load, so scrolling back and forth over the same data
+ *     doesn't call {@link ChartDataSource#load(Range)} every time the data leaves the buffer range.
+ * </p>
+ * <p>
+ *     Cache size is measured in points. Least recently used pages are evicted when the size exceeds
+ *     the limit.
+ * </p>
+ * <p>
+ *     Not thread-safe, is assumed to be used from the main thread only.
+ * </p>
+ *
+ * @author Denis Zhdanov
+ * @since 31/3/19
+ */
+public class PageCache {
+
+    /** Iteration order is from the least recently used page to the most recently used one */
+    private final Map<Page, Page>          mPages        = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<PageKey, List<Page>> mPagesBySource = new HashMap<>();
+
+    private final int mMaxSizeInPoints;
+
+    private int mSizeInPoints;
+    private int mHitCount;
+    private int mMissCount;
+    private int mEvictionCount;
+
+    /**
+     * @param maxSizeInPoints   max number of points to keep in cache
+     */
+    public PageCache(int maxSizeInPoints) {
+        if (maxSizeInPoints <= 0) {
+            throw new IllegalArgumentException("Expected to get a positive cache size but got " + maxSizeInPoints);
+        }
+        mMaxSizeInPoints = maxSizeInPoints;
+    }
+
+    /**
+     * Remembers given page. Cached pages of the same data source and resolution which are located inside
+     * the given page's range are dropped.
+     *
+     * @param dataSource    page's data source
+     * @param step          page's resolution
+     * @param range         page's range
+     * @param interval      page's points, is expected not to be modified after it's given to the cache
+     */
+    public void put(ChartDataSource dataSource, long step, Range range, Interval interval) {
+        PageKey key = new PageKey(dataSource, step);
+        List<Page> pages = mPagesBySource.get(key);
+        if (pages == null) {
+            pages = new ArrayList<>();
+            mPagesBySource.put(key, pages);
+        }
+        for (Iterator<Page> iterator = pages.iterator(); iterator.hasNext(); ) {
+            Page page = iterator.next();
+            if (page.mRange.getStart() >= range.getStart() && page.mRange.getEnd() <= range.getEnd()) {
+                iterator.remove();
+                mPages.remove(page);
+                mSizeInPoints -= page.getSizeInPoints();
+            }
+        }
+
+        Page page = new Page(key, range, interval);
+        pages.add(page);
+        mPages.put(page, page);
+        mSizeInPoints += page.getSizeInPoints();
+        evictIfNecessary();
+    }
+
+    private void evictIfNecessary() {
+        for (Iterator<Page> iterator = mPages.keySet().iterator();
+             iterator.hasNext() && mSizeInPoints > mMaxSizeInPoints; )
+        {
+            Page page = iterator.next();
+            iterator.remove();
+            List<Page> pages = mPagesBySource.get(page.mKey);
+            if (pages != null) {
+                pages.remove(page);
+                if (pages.isEmpty()) {
+                    mPagesBySource.remove(page.mKey);
+                }
+            }
+            mSizeInPoints -= page.getSizeInPoints();
+            mEvictionCount++;
+        }
+    }
+
+    /**
+     * @param dataSource    target data source
+     * @param step          target resolution
+     * @param range         target range
+     * @return              cached pages which intersect with the given range. Every returned page is marked
+     *                      as recently used
+     */
+    @Nonnull
+    public List<Page> get(ChartDataSource dataSource, long step, Range range) {
+        List<Page> pages = mPagesBySource.get(new PageKey(dataSource, step));
+        if (pages == null) {
+            mMissCount++;
+            return Collections.emptyList();
+        }
+        List<Page> result = new ArrayList<>();
+        for (Page page : pages) {
+            if (page.mRange.intersects(range)) {
+                result.add(page);
+                // Access order is updated on get()
+                mPages.get(page);
+            }
+        }
+        if (result.isEmpty()) {
+            mMissCount++;
+        } else {
+            mHitCount++;
+        }
+        return result;
+    }
+
+    /**
+     * Drops all pages of the given data source.
+     *
+     * @param dataSource    target data source
+     */
+    public void remove(ChartDataSource dataSource) {
+        for (Iterator<Map.Entry<PageKey, List<Page>>> iterator = mPagesBySource.entrySet().iterator();
+             iterator.hasNext(); )
+        {
+            Map.Entry<PageKey, List<Page>> entry = iterator.next();
+            if (entry.getKey().mDataSource != dataSource) {
+                continue;
+            }
+            for (Page page : entry.getValue()) {
+                mPages.remove(page);
+                mSizeInPoints -= page.getSizeInPoints();
+            }
+            iterator.remove();
+        }
+    }
+
+    public int getSizeInPoints() {
+        return mSizeInPoints;
+    }
+
+    /**
+     * @return  number of {@link #get(ChartDataSource, long, Range) lookups} which returned at least one page
+     */
+    public int getHitCount() {
+        return mHitCount;
+    }
+
+    /**
+     * @return  number of {@link #get(ChartDataSource, long, Range) lookups} which returned no pages
+     */
+    public int getMissCount() {
+        return mMissCount;
+    }
+
+    /**
+     * @return  number of pages evicted because of the size limit
+     */
+    public int getEvictionCount() {
+        return mEvictionCount;
+    }
+
+    @Nonnull
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "%d pages, %d points (max %d), hits=%d, misses=%d, evictions=%d",
+                             mPages.size(), mSizeInPoints, mMaxSizeInPoints, mHitCount, mMissCount, mEvictionCount);
+    }
+
+    public static class Page {
+
+        private final PageKey  mKey;
+        private final Range    mRange;
+        private final Interval mInterval;
+
+        Page(PageKey key, Range range, Interval interval) {
+            mKey = key;
+            mRange = range;
+            mInterval = interval;
+        }
+
+        @Nonnull
+        public Range getRange() {
+            return mRange;
+        }
+
+        @Nonnull
+        public Interval getInterval() {
+            return mInterval;
+        }
+
+        int getSizeInPoints() {
+            // Count empty pages as well in order to bound their number
+            return Math.max(1, mInterval.size());
+        }
+    }
+
+    private static class PageKey {
+
+        private final ChartDataSource mDataSource;
+        private final long            mStep;
+
+        PageKey(ChartDataSource dataSource, long step) {
+            mDataSource = dataSource;
+            mStep = step;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * mDataSource.hashCode() + (int) (mStep ^ (mStep >>> 32));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            PageKey that = (PageKey) o;
+            return mDataSource.equals(that.mDataSource) && mStep == that.mStep;
+        }
+    }
+}
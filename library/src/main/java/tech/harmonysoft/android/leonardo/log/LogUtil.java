@@ -42,6 +42,18 @@ public class LogUtil {
         }
     }
 
+    /**
+     * Unlike {@link #debug(Object, String, Object...)} always logs the message, even in release builds.
+     */
+    public static void error(Object location, Throwable error, String messagePattern, Object... arguments) {
+        Log.e(LOG_TAG,
+              String.format("%s %s - %s",
+                            FORMATTER.format(new Date()),
+                            getMarker(location),
+                            String.format(messagePattern, arguments)),
+              error);
+    }
+
     @Nonnull
     public static String getMarker(Object location) {
         String result = LOG_MARKERS.get(location);
@@ -3,77 +3,304 @@ package tech.harmonysoft.android.leonardo.model;
 import android.annotation.SuppressLint;
 
 import javax.annotation.Nonnull;
-import java.util.ArrayList;
+import java.util.AbstractList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.List;
+import java.util.RandomAccess;
 
 /**
+ * <p>
+ *     Sorted (by X) sequence of data points without duplicate X values.
+ * </p>
+ * <p>
+ *     Points are kept as X and Y primitive columns. An interval might be either built from a collection
+ *     of points (data is copied then) or be a read-only window over external columns, e.g. chart model's
+ *     buffer. A window is not copied, so it's valid only until the underlying storage is modified.
+ * </p>
+ * <p>
+ *     X column of evenly spaced points might be {@link #Interval(long, long, long[], int, int) implicit} -
+ *     X of the point at index {@code i} is {@code firstX + step * i} then and lookups by X are {@code O(1)}.
+ * </p>
+ *
  * @author Denis Zhdanov
  * @since 10/3/19
  */
 public class Interval {
 
-    public static final Interval EMPTY = new Interval(Collections.emptyList());
+    public static final Interval EMPTY = new Interval(new long[0], new long[0], 0, 0);
 
-    private final List<DataPoint> mPoints = new ArrayList<>();
+    /** X column; {@code null} if X values are implicit */
+    private final long[] mXs;
+    private final long[] mYs;
+    private final int    mOffset;
+    private final int    mSize;
+    /** X of the first point if X values are implicit */
+    private final long   mFirstX;
+    /** Distance between X of adjacent points if X values are implicit */
+    private final long   mXStep;
 
-    private final long mMinX;
-    private final long mMaxX;
-    private final long mMinY;
-    private final long mMaxY;
+    private List<DataPoint> mPoints;
+    private boolean         mYBoundsCalculated;
+    private long            mMinY;
+    private long            mMaxY;
 
     /**
      * @param points    assumed to be sorted
      */
     public Interval(Collection<DataPoint> points) {
-        mPoints.addAll(points);
+        mSize = points.size();
+        mOffset = 0;
+        mFirstX = 0;
+        mXStep = 0;
+        mXs = new long[mSize];
+        mYs = new long[mSize];
+        int i = 0;
+        for (DataPoint point : points) {
+            if (i > 0 && point.getX() == mXs[i - 1]) {
+                throw new IllegalArgumentException(String.format(
+                        "Failed to build and interval - multiple points with the same 'x=%d' are found: "
+                        + "'%s' and '%s'. All points: %s",
+                        point.getX(), point, new DataPoint(mXs[i - 1], mYs[i - 1]), points
+                ));
+            }
+            mXs[i] = point.getX();
+            mYs[i] = point.getY();
+            i++;
+        }
+    }
+
+    /**
+     * Creates a window over the given columns. Given data is not copied.
+     *
+     * @param xs        X values, assumed to be sorted and unique within the target window
+     * @param ys        Y values
+     * @param offset    index of the window's first point in the given arrays
+     * @param size      number of points in the window
+     */
+    public Interval(long[] xs, long[] ys, int offset, int size) {
+        if (offset < 0 || size < 0 || offset + size > xs.length || offset + size > ys.length) {
+            throw new IllegalArgumentException(String.format(
+                    "Invalid interval window - offset=%d, size=%d, X values number=%d, Y values number=%d",
+                    offset, size, xs.length, ys.length
+            ));
+        }
+        mXs = xs;
+        mYs = ys;
+        mOffset = offset;
+        mSize = size;
+        mFirstX = 0;
+        mXStep = 0;
+    }
+
+    /**
+     * Creates a window over the given Y column for the points which X values are evenly spaced.
+     * Given data is not copied.
+     *
+     * @param firstX    X of the window's first point
+     * @param xStep     distance between X of adjacent points, positive unless the window has at most one point
+     * @param ys        Y values
+     * @param offset    index of the window's first point in the given array
+     * @param size      number of points in the window
+     */
+    public Interval(long firstX, long xStep, long[] ys, int offset, int size) {
+        if (offset < 0 || size < 0 || offset + size > ys.length || (xStep <= 0 && size > 1)) {
+            throw new IllegalArgumentException(String.format(
+                    "Invalid interval window - offset=%d, size=%d, Y values number=%d, X step=%d",
+                    offset, size, ys.length, xStep
+            ));
+        }
+        mXs = null;
+        mYs = ys;
+        mOffset = offset;
+        mSize = size;
+        mFirstX = firstX;
+        mXStep = xStep;
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    public boolean isEmpty() {
+        return mSize <= 0;
+    }
+
+    public long getX(int i) {
+        return mXs == null ? mFirstX + mXStep * i : mXs[mOffset + i];
+    }
 
-        long minX = Integer.MAX_VALUE;
+    /**
+     * @return      distance between X of adjacent points if X values are {@link #Interval(long, long, long[], int, int)
+     *              implicit}; {@code -1} otherwise
+     */
+    public long getImplicitXStep() {
+        return mXs == null ? mXStep : -1;
+    }
+
+    public long getY(int i) {
+        return mYs[mOffset + i];
+    }
+
+    public long getMinX() {
+        return mSize > 0 ? getX(0) : Integer.MAX_VALUE;
+    }
+
+    public long getMaxX() {
+        return mSize > 0 ? getX(mSize - 1) : Integer.MIN_VALUE;
+    }
+
+    public long getMinY() {
+        mayBeCalculateYBounds();
+        return mMinY;
+    }
+
+    public long getMaxY() {
+        mayBeCalculateYBounds();
+        return mMaxY;
+    }
+
+    private void mayBeCalculateYBounds() {
+        if (mYBoundsCalculated) {
+            return;
+        }
         long minY = Integer.MAX_VALUE;
-        long maxX = Integer.MIN_VALUE;
         long maxY = Integer.MIN_VALUE;
-
-        for (int i = 0; i < mPoints.size(); i++) {
-            DataPoint point = mPoints.get(i);
-            minX = Math.min(minX, point.getX());
-            maxX = Math.max(maxX, point.getX());
-            minY = Math.min(minY, point.getY());
-            maxY = Math.max(maxY, point.getY());
-            if (i > 0) {
-                DataPoint prevPoint = mPoints.get(i - 1);
-                if (point.getX() == prevPoint.getX()) {
-                    throw new IllegalArgumentException(String.format(
-                            "Failed to build and interval - multiple points with the same 'x=%d' are found: "
-                            + "'%s' and '%s'. All points: %s", point.getX(), point, prevPoint, mPoints
-                    ));
-                }
+        for (int i = mOffset, max = mOffset + mSize; i < max; i++) {
+            long y = mYs[i];
+            if (y < minY) {
+                minY = y;
+            }
+            if (y > maxY) {
+                maxY = y;
             }
         }
-
-        mMinX = minX;
-        mMaxX = maxX;
         mMinY = minY;
         mMaxY = maxY;
+        mYBoundsCalculated = true;
     }
 
-    public long getMinX() {
-        return mMinX;
+    /**
+     * @param x     target X
+     * @return      point's index if a point with the given X is within the current interval;
+     *              {@code -(insertion point) - 1} otherwise
+     */
+    public int binarySearch(long x) {
+        if (mXs == null) {
+            return implicitXSearch(x);
+        }
+        int low = 0;
+        int high = mSize - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midX = mXs[mOffset + mid];
+            if (midX < x) {
+                low = mid + 1;
+            } else if (midX > x) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
     }
 
-    public long getMaxX() {
-        return mMaxX;
+    private int implicitXSearch(long x) {
+        if (mSize == 0 || x < mFirstX) {
+            return -1;
+        }
+        if (x > getX(mSize - 1)) {
+            return -(mSize + 1);
+        }
+        if (mSize == 1) {
+            return 0;
+        }
+        long offset = x - mFirstX;
+        int i = (int) (offset / mXStep);
+        return offset % mXStep == 0 ? i : -(i + 2);
     }
 
+    /**
+     * Copies current interval's points to the given arrays.
+     *
+     * @param xs            X values holder
+     * @param ys            Y values holder
+     * @param destOffset    index in the given arrays to copy the first point to
+     */
+    public void copyTo(long[] xs, long[] ys, int destOffset) {
+        if (mXs == null) {
+            for (int i = 0; i < mSize; i++) {
+                xs[destOffset + i] = mFirstX + mXStep * i;
+            }
+        } else {
+            System.arraycopy(mXs, mOffset, xs, destOffset, mSize);
+        }
+        System.arraycopy(mYs, mOffset, ys, destOffset, mSize);
+    }
+
+    /**
+     * @param fromX     min X of the points to include (inclusive)
+     * @param toX       max X of the points to include (inclusive)
+     * @return          read-only window over the current interval's points located within the given X range.
+     *                  Note that it's not a copy
+     */
+    @Nonnull
+    public Interval getSubInterval(long fromX, long toX) {
+        int from = binarySearch(fromX);
+        if (from < 0) {
+            from = -(from + 1);
+        }
+        int to = binarySearch(toX);
+        if (to < 0) {
+            to = -(to + 1) - 1;
+        }
+        if (from > to) {
+            return EMPTY;
+        }
+        if (from == 0 && to == mSize - 1) {
+            return this;
+        }
+        if (mXs == null) {
+            return new Interval(getX(from), mXStep, mYs, mOffset + from, to - from + 1);
+        }
+        return new Interval(mXs, mYs, mOffset + from, to - from + 1);
+    }
+
+    /**
+     * Exposes current interval's points as objects. Prefer {@link #getX(int)} and {@link #getY(int)}
+     * in performance-sensitive code as the returned list creates a new point on every access.
+     *
+     * @return      read-only view over the current interval's points
+     */
     @Nonnull
     public List<DataPoint> getPoints() {
-        return mPoints;
+        List<DataPoint> result = mPoints;
+        if (result == null) {
+            mPoints = result = new PointsView();
+        }
+        return result;
     }
 
     @Nonnull
     @SuppressLint("DefaultLocale")
     @Override
     public String toString() {
-        return String.format("%d points: X=[%d; %d], Y=[%d; %d]", mPoints.size(), mMinX, mMaxX, mMinY, mMaxY);
+        return String.format("%d points: X=[%d; %d], Y=[%d; %d]",
+                             mSize, getMinX(), getMaxX(), getMinY(), getMaxY());
+    }
+
+    private class PointsView extends AbstractList<DataPoint> implements RandomAccess {
+
+        @Override
+        public DataPoint get(int index) {
+            if (index < 0 || index >= mSize) {
+                throw new IndexOutOfBoundsException(String.format("Index: %d, size: %d", index, mSize));
+            }
+            return new DataPoint(getX(index), getY(index));
+        }
+
+        @Override
+        public int size() {
+            return mSize;
+        }
     }
 }
@@ -79,6 +79,10 @@ public class Range {
         return value >= mStart && value <= mEnd;
     }
 
+    public boolean intersects(Range other) {
+        return mStart <= other.mEnd && mEnd >= other.mStart;
+    }
+
     @Nonnull
     public Range padBy(long padSize) {
         long startToUse = mStart;
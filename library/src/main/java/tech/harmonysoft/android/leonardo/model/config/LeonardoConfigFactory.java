@@ -9,6 +9,8 @@ import tech.harmonysoft.android.leonardo.model.config.axis.impl.AxisConfigBuilde
 import tech.harmonysoft.android.leonardo.model.config.data.ChartDataSourcesBuilder;
 import tech.harmonysoft.android.leonardo.model.config.data.impl.ChartDataSourceBuilderImpl;
 import tech.harmonysoft.android.leonardo.model.config.data.impl.ChartDataSourcesBuilderImpl;
+import tech.harmonysoft.android.leonardo.model.config.loading.DataLoadingConfigBuilder;
+import tech.harmonysoft.android.leonardo.model.config.loading.impl.DataLoadingConfigBuilderImpl;
 import tech.harmonysoft.android.leonardo.model.config.selector.ChartSelectorConfigBuilder;
 import tech.harmonysoft.android.leonardo.model.config.selector.impl.ChartSelectorConfigBuilderImpl;
 import tech.harmonysoft.android.leonardo.model.config.navigator.NavigatorConfigBuilder;
@@ -56,6 +58,11 @@ public class LeonardoConfigFactory {
         return new ChartSelectorConfigBuilderImpl();
     }
 
+    @Nonnull
+    public static DataLoadingConfigBuilder newDataLoadingConfigBuilder() {
+        return new DataLoadingConfigBuilderImpl();
+    }
+
     @Nonnull
     public static NavigatorShowcase asNavigatorShowCase(@Nonnull ChartView view) {
         return new NavigatorShowcase() {
@@ -1,8 +1,10 @@
 package tech.harmonysoft.android.leonardo.model.config.chart;
 
 import tech.harmonysoft.android.leonardo.model.config.axis.AxisConfig;
+import tech.harmonysoft.android.leonardo.model.plot.DownsamplingStrategy;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 /**
  * @author Denis Zhdanov
@@ -40,4 +42,11 @@ public interface ChartConfig {
     boolean isDrawBackground();
 
     boolean isAnimationEnabled();
+
+    /**
+     * @return      strategy to use for reducing number of points to draw; {@code null} means that all points
+     *              are drawn
+     */
+    @Nullable
+    DownsamplingStrategy getDownsamplingStrategy();
 }
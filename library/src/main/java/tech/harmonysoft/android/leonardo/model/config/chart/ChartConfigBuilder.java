@@ -4,6 +4,7 @@ import android.content.Context;
 import harmonysoft.tech.android.leonardo.R;
 import tech.harmonysoft.android.leonardo.model.config.axis.AxisConfig;
 import tech.harmonysoft.android.leonardo.model.config.axis.AxisConfigBuilder;
+import tech.harmonysoft.android.leonardo.model.plot.DownsamplingStrategy;
 
 import javax.annotation.Nonnull;
 
@@ -137,6 +138,27 @@ public interface ChartConfigBuilder {
     @Nonnull
     ChartConfigBuilder disableAnimations();
 
+    /**
+     * <p>Specifies a strategy to use for reducing number of points to draw.</p>
+     * <p>
+     *     If it's not specified explicitly, min-max downsampling is used, i.e. only points with min and max Y
+     *     are kept for every pixel column.
+     * </p>
+     *
+     * @param strategy  downsampling strategy to use
+     * @return          current builder
+     */
+    @Nonnull
+    ChartConfigBuilder withDownsamplingStrategy(DownsamplingStrategy strategy);
+
+    /**
+     * Instructs to draw all points from the active range.
+     *
+     * @return      current builder
+     */
+    @Nonnull
+    ChartConfigBuilder disableDownsampling();
+
     /**
      * Applies default values to various graphic elements obtained from the given context's
      * {@link Context#getTheme() theme}.
@@ -7,6 +7,8 @@ import tech.harmonysoft.android.leonardo.model.config.axis.AxisConfig;
 import tech.harmonysoft.android.leonardo.model.config.axis.AxisConfigBuilder;
 import tech.harmonysoft.android.leonardo.model.config.chart.ChartConfig;
 import tech.harmonysoft.android.leonardo.model.config.chart.ChartConfigBuilder;
+import tech.harmonysoft.android.leonardo.model.plot.DownsamplingStrategy;
+import tech.harmonysoft.android.leonardo.model.plot.impl.MinMaxDownsamplingStrategy;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -39,6 +41,8 @@ public class ChartConfigBuilderImpl implements ChartConfigBuilder {
     private Integer           mLegendTitleColor;
     private Integer           mLegendBackgroundColor;
 
+    private DownsamplingStrategy mDownsamplingStrategy = MinMaxDownsamplingStrategy.INSTANCE;
+
     @Nonnull
     @Override
     public ChartConfigBuilder withXAxisConfig(AxisConfig config) {
@@ -175,6 +179,20 @@ public class ChartConfigBuilderImpl implements ChartConfigBuilder {
         return this;
     }
 
+    @Nonnull
+    @Override
+    public ChartConfigBuilder withDownsamplingStrategy(DownsamplingStrategy strategy) {
+        mDownsamplingStrategy = strategy;
+        return this;
+    }
+
+    @Nonnull
+    @Override
+    public ChartConfigBuilder disableDownsampling() {
+        mDownsamplingStrategy = null;
+        return this;
+    }
+
     @Nonnull
     @Override
     public ChartConfigBuilder withContext(Context context) {
@@ -198,6 +216,12 @@ public class ChartConfigBuilderImpl implements ChartConfigBuilder {
         if (!config.isDrawSelection()) {
             result.disableSelection();
         }
+        DownsamplingStrategy downsamplingStrategy = config.getDownsamplingStrategy();
+        if (downsamplingStrategy == null) {
+            result.disableDownsampling();
+        } else {
+            result.withDownsamplingStrategy(downsamplingStrategy);
+        }
         return result;
     }
 
@@ -254,7 +278,8 @@ public class ChartConfigBuilderImpl implements ChartConfigBuilder {
                                    legendBackgroundColor,
                                    mDrawSelection,
                                    mAllowSelection,
-                                   mEnableAnimations);
+                                   mEnableAnimations,
+                                   mDownsamplingStrategy);
     }
 
     @Nonnull
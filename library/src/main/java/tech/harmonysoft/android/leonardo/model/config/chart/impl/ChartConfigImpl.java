@@ -2,8 +2,10 @@ package tech.harmonysoft.android.leonardo.model.config.chart.impl;
 
 import tech.harmonysoft.android.leonardo.model.config.axis.AxisConfig;
 import tech.harmonysoft.android.leonardo.model.config.chart.ChartConfig;
+import tech.harmonysoft.android.leonardo.model.plot.DownsamplingStrategy;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 /**
  * @author Denis Zhdanov
@@ -26,6 +28,8 @@ public class ChartConfigImpl implements ChartConfig {
     private final boolean    mSelectionAllowed;
     private final boolean    mAnimationEnabled;
 
+    private final DownsamplingStrategy mDownsamplingStrategy;
+
     ChartConfigImpl(AxisConfig xAxisConfig,
                     AxisConfig yAxisConfig,
                     boolean drawBackground,
@@ -39,7 +43,8 @@ public class ChartConfigImpl implements ChartConfig {
                     int legendBackgroundColor,
                     boolean drawSelection,
                     boolean selectionAllowed,
-                    boolean animationEnabled)
+                    boolean animationEnabled,
+                    @Nullable DownsamplingStrategy downsamplingStrategy)
     {
         mDrawBackground = drawBackground;
         mInsetsInPixels = insetsInPixels;
@@ -55,6 +60,7 @@ public class ChartConfigImpl implements ChartConfig {
         mDrawSelection = drawSelection;
         mSelectionAllowed = selectionAllowed;
         mAnimationEnabled = animationEnabled;
+        mDownsamplingStrategy = downsamplingStrategy;
     }
 
     @Override
@@ -129,6 +135,12 @@ public class ChartConfigImpl implements ChartConfig {
         return mAnimationEnabled;
     }
 
+    @Nullable
+    @Override
+    public DownsamplingStrategy getDownsamplingStrategy() {
+        return mDownsamplingStrategy;
+    }
+
     @Nonnull
     @Override
     public String toString() {
@@ -145,6 +157,7 @@ public class ChartConfigImpl implements ChartConfig {
                + ", legendBackgroundColor = " + mLegendBackgroundColor
                + ", drawSelection = " + mDrawSelection
                + ", selectionAllowed = " + mSelectionAllowed
-               + ", animationEnabled = " + mAnimationEnabled;
+               + ", animationEnabled = " + mAnimationEnabled
+               + ", downsamplingStrategy = " + mDownsamplingStrategy;
     }
 }
@@ -3,6 +3,7 @@ package tech.harmonysoft.android.leonardo.model.config.data.impl;
 import tech.harmonysoft.android.leonardo.model.Range;
 import tech.harmonysoft.android.leonardo.model.data.ChartDataLoader;
 import tech.harmonysoft.android.leonardo.model.data.ChartDataSource;
+import tech.harmonysoft.android.leonardo.model.data.ResolutionAwareChartDataLoader;
 import tech.harmonysoft.android.leonardo.model.config.data.ChartDataSourceBuilder;
 
 import javax.annotation.Nonnull;
@@ -85,6 +86,12 @@ public class ChartDataSourceBuilderImpl implements ChartDataSourceBuilder {
             throw new IllegalStateException("Data loader is undefined");
         }
 
+        if (loader instanceof ResolutionAwareChartDataLoader) {
+            return new ResolutionAwareChartDataSourceImpl(legend,
+                                                          new Range(minX, maxX),
+                                                          color,
+                                                          (ResolutionAwareChartDataLoader) loader);
+        }
         return new ChartDataSourceImpl(legend, new Range(minX, maxX), color, loader);
     }
 }
@@ -47,6 +47,12 @@ public class ChartDataSourceImpl implements ChartDataSource {
         return mDataRange;
     }
 
+    @Nonnull
+    @Override
+    public ChartDataLoader getLoader() {
+        return mLoader;
+    }
+
     @Nullable
     @Override
     public Interval load(Range range) {
@@ -0,0 +1,33 @@
+package tech.harmonysoft.android.leonardo.model.config.data.impl;
+
+import tech.harmonysoft.android.leonardo.model.Interval;
+import tech.harmonysoft.android.leonardo.model.Range;
+import tech.harmonysoft.android.leonardo.model.data.ResolutionAwareChartDataLoader;
+
+import javax.annotation.Nullable;
+
+/**
+ * Data source which is backed by a {@link ResolutionAwareChartDataLoader}.
+ *
+ * @author Denis Zhdanov
+ * @since 28/3/19
+ */
+public class ResolutionAwareChartDataSourceImpl extends ChartDataSourceImpl implements ResolutionAwareChartDataLoader {
+
+    private final ResolutionAwareChartDataLoader mLoader;
+
+    public ResolutionAwareChartDataSourceImpl(String legend,
+                                              Range dataRange,
+                                              int color,
+                                              ResolutionAwareChartDataLoader loader)
+    {
+        super(legend, dataRange, color, loader);
+        mLoader = loader;
+    }
+
+    @Nullable
+    @Override
+    public Interval load(Range range, long step) {
+        return mLoader.load(range, step);
+    }
+}
@@ -0,0 +1,25 @@
+package tech.harmonysoft.android.leonardo.model.config.loading;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Defines setup of the executor which loads chart data in background.
+ *
+ * @author Denis Zhdanov
+ * @since 28/3/19
+ */
+public interface DataLoadingConfig {
+
+    /**
+     * @return  max number of threads which load chart data simultaneously
+     */
+    int getThreadsNumber();
+
+    /**
+     * @return  priority of data loading threads, {@code android.os.Process.THREAD_PRIORITY_XXX} values are expected
+     */
+    int getThreadPriority();
+
+    @Nonnull
+    LoadQueuePolicy getQueuePolicy();
+}
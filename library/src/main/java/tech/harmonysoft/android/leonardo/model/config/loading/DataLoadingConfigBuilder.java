@@ -0,0 +1,43 @@
+package tech.harmonysoft.android.leonardo.model.config.loading;
+
+import javax.annotation.Nonnull;
+
+/**
+ * @author Denis Zhdanov
+ * @since 28/3/19
+ */
+public interface DataLoadingConfigBuilder {
+
+    /**
+     * Specifies max number of threads which load chart data simultaneously. Number of available processors
+     * (but not more than {@code 4}) is used by default.
+     *
+     * @param threadsNumber     max number of data loading threads
+     * @return                  current builder
+     */
+    @Nonnull
+    DataLoadingConfigBuilder withThreadsNumber(int threadsNumber);
+
+    /**
+     * Specifies priority of data loading threads, {@code android.os.Process.THREAD_PRIORITY_BACKGROUND}
+     * is used by default.
+     *
+     * @param priority  {@code android.os.Process.THREAD_PRIORITY_XXX} value to use
+     * @return          current builder
+     */
+    @Nonnull
+    DataLoadingConfigBuilder withThreadPriority(int priority);
+
+    /**
+     * Specifies an order in which pending load requests are processed, {@link LoadQueuePolicy#FIFO}
+     * is used by default.
+     *
+     * @param policy    policy to use
+     * @return          current builder
+     */
+    @Nonnull
+    DataLoadingConfigBuilder withQueuePolicy(LoadQueuePolicy policy);
+
+    @Nonnull
+    DataLoadingConfig build() throws IllegalStateException;
+}
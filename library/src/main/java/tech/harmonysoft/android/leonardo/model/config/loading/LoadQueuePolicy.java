@@ -0,0 +1,19 @@
+package tech.harmonysoft.android.leonardo.model.config.loading;
+
+/**
+ * Defines an order in which pending data load requests are processed.
+ *
+ * @author Denis Zhdanov
+ * @since 28/3/19
+ */
+public enum LoadQueuePolicy {
+
+    /** Requests are processed in order of submission */
+    FIFO,
+
+    /**
+     * The most recently submitted requests are processed first. Might be useful when the user scrolls
+     * quickly - the data for the current position is loaded before the data for the already passed positions
+     */
+    LIFO
+}
@@ -0,0 +1,56 @@
+package tech.harmonysoft.android.leonardo.model.config.loading.impl;
+
+import android.os.Process;
+import tech.harmonysoft.android.leonardo.model.config.loading.DataLoadingConfig;
+import tech.harmonysoft.android.leonardo.model.config.loading.DataLoadingConfigBuilder;
+import tech.harmonysoft.android.leonardo.model.config.loading.LoadQueuePolicy;
+
+import javax.annotation.Nonnull;
+
+/**
+ * @author Denis Zhdanov
+ * @since 28/3/19
+ */
+public class DataLoadingConfigBuilderImpl implements DataLoadingConfigBuilder {
+
+    private static final int MAX_DEFAULT_THREADS_NUMBER = 4;
+
+    private LoadQueuePolicy mQueuePolicy    = LoadQueuePolicy.FIFO;
+    private int             mThreadPriority = Process.THREAD_PRIORITY_BACKGROUND;
+    private Integer         mThreadsNumber;
+
+    @Nonnull
+    @Override
+    public DataLoadingConfigBuilder withThreadsNumber(int threadsNumber) {
+        mThreadsNumber = threadsNumber;
+        return this;
+    }
+
+    @Nonnull
+    @Override
+    public DataLoadingConfigBuilder withThreadPriority(int priority) {
+        mThreadPriority = priority;
+        return this;
+    }
+
+    @Nonnull
+    @Override
+    public DataLoadingConfigBuilder withQueuePolicy(LoadQueuePolicy policy) {
+        mQueuePolicy = policy;
+        return this;
+    }
+
+    @Nonnull
+    @Override
+    public DataLoadingConfig build() throws IllegalStateException {
+        Integer threadsNumber = mThreadsNumber;
+        if (threadsNumber == null) {
+            threadsNumber = Math.min(MAX_DEFAULT_THREADS_NUMBER, Runtime.getRuntime().availableProcessors());
+        }
+        if (threadsNumber <= 0) {
+            throw new IllegalStateException("Expected to get a positive data loading threads number but got "
+                                            + threadsNumber);
+        }
+        return new DataLoadingConfigImpl(threadsNumber, mThreadPriority, mQueuePolicy);
+    }
+}
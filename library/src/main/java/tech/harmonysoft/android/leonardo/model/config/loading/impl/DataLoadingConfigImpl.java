@@ -0,0 +1,47 @@
+package tech.harmonysoft.android.leonardo.model.config.loading.impl;
+
+import tech.harmonysoft.android.leonardo.model.config.loading.DataLoadingConfig;
+import tech.harmonysoft.android.leonardo.model.config.loading.LoadQueuePolicy;
+
+import javax.annotation.Nonnull;
+
+/**
+ * @author Denis Zhdanov
+ * @since 28/3/19
+ */
+public class DataLoadingConfigImpl implements DataLoadingConfig {
+
+    private final LoadQueuePolicy mQueuePolicy;
+    private final int             mThreadsNumber;
+    private final int             mThreadPriority;
+
+    public DataLoadingConfigImpl(int threadsNumber, int threadPriority, LoadQueuePolicy queuePolicy) {
+        mThreadsNumber = threadsNumber;
+        mThreadPriority = threadPriority;
+        mQueuePolicy = queuePolicy;
+    }
+
+    @Override
+    public int getThreadsNumber() {
+        return mThreadsNumber;
+    }
+
+    @Override
+    public int getThreadPriority() {
+        return mThreadPriority;
+    }
+
+    @Nonnull
+    @Override
+    public LoadQueuePolicy getQueuePolicy() {
+        return mQueuePolicy;
+    }
+
+    @Nonnull
+    @Override
+    public String toString() {
+        return "threadsNumber = " + mThreadsNumber
+               + ", threadPriority = " + mThreadPriority
+               + ", queuePolicy = " + mQueuePolicy;
+    }
+}
@@ -0,0 +1,36 @@
+package tech.harmonysoft.android.leonardo.model.data;
+
+import tech.harmonysoft.android.leonardo.model.Interval;
+import tech.harmonysoft.android.leonardo.model.Range;
+
+import javax.annotation.Nonnull;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * <p>
+ *     Loads data for multiple series in a single call. It's typical that all chart lines share the same
+ *     X values and come from a single query, so loading them one by one would mean making the same
+ *     round trip for every line.
+ * </p>
+ * <p>
+ *     Every data source which data is provided by a batch loader is expected to be built with
+ *     a {@link BatchChartDataSeriesLoader} - the chart groups load requests for such sources.
+ * </p>
+ *
+ * @author Denis Zhdanov
+ * @since 29/3/19
+ */
+public interface BatchChartDataLoader {
+
+    /**
+     * Loads target data. Is assumed to be called from a non-main thread.
+     *
+     * @param range         target X range
+     * @param seriesIds     ids of the series to load
+     * @return              intervals for the target X range by series id. Series which have no data for
+     *                      the given range might be absent in the result
+     */
+    @Nonnull
+    Map<String, Interval> load(Range range, Collection<String> seriesIds);
+}
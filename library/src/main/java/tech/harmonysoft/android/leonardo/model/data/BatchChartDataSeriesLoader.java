@@ -0,0 +1,47 @@
+package tech.harmonysoft.android.leonardo.model.data;
+
+import tech.harmonysoft.android.leonardo.model.Interval;
+import tech.harmonysoft.android.leonardo.model.Range;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Collections;
+
+/**
+ * Loads data of a single series provided by a {@link BatchChartDataLoader}.
+ *
+ * @author Denis Zhdanov
+ * @since 29/3/19
+ */
+public class BatchChartDataSeriesLoader implements ChartDataLoader {
+
+    private final BatchChartDataLoader mBatchLoader;
+    private final String               mSeriesId;
+
+    public BatchChartDataSeriesLoader(BatchChartDataLoader batchLoader, String seriesId) {
+        mBatchLoader = batchLoader;
+        mSeriesId = seriesId;
+    }
+
+    @Nonnull
+    public BatchChartDataLoader getBatchLoader() {
+        return mBatchLoader;
+    }
+
+    @Nonnull
+    public String getSeriesId() {
+        return mSeriesId;
+    }
+
+    @Nullable
+    @Override
+    public Interval load(Range range) {
+        return mBatchLoader.load(range, Collections.singleton(mSeriesId)).get(mSeriesId);
+    }
+
+    @Nonnull
+    @Override
+    public String toString() {
+        return mSeriesId;
+    }
+}
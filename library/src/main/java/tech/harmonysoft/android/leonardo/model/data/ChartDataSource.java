@@ -19,4 +19,14 @@ public interface ChartDataSource extends ChartDataLoader {
 
     @Nonnull
     Range getDataRange();
+
+    /**
+     * @return  loader which provides data for the current data source, the data source itself by default.
+     *          Data sources which share a {@link BatchChartDataLoader} return their
+     *          {@link BatchChartDataSeriesLoader series loaders} here
+     */
+    @Nonnull
+    default ChartDataLoader getLoader() {
+        return this;
+    }
 }
@@ -0,0 +1,36 @@
+package tech.harmonysoft.android.leonardo.model.data;
+
+import tech.harmonysoft.android.leonardo.model.Interval;
+import tech.harmonysoft.android.leonardo.model.Range;
+
+import javax.annotation.Nullable;
+
+/**
+ * <p>
+ *     {@link ChartDataLoader} extension which is able to serve data in reduced resolution, e.g. pre-aggregated
+ *     data from a backend.
+ * </p>
+ * <p>
+ *     The chart requests data in resolution implied by the target view's width and its active range, so,
+ *     for example, a navigator which shows years of data doesn't need to load every point.
+ * </p>
+ *
+ * @author Denis Zhdanov
+ * @since 28/3/19
+ */
+public interface ResolutionAwareChartDataLoader extends ChartDataLoader {
+
+    /**
+     * Loads target data in the given resolution. Is assumed to be called from a non-main thread.
+     *
+     * @param range     target X range
+     * @param step      desired X distance between adjacent points. A loader might return points with
+     *                  smaller X distance (e.g. raw data), but returning points more sparse than that
+     *                  would make the chart look coarse. {@link ChartDataLoader#load(Range)} is called
+     *                  when raw data is necessary
+     * @return          an interval for the target X range if it's within the current dataset's range;
+     *                  {@code null} otherwise
+     */
+    @Nullable
+    Interval load(Range range, long step);
+}
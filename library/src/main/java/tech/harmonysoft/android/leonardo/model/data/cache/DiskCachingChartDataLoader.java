@@ -0,0 +1,103 @@
+package tech.harmonysoft.android.leonardo.model.data.cache;
+
+import tech.harmonysoft.android.leonardo.model.Interval;
+import tech.harmonysoft.android.leonardo.model.Range;
+import tech.harmonysoft.android.leonardo.model.data.ChartDataLoader;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>
+ *     {@link ChartDataLoader} decorator which keeps loaded data in a {@link DiskPageCache}, that way
+ *     data loaded once is available across process restarts without hitting the original loader.
+ * </p>
+ * <p>
+ *     X axis is split into fixed width pages aligned to zero, every page is loaded from the delegate loader
+ *     and cached as a whole. Requested range is served from the pages which intersect with it.
+ * </p>
+ * <p>
+ *     Cached pages are never invalidated, so this loader is intended to be used for immutable historical data.
+ * </p>
+ *
+ * @author Denis Zhdanov
+ * @since 1/4/19
+ */
+public class DiskCachingChartDataLoader implements ChartDataLoader {
+
+    private final ChartDataLoader mDelegate;
+    private final DiskPageCache   mCache;
+    private final String          mSeriesId;
+    private final long            mPageWidth;
+
+    /**
+     * @param delegate      loader to use for the data which is not cached yet
+     * @param cache         cache to use
+     * @param seriesId      series id which uniquely identifies the delegate loader's data in the given cache
+     * @param pageWidth     width of a cached page in X units
+     */
+    public DiskCachingChartDataLoader(ChartDataLoader delegate, DiskPageCache cache, String seriesId, long pageWidth) {
+        if (pageWidth <= 0) {
+            throw new IllegalArgumentException("Expected to get a positive page width but got " + pageWidth);
+        }
+        mDelegate = delegate;
+        mCache = cache;
+        mSeriesId = seriesId;
+        mPageWidth = pageWidth;
+    }
+
+    @Nullable
+    @Override
+    public Interval load(Range range) {
+        long firstPage = floorDiv(range.getStart(), mPageWidth);
+        long lastPage = floorDiv(range.getEnd(), mPageWidth);
+        List<Interval> pages = new ArrayList<>();
+        int size = 0;
+        for (long pageIndex = firstPage; pageIndex <= lastPage; pageIndex++) {
+            Interval page = mCache.get(mSeriesId, mPageWidth, pageIndex);
+            if (page == null) {
+                page = loadPage(pageIndex);
+                if (page == null) {
+                    // The page is outside of the dataset's range, don't cache it as the range might grow later
+                    continue;
+                }
+                mCache.put(mSeriesId, mPageWidth, pageIndex, page);
+            }
+            pages.add(page);
+            size += page.size();
+        }
+
+        if (pages.isEmpty()) {
+            return null;
+        }
+        if (pages.size() == 1) {
+            return pages.get(0).getSubInterval(range.getStart(), range.getEnd());
+        }
+
+        long[] xs = new long[size];
+        long[] ys = new long[size];
+        int offset = 0;
+        for (Interval page : pages) {
+            page.copyTo(xs, ys, offset);
+            offset += page.size();
+        }
+        return new Interval(xs, ys, 0, size).getSubInterval(range.getStart(), range.getEnd());
+    }
+
+    @Nullable
+    private Interval loadPage(long pageIndex) {
+        long start = pageIndex * mPageWidth;
+        long end = start + mPageWidth - 1;
+        Interval interval = mDelegate.load(new Range(start, end));
+        return interval == null ? null : interval.getSubInterval(start, end);
+    }
+
+    private static long floorDiv(long x, long y) {
+        long result = x / y;
+        if ((x % y != 0) && ((x ^ y) < 0)) {
+            result--;
+        }
+        return result;
+    }
+}
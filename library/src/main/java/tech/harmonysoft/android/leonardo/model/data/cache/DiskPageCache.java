@@ -0,0 +1,260 @@
+package tech.harmonysoft.android.leonardo.model.data.cache;
+
+import tech.harmonysoft.android.leonardo.model.Interval;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * <p>
+ *     Persistent cache of chart data pages. Every page is stored in its own file as a small header followed
+ *     by X and Y primitive columns. Files are read through {@link FileChannel#map(FileChannel.MapMode, long, long)},
+ *     so a cached page becomes an {@link Interval} via bulk copy without any per-point parsing.
+ * </p>
+ * <p>
+ *     Total size of the cached files is bounded, least recently used files are deleted when the limit
+ *     is exceeded. Usage order is kept in files' modification time, so it survives process restarts.
+ *     A page is written to a temporary file which is renamed to its target name afterwards, that way
+ *     a process crash never leaves a partially written page. Files with invalid content are dropped.
+ * </p>
+ * <p>
+ *     Thread-safe.
+ * </p>
+ *
+ * @author Denis Zhdanov
+ * @since 1/4/19
+ */
+public class DiskPageCache {
+
+    private static final int    MAGIC       = 0x4C504731; // LPG1
+    private static final int    VERSION     = 1;
+    private static final int    HEADER_SIZE = 16;
+    private static final int    POINT_SIZE  = 16;
+    private static final String PAGE_SUFFIX = ".page";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    /** Holds cached page files and their sizes, iteration order is from the least recently used file */
+    private final Map<File, Long> mFiles = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final File mRoot;
+    private final long mMaxSizeInBytes;
+
+    private long mSizeInBytes;
+
+    /**
+     * @param root              directory to keep cached pages in
+     * @param maxSizeInBytes    max total size of the cached pages
+     * @throws IOException      if the given directory can't be used
+     */
+    public DiskPageCache(File root, long maxSizeInBytes) throws IOException {
+        if (maxSizeInBytes <= 0) {
+            throw new IllegalArgumentException("Expected to get a positive cache size but got " + maxSizeInBytes);
+        }
+        if (!root.isDirectory() && !root.mkdirs()) {
+            throw new IOException("Failed to create chart data cache directory " + root);
+        }
+        mRoot = root;
+        mMaxSizeInBytes = maxSizeInBytes;
+        restoreState();
+    }
+
+    private void restoreState() {
+        List<File> files = new ArrayList<>();
+        collectFiles(mRoot, files);
+        Collections.sort(files, (f1, f2) -> Long.compare(f1.lastModified(), f2.lastModified()));
+        synchronized (mFiles) {
+            for (File file : files) {
+                mFiles.put(file, file.length());
+                mSizeInBytes += file.length();
+            }
+            evictIfNecessary();
+        }
+    }
+
+    private static void collectFiles(File dir, List<File> holder) {
+        File[] children = dir.listFiles();
+        if (children == null) {
+            return;
+        }
+        for (File child : children) {
+            if (child.isDirectory()) {
+                collectFiles(child, holder);
+            } else if (child.getName().endsWith(PAGE_SUFFIX)) {
+                holder.add(child);
+            } else if (child.getName().endsWith(TEMP_SUFFIX)) {
+                // A page which was being written when the process died
+                //noinspection ResultOfMethodCallIgnored
+                child.delete();
+            }
+        }
+    }
+
+    /**
+     * @param seriesId      target series id
+     * @param pageWidth     target page width
+     * @param pageIndex     target page index
+     * @return              cached page if any; {@code null} otherwise
+     */
+    @Nullable
+    public Interval get(String seriesId, long pageWidth, long pageIndex) {
+        File file = getFile(seriesId, pageWidth, pageIndex);
+        synchronized (mFiles) {
+            if (mFiles.get(file) == null) {
+                return null;
+            }
+        }
+
+        Interval result = read(file);
+        if (result == null) {
+            remove(file);
+        } else {
+            //noinspection ResultOfMethodCallIgnored
+            file.setLastModified(System.currentTimeMillis());
+        }
+        return result;
+    }
+
+    @Nullable
+    private static Interval read(File file) {
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            FileChannel channel = in.getChannel();
+            long fileSize = channel.size();
+            if (fileSize < HEADER_SIZE) {
+                return null;
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                return null;
+            }
+            int size = buffer.getInt();
+            buffer.getInt(); // Reserved
+            if (size < 0 || fileSize != HEADER_SIZE + (long) size * POINT_SIZE) {
+                return null;
+            }
+            LongBuffer values = buffer.asLongBuffer();
+            long[] xs = new long[size];
+            long[] ys = new long[size];
+            values.get(xs);
+            values.get(ys);
+            for (int i = 1; i < size; i++) {
+                if (xs[i] <= xs[i - 1]) {
+                    return null;
+                }
+            }
+            return new Interval(xs, ys, 0, size);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Stores given page.
+     *
+     * @param seriesId      target series id
+     * @param pageWidth     target page width
+     * @param pageIndex     target page index
+     * @param interval      page's points
+     */
+    public void put(String seriesId, long pageWidth, long pageIndex, Interval interval) {
+        File file = getFile(seriesId, pageWidth, pageIndex);
+        File dir = file.getParentFile();
+        if (dir == null || (!dir.isDirectory() && !dir.mkdirs())) {
+            return;
+        }
+
+        int size = interval.size();
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + size * POINT_SIZE);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(size).putInt(0);
+        LongBuffer values = buffer.asLongBuffer();
+        for (int i = 0; i < size; i++) {
+            values.put(interval.getX(i));
+        }
+        for (int i = 0; i < size; i++) {
+            values.put(interval.getY(i));
+        }
+        buffer.rewind();
+
+        File tempFile = new File(dir, file.getName() + "." + Thread.currentThread().getId() + TEMP_SUFFIX);
+        try (RandomAccessFile out = new RandomAccessFile(tempFile, "rw")) {
+            out.setLength(0);
+            FileChannel channel = out.getChannel();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            //noinspection ResultOfMethodCallIgnored
+            tempFile.delete();
+            return;
+        }
+
+        synchronized (mFiles) {
+            if (!tempFile.renameTo(file)) {
+                //noinspection ResultOfMethodCallIgnored
+                tempFile.delete();
+                return;
+            }
+            Long previousSize = mFiles.put(file, file.length());
+            if (previousSize != null) {
+                mSizeInBytes -= previousSize;
+            }
+            mSizeInBytes += file.length();
+            evictIfNecessary();
+        }
+    }
+
+    private void remove(File file) {
+        synchronized (mFiles) {
+            Long size = mFiles.remove(file);
+            if (size != null) {
+                mSizeInBytes -= size;
+            }
+            //noinspection ResultOfMethodCallIgnored
+            file.delete();
+        }
+    }
+
+    private void evictIfNecessary() {
+        for (Iterator<Map.Entry<File, Long>> iterator = mFiles.entrySet().iterator();
+             iterator.hasNext() && mSizeInBytes > mMaxSizeInBytes; )
+        {
+            Map.Entry<File, Long> entry = iterator.next();
+            iterator.remove();
+            mSizeInBytes -= entry.getValue();
+            //noinspection ResultOfMethodCallIgnored
+            entry.getKey().delete();
+        }
+    }
+
+    public long getSizeInBytes() {
+        synchronized (mFiles) {
+            return mSizeInBytes;
+        }
+    }
+
+    @Nonnull
+    private File getFile(String seriesId, long pageWidth, long pageIndex) {
+        return new File(new File(mRoot, toHex(seriesId)), pageWidth + "_" + pageIndex + PAGE_SUFFIX);
+    }
+
+    /**
+     * @param s     series id
+     * @return      given id's representation which is safe to use as a file name
+     */
+    @Nonnull
+    private static String toHex(String s) {
+        StringBuilder result = new StringBuilder();
+        for (byte b : s.getBytes(StandardCharsets.UTF_8)) {
+            result.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return result.toString();
+    }
+}
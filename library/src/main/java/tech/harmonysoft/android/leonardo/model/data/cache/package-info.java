@@ -0,0 +1,4 @@
+@ParametersAreNonnullByDefault
+package tech.harmonysoft.android.leonardo.model.data.cache;
+
+import javax.annotation.ParametersAreNonnullByDefault;
\ No newline at end of file
@@ -0,0 +1,57 @@
+package tech.harmonysoft.android.leonardo.model.data.file;
+
+/**
+ * <p>
+ *     Describes columnar binary chart file format. All numbers are big-endian, strings are stored
+ *     as an {@code int} length followed by the UTF-8 bytes.
+ * </p>
+ * <pre>
+ *     header:
+ *         int     magic ({@link #MAGIC})
+ *         int     format version ({@link #VERSION})
+ *         int     points number
+ *         int     block size - max number of points in a block
+ *         int     series number
+ *         series number times:
+ *             string  series id
+ *             string  series legend
+ *             int     series color
+ *         int     blocks number
+ *     block index, blocks number times:
+ *         long    first X of the block
+ *         long    last X of the block
+ *         long    file offset of the encoded X values block
+ *         long    file offset of the encoded Y values block, series number times in series order
+ *     blocks data:
+ *         encoded blocks
+ * </pre>
+ * <p>
+ *     Every column is split into blocks of {@code block size} points, the last block might contain less points.
+ *     An encoded block is the first value stored as a {@code long} followed by differences between
+ *     subsequent values stored as <a href="https://developers.google.com/protocol-buffers/docs/encoding">zigzag
+ *     varints</a>.
+ * </p>
+ *
+ * @author Denis Zhdanov
+ * @since 1/4/19
+ */
+class ChartFileFormat {
+
+    static final int MAGIC   = 0x4C434631; // LCF1
+    static final int VERSION = 1;
+
+    /** Block index entry size without Y offsets */
+    static final int BLOCK_INDEX_BASE_SIZE = 24;
+    static final int OFFSET_SIZE           = 8;
+
+    private ChartFileFormat() {
+    }
+
+    static long encodeZigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static long decodeZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,163 @@
+package tech.harmonysoft.android.leonardo.model.data.file;
+
+import javax.annotation.Nonnull;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Writes series which share the same X values in the {@link ChartFileFormat chart file format}.
+ * The result can be read by {@link MappedChartFile}.
+ *
+ * @author Denis Zhdanov
+ * @since 1/4/19
+ */
+public class ChartFileWriter {
+
+    public static final int DEFAULT_BLOCK_SIZE = 1024;
+
+    private final List<Series> mSeries    = new ArrayList<>();
+    private final Set<String>  mSeriesIds = new HashSet<>();
+
+    private final long[] mXs;
+    private final int    mBlockSize;
+
+    /**
+     * @param xs    X values sorted in ascending order
+     */
+    public ChartFileWriter(long[] xs) {
+        this(xs, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * @param xs            X values sorted in ascending order
+     * @param blockSize     max number of points to keep in a single block
+     */
+    public ChartFileWriter(long[] xs, int blockSize) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("Expected to get a positive block size but got " + blockSize);
+        }
+        for (int i = 1; i < xs.length; i++) {
+            if (xs[i] <= xs[i - 1]) {
+                throw new IllegalArgumentException(String.format(
+                        "Expected that X values are sorted in ascending order but got %d at index %d after %d",
+                        xs[i], i, xs[i - 1]
+                ));
+            }
+        }
+        mXs = xs;
+        mBlockSize = blockSize;
+    }
+
+    /**
+     * @param id        series id, is expected to be unique within the current file
+     * @param legend    series legend
+     * @param color     series color
+     * @param ys        series Y values, is expected to have the same size as the X values array
+     * @return          current writer
+     */
+    @Nonnull
+    public ChartFileWriter addSeries(String id, String legend, int color, long[] ys) {
+        if (ys.length != mXs.length) {
+            throw new IllegalArgumentException(String.format(
+                    "Expected that series '%s' has %d values but it has %d values", id, mXs.length, ys.length
+            ));
+        }
+        if (!mSeriesIds.add(id)) {
+            throw new IllegalArgumentException(String.format("Series '%s' is already added", id));
+        }
+        mSeries.add(new Series(id, legend, color, ys));
+        return this;
+    }
+
+    public void write(OutputStream out) throws IOException {
+        int blocksNumber = (mXs.length + mBlockSize - 1) / mBlockSize;
+        int columnsNumber = mSeries.size() + 1;
+
+        // Blocks are encoded first in order to know their offsets
+        ByteArrayOutputStream dataBytes = new ByteArrayOutputStream();
+        DataOutputStream dataOut = new DataOutputStream(dataBytes);
+        long[][] offsets = new long[columnsNumber][blocksNumber];
+        for (int block = 0; block < blocksNumber; block++) {
+            offsets[0][block] = dataOut.size();
+            writeBlock(mXs, block, dataOut);
+            for (int i = 0; i < mSeries.size(); i++) {
+                offsets[i + 1][block] = dataOut.size();
+                writeBlock(mSeries.get(i).mYs, block, dataOut);
+            }
+        }
+        dataOut.flush();
+
+        ByteArrayOutputStream headerBytes = new ByteArrayOutputStream();
+        DataOutputStream headerOut = new DataOutputStream(headerBytes);
+        headerOut.writeInt(ChartFileFormat.MAGIC);
+        headerOut.writeInt(ChartFileFormat.VERSION);
+        headerOut.writeInt(mXs.length);
+        headerOut.writeInt(mBlockSize);
+        headerOut.writeInt(mSeries.size());
+        for (Series series : mSeries) {
+            writeString(series.mId, headerOut);
+            writeString(series.mLegend, headerOut);
+            headerOut.writeInt(series.mColor);
+        }
+        headerOut.writeInt(blocksNumber);
+        headerOut.flush();
+
+        long dataOffset = headerBytes.size() + (long) blocksNumber * (ChartFileFormat.BLOCK_INDEX_BASE_SIZE
+                                                                      + mSeries.size() * ChartFileFormat.OFFSET_SIZE);
+        DataOutputStream fileOut = new DataOutputStream(out);
+        headerBytes.writeTo(fileOut);
+        for (int block = 0; block < blocksNumber; block++) {
+            int from = block * mBlockSize;
+            int to = Math.min(mXs.length, from + mBlockSize) - 1;
+            fileOut.writeLong(mXs[from]);
+            fileOut.writeLong(mXs[to]);
+            for (int column = 0; column < columnsNumber; column++) {
+                fileOut.writeLong(dataOffset + offsets[column][block]);
+            }
+        }
+        dataBytes.writeTo(fileOut);
+        fileOut.flush();
+    }
+
+    private void writeBlock(long[] values, int block, DataOutputStream out) throws IOException {
+        int from = block * mBlockSize;
+        int to = Math.min(values.length, from + mBlockSize);
+        out.writeLong(values[from]);
+        for (int i = from + 1; i < to; i++) {
+            long delta = ChartFileFormat.encodeZigZag(values[i] - values[i - 1]);
+            while ((delta & ~0x7FL) != 0) {
+                out.writeByte((int) ((delta & 0x7F) | 0x80));
+                delta >>>= 7;
+            }
+            out.writeByte((int) delta);
+        }
+    }
+
+    private static void writeString(String s, DataOutputStream out) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static class Series {
+
+        final String mId;
+        final String mLegend;
+        final int    mColor;
+        final long[] mYs;
+
+        Series(String id, String legend, int color, long[] ys) {
+            mId = id;
+            mLegend = legend;
+            mColor = color;
+            mYs = ys;
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package tech.harmonysoft.android.leonardo.model.data.file;
+
+import tech.harmonysoft.android.leonardo.model.Interval;
+import tech.harmonysoft.android.leonardo.model.Range;
+import tech.harmonysoft.android.leonardo.model.data.BatchChartDataLoader;
+import tech.harmonysoft.android.leonardo.model.data.BatchChartDataSeriesLoader;
+import tech.harmonysoft.android.leonardo.model.data.ChartDataLoader;
+
+import javax.annotation.Nonnull;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * <p>
+ *     Serves data stored in the {@link ChartFileFormat chart file format} directly from a memory-mapped file.
+ *     Only the header and the block index are read on construction, {@link #load(Range, Collection)}
+ *     binary searches the block index and decodes only the blocks which intersect with the target range.
+ * </p>
+ * <p>
+ *     Thread-safe.
+ * </p>
+ *
+ * @author Denis Zhdanov
+ * @since 1/4/19
+ */
+public class MappedChartFile implements BatchChartDataLoader {
+
+    private final Map<String, Series> mSeries = new LinkedHashMap<>();
+
+    private final MappedByteBuffer mBuffer;
+    private final int              mPointsNumber;
+    private final int              mBlockSize;
+    private final long[]           mBlockFirstXs;
+    private final long[]           mBlockLastXs;
+    /** Encoded blocks offsets by column, X column goes first, series columns follow in the series order */
+    private final long[][]         mBlockOffsets;
+
+    public MappedChartFile(File file) throws IOException {
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            FileChannel channel = in.getChannel();
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException(String.format("Chart file %s is too large (%d bytes)", file, channel.size()));
+            }
+            // The mapping stays valid after the channel is closed
+            mBuffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        try {
+            if (mBuffer.getInt() != ChartFileFormat.MAGIC) {
+                throw new IOException(String.format("File %s is not a chart file", file));
+            }
+            int version = mBuffer.getInt();
+            if (version != ChartFileFormat.VERSION) {
+                throw new IOException(String.format("Unsupported chart file version %d in %s", version, file));
+            }
+            mPointsNumber = mBuffer.getInt();
+            mBlockSize = mBuffer.getInt();
+            int seriesNumber = mBuffer.getInt();
+            if (mPointsNumber < 0 || mBlockSize <= 0 || seriesNumber < 0) {
+                throw new IOException(String.format(
+                        "Corrupted chart file %s - points number: %d, block size: %d, series number: %d",
+                        file, mPointsNumber, mBlockSize, seriesNumber
+                ));
+            }
+            for (int i = 0; i < seriesNumber; i++) {
+                String id = readString();
+                String legend = readString();
+                int color = mBuffer.getInt();
+                mSeries.put(id, new Series(legend, color, i + 1));
+            }
+
+            int blocksNumber = mBuffer.getInt();
+            if (blocksNumber != (mPointsNumber + mBlockSize - 1) / mBlockSize) {
+                throw new IOException(String.format(
+                        "Corrupted chart file %s - expected to find %d blocks for %d points but got %d",
+                        file, (mPointsNumber + mBlockSize - 1) / mBlockSize, mPointsNumber, blocksNumber
+                ));
+            }
+            mBlockFirstXs = new long[blocksNumber];
+            mBlockLastXs = new long[blocksNumber];
+            mBlockOffsets = new long[seriesNumber + 1][blocksNumber];
+            for (int block = 0; block < blocksNumber; block++) {
+                mBlockFirstXs[block] = mBuffer.getLong();
+                mBlockLastXs[block] = mBuffer.getLong();
+                for (int column = 0; column <= seriesNumber; column++) {
+                    long offset = mBuffer.getLong();
+                    if (offset < 0 || offset >= mBuffer.capacity()) {
+                        throw new IOException(String.format(
+                                "Corrupted chart file %s - invalid offset %d for block #%d", file, offset, block
+                        ));
+                    }
+                    mBlockOffsets[column][block] = offset;
+                }
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IOException(String.format("Corrupted chart file %s - unexpected end of file", file), e);
+        }
+    }
+
+    @Nonnull
+    private String readString() throws IOException {
+        int length = mBuffer.getInt();
+        if (length < 0 || length > mBuffer.remaining()) {
+            throw new IOException("Corrupted chart file - invalid string length " + length);
+        }
+        byte[] bytes = new byte[length];
+        mBuffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public int getPointsNumber() {
+        return mPointsNumber;
+    }
+
+    public long getMinX() {
+        checkNotEmpty();
+        return mBlockFirstXs[0];
+    }
+
+    public long getMaxX() {
+        checkNotEmpty();
+        return mBlockLastXs[mBlockLastXs.length - 1];
+    }
+
+    private void checkNotEmpty() {
+        if (mPointsNumber == 0) {
+            throw new IllegalStateException("Chart file has no points");
+        }
+    }
+
+    /**
+     * @return  ids of the series stored in the current file
+     */
+    @Nonnull
+    public Collection<String> getSeriesIds() {
+        return Collections.unmodifiableSet(mSeries.keySet());
+    }
+
+    @Nonnull
+    public String getLegend(String seriesId) {
+        return getSeries(seriesId).mLegend;
+    }
+
+    public int getColor(String seriesId) {
+        return getSeries(seriesId).mColor;
+    }
+
+    /**
+     * @param seriesId  target series id
+     * @return          loader for the given series' data. Loaders of the same file's series share
+     *                  the current batch loader, so they are loaded together
+     */
+    @Nonnull
+    public ChartDataLoader getLoader(String seriesId) {
+        getSeries(seriesId);
+        return new BatchChartDataSeriesLoader(this, seriesId);
+    }
+
+    @Nonnull
+    private Series getSeries(String seriesId) {
+        Series series = mSeries.get(seriesId);
+        if (series == null) {
+            throw new IllegalArgumentException(String.format(
+                    "Unknown series '%s'. Available series: %s", seriesId, mSeries.keySet()
+            ));
+        }
+        return series;
+    }
+
+    @Nonnull
+    @Override
+    public Map<String, Interval> load(Range range, Collection<String> seriesIds) {
+        Map<String, Interval> result = new HashMap<>();
+        int firstBlock = findFirstBlock(range.getStart());
+        if (firstBlock >= mBlockFirstXs.length || mBlockFirstXs[firstBlock] > range.getEnd()) {
+            return result;
+        }
+        int lastBlock = firstBlock;
+        while (lastBlock + 1 < mBlockFirstXs.length && mBlockFirstXs[lastBlock + 1] <= range.getEnd()) {
+            lastBlock++;
+        }
+
+        int firstPoint = firstBlock * mBlockSize;
+        int size = Math.min(mPointsNumber, (lastBlock + 1) * mBlockSize) - firstPoint;
+        long[] xs = decodeColumn(0, firstBlock, lastBlock, size);
+        int from = Arrays.binarySearch(xs, range.getStart());
+        if (from < 0) {
+            from = -(from + 1);
+        }
+        int to = Arrays.binarySearch(xs, range.getEnd());
+        if (to < 0) {
+            to = -(to + 1) - 1;
+        }
+        if (from > to) {
+            return result;
+        }
+
+        for (String seriesId : seriesIds) {
+            Series series = mSeries.get(seriesId);
+            if (series != null) {
+                long[] ys = decodeColumn(series.mColumn, firstBlock, lastBlock, size);
+                result.put(seriesId, new Interval(xs, ys, from, to - from + 1));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param x     target X
+     * @return      index of the first block which last X is not less than the given X
+     */
+    private int findFirstBlock(long x) {
+        int low = 0;
+        int high = mBlockLastXs.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (mBlockLastXs[mid] < x) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    @Nonnull
+    private long[] decodeColumn(int column, int firstBlock, int lastBlock, int size) {
+        long[] result = new long[size];
+        int resultOffset = 0;
+        for (int block = firstBlock; block <= lastBlock; block++) {
+            int blockSize = Math.min(mBlockSize, mPointsNumber - block * mBlockSize);
+            decodeBlock(mBlockOffsets[column][block], blockSize, result, resultOffset);
+            resultOffset += blockSize;
+        }
+        return result;
+    }
+
+    private void decodeBlock(long offset, int size, long[] holder, int holderOffset) {
+        // Only absolute get() calls are used here, that's why it's safe to use the same buffer concurrently
+        int position = (int) offset;
+        long value = mBuffer.getLong(position);
+        position += 8;
+        holder[holderOffset] = value;
+        for (int i = 1; i < size; i++) {
+            long encoded = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = mBuffer.get(position++);
+                encoded |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            value += ChartFileFormat.decodeZigZag(encoded);
+            holder[holderOffset + i] = value;
+        }
+    }
+
+    private static class Series {
+
+        final String mLegend;
+        final int    mColor;
+        final int    mColumn;
+
+        Series(String legend, int color, int column) {
+            mLegend = legend;
+            mColor = color;
+            mColumn = column;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package tech.harmonysoft.android.leonardo.model.plot;
+
+import tech.harmonysoft.android.leonardo.model.Interval;
+
+/**
+ * <p>
+ *     Defines contract for reducing number of points to draw. E.g. when a chart shows a year of per-minute data,
+ *     thousands of points map to the same pixel column and drawing all of them is just a waste of time.
+ * </p>
+ * <p>
+ *     Implementations are expected to preserve visual peaks and to not allocate objects on every call
+ *     as they are used during drawing.
+ * </p>
+ *
+ * @author Denis Zhdanov
+ * @since 28/3/19
+ */
+public interface DownsamplingStrategy {
+
+    /**
+     * Puts points to draw for the given interval into the given buffer.
+     *
+     * @param points        points to process
+     * @param bucketWidth   width of the single bucket in data X units, usually corresponds to one pixel column
+     * @param result        buffer to append resulting points to. Appended points are expected to be sorted by X
+     */
+    void downsample(Interval points, double bucketWidth, PointsBuffer result);
+}
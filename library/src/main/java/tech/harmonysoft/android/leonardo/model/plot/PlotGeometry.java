@@ -0,0 +1,140 @@
+package tech.harmonysoft.android.leonardo.model.plot;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Visual line segments of a plot which are ready for {@code Canvas.drawLines(float[], int, int, Paint)}, i.e.
+ * every segment is stored as four consecutive {@code x0, y0, x1, y1} values. Segments are clipped by
+ * the {@link PlotTransform#setClip(float, float, float) transform's bounds}.
+ * <p/>
+ * Geometry remembers the transform it's built for, so that it might be {@link PlotTransform#getMappingFrom(
+ * PlotTransform, float[]) mapped} to another transform until it's re-built. Its buffer is re-used between
+ * builds, so building is allocation-free once the buffer is large enough.
+ * <p/>
+ * Not thread-safe, but might be built in one thread and drawn in another one after safe publication.
+ *
+ * @author Denis Zhdanov
+ * @since 1/4/19
+ */
+public class PlotGeometry {
+
+    private final PlotTransform mTransform = new PlotTransform();
+
+    private float[] mLines = new float[256];
+    private int     mLinesSize;
+    private long    mDataVersion = -1;
+
+    /**
+     * Re-builds current geometry.
+     *
+     * @param points        points to draw, sorted by X
+     * @param transform     data-to-visual transform to use
+     * @param dataVersion   version of the data the given points are taken from, see {@link #getDataVersion()}
+     */
+    public void build(PointsBuffer points, PlotTransform transform, long dataVersion) {
+        mTransform.copyFrom(transform);
+        mDataVersion = dataVersion;
+        mLinesSize = 0;
+        int size = points.size();
+        if (size < 2) {
+            return;
+        }
+        ensureCapacity((size - 1) * 4);
+
+        float minX = transform.getMinX();
+        float maxX = transform.getMaxX();
+        float maxY = transform.getMaxY();
+        float previousX = transform.getVisualX(points.getX(0));
+        float previousY = transform.getVisualY(points.getY(0));
+        for (int i = 1; i < size && previousX <= maxX; i++) {
+            float x = transform.getVisualX(points.getX(i));
+            float y = transform.getVisualY(points.getY(i));
+            if (x <= minX && previousX < minX) {
+                previousX = x;
+                previousY = y;
+                continue;
+            }
+
+            float startX = previousX;
+            float startY = previousY;
+            if (startX < minX) {
+                startY = getY(previousX, previousY, x, y, minX);
+                startX = minX;
+                if (startY > maxY) {
+                    startX = getX(previousX, previousY, x, y, maxY);
+                    startY = maxY;
+                }
+            }
+
+            float endX = x;
+            float endY = y;
+            if (endX > maxX) {
+                endY = getY(previousX, previousY, x, y, maxX);
+                endX = maxX;
+                if (endY > maxY) {
+                    endX = getX(previousX, previousY, x, y, maxY);
+                    endY = maxY;
+                }
+            }
+
+            mLines[mLinesSize++] = startX;
+            mLines[mLinesSize++] = startY;
+            mLines[mLinesSize++] = endX;
+            mLines[mLinesSize++] = endY;
+            previousX = x;
+            previousY = y;
+        }
+    }
+
+    private static float getY(float x1, float y1, float x2, float y2, float x) {
+        return y1 + (y2 - y1) * (x - x1) / (x2 - x1);
+    }
+
+    private static float getX(float x1, float y1, float x2, float y2, float y) {
+        return y1 == y2 ? x1 : x1 + (x2 - x1) * (y - y1) / (y2 - y1);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > mLines.length) {
+            mLines = new float[Math.max(capacity, mLines.length * 2)];
+        }
+    }
+
+    /**
+     * @return      line segments buffer, only first {@link #getLinesSize()} values are meaningful
+     */
+    @Nonnull
+    public float[] getLines() {
+        return mLines;
+    }
+
+    /**
+     * @return      number of meaningful values in the {@link #getLines() lines buffer}, i.e. four values
+     *              per segment
+     */
+    public int getLinesSize() {
+        return mLinesSize;
+    }
+
+    /**
+     * @return      transform the current geometry is built for, must not be modified
+     */
+    @Nonnull
+    public PlotTransform getTransform() {
+        return mTransform;
+    }
+
+    /**
+     * @return      version of the data the current geometry is built from; negative number if the geometry
+     *              has not been built yet
+     */
+    public long getDataVersion() {
+        return mDataVersion;
+    }
+
+    @Nonnull
+    @Override
+    public String toString() {
+        return mLinesSize / 4 + " segments for " + mTransform;
+    }
+}
@@ -0,0 +1,187 @@
+package tech.harmonysoft.android.leonardo.model.plot;
+
+import tech.harmonysoft.android.leonardo.model.data.ChartDataSource;
+
+import javax.annotation.Nonnull;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * <p>
+ *     Keeps {@link SeriesGeometry plot geometry} of all series drawn by a chart and decides what should be
+ *     re-built on every frame. A frame looks like below:
+ *     <ol>
+ *         <li>current frame's {@link #getTransform() transform} is set up;</li>
+ *         <li>
+ *             {@link #getGeometry(ChartDataSource) geometry} of every drawn series is requested - series points
+ *             are collected only when the {@link #onDataChanged() data is changed} and the geometry is re-built
+ *             only when the transform is changed;
+ *         </li>
+ *         <li>
+ *             returned geometry is drawn as is if it's built for the current transform, otherwise it's
+ *             {@link #getMappingToCurrentFrame(PlotGeometry, float[]) mapped} to the current frame.
+ *         </li>
+ *     </ol>
+ *     Steady-state frames, e.g. a scroll within a single X unit or Y rescale animation, don't allocate objects.
+ * </p>
+ * <p>
+ *     Not thread-safe, all methods are expected to be called from the drawing thread.
+ * </p>
+ *
+ * @author Denis Zhdanov
+ * @since 1/4/19
+ */
+public class PlotGeometryManager {
+
+    private final Map<ChartDataSource, SeriesGeometry> mGeometry  = new HashMap<>();
+    private final PlotTransform                        mTransform = new PlotTransform();
+
+    private final Executor        mBuildExecutor;
+    private final Executor        mSwapExecutor;
+    private final Runnable        mSwapCallback;
+    private final PointsCollector mPointsCollector;
+
+    /** Holds lines of stale geometry {@link #mapLines(PlotGeometry, float[]) mapped} to the current frame */
+    private float[] mMappedLines = new float[0];
+    private long    mDataVersion;
+    private boolean mBuildInBackground = true;
+
+    /**
+     * @param buildExecutor     executor to build geometry in background
+     * @param swapExecutor      executor which runs tasks on the drawing thread
+     * @param swapCallback      callback to call on the drawing thread after fresh geometry is built in background,
+     *                          e.g. to request a redraw
+     * @param pointsCollector   collector of the series points to draw
+     */
+    public PlotGeometryManager(Executor buildExecutor,
+                               Executor swapExecutor,
+                               Runnable swapCallback,
+                               PointsCollector pointsCollector)
+    {
+        mBuildExecutor = buildExecutor;
+        mSwapExecutor = swapExecutor;
+        mSwapCallback = swapCallback;
+        mPointsCollector = pointsCollector;
+    }
+
+    /**
+     * @return      data-to-visual transform of the current frame, is expected to be set up before
+     *              {@link #getGeometry(ChartDataSource) geometry} is requested
+     */
+    @Nonnull
+    public PlotTransform getTransform() {
+        return mTransform;
+    }
+
+    public boolean isBuildInBackground() {
+        return mBuildInBackground;
+    }
+
+    /**
+     * @param buildInBackground     {@code true} if geometry should be built out of the drawing thread, see
+     *                              {@link SeriesGeometry#build(PlotTransform, boolean)}
+     */
+    public void setBuildInBackground(boolean buildInBackground) {
+        mBuildInBackground = buildInBackground;
+    }
+
+    /**
+     * Notifies that the points to draw are changed, so they should be re-collected on the next frame.
+     */
+    public void onDataChanged() {
+        mDataVersion++;
+    }
+
+    /**
+     * @param dataSources   data sources which geometry should be kept, geometry of all other series is dropped
+     */
+    public void retainAll(Collection<ChartDataSource> dataSources) {
+        mGeometry.keySet().retainAll(dataSources);
+        mDataVersion++;
+    }
+
+    public void clear() {
+        mGeometry.clear();
+        mDataVersion++;
+    }
+
+    /**
+     * @param dataSource    target data source
+     * @return              geometry to draw for the given data source, it might be built for one of the previous
+     *                      frames while fresh geometry is being built in background
+     */
+    @Nonnull
+    public PlotGeometry getGeometry(ChartDataSource dataSource) {
+        SeriesGeometry geometry = mGeometry.get(dataSource);
+        if (geometry == null) {
+            geometry = new SeriesGeometry(mBuildExecutor, mSwapExecutor, mSwapCallback);
+            mGeometry.put(dataSource, geometry);
+        }
+        if (!geometry.isUpToDate(mTransform, mDataVersion) && !geometry.isBuildInProgress()) {
+            if (!geometry.hasPoints(mDataVersion)) {
+                mPointsCollector.collect(dataSource, geometry.resetPoints(mDataVersion));
+            }
+            geometry.build(mTransform, mBuildInBackground);
+        }
+        return geometry.getFront();
+    }
+
+    /**
+     * @param geometry  geometry built for one of the previous frames
+     * @param mapping   holder for the {@link PlotTransform#getMappingFrom(PlotTransform, float[]) mapping} from
+     *                  the given geometry's transform to the current one
+     * @return          {@code true} if the mapping is stored to the given holder; {@code false} if the given
+     *                  geometry can't be mapped to the current frame, e.g. because it's built for an empty plot
+     */
+    public boolean getMappingToCurrentFrame(PlotGeometry geometry, float[] mapping) {
+        mTransform.getMappingFrom(geometry.getTransform(), mapping);
+        for (float value : mapping) {
+            if (Float.isNaN(value) || Float.isInfinite(value)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Maps lines of the given geometry to the current frame. Lines are mapped point by point instead of drawing
+     * them on a scaled canvas, as the canvas scale would change the stroke width as well.
+     *
+     * @param geometry  geometry built for one of the previous frames
+     * @param mapping   {@link #getMappingToCurrentFrame(PlotGeometry, float[]) mapping} of the given geometry
+     *                  to the current frame
+     * @return          buffer which first {@link PlotGeometry#getLinesSize() lines size} values are the given
+     *                  geometry's lines mapped to the current frame. The buffer is re-used by subsequent calls
+     */
+    @Nonnull
+    public float[] mapLines(PlotGeometry geometry, float[] mapping) {
+        int size = geometry.getLinesSize();
+        if (mMappedLines.length < size) {
+            mMappedLines = new float[size];
+        }
+        float[] lines = geometry.getLines();
+        float scaleX = mapping[0];
+        float scaleY = mapping[1];
+        float translateX = mapping[2];
+        float translateY = mapping[3];
+        for (int i = 0; i < size; i += 2) {
+            mMappedLines[i] = lines[i] * scaleX + translateX;
+            mMappedLines[i + 1] = lines[i + 1] * scaleY + translateY;
+        }
+        return mMappedLines;
+    }
+
+    /**
+     * Collects points of a series to draw.
+     */
+    public interface PointsCollector {
+
+        /**
+         * @param dataSource    target data source
+         * @param points        empty buffer to fill by the points to draw sorted by X
+         */
+        void collect(ChartDataSource dataSource, PointsBuffer points);
+    }
+}
@@ -0,0 +1,129 @@
+package tech.harmonysoft.android.leonardo.model.plot;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Mutable data-to-visual transform of a plot together with its clip bounds. Visual X grows to the right and
+ * visual Y grows downwards, i.e. greater data Y values are drawn higher.
+ * <p/>
+ * Is expected to be re-used between frames in order to avoid allocating objects during drawing.
+ *
+ * @author Denis Zhdanov
+ * @since 1/4/19
+ */
+public class PlotTransform {
+
+    private long  mXDataOrigin;
+    private float mXVisualOrigin;
+    private float mXUnitWidth;
+    private long  mYDataOrigin;
+    private float mYVisualOrigin;
+    private float mYUnitHeight;
+    private float mMinX;
+    private float mMaxX;
+    private float mMaxY;
+
+    /**
+     * @param dataOrigin    data X which is drawn at the given visual X
+     * @param visualOrigin  visual X of the given data X
+     * @param unitWidth     visual width of a single data X unit
+     */
+    public void setX(long dataOrigin, float visualOrigin, float unitWidth) {
+        mXDataOrigin = dataOrigin;
+        mXVisualOrigin = visualOrigin;
+        mXUnitWidth = unitWidth;
+    }
+
+    /**
+     * @param dataOrigin    data Y which is drawn at the given visual Y
+     * @param visualOrigin  visual Y of the given data Y
+     * @param unitHeight    visual height of a single data Y unit
+     */
+    public void setY(long dataOrigin, float visualOrigin, float unitHeight) {
+        mYDataOrigin = dataOrigin;
+        mYVisualOrigin = visualOrigin;
+        mYUnitHeight = unitHeight;
+    }
+
+    /**
+     * @param minX  min visual X to draw
+     * @param maxX  max visual X to draw
+     * @param maxY  max visual Y to draw, i.e. the plot's bottom
+     */
+    public void setClip(float minX, float maxX, float maxY) {
+        mMinX = minX;
+        mMaxX = maxX;
+        mMaxY = maxY;
+    }
+
+    public void copyFrom(PlotTransform other) {
+        mXDataOrigin = other.mXDataOrigin;
+        mXVisualOrigin = other.mXVisualOrigin;
+        mXUnitWidth = other.mXUnitWidth;
+        mYDataOrigin = other.mYDataOrigin;
+        mYVisualOrigin = other.mYVisualOrigin;
+        mYUnitHeight = other.mYUnitHeight;
+        mMinX = other.mMinX;
+        mMaxX = other.mMaxX;
+        mMaxY = other.mMaxY;
+    }
+
+    public boolean isSameAs(PlotTransform other) {
+        return mXDataOrigin == other.mXDataOrigin
+               && mXVisualOrigin == other.mXVisualOrigin
+               && mXUnitWidth == other.mXUnitWidth
+               && mYDataOrigin == other.mYDataOrigin
+               && mYVisualOrigin == other.mYVisualOrigin
+               && mYUnitHeight == other.mYUnitHeight
+               && mMinX == other.mMinX
+               && mMaxX == other.mMaxX
+               && mMaxY == other.mMaxY;
+    }
+
+    public float getVisualX(long dataX) {
+        return mXVisualOrigin + (dataX - mXDataOrigin) * mXUnitWidth;
+    }
+
+    public float getVisualY(long dataY) {
+        return mYVisualOrigin - (dataY - mYDataOrigin) * mYUnitHeight;
+    }
+
+    public float getMinX() {
+        return mMinX;
+    }
+
+    public float getMaxX() {
+        return mMaxX;
+    }
+
+    public float getMaxY() {
+        return mMaxY;
+    }
+
+    /**
+     * Calculates how to map geometry built for the given transform to the current transform, e.g. how to move
+     * previous frame's lines when the chart is scrolled. Visual point {@code (x, y)} of the given transform
+     * corresponds to the point {@code (x * scaleX + translateX, y * scaleY + translateY)} of the current transform.
+     *
+     * @param source    transform which geometry is built for
+     * @param result    holder for the {@code [scaleX, scaleY, translateX, translateY]} values
+     */
+    public void getMappingFrom(PlotTransform source, float[] result) {
+        float scaleX = mXUnitWidth / source.mXUnitWidth;
+        float scaleY = mYUnitHeight / source.mYUnitHeight;
+        result[0] = scaleX;
+        result[1] = scaleY;
+        result[2] = mXVisualOrigin + (source.mXDataOrigin - mXDataOrigin) * mXUnitWidth
+                    - source.mXVisualOrigin * scaleX;
+        result[3] = mYVisualOrigin - (source.mYDataOrigin - mYDataOrigin) * mYUnitHeight
+                    - source.mYVisualOrigin * scaleY;
+    }
+
+    @Nonnull
+    @Override
+    public String toString() {
+        return "x: " + mXDataOrigin + " -> " + mXVisualOrigin + " (" + mXUnitWidth + " per unit), y: "
+               + mYDataOrigin + " -> " + mYVisualOrigin + " (" + mYUnitHeight + " per unit), clip: ["
+               + mMinX + "; " + mMaxX + "], bottom " + mMaxY;
+    }
+}
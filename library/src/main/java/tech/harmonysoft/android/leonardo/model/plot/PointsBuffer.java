@@ -0,0 +1,53 @@
+package tech.harmonysoft.android.leonardo.model.plot;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Growable primitive points buffer which is expected to be re-used between frames in order to avoid
+ * allocating objects during drawing.
+ *
+ * @author Denis Zhdanov
+ * @since 28/3/19
+ */
+public class PointsBuffer {
+
+    private long[] mXs = new long[64];
+    private long[] mYs = new long[64];
+    private int    mSize;
+
+    public int size() {
+        return mSize;
+    }
+
+    public long getX(int i) {
+        return mXs[i];
+    }
+
+    public long getY(int i) {
+        return mYs[i];
+    }
+
+    public void add(long x, long y) {
+        if (mSize >= mXs.length) {
+            long[] xs = new long[mXs.length * 2];
+            long[] ys = new long[mYs.length * 2];
+            System.arraycopy(mXs, 0, xs, 0, mSize);
+            System.arraycopy(mYs, 0, ys, 0, mSize);
+            mXs = xs;
+            mYs = ys;
+        }
+        mXs[mSize] = x;
+        mYs[mSize] = y;
+        mSize++;
+    }
+
+    public void reset() {
+        mSize = 0;
+    }
+
+    @Nonnull
+    @Override
+    public String toString() {
+        return mSize + " points";
+    }
+}
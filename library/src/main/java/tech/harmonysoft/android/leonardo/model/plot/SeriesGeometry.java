@@ -0,0 +1,139 @@
+package tech.harmonysoft.android.leonardo.model.plot;
+
+import javax.annotation.Nonnull;
+import java.util.concurrent.Executor;
+
+/**
+ * <p>
+ *     Double-buffered {@link PlotGeometry} of a single series. The {@link #getFront() front geometry} is drawn,
+ *     the back one is built either in place or in background, then they are swapped.
+ * </p>
+ * <p>
+ *     Series {@link #getPoints() points} are kept between frames and re-collected only when their data version
+ *     changes, so a frame which just moves the plot (e.g. scroll within a single X unit or Y rescale animation)
+ *     re-builds the geometry without allocating objects.
+ * </p>
+ * <p>
+ *     Not thread-safe, all methods are expected to be called from the drawing thread. The {@link #getPoints()
+ *     points} must not be modified while a {@link #isBuildInProgress() build is in progress}.
+ * </p>
+ *
+ * @author Denis Zhdanov
+ * @since 1/4/19
+ */
+public class SeriesGeometry {
+
+    private final PointsBuffer  mPoints         = new PointsBuffer();
+    private final PlotTransform mBuildTransform = new PlotTransform();
+    private final Runnable      mBuildTask      = this::buildBack;
+    private final Runnable      mSwapTask       = this::swap;
+
+    private final Executor mBuildExecutor;
+    private final Executor mSwapExecutor;
+    private final Runnable mSwapCallback;
+
+    private PlotGeometry mFront         = new PlotGeometry();
+    private PlotGeometry mBack          = new PlotGeometry();
+    private long         mPointsVersion = -1;
+    private boolean      mBuildInProgress;
+
+    /**
+     * @param buildExecutor     executor to build geometry in background
+     * @param swapExecutor      executor which runs tasks on the drawing thread
+     * @param swapCallback      callback to call on the drawing thread after fresh geometry is swapped in
+     */
+    public SeriesGeometry(Executor buildExecutor, Executor swapExecutor, Runnable swapCallback) {
+        mBuildExecutor = buildExecutor;
+        mSwapExecutor = swapExecutor;
+        mSwapCallback = swapCallback;
+    }
+
+    /**
+     * @param transform     data-to-visual transform of the current frame
+     * @param dataVersion   current data version
+     * @return              {@code true} if the {@link #getFront() front geometry} is built for the given transform
+     *                      from the data of the given version
+     */
+    public boolean isUpToDate(PlotTransform transform, long dataVersion) {
+        return mFront.getDataVersion() == dataVersion && mFront.getTransform().isSameAs(transform);
+    }
+
+    public boolean isBuildInProgress() {
+        return mBuildInProgress;
+    }
+
+    /**
+     * @param dataVersion   current data version
+     * @return              {@code true} if the {@link #getPoints() points} are collected for the given data version
+     */
+    public boolean hasPoints(long dataVersion) {
+        return mPointsVersion == dataVersion;
+    }
+
+    /**
+     * @param dataVersion   version of the data to be collected
+     * @return              empty points buffer to fill by the series points sorted by X
+     */
+    @Nonnull
+    public PointsBuffer resetPoints(long dataVersion) {
+        if (mBuildInProgress) {
+            throw new IllegalStateException("Can't reset series points while geometry is being built from them");
+        }
+        mPointsVersion = dataVersion;
+        mPoints.reset();
+        return mPoints;
+    }
+
+    @Nonnull
+    public PointsBuffer getPoints() {
+        return mPoints;
+    }
+
+    /**
+     * Builds geometry for the current {@link #getPoints() points}.
+     *
+     * @param transform     data-to-visual transform to use
+     * @param background    {@code true} if the geometry should be built in background, the current
+     *                      {@link #getFront() front geometry} stays intact until that. The geometry is built
+     *                      in place if there is no front geometry yet
+     */
+    public void build(PlotTransform transform, boolean background) {
+        if (mBuildInProgress) {
+            throw new IllegalStateException("Geometry is already being built");
+        }
+        if (!background || mFront.getDataVersion() < 0) {
+            mFront.build(mPoints, transform, mPointsVersion);
+            return;
+        }
+        mBuildTransform.copyFrom(transform);
+        mBuildInProgress = true;
+        mBuildExecutor.execute(mBuildTask);
+    }
+
+    private void buildBack() {
+        mBack.build(mPoints, mBuildTransform, mPointsVersion);
+        mSwapExecutor.execute(mSwapTask);
+    }
+
+    private void swap() {
+        PlotGeometry previousFront = mFront;
+        mFront = mBack;
+        mBack = previousFront;
+        mBuildInProgress = false;
+        mSwapCallback.run();
+    }
+
+    /**
+     * @return      geometry to draw, it might be built for one of the previous frames
+     */
+    @Nonnull
+    public PlotGeometry getFront() {
+        return mFront;
+    }
+
+    @Nonnull
+    @Override
+    public String toString() {
+        return "front: " + mFront + (mBuildInProgress ? ", build in progress" : "");
+    }
+}
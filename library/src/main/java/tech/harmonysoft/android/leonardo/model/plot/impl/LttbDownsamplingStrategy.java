@@ -0,0 +1,81 @@
+package tech.harmonysoft.android.leonardo.model.plot.impl;
+
+import tech.harmonysoft.android.leonardo.model.Interval;
+import tech.harmonysoft.android.leonardo.model.plot.DownsamplingStrategy;
+import tech.harmonysoft.android.leonardo.model.plot.PointsBuffer;
+
+/**
+ * <p>
+ *     'Largest-Triangle-Three-Buckets' downsampling. Keeps the first and the last points and picks one point
+ *     from every bucket in between - the one which forms the largest triangle with the point picked from the
+ *     previous bucket and the average point of the next bucket.
+ * </p>
+ * <p>
+ *     Target number of points is two per bucket of the given width, i.e. the same as for
+ *     {@link MinMaxDownsamplingStrategy}, but the result looks smoother.
+ * </p>
+ *
+ * @author Denis Zhdanov
+ * @since 28/3/19
+ */
+public class LttbDownsamplingStrategy implements DownsamplingStrategy {
+
+    public static final LttbDownsamplingStrategy INSTANCE = new LttbDownsamplingStrategy();
+
+    @Override
+    public void downsample(Interval points, double bucketWidth, PointsBuffer result) {
+        int size = points.size();
+        if (size <= 0) {
+            return;
+        }
+        long threshold = 2 * (long) Math.ceil((points.getMaxX() - points.getMinX()) / bucketWidth);
+        if (bucketWidth <= 1 || threshold < 3 || size <= threshold) {
+            for (int i = 0; i < size; i++) {
+                result.add(points.getX(i), points.getY(i));
+            }
+            return;
+        }
+
+        double pointsPerBucket = (double) (size - 2) / (threshold - 2);
+        int selected = 0;
+        result.add(points.getX(0), points.getY(0));
+        for (int bucket = 0; bucket < threshold - 2; bucket++) {
+            int nextBucketStart = (int) Math.floor((bucket + 1) * pointsPerBucket) + 1;
+            int nextBucketEnd = Math.min((int) Math.floor((bucket + 2) * pointsPerBucket) + 1, size);
+            double averageX = 0;
+            double averageY = 0;
+            for (int i = nextBucketStart; i < nextBucketEnd; i++) {
+                averageX += points.getX(i);
+                averageY += points.getY(i);
+            }
+            int nextBucketSize = nextBucketEnd - nextBucketStart;
+            if (nextBucketSize > 0) {
+                averageX /= nextBucketSize;
+                averageY /= nextBucketSize;
+            } else {
+                averageX = points.getX(size - 1);
+                averageY = points.getY(size - 1);
+            }
+
+            int bucketStart = (int) Math.floor(bucket * pointsPerBucket) + 1;
+            int bucketEnd = Math.min(nextBucketStart, size - 1);
+            double selectedX = points.getX(selected);
+            double selectedY = points.getY(selected);
+            double maxArea = -1;
+            int candidate = bucketStart;
+            for (int i = bucketStart; i < bucketEnd; i++) {
+                double area = Math.abs((selectedX - averageX) * (points.getY(i) - selectedY)
+                                       - (selectedX - points.getX(i)) * (averageY - selectedY));
+                if (area > maxArea) {
+                    maxArea = area;
+                    candidate = i;
+                }
+            }
+            if (candidate > selected && candidate < size - 1) {
+                result.add(points.getX(candidate), points.getY(candidate));
+                selected = candidate;
+            }
+        }
+        result.add(points.getX(size - 1), points.getY(size - 1));
+    }
+}
@@ -0,0 +1,67 @@
+package tech.harmonysoft.android.leonardo.model.plot.impl;
+
+import tech.harmonysoft.android.leonardo.model.Interval;
+import tech.harmonysoft.android.leonardo.model.plot.DownsamplingStrategy;
+import tech.harmonysoft.android.leonardo.model.plot.PointsBuffer;
+
+/**
+ * Splits X range into buckets of the given width and keeps only points with min and max Y in every bucket,
+ * i.e. up to two points per pixel column. That way visual peaks are preserved.
+ *
+ * @author Denis Zhdanov
+ * @since 28/3/19
+ */
+public class MinMaxDownsamplingStrategy implements DownsamplingStrategy {
+
+    public static final MinMaxDownsamplingStrategy INSTANCE = new MinMaxDownsamplingStrategy();
+
+    @Override
+    public void downsample(Interval points, double bucketWidth, PointsBuffer result) {
+        int size = points.size();
+        if (size <= 0) {
+            return;
+        }
+        if (bucketWidth <= 1 || size <= 2 * ((points.getMaxX() - points.getMinX()) / bucketWidth + 1)) {
+            for (int i = 0; i < size; i++) {
+                result.add(points.getX(i), points.getY(i));
+            }
+            return;
+        }
+
+        long currentBucket = getBucket(points.getX(0), bucketWidth);
+        int minIndex = 0;
+        int maxIndex = 0;
+        for (int i = 1; i < size; i++) {
+            long bucket = getBucket(points.getX(i), bucketWidth);
+            if (bucket != currentBucket) {
+                flush(points, minIndex, maxIndex, result);
+                currentBucket = bucket;
+                minIndex = i;
+                maxIndex = i;
+                continue;
+            }
+            long y = points.getY(i);
+            if (y < points.getY(minIndex)) {
+                minIndex = i;
+            }
+            if (y > points.getY(maxIndex)) {
+                maxIndex = i;
+            }
+        }
+        flush(points, minIndex, maxIndex, result);
+    }
+
+    private static long getBucket(long x, double bucketWidth) {
+        // Buckets are aligned to absolute X values in order to keep them stable during scroll
+        return (long) Math.floor(x / bucketWidth);
+    }
+
+    private static void flush(Interval points, int minIndex, int maxIndex, PointsBuffer result) {
+        int first = Math.min(minIndex, maxIndex);
+        int second = Math.max(minIndex, maxIndex);
+        result.add(points.getX(first), points.getY(first));
+        if (second != first) {
+            result.add(points.getX(second), points.getY(second));
+        }
+    }
+}
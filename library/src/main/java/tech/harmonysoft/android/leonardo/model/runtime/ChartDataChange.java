@@ -0,0 +1,78 @@
+package tech.harmonysoft.android.leonardo.model.runtime;
+
+import tech.harmonysoft.android.leonardo.model.Range;
+import tech.harmonysoft.android.leonardo.model.data.ChartDataSource;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Describes a change in the points kept by a {@link ChartModel} for particular data source. Allows listeners
+ * to skip work for changes which don't affect them, e.g. a page loaded outside of a view's active range.
+ *
+ * @author Denis Zhdanov
+ * @since 1/4/19
+ */
+public class ChartDataChange {
+
+    public enum Kind {
+        /** Points are loaded by the data source's loader */
+        LOADED,
+        /** Points are {@link ChartModel#appendPoint(ChartDataSource, long, long) appended} to a live data source */
+        APPENDED
+    }
+
+    private final ChartDataSource mDataSource;
+    private final Range           mXRange;
+    private final long            mStep;
+    private final Kind            mKind;
+
+    /**
+     * @param dataSource    target data source
+     * @param xRange        X range which points are changed
+     * @param step          resolution of the changed points, {@link ChartModel#RAW_STEP} for raw points
+     * @param kind          change kind
+     */
+    public ChartDataChange(ChartDataSource dataSource, Range xRange, long step, Kind kind) {
+        mDataSource = dataSource;
+        mXRange = xRange;
+        mStep = step;
+        mKind = kind;
+    }
+
+    @Nonnull
+    public ChartDataSource getDataSource() {
+        return mDataSource;
+    }
+
+    /**
+     * @return      X range which points are changed. Points might be added, replaced or dropped within it,
+     *              there are no changes outside of it
+     */
+    @Nonnull
+    public Range getXRange() {
+        return mXRange;
+    }
+
+    public long getStep() {
+        return mStep;
+    }
+
+    @Nonnull
+    public Kind getKind() {
+        return mKind;
+    }
+
+    /**
+     * @param range     target X range
+     * @return          {@code true} if current change affects points within the given range
+     */
+    public boolean affects(Range range) {
+        return range != Range.NO_RANGE && mXRange.intersects(range);
+    }
+
+    @Nonnull
+    @Override
+    public String toString() {
+        return mKind + " " + mDataSource.getLegend() + ": range=" + mXRange + ", step=" + mStep;
+    }
+}
\ No newline at end of file
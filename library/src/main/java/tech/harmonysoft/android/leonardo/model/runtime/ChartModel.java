@@ -11,13 +11,20 @@ import javax.annotation.Nullable;
 import java.util.Collection;
 
 /**
- * All methods are assumed to be called from UI thread.
+ * All methods are assumed to be called from UI thread. A model might still process its data in a background
+ * thread and expose it to the UI thread via immutable snapshots, see
+ * {@link tech.harmonysoft.android.leonardo.model.runtime.impl.ThreadConfinedChartModel}.
  *
  * @author Denis Zhdanov
  * @since 13/3/19
  */
 public interface ChartModel {
 
+    /**
+     * {@link #getStep(Object) Step} which means that raw (not aggregated) data is necessary.
+     */
+    long RAW_STEP = 1;
+
     boolean hasSelection();
     long getSelectedX();
     void setSelectedX(long x);
@@ -27,12 +34,74 @@ public interface ChartModel {
     Range getActiveRange(Object anchor);
     @Nonnull
     Range getBufferRange();
+
+    /**
+     * @return      X around which chart data is expected to be needed first, e.g. ahead of the active range
+     *              during scroll. Data loading is prioritized based on it
+     */
+    long getFocusX();
     void setActiveRange(Range range, Object anchor);
+    @Nonnull
+    Collection<Object> getAnchors();
+    /**
+     * @param anchor    target anchor
+     * @return          range of points to keep in memory for the given anchor, i.e. its active range extended
+     *                  by the buffer pages as of the anchor's last active range change; {@link Range#NO_RANGE}
+     *                  if there is no active range for the given anchor. {@link #getBufferRange()} spans buffer
+     *                  ranges of all anchors
+     */
+    @Nonnull
+    Range getBufferRange(Object anchor);
+
+    /**
+     * Remembers number of pixels available for drawing the given anchor's active range. That allows
+     * to request data in resolution which is just enough for drawing it.
+     *
+     * @param anchor        target anchor
+     * @param visualWidth   number of pixels available for drawing the given anchor's active range
+     */
+    void setVisualWidth(Object anchor, int visualWidth);
+
+    /**
+     * @param anchor    target anchor
+     * @return          desired X distance between adjacent points for the given anchor's active range
+     *                  (min X distance between loaded raw points multiplied by a power of {@code 4});
+     *                  {@link #RAW_STEP} if raw data is necessary
+     */
+    long getStep(Object anchor);
 
     boolean isActive(ChartDataSource dataSource);
     @Nonnull
     Collection<ChartDataSource> getRegisteredDataSources();
     void addDataSource(ChartDataSource dataSource);
+
+    /**
+     * Registers a data source which points are pushed to the model via {@link #appendPoint(ChartDataSource, long, long)}
+     * instead of being loaded through the data source's loader.
+     *
+     * @param dataSource    data source to register
+     * @param capacity      max number of the latest points to keep for the given data source
+     */
+    void addLiveDataSource(ChartDataSource dataSource, int capacity);
+
+    /**
+     * @param dataSource    target data source
+     * @return              {@code true} if given data source is {@link #addLiveDataSource(ChartDataSource, int) live}
+     */
+    boolean isLive(ChartDataSource dataSource);
+
+    /**
+     * Adds a point to the given {@link #addLiveDataSource(ChartDataSource, int) live} data source. The oldest point
+     * is dropped if the data source already keeps the max number of points.
+     * <p/>
+     * The method is expected to be called at a high rate, so it doesn't allocate and doesn't notify listeners
+     * immediately - all points appended during a frame are delivered to listeners once at the next frame.
+     *
+     * @param dataSource    target live data source
+     * @param x             point's X, expected to be greater than X of the points appended before
+     * @param y             point's Y
+     */
+    void appendPoint(ChartDataSource dataSource, long x, long y);
     void disableDataSource(ChartDataSource dataSource);
     void enableDataSource(ChartDataSource dataSource);
     void removeDataSource(ChartDataSource dataSource);
@@ -40,14 +109,62 @@ public interface ChartModel {
     boolean arePointsForActiveRangeLoaded(ChartDataSource dataSource, Object anchor);
     @Nonnull
     Interval getCurrentRangePoints(ChartDataSource dataSource, Object anchor);
+
+    /**
+     * Allows to get reduced number of points for the given anchor's active range - e.g. when there are
+     * more points in the range than pixels available for drawing it.
+     *
+     * @param dataSource    target data source
+     * @param anchor        target anchor
+     * @param visualWidth   number of pixels available for drawing the active range
+     * @return              points from the coarsest resolution level which still has at least one point
+     *                      per pixel for the active range (aggregated levels keep points with min and max Y
+     *                      for every bucket)
+     */
+    @Nonnull
+    Interval getCurrentRangePoints(ChartDataSource dataSource, Object anchor, int visualWidth);
     @Nullable
     DataPoint getPreviousPointForActiveRange(ChartDataSource dataSource, Object anchor);
     @Nullable
     DataPoint getNextPointForActiveRange(ChartDataSource dataSource, Object anchor);
+    /**
+     * @param anchor    target anchor
+     * @return          Y range of points within the given anchor's active range. Only active data sources
+     *                  which points for that range are loaded are taken into account. {@link Range#NO_RANGE}
+     *                  is returned if there are no such points
+     */
+    @Nonnull
+    Range getActiveYRange(Object anchor);
     @Nonnull
     RangesList getLoadedRanges(ChartDataSource dataSource);
+
+    /**
+     * @param dataSource    target data source
+     * @param step          target resolution
+     * @return              ranges loaded in exactly the given resolution. Note that pages loaded in coarser
+     *                      resolution don't count here
+     */
+    @Nonnull
+    RangesList getLoadedRanges(ChartDataSource dataSource, long step);
     void onPointsLoaded(ChartDataSource dataSource, Range range, Interval interval);
+    void onPointsLoaded(ChartDataSource dataSource, Range range, long step, Interval interval);
 
+    /**
+     * Registers given listener. {@link ChartModelListener#onDataPointsChanged(ChartDataChange) Data changes}
+     * which happen during a frame are merged per data source, resolution and change kind and are delivered
+     * to it at the next frame.
+     *
+     * @param listener  listener to register
+     */
     void addListener(ChartModelListener listener);
+
+    /**
+     * Registers given listener which receives every {@link ChartModelListener#onDataPointsChanged(ChartDataChange)
+     * data change} as soon as it happens, see {@link #addListener(ChartModelListener)}.
+     *
+     * @param listener  listener to register
+     */
+    void addSynchronousListener(ChartModelListener listener);
+
     void removeListener(ChartModelListener listener);
 }
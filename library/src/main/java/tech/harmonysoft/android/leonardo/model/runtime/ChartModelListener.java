@@ -1,5 +1,6 @@
 package tech.harmonysoft.android.leonardo.model.runtime;
 
+import tech.harmonysoft.android.leonardo.model.Range;
 import tech.harmonysoft.android.leonardo.model.data.ChartDataSource;
 
 /**
@@ -18,7 +19,17 @@ public interface ChartModelListener {
 
     void onDataSourceRemoved(ChartDataSource dataSource);
 
-    void onActiveDataPointsLoaded(Object anchor);
+    /**
+     * Is called when points kept by the model for particular data source are changed. Listeners are expected
+     * to check whether the change {@link ChartDataChange#affects(Range) affects}
+     * the ranges they show and skip the work otherwise.
+     * <p/>
+     * Points {@link ChartModel#appendPoint(ChartDataSource, long, long) appended} to a live data source are
+     * reported once per frame.
+     *
+     * @param change    change details
+     */
+    void onDataPointsChanged(ChartDataChange change);
 
     void onSelectionChange();
 }
@@ -0,0 +1,43 @@
+package tech.harmonysoft.android.leonardo.model.runtime;
+
+import tech.harmonysoft.android.leonardo.model.Range;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Defines which data should be kept in memory around active ranges.
+ *
+ * @author Denis Zhdanov
+ * @since 30/3/19
+ */
+public interface PrefetchPolicy {
+
+    /**
+     * Is called every time active range for the given anchor is changed.
+     *
+     * @param anchor        target anchor
+     * @param range         new active range
+     * @param timeMillis    current time in milliseconds
+     */
+    void onActiveRangeChanged(Object anchor, Range range, long timeMillis);
+
+    /**
+     * @param anchor            target anchor
+     * @param activeRange       anchor's active range
+     * @param bufferPagesCount  number of pages to keep in memory on every side of the active range
+     *                          if the anchor's active range doesn't move
+     * @param timeMillis        current time in milliseconds
+     * @return                  range of points to keep in memory for the given anchor
+     */
+    @Nonnull
+    Range getBufferRange(Object anchor, Range activeRange, int bufferPagesCount, long timeMillis);
+
+    /**
+     * @param anchor        target anchor
+     * @param activeRange   anchor's active range
+     * @param timeMillis    current time in milliseconds
+     * @return              X around which the data is expected to be needed first, data loading is
+     *                      prioritized based on it
+     */
+    long getFocusX(Object anchor, Range activeRange, long timeMillis);
+}
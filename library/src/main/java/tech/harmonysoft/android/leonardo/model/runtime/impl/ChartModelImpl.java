@@ -1,17 +1,23 @@
 package tech.harmonysoft.android.leonardo.model.runtime.impl;
 
+import android.os.SystemClock;
+import android.view.Choreographer;
 import tech.harmonysoft.android.leonardo.log.LogUtil;
 import tech.harmonysoft.android.leonardo.model.DataPoint;
 import tech.harmonysoft.android.leonardo.model.Interval;
 import tech.harmonysoft.android.leonardo.model.Range;
 import tech.harmonysoft.android.leonardo.model.data.ChartDataSource;
+import tech.harmonysoft.android.leonardo.model.runtime.ChartDataChange;
 import tech.harmonysoft.android.leonardo.model.runtime.ChartModel;
 import tech.harmonysoft.android.leonardo.model.runtime.ChartModelListener;
+import tech.harmonysoft.android.leonardo.model.runtime.PrefetchPolicy;
+import tech.harmonysoft.android.leonardo.util.LongSupplier;
 import tech.harmonysoft.android.leonardo.util.RangesList;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.util.*;
+import java.util.concurrent.Executor;
 
 /**
  * @author Denis Zhdanov
@@ -19,35 +25,224 @@ import java.util.*;
  */
 public class ChartModelImpl implements ChartModel {
 
-    private final Collection<ChartModelListener> mListeners = new ArrayList<>();
+    private static final long STEP_FACTOR = 4;
 
-    private final Map<ChartDataSource, NavigableSet<DataPoint>> mPoints              = new HashMap<>();
-    private final Map<ChartDataSource, RangesList>              mLoadedRanges        = new HashMap<>();
-    private final Map<Object, Range>                            mActiveRanges        = new HashMap<>();
-    private final Set<ChartDataSource>                          mDisabledDataSources = new HashSet<>();
+    /** Key for tracking compound active range changes in {@link PrefetchPolicy} */
+    private static final Object COMPOUND_RANGE_ANCHOR = new Object();
 
-    private final int mBufferPagesCount;
+    private final ChartModelListenerDispatcher mDispatcher = new ChartModelListenerDispatcher(this::scheduleFrame);
 
-    private Range   mCompoundActiveRange;
-    private Range   mBufferRange;
-    private boolean mHasSelection;
-    private long    mSelectedX;
+    private final Map<ChartDataSource, DataPointStore>   mPoints              = new HashMap<>();
+    private final Map<ChartDataSource, DataPointPyramid> mPyramids            = new HashMap<>();
+    private final Map<ChartDataSource, RangesList>       mLoadedRanges        = new HashMap<>();
+    private final Map<Object, Range>                     mActiveRanges        = new HashMap<>();
+    /** Buffer ranges of the anchors as of their last active range change */
+    private final Map<Object, Range>                     mBufferRanges        = new HashMap<>();
+    private final Map<Object, Integer>                   mVisualWidths        = new HashMap<>();
+    private final Set<ChartDataSource>                   mDisabledDataSources = new HashSet<>();
+
+    /** Holds points loaded in reduced resolution, keys are {@link #getStep(Object) steps} */
+    private final Map<ChartDataSource, NavigableMap<Long, ResolutionData>> mCoarseData = new HashMap<>();
+
+    /** Data sources which points are {@link #appendPoint(ChartDataSource, long, long) pushed} to the model */
+    private final Map<ChartDataSource, LiveSeries> mLiveSeries = new HashMap<>();
+
+    /**
+     * Compressed copy of all buffered raw points, is used only when {@link #setBufferCompressionEnabled(boolean)
+     * buffer compression} is {@link #mBufferCompressionActive active}. {@link #mPoints} keep only the points
+     * within the compound active range then
+     */
+    private final Map<ChartDataSource, CompressedPointStore> mCompressedPoints = new HashMap<>();
+
+    private final Choreographer.FrameCallback mFrameCallback = frameTimeNanos -> onFrame();
+    private final Runnable                    mFrameTask     = this::onFrame;
+
+    private final PrefetchPolicy mPrefetchPolicy;
+    private final int            mBufferPagesCount;
+    private final LongSupplier   mClock;
+    /** Runs given task at the next frame, {@code null} means current thread's {@link Choreographer} */
+    private final Executor       mFrameExecutor;
+
+    private Choreographer mChoreographer;
+    private Range         mCompoundActiveRange;
+    /** Union of all {@link #mBufferRanges anchors' buffer ranges} */
+    private Range         mBufferRange;
+    private boolean       mHasSelection;
+    private long          mSelectedX;
+    /**
+     * Min X distance between adjacent raw points of all data sources, {@link #getStep(Object) steps} are its
+     * multiples. Non-positive value means that it's not known yet, i.e. one point per X unit is assumed
+     */
+    private long          mXSpacing;
+    private boolean       mFrameScheduled;
+    private boolean       mBufferCompressionEnabled;
+    /** Flags that buffered points are compressed at the moment, see {@link #shouldCompressBuffer()} */
+    private boolean       mBufferCompressionActive;
 
     /**
      * @param bufferPagesCount number of chart data pages to keep in memory. E.g. if {@code 1} is returned,
      *                         then the chart would keep one page before the current interval and one page
-     *                         after the current interval
+     *                         after the current interval. Pages are shifted towards the scroll direction
+     *                         during scroll, see {@link VelocityPrefetchPolicy}
      */
     public ChartModelImpl(int bufferPagesCount) {
+        this(bufferPagesCount, new VelocityPrefetchPolicy());
+    }
+
+    /**
+     * @param bufferPagesCount number of chart data pages to keep in memory, see {@link #ChartModelImpl(int)}
+     * @param prefetchPolicy   policy which defines how buffer pages are distributed around the active range
+     */
+    public ChartModelImpl(int bufferPagesCount, PrefetchPolicy prefetchPolicy) {
+        this(bufferPagesCount, prefetchPolicy, SystemClock::uptimeMillis, null);
+    }
+
+    /**
+     * Allows to run the model without the Android runtime, e.g. in tests.
+     *
+     * @param bufferPagesCount number of chart data pages to keep in memory, see {@link #ChartModelImpl(int)}
+     * @param prefetchPolicy   policy which defines how buffer pages are distributed around the active range
+     * @param clock            supplies current time in milliseconds to the prefetch policy
+     * @param frameExecutor    executor which runs given task at the next frame, {@code null} means that
+     *                         current thread's {@link Choreographer} should be used
+     */
+    public ChartModelImpl(int bufferPagesCount,
+                          PrefetchPolicy prefetchPolicy,
+                          LongSupplier clock,
+                          @Nullable Executor frameExecutor)
+    {
         if (bufferPagesCount <= 0) {
             throw new IllegalArgumentException("Expected to get a positive buffer pages count but got "
                                                + bufferPagesCount);
         }
         mBufferPagesCount = bufferPagesCount;
+        mPrefetchPolicy = prefetchPolicy;
+        mClock = clock;
+        mFrameExecutor = frameExecutor;
         mCompoundActiveRange = Range.NO_RANGE;
         mBufferRange = Range.NO_RANGE;
     }
 
+    public boolean isBufferCompressionEnabled() {
+        return mBufferCompressionEnabled;
+    }
+
+    /**
+     * Allows to reduce memory footprint of the buffered pages, e.g. on low-end devices. When enabled, raw points
+     * are kept as is only for the compound active range. All buffered points are kept in a
+     * {@link CompressedPointStore} and are decoded when they get into the active range. Disabled by default.
+     * <p/>
+     * The compound active range spans active ranges of all anchors, e.g. a navigator's anchor usually covers most
+     * of the data. Compressing the buffer doesn't pay off then, as raw points of the compound range plus compressed
+     * points of the whole buffer take more memory than raw buffered points. That's why compression is suspended
+     * while the compound active range takes more than a half of the buffer range and is resumed automatically.
+     *
+     * @param enabled   flag which indicates whether buffered points should be compressed
+     */
+    public void setBufferCompressionEnabled(boolean enabled) {
+        if (mBufferCompressionEnabled == enabled) {
+            return;
+        }
+        LogUtil.debug(this, "setBufferCompressionEnabled(): %b", enabled);
+        mBufferCompressionEnabled = enabled;
+        refreshBufferCompression();
+    }
+
+    /**
+     * @return      {@code true} if buffered points should be compressed at the moment
+     */
+    private boolean shouldCompressBuffer() {
+        if (!mBufferCompressionEnabled) {
+            return false;
+        }
+        if (mCompoundActiveRange == Range.NO_RANGE || mBufferRange == Range.NO_RANGE) {
+            return true;
+        }
+        return mCompoundActiveRange.getPointsNumber() * 2 <= mBufferRange.getPointsNumber();
+    }
+
+    /**
+     * Compresses or decompresses buffered points if {@link #shouldCompressBuffer()} is changed.
+     */
+    private void refreshBufferCompression() {
+        boolean active = shouldCompressBuffer();
+        if (mBufferCompressionActive == active) {
+            return;
+        }
+        LogUtil.debug(this,
+                      "refreshBufferCompression(): buffer compression is %s, compound active range=%s, "
+                      + "buffer range=%s", active ? "resumed" : "suspended", mCompoundActiveRange, mBufferRange);
+        Range previousRawRange = getRawPointsRange();
+        mBufferCompressionActive = active;
+        Range rawRange = getRawPointsRange();
+        for (Map.Entry<ChartDataSource, DataPointStore> entry : mPoints.entrySet()) {
+            ChartDataSource dataSource = entry.getKey();
+            if (mLiveSeries.containsKey(dataSource)) {
+                continue;
+            }
+            DataPointStore points = entry.getValue();
+            if (active) {
+                CompressedPointStore compressed = new CompressedPointStore();
+                if (!points.isEmpty()) {
+                    compressed.addAll(points.getInterval(0, points.size() - 1));
+                }
+                mCompressedPoints.put(dataSource, compressed);
+                points.keepOnly(rawRange);
+                mPyramids.get(dataSource).keepOnly(rawRange);
+            } else {
+                CompressedPointStore compressed = mCompressedPoints.remove(dataSource);
+                if (compressed != null) {
+                    decompress(dataSource, compressed, previousRawRange, rawRange);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return      range of the raw points kept in {@link #mPoints}
+     */
+    @Nonnull
+    private Range getRawPointsRange() {
+        return mBufferCompressionActive ? mCompoundActiveRange : mBufferRange;
+    }
+
+    /**
+     * Adds compressed points which are located within the current raw points range but not within the previous
+     * one to the raw points store.
+     *
+     * @param dataSource        target data source
+     * @param compressed        target data source's compressed points
+     * @param previousRawRange  previous range of the raw points
+     * @param rawRange          current range of the raw points
+     */
+    private void decompress(ChartDataSource dataSource,
+                            CompressedPointStore compressed,
+                            Range previousRawRange,
+                            Range rawRange)
+    {
+        if (rawRange == Range.NO_RANGE) {
+            return;
+        }
+        if (previousRawRange == Range.NO_RANGE || !previousRawRange.intersects(rawRange)) {
+            decompress(dataSource, compressed, rawRange.getStart(), rawRange.getEnd());
+            return;
+        }
+        if (rawRange.getStart() < previousRawRange.getStart()) {
+            decompress(dataSource, compressed, rawRange.getStart(), previousRawRange.getStart() - 1);
+        }
+        if (rawRange.getEnd() > previousRawRange.getEnd()) {
+            decompress(dataSource, compressed, previousRawRange.getEnd() + 1, rawRange.getEnd());
+        }
+    }
+
+    private void decompress(ChartDataSource dataSource, CompressedPointStore compressed, long fromX, long toX) {
+        compressed.copyTo(fromX, toX, mPoints.get(dataSource));
+        DataPointPyramid pyramid = mPyramids.get(dataSource);
+        if (pyramid != null) {
+            pyramid.onPointsAdded(fromX, toX);
+        }
+    }
+
     @Override
     public boolean hasSelection() {
         return mHasSelection;
@@ -95,49 +290,196 @@ public class ChartModelImpl implements ChartModel {
         LogUtil.debug(this, "setActiveRange(): range=%s, anchor=%s", range, LogUtil.getMarker(anchor));
 
         mActiveRanges.put(anchor, range);
-        final Range newCompoundRange;
-        if (mCompoundActiveRange == Range.NO_RANGE) {
-            newCompoundRange = range;
-        } else {
-            long min = Long.MAX_VALUE;
-            long max = Long.MIN_VALUE;
-            for (Range value : mActiveRanges.values()) {
-                min = Math.min(min, value.getStart());
-                max = Math.max(max, value.getEnd());
-            }
-            newCompoundRange = new Range(min, max);
-        }
+        long now = mClock.get();
+        mPrefetchPolicy.onActiveRangeChanged(anchor, range, now);
+        // The buffer is skewed by the anchor's velocity as of now. It's cached till the anchor's next change,
+        // so that the buffer reported for the anchor always matches the points the model keeps for it
+        mBufferRanges.put(anchor, mPrefetchPolicy.getBufferRange(anchor, range, mBufferPagesCount, now));
+        Range newCompoundRange = getUnion(mActiveRanges.values());
+        Range newBufferRange = getUnion(mBufferRanges.values());
 
         LogUtil.debug(this,
-                      "setActiveRange(): new compound active range=%s, previous compound active range=%s",
-                      newCompoundRange, mCompoundActiveRange);
+                      "setActiveRange(): new compound active range=%s, previous compound active range=%s, "
+                      + "new buffer range=%s, previous buffer range=%s",
+                      newCompoundRange, mCompoundActiveRange, newBufferRange, mBufferRange);
 
-        if (mCompoundActiveRange.equals(newCompoundRange)) {
-            LogUtil.debug(this,
-                          "setActiveRange(): new compound range is the same as before, skipping data change");
+        if (!mCompoundActiveRange.equals(newCompoundRange)) {
+            mPrefetchPolicy.onActiveRangeChanged(COMPOUND_RANGE_ANCHOR, newCompoundRange, now);
+        }
+        if (mCompoundActiveRange.equals(newCompoundRange) && mBufferRange.equals(newBufferRange)) {
+            LogUtil.debug(this, "setActiveRange(): new compound and buffer ranges are the same as before, "
+                                + "skipping data change");
         } else {
+            Range previousRawRange = getRawPointsRange();
             mCompoundActiveRange = newCompoundRange;
-            refreshBufferRange();
-
-            LogUtil.debug(this, "setActiveRange(): new buffer range=%s", mBufferRange);
+            mBufferRange = newBufferRange;
 
+            Range rawRange = getRawPointsRange();
             for (RangesList rangesList : mLoadedRanges.values()) {
                 rangesList.keepOnly(mBufferRange);
             }
-            for (NavigableSet<DataPoint> points : mPoints.values()) {
-                points.tailSet(new DataPoint(mBufferRange.getEnd(), 0), false).clear();
-                points.headSet(new DataPoint(mBufferRange.getStart(), 0), false).clear();
+            for (Map.Entry<ChartDataSource, DataPointStore> entry : mPoints.entrySet()) {
+                // Live data sources keep their latest points regardless of the range being shown
+                if (!mLiveSeries.containsKey(entry.getKey())) {
+                    entry.getValue().keepOnly(rawRange);
+                }
+            }
+            for (Map.Entry<ChartDataSource, DataPointPyramid> entry : mPyramids.entrySet()) {
+                if (!mLiveSeries.containsKey(entry.getKey())) {
+                    entry.getValue().keepOnly(rawRange);
+                }
+            }
+            for (Map.Entry<ChartDataSource, CompressedPointStore> entry : mCompressedPoints.entrySet()) {
+                entry.getValue().keepOnly(mBufferRange);
+                decompress(entry.getKey(), entry.getValue(), previousRawRange, rawRange);
             }
+            for (NavigableMap<Long, ResolutionData> resolutions : mCoarseData.values()) {
+                for (ResolutionData data : resolutions.values()) {
+                    data.keepOnly(mBufferRange);
+                }
+            }
+            refreshBufferCompression();
         }
+        dropUnusedResolutions();
 
         notifyListeners(listener -> listener.onRangeChanged(anchor));
     }
 
-    private void refreshBufferRange() {
-        mBufferRange = new Range(
-                mCompoundActiveRange.getStart() - mBufferPagesCount * mCompoundActiveRange.getPointsNumber(),
-                mCompoundActiveRange.getEnd() + mBufferPagesCount * mCompoundActiveRange.getPointsNumber()
-        );
+    @Nonnull
+    private static Range getUnion(Collection<Range> ranges) {
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (Range range : ranges) {
+            min = Math.min(min, range.getStart());
+            max = Math.max(max, range.getEnd());
+        }
+        return min > max ? Range.NO_RANGE : new Range(min, max);
+    }
+
+    @Override
+    public long getFocusX() {
+        if (mCompoundActiveRange == Range.NO_RANGE) {
+            return 0;
+        }
+        return mPrefetchPolicy.getFocusX(COMPOUND_RANGE_ANCHOR, mCompoundActiveRange, mClock.get());
+    }
+
+    @Nonnull
+    @Override
+    public Collection<Object> getAnchors() {
+        return new ArrayList<>(mActiveRanges.keySet());
+    }
+
+    @Nonnull
+    @Override
+    public Range getBufferRange(Object anchor) {
+        Range range = mBufferRanges.get(anchor);
+        return range == null ? Range.NO_RANGE : range;
+    }
+
+    @Override
+    public void setVisualWidth(Object anchor, int visualWidth) {
+        long previousStep = getStep(anchor);
+        mVisualWidths.put(anchor, visualWidth);
+        if (getStep(anchor) != previousStep) {
+            dropUnusedResolutions();
+            notifyListeners(listener -> listener.onRangeChanged(anchor));
+        }
+    }
+
+    /**
+     * @param anchor    target anchor
+     * @return          {@link #setVisualWidth(Object, int) visual width} of the given anchor; zero if it's unknown
+     */
+    int getVisualWidth(Object anchor) {
+        Integer result = mVisualWidths.get(anchor);
+        return result == null ? 0 : result;
+    }
+
+    @Override
+    public long getStep(Object anchor) {
+        Range range = getActiveRange(anchor);
+        Integer visualWidth = mVisualWidths.get(anchor);
+        if (range == Range.NO_RANGE || visualWidth == null || visualWidth <= 0) {
+            return RAW_STEP;
+        }
+        // Sparse data, e.g. daily points with millisecond X, has much less points than X units
+        long spacing = mXSpacing > 0 ? mXSpacing : RAW_STEP;
+        long xPerPixel = range.getPointsNumber() / visualWidth;
+        long result = spacing;
+        while (result * STEP_FACTOR <= xPerPixel) {
+            result *= STEP_FACTOR;
+        }
+        return result == spacing ? RAW_STEP : result;
+    }
+
+    /**
+     * @return      min X distance between adjacent raw points known so far, see {@link #getStep(Object)};
+     *              non-positive value if it's not known yet
+     */
+    long getXSpacing() {
+        return mXSpacing;
+    }
+
+    /**
+     * Updates {@link #mXSpacing} and notifies about anchors which {@link #getStep(Object) step} is changed
+     * because of that.
+     *
+     * @param spacing   X distance between adjacent raw points of some data source
+     */
+    private void onXSpacingObserved(long spacing) {
+        if (spacing <= 0 || spacing == Long.MAX_VALUE || (mXSpacing > 0 && spacing >= mXSpacing)) {
+            return;
+        }
+        LogUtil.debug(this, "onXSpacingObserved(): X spacing is changed from %d to %d", mXSpacing, spacing);
+        Map<Object, Long> previousSteps = new HashMap<>();
+        for (Object anchor : mActiveRanges.keySet()) {
+            previousSteps.put(anchor, getStep(anchor));
+        }
+        mXSpacing = spacing;
+        dropUnusedResolutions();
+        for (Map.Entry<Object, Long> entry : previousSteps.entrySet()) {
+            Object anchor = entry.getKey();
+            if (getStep(anchor) != entry.getValue()) {
+                notifyListeners(listener -> listener.onRangeChanged(anchor));
+            }
+        }
+    }
+
+    /**
+     * @param interval  target points
+     * @return          min X distance between adjacent points of the given interval; {@link Long#MAX_VALUE}
+     *                  if there are less than two points there
+     */
+    private static long getMinXDistance(Interval interval) {
+        if (interval.size() < 2) {
+            return Long.MAX_VALUE;
+        }
+        long implicitStep = interval.getImplicitXStep();
+        if (implicitStep > 0) {
+            return implicitStep;
+        }
+        long result = Long.MAX_VALUE;
+        for (int i = 1; i < interval.size(); i++) {
+            result = Math.min(result, interval.getX(i) - interval.getX(i - 1));
+        }
+        return result;
+    }
+
+    /**
+     * Drops points loaded in resolutions which are not used by any anchor anymore.
+     */
+    private void dropUnusedResolutions() {
+        if (mCoarseData.isEmpty()) {
+            return;
+        }
+        Set<Long> usedSteps = new HashSet<>();
+        for (Object anchor : mActiveRanges.keySet()) {
+            usedSteps.add(getStep(anchor));
+        }
+        for (NavigableMap<Long, ResolutionData> resolutions : mCoarseData.values()) {
+            resolutions.keySet().retainAll(usedSteps);
+        }
     }
 
     @Override
@@ -154,14 +496,31 @@ public class ChartModelImpl implements ChartModel {
     @Override
     public void addDataSource(ChartDataSource dataSource) {
         LogUtil.debug(this, "addDataSource(): %s", dataSource.getLegend());
+        addDataSource(dataSource, new DataPointStore());
+    }
+
+    @Override
+    public void addLiveDataSource(ChartDataSource dataSource, int capacity) {
+        LogUtil.debug(this, "addLiveDataSource(): %s, capacity=%d", dataSource.getLegend(), capacity);
+        DataPointStore points = new DataPointStore(capacity);
+        mLiveSeries.put(dataSource, new LiveSeries(points));
+        addDataSource(dataSource, points);
+    }
+
+    private void addDataSource(ChartDataSource dataSource, DataPointStore points) {
         if (mPoints.containsKey(dataSource)) {
             throw new IllegalArgumentException(String.format(
                     "Data source '%s' is already registered (all registered data sources: %s)",
                     dataSource, mPoints.keySet()
             ));
         }
-        mPoints.put(dataSource, new TreeSet<>(DataPoint.COMPARATOR_BY_X));
+        mPoints.put(dataSource, points);
+        mPyramids.put(dataSource, new DataPointPyramid(points));
+        if (mBufferCompressionActive && points.getCapacity() <= 0) {
+            mCompressedPoints.put(dataSource, new CompressedPointStore());
+        }
         mLoadedRanges.put(dataSource, new RangesList());
+        mCoarseData.put(dataSource, new TreeMap<>());
         notifyListeners(listener -> listener.onDataSourceAdded(dataSource));
     }
 
@@ -173,12 +532,89 @@ public class ChartModelImpl implements ChartModel {
                                                              dataSource, mPoints.keySet()));
         }
         mPoints.remove(dataSource);
+        mPyramids.remove(dataSource);
+        mCompressedPoints.remove(dataSource);
         mLoadedRanges.remove(dataSource);
+        mCoarseData.remove(dataSource);
+        mLiveSeries.remove(dataSource);
         mActiveRanges.remove(dataSource);
         mDisabledDataSources.remove(dataSource);
+        mDispatcher.dropPendingChanges(dataSource);
         notifyListeners(listener -> listener.onDataSourceRemoved(dataSource));
     }
 
+    @Override
+    public boolean isLive(ChartDataSource dataSource) {
+        return mLiveSeries.containsKey(dataSource);
+    }
+
+    @Override
+    public void appendPoint(ChartDataSource dataSource, long x, long y) {
+        LiveSeries series = mLiveSeries.get(dataSource);
+        if (series == null) {
+            throw new IllegalArgumentException(String.format(
+                    "Data source '%s' is not registered as a live data source. Live data sources: %s",
+                    dataSource, mLiveSeries.keySet()
+            ));
+        }
+        series.mPoints.append(x, y);
+        series.mPendingFromX = Math.min(series.mPendingFromX, x);
+        series.mPendingToX = Math.max(series.mPendingToX, x);
+        scheduleFrame();
+    }
+
+    /**
+     * Points might be appended and pages might be loaded many times per frame, so we coalesce such changes
+     * and notify listeners once per frame for every changed data source.
+     */
+    private void scheduleFrame() {
+        if (!mFrameScheduled) {
+            mFrameScheduled = true;
+            if (mFrameExecutor != null) {
+                mFrameExecutor.execute(mFrameTask);
+                return;
+            }
+            if (mChoreographer == null) {
+                mChoreographer = Choreographer.getInstance();
+            }
+            mChoreographer.postFrameCallback(mFrameCallback);
+        }
+    }
+
+    private void onFrame() {
+        // Changes for the appended points are delivered within the current frame
+        flushAppendedPoints();
+        mFrameScheduled = false;
+        mDispatcher.flush();
+    }
+
+    private void flushAppendedPoints() {
+        for (Map.Entry<ChartDataSource, LiveSeries> entry : mLiveSeries.entrySet()) {
+            LiveSeries series = entry.getValue();
+            if (series.mPendingFromX > series.mPendingToX) {
+                continue;
+            }
+            long fromX = series.mPendingFromX;
+            long toX = series.mPendingToX;
+            series.mPendingFromX = Long.MAX_VALUE;
+            series.mPendingToX = Long.MIN_VALUE;
+
+            ChartDataSource dataSource = entry.getKey();
+            DataPointPyramid pyramid = mPyramids.get(dataSource);
+            if (pyramid != null && !series.mPoints.isEmpty()) {
+                pyramid.onPointsAdded(fromX, toX);
+                // The oldest points might be dropped from the ring
+                pyramid.keepOnly(new Range(series.mPoints.getFirstX(), series.mPoints.getLastX()));
+                onXSpacingObserved(pyramid.getBucketWidth(0));
+            }
+
+            // Points dropped from the ring since the previous notification are also a change
+            long changedFromX = Math.min(fromX, series.mFirstX);
+            series.mFirstX = series.mPoints.isEmpty() ? Long.MAX_VALUE : series.mPoints.getFirstX();
+            mDispatcher.onDataPointsChanged(dataSource, changedFromX, toX, RAW_STEP, ChartDataChange.Kind.APPENDED);
+        }
+    }
+
     @Override
     public void disableDataSource(ChartDataSource dataSource) {
         if (!mPoints.containsKey(dataSource)) {
@@ -206,11 +642,54 @@ public class ChartModelImpl implements ChartModel {
     @Override
     public boolean arePointsForActiveRangeLoaded(ChartDataSource dataSource, Object anchor) {
         Range range = getActiveRange(anchor);
-        if (range == Range.NO_RANGE) {
+        if (range == Range.NO_RANGE || mLiveSeries.containsKey(dataSource)) {
             return true;
         }
         RangesList rangesList = mLoadedRanges.get(dataSource);
-        return rangesList != null && rangesList.contains(range);
+        if (rangesList == null) {
+            return false;
+        }
+        return rangesList.contains(range) || getCoarsePointsToUse(dataSource, anchor) != null;
+    }
+
+    /**
+     * @param dataSource    target data source
+     * @param anchor        target anchor
+     * @return              points to use for the given anchor's active range
+     */
+    @Nullable
+    private DataPointStore getPointsToUse(ChartDataSource dataSource, Object anchor) {
+        DataPointStore coarsePoints = getCoarsePointsToUse(dataSource, anchor);
+        return coarsePoints == null ? mPoints.get(dataSource) : coarsePoints;
+    }
+
+    /**
+     * @param dataSource    target data source
+     * @param anchor        target anchor
+     * @return              points loaded in reduced resolution which cover the given anchor's active range
+     *                      and are fine enough for it; {@code null} if there are no such points or raw
+     *                      points for the active range are available
+     */
+    @Nullable
+    private DataPointStore getCoarsePointsToUse(ChartDataSource dataSource, Object anchor) {
+        Range range = getActiveRange(anchor);
+        RangesList rawRanges = mLoadedRanges.get(dataSource);
+        NavigableMap<Long, ResolutionData> resolutions = mCoarseData.get(dataSource);
+        if (range == Range.NO_RANGE
+            || rawRanges == null
+            || resolutions == null
+            || resolutions.isEmpty()
+            || rawRanges.contains(range))
+        {
+            return null;
+        }
+        // Prefer the finest resolution
+        for (ResolutionData data : resolutions.headMap(getStep(anchor), true).values()) {
+            if (data.mLoadedRanges.contains(range)) {
+                return data.mPoints;
+            }
+        }
+        return null;
     }
 
     @Nonnull
@@ -220,12 +699,31 @@ public class ChartModelImpl implements ChartModel {
         if (range == Range.NO_RANGE) {
             return Interval.EMPTY;
         }
-        NavigableSet<DataPoint> points = mPoints.get(dataSource);
+        DataPointStore points = getPointsToUse(dataSource, anchor);
         if (points == null) {
             return Interval.EMPTY;
         }
-        return new Interval(points.headSet(new DataPoint(range.getEnd(), 0), true)
-                                  .tailSet(new DataPoint(range.getStart(), 0), true));
+        return points.getInterval(points.ceilingIndex(range.getStart()), points.floorIndex(range.getEnd()));
+    }
+
+    @Nonnull
+    @Override
+    public Interval getCurrentRangePoints(ChartDataSource dataSource, Object anchor, int visualWidth) {
+        Range range = getActiveRange(anchor);
+        if (range == Range.NO_RANGE) {
+            return Interval.EMPTY;
+        }
+        DataPointStore coarsePoints = getCoarsePointsToUse(dataSource, anchor);
+        if (coarsePoints != null) {
+            // Points are already reduced by the loader
+            return coarsePoints.getInterval(coarsePoints.ceilingIndex(range.getStart()),
+                                            coarsePoints.floorIndex(range.getEnd()));
+        }
+        DataPointPyramid pyramid = mPyramids.get(dataSource);
+        if (pyramid == null) {
+            return Interval.EMPTY;
+        }
+        return pyramid.getInterval(range, visualWidth);
     }
 
     @Nullable
@@ -235,15 +733,20 @@ public class ChartModelImpl implements ChartModel {
         if (range == Range.NO_RANGE) {
             return null;
         }
-        NavigableSet<DataPoint> points = mPoints.get(dataSource);
+        DataPointStore points = getPointsToUse(dataSource, anchor);
         if (points == null) {
             return null;
         }
-        DataPoint ceiling = points.ceiling(new DataPoint(range.getStart(), 0));
-        if (ceiling == null || ceiling.getX() > range.getEnd()) {
+        int ceiling = points.ceilingIndex(range.getStart());
+        if (ceiling >= points.size() || points.getX(ceiling) > range.getEnd()) {
             return null;
         }
-        return points.lower(ceiling);
+        if (ceiling > 0) {
+            return new DataPoint(points.getX(ceiling - 1), points.getY(ceiling - 1));
+        }
+        // The previous point might be outside the raw points range if buffer compression is enabled
+        CompressedPointStore compressed = points == mPoints.get(dataSource) ? mCompressedPoints.get(dataSource) : null;
+        return compressed == null ? null : compressed.getLastPointBefore(points.getX(0));
     }
 
     @Nullable
@@ -253,15 +756,44 @@ public class ChartModelImpl implements ChartModel {
         if (range == Range.NO_RANGE) {
             return null;
         }
-        NavigableSet<DataPoint> points = mPoints.get(dataSource);
+        DataPointStore points = getPointsToUse(dataSource, anchor);
         if (points == null) {
             return null;
         }
-        DataPoint floor = points.floor(new DataPoint(range.getEnd(), 0));
-        if (floor == null || floor.getX() < range.getStart()) {
+        int floor = points.floorIndex(range.getEnd());
+        if (floor < 0 || points.getX(floor) < range.getStart()) {
             return null;
         }
-        return points.higher(floor);
+        if (floor < points.size() - 1) {
+            return new DataPoint(points.getX(floor + 1), points.getY(floor + 1));
+        }
+        CompressedPointStore compressed = points == mPoints.get(dataSource) ? mCompressedPoints.get(dataSource) : null;
+        return compressed == null ? null : compressed.getFirstPointAfter(points.getX(floor));
+    }
+
+    @Nonnull
+    @Override
+    public Range getActiveYRange(Object anchor) {
+        Range range = getActiveRange(anchor);
+        if (range == Range.NO_RANGE) {
+            return Range.NO_RANGE;
+        }
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (ChartDataSource dataSource : mPoints.keySet()) {
+            if (mDisabledDataSources.contains(dataSource) || !arePointsForActiveRangeLoaded(dataSource, anchor)) {
+                continue;
+            }
+            DataPointStore points = getPointsToUse(dataSource, anchor);
+            if (points == null) {
+                continue;
+            }
+            int from = points.ceilingIndex(range.getStart());
+            int to = points.floorIndex(range.getEnd());
+            min = Math.min(min, points.getMinY(from, to));
+            max = Math.max(max, points.getMaxY(from, to));
+        }
+        return min > max ? Range.NO_RANGE : new Range(min, max);
     }
 
     @Nonnull
@@ -274,61 +806,174 @@ public class ChartModelImpl implements ChartModel {
         return result;
     }
 
+    @Nonnull
+    @Override
+    public RangesList getLoadedRanges(ChartDataSource dataSource, long step) {
+        if (step <= RAW_STEP) {
+            return getLoadedRanges(dataSource);
+        }
+        NavigableMap<Long, ResolutionData> resolutions = mCoarseData.get(dataSource);
+        if (resolutions == null) {
+            throw new IllegalArgumentException("No range info is found for data source " + dataSource);
+        }
+        ResolutionData data = resolutions.get(step);
+        return data == null ? new RangesList() : data.mLoadedRanges;
+    }
+
+    /**
+     * @param dataSource    target data source
+     * @return              steps which pages of the given data source are loaded in reduced resolution for,
+     *                      see {@link #getLoadedRanges(ChartDataSource, long)}
+     */
+    @Nonnull
+    Collection<Long> getLoadedSteps(ChartDataSource dataSource) {
+        NavigableMap<Long, ResolutionData> resolutions = mCoarseData.get(dataSource);
+        return resolutions == null ? Collections.emptySet() : resolutions.keySet();
+    }
+
+    @Override
+    public void onPointsLoaded(ChartDataSource dataSource, Range range, long step, Interval interval) {
+        if (step <= RAW_STEP) {
+            onPointsLoaded(dataSource, range, interval);
+            return;
+        }
+
+        LogUtil.debug(this,
+                      "onPointsLoaded(): source=%s, range=%s, step=%d, interval=%s",
+                      dataSource, range, step, interval);
+        long minXDistance = getMinXDistance(interval);
+        if (minXDistance != step) {
+            // Points aggregated for the requested step are exactly the step apart. Anything else are raw points,
+            // e.g. when the step is finer than the data itself or there is nothing aggregated for it
+            onXSpacingObserved(minXDistance);
+        }
+        NavigableMap<Long, ResolutionData> resolutions = mCoarseData.get(dataSource);
+        if (resolutions == null || !isStepUsed(step)) {
+            return;
+        }
+
+        ResolutionData data = resolutions.get(step);
+        if (data == null) {
+            data = new ResolutionData();
+            resolutions.put(step, data);
+        }
+
+        data.mPoints.addAll(interval.getSubInterval(mBufferRange.getStart(), mBufferRange.getEnd()));
+        data.mLoadedRanges.add(range);
+        data.keepOnly(mBufferRange);
+        notifyPointsLoaded(dataSource, range, step);
+    }
+
+    /**
+     * Notifies listeners about a loaded page. Whole page's range is reported as changed even if it has
+     * no points - the page makes the range {@link #arePointsForActiveRangeLoaded(ChartDataSource, Object) loaded}
+     * and that affects the {@link #getActiveYRange(Object) active Y range}.
+     *
+     * @param dataSource    target data source
+     * @param range         loaded range
+     * @param step          loaded resolution
+     */
+    private void notifyPointsLoaded(ChartDataSource dataSource, Range range, long step) {
+        long from = Math.max(range.getStart(), mBufferRange.getStart());
+        long to = Math.min(range.getEnd(), mBufferRange.getEnd());
+        if (from > to) {
+            return;
+        }
+        mDispatcher.onDataPointsChanged(dataSource, from, to, step, ChartDataChange.Kind.LOADED);
+    }
+
+    private boolean isStepUsed(long step) {
+        for (Object anchor : mActiveRanges.keySet()) {
+            if (getStep(anchor) == step) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     @Override
     public void onPointsLoaded(ChartDataSource dataSource, Range range, Interval interval) {
         LogUtil.debug(this,
                       "onPointsLoaded(): source=%s, range=%s, interval=%s",
                       dataSource, range, interval);
-        NavigableSet<DataPoint> points = mPoints.get(dataSource);
+        DataPointStore points = mPoints.get(dataSource);
         RangesList rangesList = mLoadedRanges.get(dataSource);
         if (points == null || rangesList == null) {
             return;
         }
+        onXSpacingObserved(getMinXDistance(interval));
 
         if (interval.getMinX() > mBufferRange.getEnd() || interval.getMaxX() < mBufferRange.getStart()) {
             return;
         }
 
-        Set<Object> anchorWithChangedActiveRange = new HashSet<>();
-        for (DataPoint point : interval.getPoints()) {
-            if (!mBufferRange.contains(point.getX())) {
-                continue;
-            }
+        // Pages are sorted, so they are clipped by binary search and merged into the store in one pass
+        Interval pointsToAdd = interval.getSubInterval(mBufferRange.getStart(), mBufferRange.getEnd());
+        CompressedPointStore compressed = mCompressedPoints.get(dataSource);
+        if (compressed != null) {
+            compressed.addAll(pointsToAdd);
+            Range rawRange = getRawPointsRange();
+            pointsToAdd = pointsToAdd.getSubInterval(rawRange.getStart(), rawRange.getEnd());
+        }
+        points.addAll(pointsToAdd);
 
-            points.add(point);
-            for (Map.Entry<Object, Range> entry : mActiveRanges.entrySet()) {
-                if (entry.getValue().contains(point.getX())) {
-                    anchorWithChangedActiveRange.add(entry.getKey());
-                }
-            }
+        DataPointPyramid pyramid = mPyramids.get(dataSource);
+        if (pyramid != null && !pointsToAdd.isEmpty()) {
+            pyramid.onPointsAdded(pointsToAdd.getMinX(), pointsToAdd.getMaxX());
         }
 
         rangesList.add(range);
         rangesList.keepOnly(mBufferRange);
-
-        for (Object anchor : anchorWithChangedActiveRange) {
-            notifyListeners(listener -> listener.onActiveDataPointsLoaded(anchor));
-        }
+        notifyPointsLoaded(dataSource, range, RAW_STEP);
     }
 
     @Override
     public void addListener(ChartModelListener listener) {
-        mListeners.add(listener);
+        mDispatcher.addListener(listener, false);
+    }
+
+    @Override
+    public void addSynchronousListener(ChartModelListener listener) {
+        mDispatcher.addListener(listener, true);
     }
 
     @Override
     public void removeListener(ChartModelListener listener) {
-        mListeners.remove(listener);
+        mDispatcher.removeListener(listener);
+    }
+
+    private void notifyListeners(ChartModelListenerDispatcher.ListenerAction action) {
+        mDispatcher.notifyListeners(action);
     }
 
-    private void notifyListeners(ListenerAction action) {
-        for (ChartModelListener listener : mListeners) {
-            action.doFor(listener);
+    /**
+     * Points of a live data source and X range of the points appended since the last frame.
+     */
+    private static class LiveSeries {
+
+        final DataPointStore mPoints;
+
+        long mPendingFromX = Long.MAX_VALUE;
+        long mPendingToX   = Long.MIN_VALUE;
+        /** First stored X as of the last listeners notification */
+        long mFirstX       = Long.MAX_VALUE;
+
+        LiveSeries(DataPointStore points) {
+            mPoints = points;
         }
     }
 
-    private interface ListenerAction {
+    /**
+     * Points loaded in particular reduced resolution.
+     */
+    private static class ResolutionData {
 
-        void doFor(ChartModelListener listener);
+        final DataPointStore mPoints       = new DataPointStore();
+        final RangesList     mLoadedRanges = new RangesList();
+
+        void keepOnly(Range range) {
+            mPoints.keepOnly(range);
+            mLoadedRanges.keepOnly(range);
+        }
     }
 }
@@ -0,0 +1,211 @@
+package tech.harmonysoft.android.leonardo.model.runtime.impl;
+
+import tech.harmonysoft.android.leonardo.model.Range;
+import tech.harmonysoft.android.leonardo.model.data.ChartDataSource;
+import tech.harmonysoft.android.leonardo.model.runtime.ChartDataChange;
+import tech.harmonysoft.android.leonardo.model.runtime.ChartModelListener;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * <p>
+ *     Delivers {@link ChartModelListener} notifications. {@link ChartModelListener#onDataPointsChanged(ChartDataChange)
+ *     Data changes} are not delivered immediately but are collected until {@link #flush()} - changes for the same
+ *     data source, resolution and kind are merged into a single change which covers all of them. That way
+ *     e.g. eight pages loaded for a data source during one frame result in a single notification for it.
+ *     Changes for different data sources are still delivered separately, listeners are expected to only mark
+ *     their state as dirty on them, so that e.g. the view is invalidated and its Y range is re-calculated once
+ *     per frame anyway.
+ * </p>
+ * <p>
+ *     Pending changes keep only their mutable X bounds, a {@link ChartDataChange} object is created once per
+ *     delivered change on {@link #flush()}.
+ * </p>
+ * <p>
+ *     Listeners registered as {@link #addListener(ChartModelListener, boolean) synchronous} receive every
+ *     data change as soon as it happens. All other notifications are always delivered immediately.
+ * </p>
+ * <p>
+ *     Not thread-safe.
+ * </p>
+ *
+ * @author Denis Zhdanov
+ * @since 1/4/19
+ */
+class ChartModelListenerDispatcher {
+
+    private final List<ChartModelListener> mListeners            = new ArrayList<>();
+    private final Set<ChartModelListener>  mSynchronousListeners = new HashSet<>();
+    /** Only first {@link #mPendingCount} entries are meaningful, the rest are kept for re-use */
+    private final List<PendingChange>      mPendingChanges       = new ArrayList<>();
+    private final List<ChartDataChange>    mChangesToDeliver     = new ArrayList<>();
+
+    private final Runnable mFlushScheduler;
+
+    private int mPendingCount;
+
+    /**
+     * @param flushScheduler    callback which is notified when there are data changes to deliver and no
+     *                          {@link #flush()} is expected yet
+     */
+    ChartModelListenerDispatcher(Runnable flushScheduler) {
+        mFlushScheduler = flushScheduler;
+    }
+
+    /**
+     * @param listener      listener to register
+     * @param synchronous   {@code true} if given listener should receive data changes immediately
+     */
+    void addListener(ChartModelListener listener, boolean synchronous) {
+        mListeners.add(listener);
+        if (synchronous) {
+            mSynchronousListeners.add(listener);
+        }
+    }
+
+    void removeListener(ChartModelListener listener) {
+        mListeners.remove(listener);
+        mSynchronousListeners.remove(listener);
+    }
+
+    void notifyListeners(ListenerAction action) {
+        for (ChartModelListener listener : mListeners) {
+            action.doFor(listener);
+        }
+    }
+
+    /**
+     * @param dataSource    data source which points are changed
+     * @param fromX         start of the changed X range
+     * @param toX           end of the changed X range
+     * @param step          resolution of the changed points
+     * @param kind          change kind
+     */
+    void onDataPointsChanged(ChartDataSource dataSource, long fromX, long toX, long step, ChartDataChange.Kind kind) {
+        ChartDataChange change = null;
+        boolean hasCoalescingListeners = false;
+        for (int i = 0, max = mListeners.size(); i < max; i++) {
+            ChartModelListener listener = mListeners.get(i);
+            if (mSynchronousListeners.contains(listener)) {
+                if (change == null) {
+                    change = new ChartDataChange(dataSource, new Range(fromX, toX), step, kind);
+                }
+                listener.onDataPointsChanged(change);
+            } else {
+                hasCoalescingListeners = true;
+            }
+        }
+        if (!hasCoalescingListeners) {
+            return;
+        }
+
+        boolean scheduleFlush = mPendingCount == 0;
+        merge(dataSource, fromX, toX, step, kind);
+        if (scheduleFlush) {
+            mFlushScheduler.run();
+        }
+    }
+
+    private void merge(ChartDataSource dataSource, long fromX, long toX, long step, ChartDataChange.Kind kind) {
+        for (int i = 0; i < mPendingCount; i++) {
+            PendingChange pending = mPendingChanges.get(i);
+            if (pending.mDataSource == dataSource && pending.mStep == step && pending.mKind == kind) {
+                pending.mFromX = Math.min(pending.mFromX, fromX);
+                pending.mToX = Math.max(pending.mToX, toX);
+                return;
+            }
+        }
+        if (mPendingCount == mPendingChanges.size()) {
+            mPendingChanges.add(new PendingChange());
+        }
+        mPendingChanges.get(mPendingCount++).set(dataSource, fromX, toX, step, kind);
+    }
+
+    /**
+     * Drops data changes collected for the given data source, e.g. when it's removed from the model.
+     *
+     * @param dataSource    target data source
+     */
+    void dropPendingChanges(ChartDataSource dataSource) {
+        int kept = 0;
+        for (int i = 0; i < mPendingCount; i++) {
+            PendingChange pending = mPendingChanges.get(i);
+            if (pending.mDataSource != dataSource) {
+                // Swap entries, so that the dropped one is re-used later
+                mPendingChanges.set(i, mPendingChanges.get(kept));
+                mPendingChanges.set(kept++, pending);
+            }
+        }
+        for (int i = kept; i < mPendingCount; i++) {
+            mPendingChanges.get(i).reset();
+        }
+        mPendingCount = kept;
+    }
+
+    boolean hasPendingChanges() {
+        return mPendingCount > 0;
+    }
+
+    /**
+     * Delivers collected data changes to the listeners which are not synchronous.
+     */
+    void flush() {
+        if (mPendingCount == 0) {
+            return;
+        }
+        // Listeners might trigger new changes, they are delivered on the next flush
+        for (int i = 0; i < mPendingCount; i++) {
+            PendingChange pending = mPendingChanges.get(i);
+            mChangesToDeliver.add(new ChartDataChange(pending.mDataSource,
+                                                      new Range(pending.mFromX, pending.mToX),
+                                                      pending.mStep,
+                                                      pending.mKind));
+            pending.reset();
+        }
+        mPendingCount = 0;
+        for (int i = 0, max = mChangesToDeliver.size(); i < max; i++) {
+            ChartDataChange change = mChangesToDeliver.get(i);
+            for (int j = 0; j < mListeners.size(); j++) {
+                ChartModelListener listener = mListeners.get(j);
+                if (!mSynchronousListeners.contains(listener)) {
+                    listener.onDataPointsChanged(change);
+                }
+            }
+        }
+        mChangesToDeliver.clear();
+    }
+
+    interface ListenerAction {
+
+        void doFor(ChartModelListener listener);
+    }
+
+    /**
+     * Data change which is not delivered yet.
+     */
+    private static class PendingChange {
+
+        private ChartDataSource      mDataSource;
+        private long                 mFromX;
+        private long                 mToX;
+        private long                 mStep;
+        private ChartDataChange.Kind mKind;
+
+        void set(ChartDataSource dataSource, long fromX, long toX, long step, ChartDataChange.Kind kind) {
+            mDataSource = dataSource;
+            mFromX = fromX;
+            mToX = toX;
+            mStep = step;
+            mKind = kind;
+        }
+
+        void reset() {
+            // Don't keep removed data sources
+            mDataSource = null;
+            mKind = null;
+        }
+    }
+}
\ No newline at end of file
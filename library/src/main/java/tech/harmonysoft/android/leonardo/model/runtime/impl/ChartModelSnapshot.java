@@ -0,0 +1,334 @@
+package tech.harmonysoft.android.leonardo.model.runtime.impl;
+
+import tech.harmonysoft.android.leonardo.model.DataPoint;
+import tech.harmonysoft.android.leonardo.model.Interval;
+import tech.harmonysoft.android.leonardo.model.Range;
+import tech.harmonysoft.android.leonardo.model.data.ChartDataSource;
+import tech.harmonysoft.android.leonardo.model.runtime.ChartModel;
+import tech.harmonysoft.android.leonardo.util.RangesList;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * <p>
+ *     Immutable state of a {@link ChartModel} which is necessary for drawing - active range points, neighbour
+ *     points and Y range for every anchor and loaded ranges for every data source.
+ * </p>
+ * <p>
+ *     Snapshots are {@link #capture(ChartModelImpl, ChartModelSnapshot, Collection) captured} on the thread which
+ *     owns the model and might be read from any thread without synchronization after safe publication.
+ *     Points are copied, so a snapshot stays valid when the model changes. Returned {@link RangesList} objects
+ *     must not be modified.
+ * </p>
+ *
+ * @author Denis Zhdanov
+ * @since 1/4/19
+ */
+public class ChartModelSnapshot {
+
+    public static final ChartModelSnapshot EMPTY = new ChartModelSnapshot(
+            0, Range.NO_RANGE, 0, Collections.emptyMap(), Collections.emptyMap(), Collections.emptyMap()
+    );
+
+    private final long                                        mVersion;
+    private final Range                                       mBufferRange;
+    private final long                                        mFocusX;
+    private final Map<Object, AnchorState>                    mAnchors;
+    private final Map<ChartDataSource, RangesList>            mLoadedRanges;
+    /** Ranges loaded in reduced resolution, keys are steps */
+    private final Map<ChartDataSource, Map<Long, RangesList>> mCoarseLoadedRanges;
+
+    private ChartModelSnapshot(long version,
+                               Range bufferRange,
+                               long focusX,
+                               Map<Object, AnchorState> anchors,
+                               Map<ChartDataSource, RangesList> loadedRanges,
+                               Map<ChartDataSource, Map<Long, RangesList>> coarseLoadedRanges)
+    {
+        mVersion = version;
+        mBufferRange = bufferRange;
+        mFocusX = focusX;
+        mAnchors = anchors;
+        mLoadedRanges = loadedRanges;
+        mCoarseLoadedRanges = coarseLoadedRanges;
+    }
+
+    /**
+     * Captures current state of the given model. Must be called on the thread which owns the model.
+     *
+     * @param model             target model
+     * @param previous          previously captured snapshot
+     * @param changedAnchors    anchors which state is changed since the previous snapshot, state of other anchors
+     *                          is re-used from the previous snapshot
+     * @return                  snapshot of the given model's state
+     */
+    @Nonnull
+    static ChartModelSnapshot capture(ChartModelImpl model,
+                                      ChartModelSnapshot previous,
+                                      Collection<Object> changedAnchors)
+    {
+        Map<Object, AnchorState> anchors = new HashMap<>();
+        for (Object anchor : model.getAnchors()) {
+            AnchorState state = previous.mAnchors.get(anchor);
+            if (state == null || changedAnchors.contains(anchor)) {
+                state = AnchorState.capture(model, anchor);
+            }
+            anchors.put(anchor, state);
+        }
+
+        Map<ChartDataSource, RangesList> loadedRanges = new HashMap<>();
+        Map<ChartDataSource, Map<Long, RangesList>> coarseLoadedRanges = new HashMap<>();
+        for (ChartDataSource dataSource : model.getRegisteredDataSources()) {
+            loadedRanges.put(dataSource, copy(model.getLoadedRanges(dataSource)));
+            Collection<Long> steps = model.getLoadedSteps(dataSource);
+            if (!steps.isEmpty()) {
+                Map<Long, RangesList> coarseRanges = new HashMap<>();
+                for (Long step : steps) {
+                    coarseRanges.put(step, copy(model.getLoadedRanges(dataSource, step)));
+                }
+                coarseLoadedRanges.put(dataSource, coarseRanges);
+            }
+        }
+        return new ChartModelSnapshot(previous.mVersion + 1,
+                                      model.getBufferRange(),
+                                      model.getFocusX(),
+                                      anchors,
+                                      loadedRanges,
+                                      coarseLoadedRanges);
+    }
+
+    @Nonnull
+    private static RangesList copy(RangesList ranges) {
+        RangesList result = new RangesList();
+        for (int i = 0; i < ranges.size(); i++) {
+            result.add(ranges.getStart(i), ranges.getEnd(i));
+        }
+        return result;
+    }
+
+    /**
+     * @return      snapshot's version, every next snapshot of the same model has greater version
+     */
+    public long getVersion() {
+        return mVersion;
+    }
+
+    @Nonnull
+    public Range getBufferRange() {
+        return mBufferRange;
+    }
+
+    public long getFocusX() {
+        return mFocusX;
+    }
+
+    /**
+     * @param anchor    target anchor
+     * @return          state captured for the given anchor; {@code null} if the anchor had no active range
+     */
+    @Nullable
+    public AnchorState getAnchorState(Object anchor) {
+        return mAnchors.get(anchor);
+    }
+
+    /**
+     * @param dataSource    target data source
+     * @return              raw ranges loaded for the given data source, must not be modified
+     */
+    @Nonnull
+    public RangesList getLoadedRanges(ChartDataSource dataSource) {
+        RangesList result = mLoadedRanges.get(dataSource);
+        return result == null ? new RangesList() : result;
+    }
+
+    /**
+     * @param dataSource    target data source
+     * @param step          target step, see {@link ChartModel#getLoadedRanges(ChartDataSource, long)}
+     * @return              ranges loaded for the given data source in the given resolution, must not be modified
+     */
+    @Nonnull
+    public RangesList getLoadedRanges(ChartDataSource dataSource, long step) {
+        if (step <= ChartModel.RAW_STEP) {
+            return getLoadedRanges(dataSource);
+        }
+        Map<Long, RangesList> coarseRanges = mCoarseLoadedRanges.get(dataSource);
+        RangesList result = coarseRanges == null ? null : coarseRanges.get(step);
+        return result == null ? new RangesList() : result;
+    }
+
+    @Nonnull
+    @Override
+    public String toString() {
+        return "snapshot #" + mVersion + ", anchors=" + mAnchors.size() + ", buffer=" + mBufferRange;
+    }
+
+    /**
+     * {@link ChartModelSnapshot Snapshot} of the state related to particular anchor.
+     */
+    public static class AnchorState {
+
+        private final Range                             mActiveRange;
+        private final Range                             mBufferRange;
+        private final Range                             mActiveYRange;
+        private final long                              mStep;
+        private final int                               mVisualWidth;
+        private final Map<ChartDataSource, SeriesState> mSeries;
+
+        private AnchorState(Range activeRange,
+                            Range bufferRange,
+                            Range activeYRange,
+                            long step,
+                            int visualWidth,
+                            Map<ChartDataSource, SeriesState> series)
+        {
+            mActiveRange = activeRange;
+            mBufferRange = bufferRange;
+            mActiveYRange = activeYRange;
+            mStep = step;
+            mVisualWidth = visualWidth;
+            mSeries = series;
+        }
+
+        @Nonnull
+        static AnchorState capture(ChartModelImpl model, Object anchor) {
+            int visualWidth = model.getVisualWidth(anchor);
+            Map<ChartDataSource, SeriesState> series = new HashMap<>();
+            for (ChartDataSource dataSource : model.getRegisteredDataSources()) {
+                Interval points = copy(model.getCurrentRangePoints(dataSource, anchor));
+                Interval visualPoints = visualWidth > 0
+                                        ? copy(model.getCurrentRangePoints(dataSource, anchor, visualWidth))
+                                        : points;
+                series.put(dataSource, new SeriesState(
+                        points,
+                        visualPoints,
+                        model.getPreviousPointForActiveRange(dataSource, anchor),
+                        model.getNextPointForActiveRange(dataSource, anchor),
+                        model.arePointsForActiveRangeLoaded(dataSource, anchor)
+                ));
+            }
+            return new AnchorState(model.getActiveRange(anchor),
+                                   model.getBufferRange(anchor),
+                                   model.getActiveYRange(anchor),
+                                   model.getStep(anchor),
+                                   visualWidth,
+                                   series);
+        }
+
+        @Nonnull
+        private static Interval copy(Interval interval) {
+            if (interval.isEmpty()) {
+                return Interval.EMPTY;
+            }
+            long[] ys = new long[interval.size()];
+            long xStep = interval.getImplicitXStep();
+            if (xStep >= 0) {
+                for (int i = 0; i < ys.length; i++) {
+                    ys[i] = interval.getY(i);
+                }
+                return new Interval(interval.getMinX(), xStep, ys, 0, ys.length);
+            }
+            long[] xs = new long[interval.size()];
+            interval.copyTo(xs, ys, 0);
+            return new Interval(xs, ys, 0, xs.length);
+        }
+
+        @Nonnull
+        public Range getActiveRange() {
+            return mActiveRange;
+        }
+
+        @Nonnull
+        public Range getBufferRange() {
+            return mBufferRange;
+        }
+
+        @Nonnull
+        public Range getActiveYRange() {
+            return mActiveYRange;
+        }
+
+        public long getStep() {
+            return mStep;
+        }
+
+        /**
+         * @return      visual width which {@link SeriesState#getVisualPoints() visual points} are reduced for;
+         *              non-positive value if visual width is unknown
+         */
+        public int getVisualWidth() {
+            return mVisualWidth;
+        }
+
+        /**
+         * @param dataSource    target data source
+         * @return              state of the given data source for the current anchor; {@code null} if the data
+         *                      source was not registered at the moment
+         */
+        @Nullable
+        public SeriesState getSeriesState(ChartDataSource dataSource) {
+            return mSeries.get(dataSource);
+        }
+    }
+
+    /**
+     * {@link ChartModelSnapshot Snapshot} of the state related to particular data source and anchor.
+     */
+    public static class SeriesState {
+
+        private final Interval  mPoints;
+        private final Interval  mVisualPoints;
+        private final DataPoint mPreviousPoint;
+        private final DataPoint mNextPoint;
+        private final boolean   mPointsLoaded;
+
+        private SeriesState(Interval points,
+                            Interval visualPoints,
+                            @Nullable DataPoint previousPoint,
+                            @Nullable DataPoint nextPoint,
+                            boolean pointsLoaded)
+        {
+            mPoints = points;
+            mVisualPoints = visualPoints;
+            mPreviousPoint = previousPoint;
+            mNextPoint = nextPoint;
+            mPointsLoaded = pointsLoaded;
+        }
+
+        /**
+         * @return      all points within the active range,
+         *              see {@link ChartModel#getCurrentRangePoints(ChartDataSource, Object)}
+         */
+        @Nonnull
+        public Interval getPoints() {
+            return mPoints;
+        }
+
+        /**
+         * @return      points within the active range reduced for the {@link AnchorState#getVisualWidth()
+         *              visual width}, see {@link ChartModel#getCurrentRangePoints(ChartDataSource, Object, int)}
+         */
+        @Nonnull
+        public Interval getVisualPoints() {
+            return mVisualPoints;
+        }
+
+        @Nullable
+        public DataPoint getPreviousPoint() {
+            return mPreviousPoint;
+        }
+
+        @Nullable
+        public DataPoint getNextPoint() {
+            return mNextPoint;
+        }
+
+        public boolean isPointsLoaded() {
+            return mPointsLoaded;
+        }
+    }
+}
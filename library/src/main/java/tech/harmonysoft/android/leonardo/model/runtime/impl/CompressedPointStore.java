@@ -0,0 +1,398 @@
+package tech.harmonysoft.android.leonardo.model.runtime.impl;
+
+import tech.harmonysoft.android.leonardo.model.DataPoint;
+import tech.harmonysoft.android.leonardo.model.Interval;
+import tech.harmonysoft.android.leonardo.model.Range;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p>
+ *     Sorted (by X) compressed storage for data points which are buffered but not shown at the moment.
+ * </p>
+ * <p>
+ *     Points are split into blocks of up to {@link #BLOCK_SIZE} points. Every block keeps X values as
+ *     delta-of-delta and Y values as delta from the previous point, both are zig-zag encoded as variable
+ *     length integers. Chart X values are usually evenly spaced and Y values change gradually, so a point
+ *     typically takes two-four bytes instead of sixteen.
+ * </p>
+ * <p>
+ *     Last decoded blocks are cached, so scrolling back and forth over the same area doesn't decode
+ *     the same blocks again and again.
+ * </p>
+ * <p>
+ *     Not thread-safe.
+ * </p>
+ *
+ * @author Denis Zhdanov
+ * @since 1/4/19
+ */
+public class CompressedPointStore {
+
+    public static final int BLOCK_SIZE = 1024;
+
+    private static final int CACHE_SIZE = 4;
+    /** Max number of bytes used by a single varint-encoded long value */
+    private static final int MAX_VALUE_BYTES = 10;
+
+    private final List<Block> mBlocks = new ArrayList<>();
+
+    /** Cached blocks and their decoded points, arrays are allocated on demand */
+    private final Block[]  mCachedBlocks = new Block[CACHE_SIZE];
+    private final long[][] mCachedXs     = new long[CACHE_SIZE][];
+    private final long[][] mCachedYs     = new long[CACHE_SIZE][];
+    private final long[]   mCacheLastUse = new long[CACHE_SIZE];
+    /** Holds points of the blocks which are re-encoded on {@link #addAll(Interval) addition} */
+    private final DataPointStore mMergeBuffer = new DataPointStore();
+
+    private byte[] mEncodeBuffer = new byte[0];
+    private long   mCacheClock;
+    private int    mSize;
+
+    public int size() {
+        return mSize;
+    }
+
+    public boolean isEmpty() {
+        return mSize <= 0;
+    }
+
+    /**
+     * @return      number of bytes used by the encoded points
+     */
+    public long getEncodedSize() {
+        long result = 0;
+        for (int i = 0, max = mBlocks.size(); i < max; i++) {
+            result += mBlocks.get(i).mData.length;
+        }
+        return result;
+    }
+
+    /**
+     * Adds all points from the given interval to the current store. Points with the same X (if any) are replaced.
+     * <p/>
+     * Blocks which overlap with the given points are decoded, merged with them and encoded again. Adjacent
+     * blocks which are not full are merged as well, so blocks don't become small when points are added
+     * page by page.
+     *
+     * @param interval  points to add
+     */
+    public void addAll(Interval interval) {
+        if (interval.isEmpty()) {
+            return;
+        }
+        // Blocks within [from; to) are re-encoded together with the given points
+        int from = getFirstBlockEndingAtOrAfter(interval.getMinX());
+        int to = from;
+        while (to < mBlocks.size() && mBlocks.get(to).mFirstX <= interval.getMaxX()) {
+            to++;
+        }
+        if (from > 0 && mBlocks.get(from - 1).mSize < BLOCK_SIZE) {
+            from--;
+        }
+        if (to < mBlocks.size() && mBlocks.get(to).mSize < BLOCK_SIZE) {
+            to++;
+        }
+
+        if (from == to) {
+            mBlocks.addAll(from, encode(interval));
+            mSize += interval.size();
+            return;
+        }
+
+        mMergeBuffer.clear();
+        for (int i = from; i < to; i++) {
+            Block block = mBlocks.get(i);
+            mMergeBuffer.addAll(decode(block));
+            mSize -= block.mSize;
+            invalidate(block);
+        }
+        mMergeBuffer.addAll(interval);
+        mBlocks.subList(from, to).clear();
+        mBlocks.addAll(from, encode(mMergeBuffer.getInterval(0, mMergeBuffer.size() - 1)));
+        mSize += mMergeBuffer.size();
+        mMergeBuffer.clear();
+    }
+
+    /**
+     * Drops all points which are located outside the given range.
+     *
+     * @param range     range of points to keep
+     */
+    public void keepOnly(Range range) {
+        int from = getFirstBlockEndingAtOrAfter(range.getStart());
+        int to = from;
+        while (to < mBlocks.size() && mBlocks.get(to).mFirstX <= range.getEnd()) {
+            to++;
+        }
+        for (int i = 0; i < mBlocks.size(); i++) {
+            if (i < from || i >= to) {
+                invalidate(mBlocks.get(i));
+                mSize -= mBlocks.get(i).mSize;
+            }
+        }
+        mBlocks.subList(to, mBlocks.size()).clear();
+        mBlocks.subList(0, from).clear();
+        if (mBlocks.isEmpty()) {
+            return;
+        }
+
+        // Only boundary blocks might have points outside the range
+        trimBlock(mBlocks.size() - 1, range);
+        if (!mBlocks.isEmpty()) {
+            trimBlock(0, range);
+        }
+    }
+
+    private void trimBlock(int i, Range range) {
+        Block block = mBlocks.get(i);
+        if (block.mFirstX >= range.getStart() && block.mLastX <= range.getEnd()) {
+            return;
+        }
+        Interval points = decode(block).getSubInterval(range.getStart(), range.getEnd());
+        invalidate(block);
+        mSize -= block.mSize - points.size();
+        if (points.isEmpty()) {
+            mBlocks.remove(i);
+        } else {
+            mBlocks.set(i, encode(points, 0, points.size()));
+        }
+    }
+
+    public void clear() {
+        mBlocks.clear();
+        Arrays.fill(mCachedBlocks, null);
+        mSize = 0;
+    }
+
+    /**
+     * Adds stored points located within the given X range to the given store.
+     *
+     * @param fromX     min X of the points to copy (inclusive)
+     * @param toX       max X of the points to copy (inclusive)
+     * @param target    store to add the points to
+     */
+    public void copyTo(long fromX, long toX, DataPointStore target) {
+        for (int i = getFirstBlockEndingAtOrAfter(fromX); i < mBlocks.size(); i++) {
+            Block block = mBlocks.get(i);
+            if (block.mFirstX > toX) {
+                return;
+            }
+            target.addAll(decode(block).getSubInterval(fromX, toX));
+        }
+    }
+
+    /**
+     * @param x     target X
+     * @return      stored point with the greatest X which is less than the given X; {@code null} if there is
+     *              no such point
+     */
+    @Nullable
+    public DataPoint getLastPointBefore(long x) {
+        int i = getFirstBlockEndingAtOrAfter(x);
+        if (i < mBlocks.size() && mBlocks.get(i).mFirstX < x) {
+            Interval points = decode(mBlocks.get(i));
+            int index = points.binarySearch(x);
+            index = index >= 0 ? index - 1 : -(index + 1) - 1;
+            return new DataPoint(points.getX(index), points.getY(index));
+        }
+        if (i <= 0) {
+            return null;
+        }
+        Block block = mBlocks.get(i - 1);
+        return new DataPoint(block.mLastX, decode(block).getY(block.mSize - 1));
+    }
+
+    /**
+     * @param x     target X
+     * @return      stored point with the smallest X which is greater than the given X; {@code null} if there is
+     *              no such point
+     */
+    @Nullable
+    public DataPoint getFirstPointAfter(long x) {
+        int i = getFirstBlockEndingAtOrAfter(x);
+        if (i < mBlocks.size() && mBlocks.get(i).mLastX == x) {
+            i++;
+        }
+        if (i >= mBlocks.size()) {
+            return null;
+        }
+        Interval points = decode(mBlocks.get(i));
+        int index = points.binarySearch(x);
+        index = index >= 0 ? index + 1 : -(index + 1);
+        return new DataPoint(points.getX(index), points.getY(index));
+    }
+
+    /**
+     * @param x     target X
+     * @return      index of the first block which last X is greater or equal to the given X;
+     *              number of blocks if there is no such block
+     */
+    private int getFirstBlockEndingAtOrAfter(long x) {
+        int low = 0;
+        int high = mBlocks.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (mBlocks.get(mid).mLastX < x) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    @Nonnull
+    private List<Block> encode(Interval points) {
+        List<Block> result = new ArrayList<>(points.size() / BLOCK_SIZE + 1);
+        for (int from = 0; from < points.size(); from += BLOCK_SIZE) {
+            result.add(encode(points, from, Math.min(points.size(), from + BLOCK_SIZE)));
+        }
+        return result;
+    }
+
+    /**
+     * @param points    points to encode
+     * @param from      index of the first point to encode (inclusive)
+     * @param to        index of the last point to encode (exclusive)
+     * @return          block with the encoded points
+     */
+    @Nonnull
+    private Block encode(Interval points, int from, int to) {
+        if (mEncodeBuffer.length < (to - from) * MAX_VALUE_BYTES * 2) {
+            mEncodeBuffer = new byte[BLOCK_SIZE * MAX_VALUE_BYTES * 2];
+        }
+        int length = 0;
+        long previousX = points.getX(from);
+        long previousDelta = 0;
+        long previousY = 0;
+        for (int i = from; i < to; i++) {
+            long x = points.getX(i);
+            long y = points.getY(i);
+            long delta = x - previousX;
+            length = writeVarLong(mEncodeBuffer, length, zigZag(delta - previousDelta));
+            length = writeVarLong(mEncodeBuffer, length, zigZag(y - previousY));
+            previousX = x;
+            previousDelta = delta;
+            previousY = y;
+        }
+        return new Block(points.getX(from), points.getX(to - 1), to - from, Arrays.copyOf(mEncodeBuffer, length));
+    }
+
+    /**
+     * @param block     block to decode
+     * @return          block's points. Note that the returned interval is valid only until the next call
+     *                  to this method
+     */
+    @Nonnull
+    private Interval decode(Block block) {
+        int slot = -1;
+        for (int i = 0; i < CACHE_SIZE; i++) {
+            if (mCachedBlocks[i] == block) {
+                slot = i;
+                break;
+            }
+            if (slot < 0 || mCacheLastUse[i] < mCacheLastUse[slot]) {
+                slot = i;
+            }
+        }
+        mCacheLastUse[slot] = ++mCacheClock;
+        if (mCachedXs[slot] == null) {
+            mCachedXs[slot] = new long[BLOCK_SIZE];
+            mCachedYs[slot] = new long[BLOCK_SIZE];
+        }
+        long[] xs = mCachedXs[slot];
+        long[] ys = mCachedYs[slot];
+        if (mCachedBlocks[slot] != block) {
+            decode(block, xs, ys);
+            mCachedBlocks[slot] = block;
+        }
+        return new Interval(xs, ys, 0, block.mSize);
+    }
+
+    private static void decode(Block block, long[] xs, long[] ys) {
+        byte[] data = block.mData;
+        int position = 0;
+        long x = block.mFirstX;
+        long delta = 0;
+        long y = 0;
+        for (int i = 0; i < block.mSize; i++) {
+            // Var longs are decoded inline in order to avoid returning both value and position
+            long value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[position++];
+                value |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            delta += unZigZag(value);
+            x += delta;
+
+            value = 0;
+            shift = 0;
+            do {
+                b = data[position++];
+                value |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            y += unZigZag(value);
+
+            xs[i] = x;
+            ys[i] = y;
+        }
+    }
+
+    private void invalidate(Block block) {
+        for (int i = 0; i < CACHE_SIZE; i++) {
+            if (mCachedBlocks[i] == block) {
+                mCachedBlocks[i] = null;
+            }
+        }
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * @return      position in the given buffer after the written value
+     */
+    private static int writeVarLong(byte[] buffer, int position, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+        return position;
+    }
+
+    @Nonnull
+    @Override
+    public String toString() {
+        return mSize + " points in " + mBlocks.size() + " blocks, " + getEncodedSize() + " bytes";
+    }
+
+    private static class Block {
+
+        final long   mFirstX;
+        final long   mLastX;
+        final int    mSize;
+        final byte[] mData;
+
+        Block(long firstX, long lastX, int size, byte[] data) {
+            mFirstX = firstX;
+            mLastX = lastX;
+            mSize = size;
+            mData = data;
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package tech.harmonysoft.android.leonardo.model.runtime.impl;
+
+import tech.harmonysoft.android.leonardo.model.Interval;
+import tech.harmonysoft.android.leonardo.model.Range;
+
+import javax.annotation.Nonnull;
+
+/**
+ * <p>
+ *     Mipmap-like multi-resolution representation of the points buffered for a single data source.
+ * </p>
+ * <p>
+ *     Every level splits X axis into buckets which are {@link #LEVEL_FACTOR} times wider than the buckets
+ *     of the previous level (the first level's bucket is {@link #LEVEL_FACTOR} times wider than the minimal
+ *     distance between two raw points) and keeps only points with min and max Y for every bucket. That way
+ *     visual peaks are preserved on all levels. Pages might come with different resolution, so bucket widths
+ *     are re-calculated and all levels are re-built when points with smaller distance arrive.
+ * </p>
+ * <p>
+ *     Buckets are aligned to absolute X values, so when new raw points are added only the buckets which
+ *     intersect with them are re-calculated.
+ * </p>
+ * <p>
+ *     Not thread-safe.
+ * </p>
+ *
+ * @author Denis Zhdanov
+ * @since 29/3/19
+ */
+public class DataPointPyramid {
+
+    public static final int LEVEL_FACTOR  = 4;
+    public static final int LEVELS_NUMBER = 4;
+
+    private final DataPointStore[] mLevels = new DataPointStore[LEVELS_NUMBER + 1];
+    private final long[]           mBucketWidths = new long[LEVELS_NUMBER + 1];
+
+    public DataPointPyramid(DataPointStore rawPoints) {
+        mLevels[0] = rawPoints;
+        for (int i = 1; i < mLevels.length; i++) {
+            mLevels[i] = new DataPointStore();
+        }
+    }
+
+    /**
+     * @return      number of aggregated levels which are available at the moment. Raw points are not counted
+     */
+    public int getLevelsNumber() {
+        return mBucketWidths[0] > 0 ? LEVELS_NUMBER : 0;
+    }
+
+    /**
+     * @param level     target level, {@code 0} means raw points
+     * @return          points of the target level
+     */
+    @Nonnull
+    public DataPointStore getLevel(int level) {
+        return mLevels[level];
+    }
+
+    /**
+     * @param level     target level
+     * @return          bucket width (in data X units) of the target level; non-positive value if the
+     *                  pyramid is not built yet
+     */
+    public long getBucketWidth(int level) {
+        return mBucketWidths[level];
+    }
+
+    /**
+     * Is expected to be called when new points are added to the raw points store.
+     *
+     * @param fromX     min X of the added points
+     * @param toX       max X of the added points
+     */
+    public void onPointsAdded(long fromX, long toX) {
+        DataPointStore raw = mLevels[0];
+        // Neighbour points are included as the distance to them might be the smallest one
+        long minStep = mBucketWidths[0] <= 0
+                       ? getMinStep(raw, 0, raw.size() - 1)
+                       : getMinStep(raw, raw.ceilingIndex(fromX) - 1, raw.floorIndex(toX) + 1);
+        if (minStep < mBucketWidths[0] || (mBucketWidths[0] <= 0 && minStep < Long.MAX_VALUE)) {
+            initBucketWidths(minStep);
+            // Buckets of all levels are changed
+            fromX = raw.getFirstX();
+            toX = raw.getLastX();
+        } else if (mBucketWidths[0] <= 0) {
+            return;
+        }
+
+        for (int level = 1; level < mLevels.length; level++) {
+            long width = mBucketWidths[level];
+            long bucketStartX = floorDiv(fromX, width) * width;
+            long bucketEndX = (floorDiv(toX, width) + 1) * width - 1;
+            rebuild(level, bucketStartX, bucketEndX);
+            fromX = bucketStartX;
+            toX = bucketEndX;
+        }
+    }
+
+    /**
+     * @param store     target points
+     * @param from      index of the first point to check, might be out of the store's bounds
+     * @param to        index of the last point to check, might be out of the store's bounds
+     * @return          minimal distance between two consecutive points within the given indices;
+     *                  {@link Long#MAX_VALUE} if there are less than two points there
+     */
+    private static long getMinStep(DataPointStore store, int from, int to) {
+        from = Math.max(from, 0);
+        to = Math.min(to, store.size() - 1);
+        long result = Long.MAX_VALUE;
+        for (int i = from + 1; i <= to; i++) {
+            result = Math.min(result, store.getX(i) - store.getX(i - 1));
+        }
+        return result;
+    }
+
+    private void initBucketWidths(long minStep) {
+        for (int level = 1; level < mLevels.length; level++) {
+            mLevels[level].clear();
+        }
+        long width = minStep;
+        for (int level = 0; level < mBucketWidths.length; level++) {
+            mBucketWidths[level] = width;
+            width *= LEVEL_FACTOR;
+        }
+    }
+
+    private void rebuild(int level, long fromX, long toX) {
+        DataPointStore source = mLevels[level - 1];
+        DataPointStore target = mLevels[level];
+        long width = mBucketWidths[level];
+        target.remove(fromX, toX);
+
+        int from = source.ceilingIndex(fromX);
+        int to = source.floorIndex(toX);
+        if (from > to) {
+            return;
+        }
+
+        long currentBucket = floorDiv(source.getX(from), width);
+        int minIndex = from;
+        int maxIndex = from;
+        for (int i = from + 1; i <= to; i++) {
+            long bucket = floorDiv(source.getX(i), width);
+            if (bucket != currentBucket) {
+                flush(source, minIndex, maxIndex, target);
+                currentBucket = bucket;
+                minIndex = i;
+                maxIndex = i;
+                continue;
+            }
+            long y = source.getY(i);
+            if (y < source.getY(minIndex)) {
+                minIndex = i;
+            }
+            if (y > source.getY(maxIndex)) {
+                maxIndex = i;
+            }
+        }
+        flush(source, minIndex, maxIndex, target);
+    }
+
+    private static void flush(DataPointStore source, int minIndex, int maxIndex, DataPointStore target) {
+        int first = Math.min(minIndex, maxIndex);
+        int second = Math.max(minIndex, maxIndex);
+        target.add(source.getX(first), source.getY(first));
+        if (second != first) {
+            target.add(source.getX(second), source.getY(second));
+        }
+    }
+
+    /**
+     * {@link Math#floorDiv(long, long)} is available only since Android API 24
+     */
+    private static long floorDiv(long x, long y) {
+        long result = x / y;
+        if ((x % y != 0) && ((x < 0) != (y < 0))) {
+            result--;
+        }
+        return result;
+    }
+
+    public void keepOnly(Range range) {
+        for (int i = 1; i < mLevels.length; i++) {
+            mLevels[i].keepOnly(range);
+        }
+    }
+
+    /**
+     * @param level     target level
+     * @param range     target X range
+     * @return          number of points the target level is expected to have for the given range
+     */
+    public long getExpectedPointsNumber(int level, Range range) {
+        if (level == 0) {
+            return range.getPointsNumber() / mBucketWidths[0];
+        }
+        // Min and max points per bucket
+        return 2 * range.getPointsNumber() / mBucketWidths[level];
+    }
+
+    /**
+     * @param range         target X range
+     * @param visualWidth   number of pixels available for drawing the given range
+     * @return              points within the given range from the coarsest level which still provides
+     *                      at least one point per pixel
+     */
+    @Nonnull
+    public Interval getInterval(Range range, int visualWidth) {
+        int level = 0;
+        for (int i = getLevelsNumber(); i > 0; i--) {
+            if (getExpectedPointsNumber(i, range) >= visualWidth) {
+                level = i;
+                break;
+            }
+        }
+        DataPointStore store = mLevels[level];
+        return store.getInterval(store.ceilingIndex(range.getStart()), store.floorIndex(range.getEnd()));
+    }
+}
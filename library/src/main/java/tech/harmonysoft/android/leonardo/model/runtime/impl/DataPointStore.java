@@ -0,0 +1,744 @@
+package tech.harmonysoft.android.leonardo.model.runtime.impl;
+
+import tech.harmonysoft.android.leonardo.model.Interval;
+import tech.harmonysoft.android.leonardo.model.Range;
+
+import javax.annotation.Nonnull;
+
+/**
+ * <p>
+ *     Sorted (by X) column storage for data points. Keeps X and Y values in primitive arrays in order to avoid
+ *     allocating an object per point - profiling shows that keeping points buffer as a {@code TreeSet<DataPoint>}
+ *     produces a lot of garbage and causes GC pauses during scroll.
+ * </p>
+ * <p>
+ *     The storage can grow in both directions - free space is kept before the first and after the last point,
+ *     so that adding a page of points adjacent to the stored ones is an amortized {@code O(1)} per point.
+ * </p>
+ * <p>
+ *     Min/max Y queries for an indices range are answered in {@code O(log(n))} by a {@link MinMaxTree} built
+ *     over the Y column. The tree is updated in place when points are added to either end of the store and is
+ *     lazily re-built after other modifications.
+ * </p>
+ * <p>
+ *     Most series have evenly spaced X values (e.g. one point per day), so an unbounded store doesn't materialize
+ *     the X column while stored points form a regular grid - X of the point at index {@code i} is
+ *     {@code firstX + step * i} then. That halves the buffer size and makes lookups by X {@code O(1)}.
+ *     The X column is transparently materialized as soon as a point which doesn't fit the grid is added.
+ * </p>
+ * <p>
+ *     A store might be {@link #DataPointStore(int) bounded} - it keeps only a fixed number of the latest points
+ *     then and works as a ring buffer for the {@link #append(long, long) appended} points. Its backing arrays are
+ *     twice as large as the capacity and every point is written at two positions which are {@code capacity}
+ *     apart, so the stored points always occupy a contiguous region of the arrays even when the ring wraps
+ *     around. That way {@link #getInterval(int, int)} keeps returning zero-copy windows for bounded stores too.
+ * </p>
+ * <p>
+ *     Not thread-safe.
+ * </p>
+ *
+ * @author Denis Zhdanov
+ * @since 26/3/19
+ */
+public class DataPointStore {
+
+    private static final int MIN_CAPACITY = 16;
+
+    /** X column; {@code null} while X values are implicit */
+    private long[] mXs;
+    private long[] mYs = new long[MIN_CAPACITY];
+    /** X of the first stored point while X values are implicit */
+    private long   mFirstX;
+    /** Distance between X of adjacent points while X values are implicit; zero if there is at most one point */
+    private long   mXStep;
+
+    private final MinMaxTree mYIndex = new MinMaxTree();
+
+    /** Max number of points to keep for a bounded store; non-positive value for an unbounded store */
+    private final int mCapacity;
+
+    /** Index of the first stored point in the backing arrays */
+    private int     mStart = MIN_CAPACITY / 2;
+    private int     mSize;
+    private boolean mYIndexDirty = true;
+    /** Number of the last points which are appended to a bounded store but not reflected in the Y index yet */
+    private int     mPendingYUpdates;
+
+    /** Buffers for merging {@link #addAll(Interval) added points} with the stored ones, grow on demand */
+    private long[] mMergeXs = new long[0];
+    private long[] mMergeYs = new long[0];
+
+    /**
+     * Creates an unbounded store.
+     */
+    public DataPointStore() {
+        mCapacity = 0;
+    }
+
+    /**
+     * Creates a bounded store which keeps at most the given number of the latest points.
+     *
+     * @param capacity  max number of points to keep
+     */
+    public DataPointStore(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Expected to get a positive capacity but got " + capacity);
+        }
+        mCapacity = capacity;
+        // X values of a ring are not evenly spaced in general, so they are always materialized
+        mXs = new long[capacity * 2];
+        mYs = new long[capacity * 2];
+        mStart = 0;
+    }
+
+    /**
+     * @return      max number of points kept by the current store; non-positive value for an unbounded store
+     */
+    public int getCapacity() {
+        return mCapacity;
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * @return      number of bytes taken by the stored points' values, free space in the backing arrays is not
+     *              counted. Evenly spaced points don't store their X values, so they take half of that
+     */
+    public long getPointsSizeInBytes() {
+        // 8 bytes per long value
+        return (long) mSize * (mXs == null ? 8 : 16);
+    }
+
+    public boolean isEmpty() {
+        return mSize <= 0;
+    }
+
+    public long getX(int i) {
+        return mXs == null ? mFirstX + mXStep * i : mXs[mStart + i];
+    }
+
+    public long getY(int i) {
+        return mYs[mStart + i];
+    }
+
+    public long getFirstX() {
+        checkNotEmpty();
+        return getX(0);
+    }
+
+    public long getLastX() {
+        checkNotEmpty();
+        return getX(mSize - 1);
+    }
+
+    /**
+     * @param from  index of the first point to check (inclusive)
+     * @param to    index of the last point to check (inclusive)
+     * @return      min Y of the target points; {@link Long#MAX_VALUE} if there are no points in the given range
+     */
+    public long getMinY(int from, int to) {
+        if (from > to) {
+            return Long.MAX_VALUE;
+        }
+        mayBeRebuildYIndex();
+        return mYIndex.getMin(mStart + from, mStart + to);
+    }
+
+    /**
+     * @param from  index of the first point to check (inclusive)
+     * @param to    index of the last point to check (inclusive)
+     * @return      max Y of the target points; {@link Long#MIN_VALUE} if there are no points in the given range
+     */
+    public long getMaxY(int from, int to) {
+        if (from > to) {
+            return Long.MIN_VALUE;
+        }
+        mayBeRebuildYIndex();
+        return mYIndex.getMax(mStart + from, mStart + to);
+    }
+
+    private void mayBeRebuildYIndex() {
+        if (mYIndexDirty) {
+            if (mCapacity > 0) {
+                // Both copies of the points are indexed, so any window over the ring is answered correctly
+                mYIndex.rebuild(mYs, 0, mYs.length);
+            } else {
+                mYIndex.rebuild(mYs, mStart, mStart + mSize);
+            }
+            mYIndexDirty = false;
+            mPendingYUpdates = 0;
+            return;
+        }
+        for (int i = Math.max(0, mSize - mPendingYUpdates); i < mSize; i++) {
+            int position = mStart + i;
+            mYIndex.set(position, mYs[position]);
+            mYIndex.set(getMirrorPosition(position), mYs[position]);
+        }
+        mPendingYUpdates = 0;
+    }
+
+    private void onYChanged(int position, long y) {
+        if (!mYIndexDirty) {
+            mYIndex.set(position, y);
+        }
+    }
+
+    private int getMirrorPosition(int position) {
+        return position >= mCapacity ? position - mCapacity : position + mCapacity;
+    }
+
+    /**
+     * @param from  index of the first point to include (inclusive)
+     * @param to    index of the last point to include (inclusive)
+     * @return      read-only window over the target points. Note that it's not a copy, so it's valid
+     *              only until the store is modified
+     */
+    @Nonnull
+    public Interval getInterval(int from, int to) {
+        if (from > to) {
+            return Interval.EMPTY;
+        }
+        if (mXs == null) {
+            return new Interval(getX(from), mXStep, mYs, mStart + from, to - from + 1);
+        }
+        return new Interval(mXs, mYs, mStart + from, to - from + 1);
+    }
+
+    /**
+     * @param x     target X
+     * @return      index of the first point which X is greater or equal to the given X; {@link #size()}
+     *              if there is no such point
+     */
+    public int ceilingIndex(long x) {
+        int i = binarySearch(x);
+        return i >= 0 ? i : -(i + 1);
+    }
+
+    /**
+     * @param x     target X
+     * @return      index of the last point which X is less or equal to the given X; {@code -1}
+     *              if there is no such point
+     */
+    public int floorIndex(long x) {
+        int i = binarySearch(x);
+        return i >= 0 ? i : -(i + 1) - 1;
+    }
+
+    /**
+     * @param x     target X
+     * @return      point's index if a point with the given X is stored; {@code -(insertion point) - 1} otherwise.
+     *              Insertion point has the same semantic as in {@link java.util.Arrays#binarySearch(long[], long)}
+     */
+    public int binarySearch(long x) {
+        if (mXs == null) {
+            return getIndex(x);
+        }
+        int low = mStart;
+        int high = mStart + mSize - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midX = mXs[mid];
+            if (midX < x) {
+                low = mid + 1;
+            } else if (midX > x) {
+                high = mid - 1;
+            } else {
+                return mid - mStart;
+            }
+        }
+        return -(low - mStart + 1);
+    }
+
+    /**
+     * {@link #binarySearch(long)} for implicit X values.
+     */
+    private int getIndex(long x) {
+        if (mSize == 0 || x < mFirstX) {
+            return -1;
+        }
+        if (x > getX(mSize - 1)) {
+            return -(mSize + 1);
+        }
+        if (mSize == 1) {
+            return 0;
+        }
+        long offset = x - mFirstX;
+        int i = (int) (offset / mXStep);
+        return offset % mXStep == 0 ? i : -(i + 2);
+    }
+
+    /**
+     * Adds given point after the last stored point. The first point is dropped if current store
+     * is {@link #DataPointStore(int) bounded} and full.
+     * <p/>
+     * That works in {@code O(1)} without allocations for a bounded store. Falls back to {@link #add(long, long)}
+     * if the given X is not greater than the last stored X.
+     *
+     * @param x     point's X
+     * @param y     point's Y
+     */
+    public void append(long x, long y) {
+        if (mCapacity <= 0 || (mSize > 0 && x <= getLastX())) {
+            add(x, y);
+            return;
+        }
+
+        int position = mStart + mSize;
+        int mirrorPosition = getMirrorPosition(position);
+        mXs[position] = x;
+        mYs[position] = y;
+        mXs[mirrorPosition] = x;
+        mYs[mirrorPosition] = y;
+        if (mSize < mCapacity) {
+            mSize++;
+        } else {
+            // The oldest point is overwritten through the mirror position
+            mStart++;
+            normalizeStart();
+        }
+        if (!mYIndexDirty) {
+            mPendingYUpdates = Math.min(mPendingYUpdates + 1, mCapacity);
+        }
+    }
+
+    /**
+     * Adds given point to the current store. A point with the same X (if any) is replaced.
+     *
+     * @param x     point's X
+     * @param y     point's Y
+     */
+    public void add(long x, long y) {
+        if (mCapacity > 0) {
+            addToBoundedStore(x, y);
+            return;
+        }
+
+        if (mXs == null) {
+            long step = getGridStep(x, x, 0);
+            if (step >= 0) {
+                // Store's start might be changed by the grid growth
+                int index = growGrid(x, x, step);
+                int position = mStart + index;
+                mYs[position] = y;
+                onYChanged(position, y);
+                return;
+            }
+            materializeXs();
+        }
+
+        if (mSize == 0 || x > mXs[mStart + mSize - 1]) {
+            ensureCapacity(0, 1);
+            mXs[mStart + mSize] = x;
+            mYs[mStart + mSize] = y;
+            onYChanged(mStart + mSize, y);
+            mSize++;
+            return;
+        }
+
+        if (x < mXs[mStart]) {
+            ensureCapacity(1, 0);
+            mStart--;
+            mXs[mStart] = x;
+            mYs[mStart] = y;
+            onYChanged(mStart, y);
+            mSize++;
+            return;
+        }
+
+        int i = binarySearch(x);
+        if (i >= 0) {
+            mYs[mStart + i] = y;
+            onYChanged(mStart + i, y);
+            return;
+        }
+
+        i = -(i + 1);
+        ensureCapacity(0, 1);
+        int position = mStart + i;
+        System.arraycopy(mXs, position, mXs, position + 1, mSize - i);
+        System.arraycopy(mYs, position, mYs, position + 1, mSize - i);
+        mXs[position] = x;
+        mYs[position] = y;
+        mSize++;
+        mYIndexDirty = true;
+    }
+
+    /**
+     * Adds all points from the given interval to the current store. Points with the same X (if any) are replaced.
+     * <p/>
+     * Works in a single linear pass - given points are copied as a block if they are located before the first
+     * or after the last stored point and are merged with the overlapping stored points otherwise.
+     *
+     * @param interval  points to add
+     */
+    public void addAll(Interval interval) {
+        int count = interval.size();
+        if (count == 0) {
+            return;
+        }
+        if (mCapacity > 0) {
+            for (int i = 0; i < count; i++) {
+                add(interval.getX(i), interval.getY(i));
+            }
+            return;
+        }
+
+        if (mXs == null) {
+            long step = getGridStep(interval.getMinX(), interval.getMaxX(), getXStep(interval));
+            if (step >= 0) {
+                int index = growGrid(interval.getMinX(), interval.getMaxX(), step);
+                int position = mStart + index;
+                for (int i = 0; i < count; i++) {
+                    mYs[position + i] = interval.getY(i);
+                }
+                onYsChanged(position, count);
+                return;
+            }
+            materializeXs();
+        }
+
+        if (mSize == 0 || interval.getMinX() > mXs[mStart + mSize - 1]) {
+            ensureCapacity(0, count);
+            interval.copyTo(mXs, mYs, mStart + mSize);
+            onYsChanged(mStart + mSize, count);
+            mSize += count;
+            return;
+        }
+
+        if (interval.getMaxX() < mXs[mStart]) {
+            ensureCapacity(count, 0);
+            mStart -= count;
+            interval.copyTo(mXs, mYs, mStart);
+            onYsChanged(mStart, count);
+            mSize += count;
+            return;
+        }
+
+        // Stored points within [first; last) overlap with the given ones
+        int first = ceilingIndex(interval.getMinX());
+        int last = floorIndex(interval.getMaxX()) + 1;
+        int mergedSize = merge(interval, mStart + first, mStart + last);
+        int delta = mergedSize - (last - first);
+        if (delta > 0) {
+            ensureCapacity(0, delta);
+        }
+        int tailStart = mStart + last;
+        System.arraycopy(mXs, tailStart, mXs, tailStart + delta, mSize - last);
+        System.arraycopy(mYs, tailStart, mYs, tailStart + delta, mSize - last);
+        System.arraycopy(mMergeXs, 0, mXs, mStart + first, mergedSize);
+        System.arraycopy(mMergeYs, 0, mYs, mStart + first, mergedSize);
+        mSize += delta;
+        mYIndexDirty = true;
+    }
+
+    /**
+     * Merges given points with the stored points located within the given positions range
+     * into {@link #mMergeXs} and {@link #mMergeYs}.
+     *
+     * @param interval  points to merge, they win over the stored points with the same X
+     * @param from      position of the first stored point to merge (inclusive)
+     * @param to        position of the last stored point to merge (exclusive)
+     * @return          number of merged points
+     */
+    private int merge(Interval interval, int from, int to) {
+        int capacity = interval.size() + to - from;
+        if (mMergeXs.length < capacity) {
+            mMergeXs = new long[capacity];
+            mMergeYs = new long[capacity];
+        }
+        int result = 0;
+        int i = 0;
+        int j = from;
+        while (i < interval.size() || j < to) {
+            if (j >= to || (i < interval.size() && interval.getX(i) <= mXs[j])) {
+                if (j < to && interval.getX(i) == mXs[j]) {
+                    j++;
+                }
+                mMergeXs[result] = interval.getX(i);
+                mMergeYs[result++] = interval.getY(i++);
+            } else {
+                mMergeXs[result] = mXs[j];
+                mMergeYs[result++] = mYs[j++];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param interval  target points
+     * @return          distance between X of adjacent points of the given interval if they are evenly spaced;
+     *                  zero if the interval has a single point; {@code -1} if the points are not evenly spaced
+     */
+    private static long getXStep(Interval interval) {
+        long result = interval.getImplicitXStep();
+        if (result >= 0 || interval.size() == 1) {
+            return Math.max(result, 0);
+        }
+        result = interval.getX(1) - interval.getX(0);
+        for (int i = 2, max = interval.size(); i < max; i++) {
+            if (interval.getX(i) - interval.getX(i - 1) != result) {
+                return -1;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Checks if implicit X values of the stored points might be kept when evenly spaced points from the given
+     * range are added.
+     *
+     * @param minX      min X of the points to add
+     * @param maxX      max X of the points to add
+     * @param step      distance between X of the points to add; zero if there is a single point to add
+     * @return          step of the grid which covers both stored points and the given ones; zero if the grid
+     *                  has a single point; {@code -1} if there is no such grid, i.e. X values should be materialized
+     */
+    private long getGridStep(long minX, long maxX, long step) {
+        if (step < 0 || mSize == 0) {
+            return step;
+        }
+        long result = mSize > 1 ? mXStep : step;
+        if (result == 0) {
+            // Both current store and the points to add have a single point, negative distance means overflow
+            result = minX >= mFirstX ? minX - mFirstX : mFirstX - minX;
+            return result >= 0 ? result : -1;
+        }
+        if (step > 0 && step != result) {
+            return -1;
+        }
+        long offset = minX - mFirstX;
+        if ((minX >= mFirstX) != (offset >= 0) || offset % result != 0) {
+            // Either overflow or given points are not on the grid
+            return -1;
+        }
+        if (minX - result > getLastX() || maxX + result < mFirstX) {
+            // There is a gap between stored points and the given ones
+            return -1;
+        }
+        return result;
+    }
+
+    /**
+     * Extends implicit X values of the stored points to the given range.
+     *
+     * @param minX      min X of the grid to cover
+     * @param maxX      max X of the grid to cover
+     * @param step      grid step as returned by {@link #getGridStep(long, long, long)}
+     * @return          index of the point with the given min X
+     */
+    private int growGrid(long minX, long maxX, long step) {
+        if (mSize == 0) {
+            int size = step > 0 ? (int) ((maxX - minX) / step) + 1 : 1;
+            ensureCapacity(0, size);
+            mFirstX = minX;
+            mXStep = step;
+            mSize = size;
+            return 0;
+        }
+        if (step == 0) {
+            return 0;
+        }
+        long lastX = getLastX();
+        int headRoom = minX < mFirstX ? (int) ((mFirstX - minX) / step) : 0;
+        int tailRoom = maxX > lastX ? (int) ((maxX - lastX) / step) : 0;
+        ensureCapacity(headRoom, tailRoom);
+        mStart -= headRoom;
+        mSize += headRoom + tailRoom;
+        mFirstX -= headRoom * step;
+        mXStep = step;
+        return (int) ((minX - mFirstX) / step);
+    }
+
+    /**
+     * Switches current store from implicit to explicit X values.
+     */
+    private void materializeXs() {
+        mXs = new long[mYs.length];
+        for (int i = 0; i < mSize; i++) {
+            mXs[mStart + i] = mFirstX + mXStep * i;
+        }
+    }
+
+    private void onYsChanged(int position, int count) {
+        for (int i = position, max = position + count; i < max && !mYIndexDirty; i++) {
+            mYIndex.set(i, mYs[i]);
+        }
+    }
+
+    private void addToBoundedStore(long x, long y) {
+        if (mSize == 0 || x > mXs[mStart + mSize - 1]) {
+            append(x, y);
+            return;
+        }
+
+        int i = binarySearch(x);
+        if (i >= 0) {
+            int position = mStart + i;
+            mYs[position] = y;
+            mYs[getMirrorPosition(position)] = y;
+            mYIndexDirty = true;
+            return;
+        }
+
+        i = -(i + 1);
+        if (mSize == mCapacity) {
+            if (i == 0) {
+                // The point is older than all points kept in the full store
+                return;
+            }
+            mStart++;
+            mSize--;
+            i--;
+        }
+        // Insertion into the ring's middle is expected to be rare (e.g. history backfill), so just lay
+        // the points out from the arrays start and restore the mirror
+        System.arraycopy(mXs, mStart, mXs, 0, mSize);
+        System.arraycopy(mYs, mStart, mYs, 0, mSize);
+        mStart = 0;
+        System.arraycopy(mXs, i, mXs, i + 1, mSize - i);
+        System.arraycopy(mYs, i, mYs, i + 1, mSize - i);
+        mXs[i] = x;
+        mYs[i] = y;
+        mSize++;
+        restoreMirror();
+    }
+
+    /**
+     * Makes every stored point of a bounded store available at its mirror position as well.
+     */
+    private void restoreMirror() {
+        if (mStart > 0) {
+            System.arraycopy(mXs, mStart, mXs, 0, mSize);
+            System.arraycopy(mYs, mStart, mYs, 0, mSize);
+            mStart = 0;
+        }
+        System.arraycopy(mXs, 0, mXs, mCapacity, mSize);
+        System.arraycopy(mYs, 0, mYs, mCapacity, mSize);
+        mYIndexDirty = true;
+    }
+
+    private void normalizeStart() {
+        if (mCapacity > 0 && mStart >= mCapacity) {
+            mStart -= mCapacity;
+        }
+    }
+
+    /**
+     * Drops all points which are located within the given X range.
+     *
+     * @param fromX     start X of the points to remove (inclusive)
+     * @param toX       end X of the points to remove (inclusive)
+     */
+    public void remove(long fromX, long toX) {
+        int from = ceilingIndex(fromX);
+        int to = floorIndex(toX);
+        if (from > to) {
+            return;
+        }
+        if (from == 0 && to == mSize - 1) {
+            clear();
+            return;
+        }
+        if (from == 0) {
+            if (mXs == null) {
+                mFirstX = getX(to + 1);
+            }
+            mStart += to + 1;
+            mSize -= to + 1;
+            normalizeStart();
+            return;
+        }
+        if (to == mSize - 1) {
+            mSize = from;
+            return;
+        }
+        if (mXs == null) {
+            materializeXs();
+        }
+        int removed = to - from + 1;
+        System.arraycopy(mXs, mStart + to + 1, mXs, mStart + from, mSize - to - 1);
+        System.arraycopy(mYs, mStart + to + 1, mYs, mStart + from, mSize - to - 1);
+        mSize -= removed;
+        mYIndexDirty = true;
+        if (mCapacity > 0) {
+            restoreMirror();
+        }
+    }
+
+    /**
+     * Drops all points which are located outside the given range.
+     *
+     * @param range     range of points to keep
+     */
+    public void keepOnly(Range range) {
+        int from = ceilingIndex(range.getStart());
+        int to = floorIndex(range.getEnd());
+        if (from > to) {
+            clear();
+            return;
+        }
+        mFirstX = getX(from);
+        mStart += from;
+        mSize = to - from + 1;
+        normalizeStart();
+    }
+
+    public void clear() {
+        mStart = mCapacity > 0 ? 0 : mYs.length / 2;
+        mSize = 0;
+        if (mCapacity <= 0) {
+            // New points might be evenly spaced again
+            mXs = null;
+        }
+    }
+
+    /**
+     * Ensures that there is enough free space before the first and after the last stored point.
+     *
+     * @param headRoom  number of points expected to be added before the first point
+     * @param tailRoom  number of points expected to be added after the last point
+     */
+    private void ensureCapacity(int headRoom, int tailRoom) {
+        int freeHead = mStart;
+        int freeTail = mYs.length - mStart - mSize;
+        if (freeHead >= headRoom && freeTail >= tailRoom) {
+            return;
+        }
+
+        int required = mSize + headRoom + tailRoom;
+        int capacity = mYs.length;
+        if (required * 2 > capacity) {
+            capacity = Math.max(MIN_CAPACITY, required * 2);
+        }
+        // Leave the same free space at both ends in order to support growing in both directions
+        int newStart = headRoom + (capacity - required) / 2;
+        // Just re-center stored points if current arrays are large enough
+        long[] ys = capacity == mYs.length ? mYs : new long[capacity];
+        System.arraycopy(mYs, mStart, ys, newStart, mSize);
+        mYs = ys;
+        if (mXs != null) {
+            long[] xs = capacity == mXs.length ? mXs : new long[capacity];
+            System.arraycopy(mXs, mStart, xs, newStart, mSize);
+            mXs = xs;
+        }
+        mStart = newStart;
+        mYIndexDirty = true;
+    }
+
+    private void checkNotEmpty() {
+        if (mSize <= 0) {
+            throw new IllegalStateException("Detected an attempt to get a point from an empty store");
+        }
+    }
+
+    @Nonnull
+    @Override
+    public String toString() {
+        if (mSize <= 0) {
+            return "0 points";
+        }
+        return mSize + " points: X=[" + getFirstX() + "; " + getLastX() + "]";
+    }
+}
@@ -0,0 +1,104 @@
+package tech.harmonysoft.android.leonardo.model.runtime.impl;
+
+/**
+ * <p>
+ *     Segment tree which answers 'min/max value within the given indices range' queries in {@code O(log(n))}.
+ * </p>
+ * <p>
+ *     Is introduced in order to avoid walking all points of every active data source when
+ *     Y range is calculated - that happens on every scroll/range change.
+ * </p>
+ * <p>
+ *     Not thread-safe.
+ * </p>
+ *
+ * @author Denis Zhdanov
+ * @since 27/3/19
+ */
+public class MinMaxTree {
+
+    private long[] mMin = new long[0];
+    private long[] mMax = new long[0];
+    private int    mCapacity;
+
+    /**
+     * Re-builds current tree for the given values.
+     *
+     * @param values    values to index
+     * @param from      index of the first value to index (inclusive)
+     * @param to        index of the last value to index (exclusive)
+     */
+    public void rebuild(long[] values, int from, int to) {
+        int capacity = values.length;
+        if (mCapacity != capacity) {
+            mCapacity = capacity;
+            mMin = new long[capacity * 2];
+            mMax = new long[capacity * 2];
+        }
+        for (int i = 0; i < capacity; i++) {
+            boolean meaningful = i >= from && i < to;
+            mMin[capacity + i] = meaningful ? values[i] : Long.MAX_VALUE;
+            mMax[capacity + i] = meaningful ? values[i] : Long.MIN_VALUE;
+        }
+        for (int i = capacity - 1; i > 0; i--) {
+            mMin[i] = Math.min(mMin[2 * i], mMin[2 * i + 1]);
+            mMax[i] = Math.max(mMax[2 * i], mMax[2 * i + 1]);
+        }
+    }
+
+    public int getCapacity() {
+        return mCapacity;
+    }
+
+    /**
+     * Sets value at the given index and updates all affected tree nodes.
+     *
+     * @param index     target value's index
+     * @param value     new value
+     */
+    public void set(int index, long value) {
+        int i = index + mCapacity;
+        mMin[i] = value;
+        mMax[i] = value;
+        for (i >>= 1; i > 0; i >>= 1) {
+            mMin[i] = Math.min(mMin[2 * i], mMin[2 * i + 1]);
+            mMax[i] = Math.max(mMax[2 * i], mMax[2 * i + 1]);
+        }
+    }
+
+    /**
+     * @param from  index of the first value to check (inclusive)
+     * @param to    index of the last value to check (inclusive)
+     * @return      min value within the target indices; {@link Long#MAX_VALUE} if the range is empty
+     */
+    public long getMin(int from, int to) {
+        long result = Long.MAX_VALUE;
+        for (int l = from + mCapacity, r = to + mCapacity + 1; l < r; l >>= 1, r >>= 1) {
+            if ((l & 1) == 1) {
+                result = Math.min(result, mMin[l++]);
+            }
+            if ((r & 1) == 1) {
+                result = Math.min(result, mMin[--r]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param from  index of the first value to check (inclusive)
+     * @param to    index of the last value to check (inclusive)
+     * @return      max value within the target indices; {@link Long#MIN_VALUE} if the range is empty
+     */
+    public long getMax(int from, int to) {
+        long result = Long.MIN_VALUE;
+        for (int l = from + mCapacity, r = to + mCapacity + 1; l < r; l >>= 1, r >>= 1) {
+            if ((l & 1) == 1) {
+                result = Math.max(result, mMax[l++]);
+            }
+            if ((r & 1) == 1) {
+                result = Math.max(result, mMax[--r]);
+            }
+        }
+        return result;
+    }
+}
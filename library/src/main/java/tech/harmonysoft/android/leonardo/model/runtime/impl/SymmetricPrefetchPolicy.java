@@ -0,0 +1,33 @@
+package tech.harmonysoft.android.leonardo.model.runtime.impl;
+
+import tech.harmonysoft.android.leonardo.model.Range;
+import tech.harmonysoft.android.leonardo.model.runtime.PrefetchPolicy;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Keeps the same number of pages before and after the active range.
+ *
+ * @author Denis Zhdanov
+ * @since 30/3/19
+ */
+public class SymmetricPrefetchPolicy implements PrefetchPolicy {
+
+    public static final SymmetricPrefetchPolicy INSTANCE = new SymmetricPrefetchPolicy();
+
+    @Override
+    public void onActiveRangeChanged(Object anchor, Range range, long timeMillis) {
+    }
+
+    @Nonnull
+    @Override
+    public Range getBufferRange(Object anchor, Range activeRange, int bufferPagesCount, long timeMillis) {
+        long padding = bufferPagesCount * activeRange.getPointsNumber();
+        return new Range(activeRange.getStart() - padding, activeRange.getEnd() + padding);
+    }
+
+    @Override
+    public long getFocusX(Object anchor, Range activeRange, long timeMillis) {
+        return activeRange.getStart() + activeRange.getPointsNumber() / 2;
+    }
+}
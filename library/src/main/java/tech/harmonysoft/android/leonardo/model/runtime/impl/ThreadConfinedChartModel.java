@@ -0,0 +1,503 @@
+package tech.harmonysoft.android.leonardo.model.runtime.impl;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+import tech.harmonysoft.android.leonardo.log.LogUtil;
+import tech.harmonysoft.android.leonardo.model.DataPoint;
+import tech.harmonysoft.android.leonardo.model.Interval;
+import tech.harmonysoft.android.leonardo.model.Range;
+import tech.harmonysoft.android.leonardo.model.data.ChartDataSource;
+import tech.harmonysoft.android.leonardo.model.runtime.ChartDataChange;
+import tech.harmonysoft.android.leonardo.model.runtime.ChartModel;
+import tech.harmonysoft.android.leonardo.model.runtime.ChartModelListener;
+import tech.harmonysoft.android.leonardo.util.RangesList;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.*;
+import java.util.concurrent.Executor;
+
+/**
+ * <p>
+ *     {@link ChartModel} which keeps its data in a {@link ChartModelImpl} confined to a dedicated
+ *     {@link HandlerThread}, so that points ingestion, buffer trimming and Y range calculation don't compete
+ *     with touch handling and drawing on the UI thread.
+ * </p>
+ * <p>
+ *     The methods are still expected to be called from the UI thread:
+ *     <ul>
+ *         <li>
+ *             modifications are posted to the engine thread. State which is owned by the UI (active ranges,
+ *             selection, registered and disabled data sources) is mirrored immediately, so e.g. consecutive
+ *             scroll events see the range set by the previous event;
+ *         </li>
+ *         <li>
+ *             derived data (points, Y ranges, loaded ranges) is read from the last {@link ChartModelSnapshot}
+ *             published by the engine thread. A snapshot is immutable and is published through a volatile field,
+ *             so reading it never blocks a frame;
+ *         </li>
+ *         <li>
+ *             listeners are notified on the UI thread after the snapshot which reflects the change is published.
+ *             Data changes are coalesced by the engine, so {@link #addSynchronousListener(ChartModelListener)}
+ *             is the same as {@link #addListener(ChartModelListener)} here.
+ *         </li>
+ *     </ul>
+ * </p>
+ * <p>
+ *     Data loading should be attached to the {@link #getEngine() engine}, e.g. a {@code ChartDataManager}
+ *     should be created for it on the {@link #getEngineLooper() engine thread}.
+ * </p>
+ *
+ * @author Denis Zhdanov
+ * @since 1/4/19
+ */
+public class ThreadConfinedChartModel implements ChartModel {
+
+    /** Listeners registered by the UI, are accessed only on the UI thread */
+    private final List<ChartModelListener> mListeners = new ArrayList<>();
+
+    /** UI-owned state mirror, is accessed only on the UI thread */
+    private final Map<Object, Range>   mActiveRanges        = new HashMap<>();
+    private final Set<ChartDataSource> mDataSources         = new LinkedHashSet<>();
+    private final Set<ChartDataSource> mLiveDataSources     = new HashSet<>();
+    private final Set<ChartDataSource> mDisabledDataSources = new HashSet<>();
+
+    /** Engine-side state, is accessed only on the engine thread */
+    private final Set<Object>                                       mChangedAnchors = new HashSet<>();
+    private final List<ChartModelListenerDispatcher.ListenerAction> mPendingActions = new ArrayList<>();
+
+    private final ChartModelImpl mEngine;
+    private final Looper         mEngineLooper;
+    private final Executor       mEngineExecutor;
+    private final Executor       mUiExecutor;
+
+    private volatile ChartModelSnapshot mSnapshot = ChartModelSnapshot.EMPTY;
+
+    private boolean mHasSelection;
+    private long    mSelectedX;
+    /** Is accessed only on the engine thread */
+    private boolean mPublishScheduled;
+
+    /**
+     * @param engine        model to keep the data in, is accessed only on the given looper's thread from now on
+     * @param engineLooper  looper of the thread to process the data on
+     */
+    public ThreadConfinedChartModel(ChartModelImpl engine, Looper engineLooper) {
+        this(engine, engineLooper, new Handler(engineLooper)::post, new Handler(Looper.getMainLooper())::post);
+    }
+
+    /**
+     * Allows to run the model without the Android runtime, e.g. in tests.
+     *
+     * @param engine            model to keep the data in, is accessed only by the given engine executor from now on
+     * @param engineLooper      looper which backs the engine executor, {@code null} if there is no such looper
+     * @param engineExecutor    single-threaded executor to process the data
+     * @param uiExecutor        executor which runs given tasks on the UI thread
+     */
+    ThreadConfinedChartModel(ChartModelImpl engine,
+                             @Nullable Looper engineLooper,
+                             Executor engineExecutor,
+                             Executor uiExecutor)
+    {
+        mEngine = engine;
+        mEngineLooper = engineLooper;
+        mEngineExecutor = engineExecutor;
+        mUiExecutor = uiExecutor;
+        mEngineExecutor.execute(() -> mEngine.addListener(new EngineListener()));
+    }
+
+    /**
+     * Starts a new engine thread for the given model.
+     *
+     * @param engine    model to keep the data in
+     * @return          model which processes the data in a dedicated thread
+     */
+    @Nonnull
+    public static ThreadConfinedChartModel start(ChartModelImpl engine) {
+        HandlerThread thread = new HandlerThread("chart-engine", Process.THREAD_PRIORITY_DISPLAY);
+        thread.start();
+        return new ThreadConfinedChartModel(engine, thread.getLooper());
+    }
+
+    /**
+     * @return      model which keeps the data, must be accessed only on the {@link #getEngineLooper() engine thread}
+     */
+    @Nonnull
+    public ChartModelImpl getEngine() {
+        return mEngine;
+    }
+
+    @Nonnull
+    public Looper getEngineLooper() {
+        if (mEngineLooper == null) {
+            throw new IllegalStateException("Engine is not driven by a looper");
+        }
+        return mEngineLooper;
+    }
+
+    /**
+     * @param task  task to run on the engine thread
+     */
+    public void runOnEngineThread(Runnable task) {
+        mEngineExecutor.execute(task);
+    }
+
+    /**
+     * Stops the engine thread after processing all pending modifications. The model must not be used after that.
+     */
+    public void quit() {
+        if (mEngineLooper != null) {
+            mEngineLooper.quitSafely();
+        }
+    }
+
+    /**
+     * @return      last published snapshot of the data, might be read from any thread
+     */
+    @Nonnull
+    public ChartModelSnapshot getSnapshot() {
+        return mSnapshot;
+    }
+
+    @Override
+    public boolean hasSelection() {
+        return mHasSelection;
+    }
+
+    @Override
+    public long getSelectedX() {
+        if (!mHasSelection) {
+            throw new IllegalStateException("Detected a call for a selection when there is no selection");
+        }
+        return mSelectedX;
+    }
+
+    @Override
+    public void setSelectedX(long x) {
+        mHasSelection = true;
+        mSelectedX = x;
+        mEngineExecutor.execute(() -> mEngine.setSelectedX(x));
+    }
+
+    @Override
+    public void resetSelection() {
+        mHasSelection = false;
+        mEngineExecutor.execute(mEngine::resetSelection);
+    }
+
+    @Nonnull
+    @Override
+    public Range getActiveRange(Object anchor) {
+        Range range = mActiveRanges.get(anchor);
+        return range == null ? Range.NO_RANGE : range;
+    }
+
+    @Nonnull
+    @Override
+    public Range getBufferRange() {
+        return mSnapshot.getBufferRange();
+    }
+
+    @Override
+    public long getFocusX() {
+        return mSnapshot.getFocusX();
+    }
+
+    @Override
+    public void setActiveRange(Range range, Object anchor) {
+        mActiveRanges.put(anchor, range);
+        mEngineExecutor.execute(() -> mEngine.setActiveRange(range, anchor));
+    }
+
+    @Nonnull
+    @Override
+    public Collection<Object> getAnchors() {
+        return new ArrayList<>(mActiveRanges.keySet());
+    }
+
+    @Nonnull
+    @Override
+    public Range getBufferRange(Object anchor) {
+        ChartModelSnapshot.AnchorState state = mSnapshot.getAnchorState(anchor);
+        return state == null ? Range.NO_RANGE : state.getBufferRange();
+    }
+
+    @Override
+    public void setVisualWidth(Object anchor, int visualWidth) {
+        mEngineExecutor.execute(() -> {
+            long step = mEngine.getStep(anchor);
+            mEngine.setVisualWidth(anchor, visualWidth);
+            if (mEngine.getStep(anchor) == step) {
+                // The engine doesn't notify about that but reduced points for the new width are necessary
+                mChangedAnchors.add(anchor);
+                schedulePublish();
+            }
+        });
+    }
+
+    @Override
+    public long getStep(Object anchor) {
+        ChartModelSnapshot.AnchorState state = mSnapshot.getAnchorState(anchor);
+        return state == null ? RAW_STEP : state.getStep();
+    }
+
+    @Override
+    public boolean isActive(ChartDataSource dataSource) {
+        return mDataSources.contains(dataSource) && !mDisabledDataSources.contains(dataSource);
+    }
+
+    @Nonnull
+    @Override
+    public Collection<ChartDataSource> getRegisteredDataSources() {
+        return new ArrayList<>(mDataSources);
+    }
+
+    @Override
+    public void addDataSource(ChartDataSource dataSource) {
+        register(dataSource);
+        mEngineExecutor.execute(() -> mEngine.addDataSource(dataSource));
+    }
+
+    @Override
+    public void addLiveDataSource(ChartDataSource dataSource, int capacity) {
+        register(dataSource);
+        mLiveDataSources.add(dataSource);
+        mEngineExecutor.execute(() -> mEngine.addLiveDataSource(dataSource, capacity));
+    }
+
+    private void register(ChartDataSource dataSource) {
+        if (!mDataSources.add(dataSource)) {
+            throw new IllegalArgumentException(String.format(
+                    "Data source '%s' is already registered (all registered data sources: %s)",
+                    dataSource, mDataSources
+            ));
+        }
+    }
+
+    @Override
+    public boolean isLive(ChartDataSource dataSource) {
+        return mLiveDataSources.contains(dataSource);
+    }
+
+    /**
+     * Posts given point to the engine thread. Note that unlike {@link ChartModelImpl#appendPoint(ChartDataSource,
+     * long, long)} this allocates a task per point, so points which come at a high rate from a background thread
+     * are better appended to the {@link #getEngine() engine} directly via {@link #runOnEngineThread(Runnable)}.
+     */
+    @Override
+    public void appendPoint(ChartDataSource dataSource, long x, long y) {
+        mEngineExecutor.execute(() -> mEngine.appendPoint(dataSource, x, y));
+    }
+
+    @Override
+    public void disableDataSource(ChartDataSource dataSource) {
+        checkRegistered(dataSource);
+        mDisabledDataSources.add(dataSource);
+        mEngineExecutor.execute(() -> mEngine.disableDataSource(dataSource));
+    }
+
+    @Override
+    public void enableDataSource(ChartDataSource dataSource) {
+        checkRegistered(dataSource);
+        mDisabledDataSources.remove(dataSource);
+        mEngineExecutor.execute(() -> mEngine.enableDataSource(dataSource));
+    }
+
+    @Override
+    public void removeDataSource(ChartDataSource dataSource) {
+        checkRegistered(dataSource);
+        mDataSources.remove(dataSource);
+        mLiveDataSources.remove(dataSource);
+        mDisabledDataSources.remove(dataSource);
+        mEngineExecutor.execute(() -> mEngine.removeDataSource(dataSource));
+    }
+
+    private void checkRegistered(ChartDataSource dataSource) {
+        if (!mDataSources.contains(dataSource)) {
+            throw new IllegalArgumentException(String.format("Data source '%s' is not registered. Registered: %s",
+                                                             dataSource, mDataSources));
+        }
+    }
+
+    @Override
+    public boolean arePointsForActiveRangeLoaded(ChartDataSource dataSource, Object anchor) {
+        ChartModelSnapshot.SeriesState state = getSeriesState(dataSource, anchor);
+        return state != null && state.isPointsLoaded();
+    }
+
+    @Nonnull
+    @Override
+    public Interval getCurrentRangePoints(ChartDataSource dataSource, Object anchor) {
+        ChartModelSnapshot.SeriesState state = getSeriesState(dataSource, anchor);
+        return state == null ? Interval.EMPTY : state.getPoints();
+    }
+
+    @Nonnull
+    @Override
+    public Interval getCurrentRangePoints(ChartDataSource dataSource, Object anchor, int visualWidth) {
+        ChartModelSnapshot.AnchorState anchorState = mSnapshot.getAnchorState(anchor);
+        ChartModelSnapshot.SeriesState state = anchorState == null ? null : anchorState.getSeriesState(dataSource);
+        if (state == null) {
+            return Interval.EMPTY;
+        }
+        // Reduced points are prepared only for the anchor's visual width, all points are fine for other widths
+        return anchorState.getVisualWidth() == visualWidth ? state.getVisualPoints() : state.getPoints();
+    }
+
+    @Nullable
+    @Override
+    public DataPoint getPreviousPointForActiveRange(ChartDataSource dataSource, Object anchor) {
+        ChartModelSnapshot.SeriesState state = getSeriesState(dataSource, anchor);
+        return state == null ? null : state.getPreviousPoint();
+    }
+
+    @Nullable
+    @Override
+    public DataPoint getNextPointForActiveRange(ChartDataSource dataSource, Object anchor) {
+        ChartModelSnapshot.SeriesState state = getSeriesState(dataSource, anchor);
+        return state == null ? null : state.getNextPoint();
+    }
+
+    @Nullable
+    private ChartModelSnapshot.SeriesState getSeriesState(ChartDataSource dataSource, Object anchor) {
+        ChartModelSnapshot.AnchorState state = mSnapshot.getAnchorState(anchor);
+        return state == null ? null : state.getSeriesState(dataSource);
+    }
+
+    @Nonnull
+    @Override
+    public Range getActiveYRange(Object anchor) {
+        ChartModelSnapshot.AnchorState state = mSnapshot.getAnchorState(anchor);
+        return state == null ? Range.NO_RANGE : state.getActiveYRange();
+    }
+
+    @Nonnull
+    @Override
+    public RangesList getLoadedRanges(ChartDataSource dataSource) {
+        return mSnapshot.getLoadedRanges(dataSource);
+    }
+
+    @Nonnull
+    @Override
+    public RangesList getLoadedRanges(ChartDataSource dataSource, long step) {
+        return mSnapshot.getLoadedRanges(dataSource, step);
+    }
+
+    @Override
+    public void onPointsLoaded(ChartDataSource dataSource, Range range, Interval interval) {
+        mEngineExecutor.execute(() -> mEngine.onPointsLoaded(dataSource, range, interval));
+    }
+
+    @Override
+    public void onPointsLoaded(ChartDataSource dataSource, Range range, long step, Interval interval) {
+        mEngineExecutor.execute(() -> mEngine.onPointsLoaded(dataSource, range, step, interval));
+    }
+
+    @Override
+    public void addListener(ChartModelListener listener) {
+        mListeners.add(listener);
+    }
+
+    @Override
+    public void addSynchronousListener(ChartModelListener listener) {
+        addListener(listener);
+    }
+
+    @Override
+    public void removeListener(ChartModelListener listener) {
+        mListeners.remove(listener);
+    }
+
+    /**
+     * Is called on the engine thread when the engine's state is changed.
+     *
+     * @param action    notification to deliver to the UI listeners
+     */
+    private void onEngineChange(ChartModelListenerDispatcher.ListenerAction action) {
+        mPendingActions.add(action);
+        schedulePublish();
+    }
+
+    private void schedulePublish() {
+        if (!mPublishScheduled) {
+            mPublishScheduled = true;
+            // Modifications posted before are processed first, so a single snapshot reflects all of them
+            mEngineExecutor.execute(this::publish);
+        }
+    }
+
+    private void publish() {
+        mPublishScheduled = false;
+        ChartModelSnapshot snapshot = ChartModelSnapshot.capture(mEngine, mSnapshot, mChangedAnchors);
+        mChangedAnchors.clear();
+        mSnapshot = snapshot;
+        LogUtil.debug(this, "publish(): %s", snapshot);
+
+        List<ChartModelListenerDispatcher.ListenerAction> actions = new ArrayList<>(mPendingActions);
+        mPendingActions.clear();
+        mUiExecutor.execute(() -> deliver(actions));
+    }
+
+    private void deliver(List<ChartModelListenerDispatcher.ListenerAction> actions) {
+        for (ChartModelListenerDispatcher.ListenerAction action : actions) {
+            // Listeners might be removed during notification
+            for (int i = 0; i < mListeners.size(); i++) {
+                action.doFor(mListeners.get(i));
+            }
+        }
+    }
+
+    /**
+     * Tracks the engine's changes on the engine thread.
+     */
+    private class EngineListener implements ChartModelListener {
+
+        @Override
+        public void onRangeChanged(Object anchor) {
+            mChangedAnchors.add(anchor);
+            onEngineChange(listener -> listener.onRangeChanged(anchor));
+        }
+
+        @Override
+        public void onDataSourceEnabled(ChartDataSource dataSource) {
+            mChangedAnchors.addAll(mEngine.getAnchors());
+            onEngineChange(listener -> listener.onDataSourceEnabled(dataSource));
+        }
+
+        @Override
+        public void onDataSourceDisabled(ChartDataSource dataSource) {
+            mChangedAnchors.addAll(mEngine.getAnchors());
+            onEngineChange(listener -> listener.onDataSourceDisabled(dataSource));
+        }
+
+        @Override
+        public void onDataSourceAdded(ChartDataSource dataSource) {
+            mChangedAnchors.addAll(mEngine.getAnchors());
+            onEngineChange(listener -> listener.onDataSourceAdded(dataSource));
+        }
+
+        @Override
+        public void onDataSourceRemoved(ChartDataSource dataSource) {
+            mChangedAnchors.addAll(mEngine.getAnchors());
+            onEngineChange(listener -> listener.onDataSourceRemoved(dataSource));
+        }
+
+        @Override
+        public void onDataPointsChanged(ChartDataChange change) {
+            for (Object anchor : mEngine.getAnchors()) {
+                // Loaded pages also affect neighbour points, so the buffer range is checked
+                if (change.affects(mEngine.getBufferRange(anchor))) {
+                    mChangedAnchors.add(anchor);
+                }
+            }
+            onEngineChange(listener -> listener.onDataPointsChanged(change));
+        }
+
+        @Override
+        public void onSelectionChange() {
+            onEngineChange(ChartModelListener::onSelectionChange);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package tech.harmonysoft.android.leonardo.model.runtime.impl;
+
+import tech.harmonysoft.android.leonardo.model.Range;
+import tech.harmonysoft.android.leonardo.model.runtime.PrefetchPolicy;
+
+import javax.annotation.Nonnull;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * <p>
+ *     Tracks recent active range changes and skews the buffer towards the direction of travel,
+ *     e.g. during a fast fling to the left most of the buffer is located to the left of the active range.
+ * </p>
+ * <p>
+ *     Total buffer size is the same as for {@link SymmetricPrefetchPolicy}, at least
+ *     {@code 1 - }{@link #MAX_SKEW} of a regular padding is always kept on the trailing side, so that
+ *     the user is able to change scroll direction without hitting unloaded data immediately.
+ * </p>
+ * <p>
+ *     Not thread-safe.
+ * </p>
+ *
+ * @author Denis Zhdanov
+ * @since 30/3/19
+ */
+public class VelocityPrefetchPolicy implements PrefetchPolicy {
+
+    /** Max share of the regular padding moved from the trailing side to the leading side */
+    public static final double MAX_SKEW = 0.75;
+
+    /** Active range changes within this interval before the last change define current velocity */
+    private static final long VELOCITY_WINDOW_MILLIS    = 200;
+    /** Scroll is considered to be stopped if there are no active range changes during this interval */
+    private static final long IDLE_MILLIS               = 250;
+    /** We want to have data for the range where the active range is expected to be after this interval */
+    private static final long PREDICTION_HORIZON_MILLIS = 500;
+    private static final int  HISTORY_SIZE              = 8;
+
+    private final Map<Object, History> mHistories = new HashMap<>();
+
+    @Override
+    public void onActiveRangeChanged(Object anchor, Range range, long timeMillis) {
+        History history = mHistories.get(anchor);
+        if (history == null) {
+            history = new History();
+            mHistories.put(anchor, history);
+        }
+        history.add(range, timeMillis);
+    }
+
+    @Nonnull
+    @Override
+    public Range getBufferRange(Object anchor, Range activeRange, int bufferPagesCount, long timeMillis) {
+        long padding = bufferPagesCount * activeRange.getPointsNumber();
+        double skew = getExpectedShift(anchor, timeMillis) / padding;
+        skew = Math.max(-MAX_SKEW, Math.min(MAX_SKEW, skew));
+        long leftPadding = Math.round(padding * (1 - skew));
+        long rightPadding = 2 * padding - leftPadding;
+        return new Range(activeRange.getStart() - leftPadding, activeRange.getEnd() + rightPadding);
+    }
+
+    @Override
+    public long getFocusX(Object anchor, Range activeRange, long timeMillis) {
+        long center = activeRange.getStart() + activeRange.getPointsNumber() / 2;
+        long maxShift = activeRange.getPointsNumber();
+        double shift = Math.max(-maxShift, Math.min(maxShift, getExpectedShift(anchor, timeMillis)));
+        return center + Math.round(shift);
+    }
+
+    /**
+     * @param anchor        target anchor
+     * @param timeMillis    current time
+     * @return              X distance which the given anchor's active range is expected to pass
+     *                      during the {@link #PREDICTION_HORIZON_MILLIS prediction horizon}
+     */
+    private double getExpectedShift(Object anchor, long timeMillis) {
+        History history = mHistories.get(anchor);
+        return history == null ? 0 : history.getVelocity(timeMillis) * PREDICTION_HORIZON_MILLIS;
+    }
+
+    private static class History {
+
+        private final long[] mTimes   = new long[HISTORY_SIZE];
+        private final long[] mCenters = new long[HISTORY_SIZE];
+
+        private long mRangeLength;
+        /** Index of the last sample */
+        private int  mLast = -1;
+        private int  mSize;
+
+        void add(Range range, long timeMillis) {
+            if (range.getPointsNumber() != mRangeLength) {
+                // Zoom is not a movement
+                mSize = 0;
+                mRangeLength = range.getPointsNumber();
+            }
+            mLast = (mLast + 1) % HISTORY_SIZE;
+            mTimes[mLast] = timeMillis;
+            mCenters[mLast] = range.getStart() + range.getPointsNumber() / 2;
+            mSize = Math.min(HISTORY_SIZE, mSize + 1);
+        }
+
+        /**
+         * @param timeMillis    current time
+         * @return              current velocity in X units per millisecond
+         */
+        double getVelocity(long timeMillis) {
+            if (mSize < 2 || timeMillis - mTimes[mLast] > IDLE_MILLIS) {
+                return 0;
+            }
+            int first = mLast;
+            for (int i = 1; i < mSize; i++) {
+                int candidate = (mLast - i + HISTORY_SIZE) % HISTORY_SIZE;
+                if (mTimes[mLast] - mTimes[candidate] > VELOCITY_WINDOW_MILLIS) {
+                    break;
+                }
+                first = candidate;
+            }
+            long duration = mTimes[mLast] - mTimes[first];
+            if (duration <= 0) {
+                return 0;
+            }
+            return (mCenters[mLast] - mCenters[first]) / (double) duration;
+        }
+    }
+}
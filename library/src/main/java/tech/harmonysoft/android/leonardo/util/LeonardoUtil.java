@@ -3,15 +3,22 @@ package tech.harmonysoft.android.leonardo.util;
 import android.content.Context;
 import android.content.res.TypedArray;
 import android.graphics.Color;
+import android.os.Process;
 import android.util.TypedValue;
 import harmonysoft.tech.android.leonardo.R;
 import tech.harmonysoft.android.leonardo.controller.ChartDataManager;
+import tech.harmonysoft.android.leonardo.controller.PageCache;
+import tech.harmonysoft.android.leonardo.model.config.LeonardoConfigFactory;
 import tech.harmonysoft.android.leonardo.model.config.chart.ChartConfig;
+import tech.harmonysoft.android.leonardo.model.config.loading.DataLoadingConfig;
 import tech.harmonysoft.android.leonardo.model.runtime.ChartModel;
 import tech.harmonysoft.android.leonardo.model.runtime.impl.ChartModelImpl;
+import tech.harmonysoft.android.leonardo.model.runtime.impl.ThreadConfinedChartModel;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * @author Denis Zhdanov
@@ -23,6 +30,13 @@ public class LeonardoUtil {
     public static final int   ACTION_START_AUTO_EXPAND_AREA_IN_PIXELS = 15;
     public static final long  ANIMATION_DURATION_MILLIS               = 300;
     public static final long  ANIMATION_TICK_FREQUENCY_MILLIS         = 20;
+    public static final int   DEFAULT_PAGE_CACHE_SIZE_IN_POINTS       = 100_000;
+
+    private static final long IDLE_LOADING_THREAD_TTL_SECONDS  = 30;
+    private static final long IDLE_GEOMETRY_THREAD_TTL_SECONDS = 30;
+
+    private static Executor sDefaultDataLoadingExecutor;
+    private static Executor sPlotGeometryExecutor;
 
     private LeonardoUtil() {
     }
@@ -92,10 +106,137 @@ public class LeonardoUtil {
         }
     }
 
+    /**
+     * Spins up a chart model which loads its data via {@link #getDefaultDataLoadingExecutor() default executor}.
+     *
+     * @param bufferPagesNumber     number of chart data pages to keep in memory before and after the active range
+     * @return                      chart model to use
+     */
     @Nonnull
     public static ChartModel spinUpMvc(int bufferPagesNumber) {
+        return spinUpMvc(bufferPagesNumber, getDefaultDataLoadingExecutor());
+    }
+
+    /**
+     * Spins up a chart model which loads its data via the given executor.
+     *
+     * @param bufferPagesNumber     number of chart data pages to keep in memory before and after the active range
+     * @param executor              executor to use for loading chart data, e.g. the one created by
+     *                              {@link #newDataLoadingExecutor(DataLoadingConfig)}
+     * @return                      chart model to use
+     */
+    @Nonnull
+    public static ChartModel spinUpMvc(int bufferPagesNumber, Executor executor) {
+        return spinUpMvc(bufferPagesNumber, executor, new PageCache(DEFAULT_PAGE_CACHE_SIZE_IN_POINTS));
+    }
+
+    /**
+     * Spins up a chart model which loads its data via the given executor and keeps loaded pages
+     * in the given cache.
+     *
+     * @param bufferPagesNumber     number of chart data pages to keep in memory before and after the active range
+     * @param executor              executor to use for loading chart data
+     * @param cache                 cache for loaded pages, {@code null} means that no cache should be used.
+     *                              Its hit/miss/eviction counters might be used for choosing its size
+     * @return                      chart model to use
+     */
+    @Nonnull
+    public static ChartModel spinUpMvc(int bufferPagesNumber, Executor executor, @Nullable PageCache cache) {
         ChartModelImpl result = new ChartModelImpl(bufferPagesNumber);
-        new ChartDataManager(result);
+        new ChartDataManager(result, executor, cache);
+        return result;
+    }
+
+    /**
+     * Spins up a chart model which keeps and processes its data in a dedicated thread, so that data loading
+     * and active range changes never block the UI thread, see {@link ThreadConfinedChartModel}.
+     *
+     * @param bufferPagesNumber     number of chart data pages to keep in memory before and after the active range
+     * @param executor              executor to use for loading chart data
+     * @param cache                 cache for loaded pages, {@code null} means that no cache should be used
+     * @return                      chart model to use. Its {@link ThreadConfinedChartModel#quit()} must be called
+     *                              when the chart is not necessary anymore, otherwise its engine thread is leaked
+     */
+    @Nonnull
+    public static ThreadConfinedChartModel spinUpThreadConfinedMvc(int bufferPagesNumber,
+                                                                   Executor executor,
+                                                                   @Nullable PageCache cache)
+    {
+        ThreadConfinedChartModel result = ThreadConfinedChartModel.start(new ChartModelImpl(bufferPagesNumber));
+        // Data manager uses the engine's thread choreographer and delivers loaded data to the engine's thread
+        result.runOnEngineThread(() -> new ChartDataManager(result.getEngine(), executor, cache));
+        return result;
+    }
+
+    /**
+     * @return  executor shared by all charts which don't use a custom one
+     */
+    @Nonnull
+    public static synchronized Executor getDefaultDataLoadingExecutor() {
+        Executor result = sDefaultDataLoadingExecutor;
+        if (result == null) {
+            sDefaultDataLoadingExecutor = result = newDataLoadingExecutor(
+                    LeonardoConfigFactory.newDataLoadingConfigBuilder().build()
+            );
+        }
+        return result;
+    }
+
+    /**
+     * @return  single-threaded executor shared by all chart views for building plot geometry out of the UI thread
+     */
+    @Nonnull
+    public static synchronized Executor getPlotGeometryExecutor() {
+        Executor result = sPlotGeometryExecutor;
+        if (result == null) {
+            ThreadFactory threadFactory = runnable -> new Thread(() -> {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_DISPLAY);
+                runnable.run();
+            }, "leonardo-plot-geometry");
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(1,
+                                                                 1,
+                                                                 IDLE_GEOMETRY_THREAD_TTL_SECONDS,
+                                                                 TimeUnit.SECONDS,
+                                                                 new LinkedBlockingQueue<>(),
+                                                                 threadFactory);
+            executor.allowCoreThreadTimeOut(true);
+            sPlotGeometryExecutor = result = executor;
+        }
+        return result;
+    }
+
+    /**
+     * Creates an executor for loading chart data. Its threads are stopped when they are idle for some time.
+     *
+     * @param config    executor's config
+     * @return          new executor
+     */
+    @Nonnull
+    public static ExecutorService newDataLoadingExecutor(DataLoadingConfig config) {
+        BlockingQueue<Runnable> queue;
+        switch (config.getQueuePolicy()) {
+            case LIFO:
+                queue = new LifoBlockingDeque<>();
+                break;
+            case FIFO:
+                queue = new LinkedBlockingQueue<>();
+                break;
+            default:
+                throw new IllegalArgumentException("Unexpected load queue policy " + config.getQueuePolicy());
+        }
+        int priority = config.getThreadPriority();
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> new Thread(() -> {
+            Process.setThreadPriority(priority);
+            runnable.run();
+        }, "leonardo-loader-" + counter.incrementAndGet());
+        ThreadPoolExecutor result = new ThreadPoolExecutor(config.getThreadsNumber(),
+                                                           config.getThreadsNumber(),
+                                                           IDLE_LOADING_THREAD_TTL_SECONDS,
+                                                           TimeUnit.SECONDS,
+                                                           queue,
+                                                           threadFactory);
+        result.allowCoreThreadTimeOut(true);
         return result;
     }
 }
@@ -0,0 +1,38 @@
+package tech.harmonysoft.android.leonardo.util;
+
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Blocking queue which inserts new elements to its head, i.e. {@code take()/poll()} return
+ * the most recently added element. Is intended to be used as a {@code ThreadPoolExecutor}'s work queue
+ * in order to process the latest tasks first.
+ *
+ * @author Denis Zhdanov
+ * @since 28/3/19
+ */
+public class LifoBlockingDeque<E> extends LinkedBlockingDeque<E> {
+
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    public boolean offer(E e) {
+        return offerFirst(e);
+    }
+
+    @Override
+    public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
+        return offerFirst(e, timeout, unit);
+    }
+
+    @Override
+    public boolean add(E e) {
+        addFirst(e);
+        return true;
+    }
+
+    @Override
+    public void put(E e) throws InterruptedException {
+        putFirst(e);
+    }
+}
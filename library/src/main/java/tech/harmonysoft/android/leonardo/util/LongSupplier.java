@@ -0,0 +1,10 @@
+package tech.harmonysoft.android.leonardo.util;
+
+/**
+ * @author Denis Zhdanov
+ * @since 1/4/19
+ */
+public interface LongSupplier {
+
+    long get();
+}
@@ -3,124 +3,258 @@ package tech.harmonysoft.android.leonardo.util;
 import tech.harmonysoft.android.leonardo.model.Range;
 
 import javax.annotation.Nonnull;
-import java.util.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
 
 /**
+ * <p>
+ *     Sorted list of disjoint ranges, adjacent and intersecting ranges are merged on addition.
+ * </p>
+ * <p>
+ *     Ranges are kept as packed {@code [start, end]} pairs in a primitive array and all modifications are
+ *     done in place, so the list doesn't allocate during regular usage - it's checked and trimmed on every
+ *     active range change. {@link #getMissing(Range, RangesList)} allows to get missing ranges into
+ *     a re-usable holder for the same reason.
+ * </p>
+ * <p>
+ *     Not thread-safe.
+ * </p>
+ *
  * @author Denis Zhdanov
  * @since 13/3/19
  */
 public class RangesList {
 
-    private static final Comparator<Range> COMPARATOR = (r1, r2) -> Long.compare(r1.getStart(), r2.getStart());
+    private long[] mBounds = new long[8];
+    /** Number of stored ranges */
+    private int    mSize;
 
-    private final List<Range> mRanges = new ArrayList<>();
+    public int size() {
+        return mSize;
+    }
+
+    public boolean isEmpty() {
+        return mSize <= 0;
+    }
+
+    /**
+     * @param i     range index
+     * @return      start of the target range (inclusive)
+     */
+    public long getStart(int i) {
+        return mBounds[i * 2];
+    }
+
+    /**
+     * @param i     range index
+     * @return      end of the target range (inclusive)
+     */
+    public long getEnd(int i) {
+        return mBounds[i * 2 + 1];
+    }
+
+    public void clear() {
+        mSize = 0;
+    }
 
     public void add(Range range) {
-        int i = Collections.binarySearch(mRanges, range, COMPARATOR);
-        if (i >= 0) {
-            Range r = mRanges.get(i);
-            if (r.getEnd() >= range.getEnd()) {
-                return;
-            }
-            mRanges.set(i, range);
-            mayBeMerge(i);
-            return;
+        add(range.getStart(), range.getEnd());
+    }
+
+    /**
+     * @param start     start of the range to add (inclusive)
+     * @param end       end of the range to add (inclusive)
+     */
+    public void add(long start, long end) {
+        // Ranges within [from; to) intersect or are adjacent to the given one
+        int from = firstNotBefore(start);
+        int to = from;
+        while (to < mSize && !isDisjointBefore(end, getStart(to))) {
+            to++;
+        }
+
+        if (from < to) {
+            start = Math.min(start, getStart(from));
+            end = Math.max(end, getEnd(to - 1));
         }
 
-        i = -(i + 1);
-        mRanges.add(i, range);
-        if (i > 0) {
-            mayBeMerge(i - 1);
-        } else {
-            mayBeMerge(i);
+        int delta = 1 - (to - from);
+        if (delta > 0) {
+            ensureCapacity(mSize + delta);
+        }
+        if (delta != 0) {
+            System.arraycopy(mBounds, to * 2, mBounds, (to + delta) * 2, (mSize - to) * 2);
         }
+        mBounds[from * 2] = start;
+        mBounds[from * 2 + 1] = end;
+        mSize += delta;
     }
 
-    private void mayBeMerge(int i) {
-        Range previous = mRanges.get(i++);
-        while (i < mRanges.size()) {
-            Range next = mRanges.get(i);
-            if (previous.getEnd() < next.getStart() - 1) {
-                // Disjoint
-                return;
-            }
-            mRanges.set(i - 1, previous = new Range(previous.getStart(), Math.max(previous.getEnd(), next.getEnd())));
-            mRanges.remove(i);
+    /**
+     * Appends given range which is assumed to be located after all stored ranges and not adjacent to them.
+     */
+    private void append(long start, long end) {
+        ensureCapacity(mSize + 1);
+        mBounds[mSize * 2] = start;
+        mBounds[mSize * 2 + 1] = end;
+        mSize++;
+    }
+
+    private void ensureCapacity(int rangesNumber) {
+        if (rangesNumber * 2 > mBounds.length) {
+            mBounds = Arrays.copyOf(mBounds, Math.max(rangesNumber * 2, mBounds.length * 2));
         }
     }
 
-    public boolean contains(Range range) {
-        int i = Collections.binarySearch(mRanges, range, COMPARATOR);
-        if (i >= 0) {
-            return mRanges.get(i).getEnd() >= range.getEnd();
+    /**
+     * @param end       end of the first range
+     * @param nextStart start of the second range
+     * @return          {@code true} if the first range ends before the second range and they are not adjacent
+     */
+    private static boolean isDisjointBefore(long end, long nextStart) {
+        // 'end + 1' overflows only for Long.MAX_VALUE which is not less than any start
+        return end < nextStart && end + 1 < nextStart;
+    }
+
+    /**
+     * @param start     target start
+     * @return          index of the first range which either contains the given start, or is adjacent to it,
+     *                  or is located after it; {@link #size()} if there is no such range
+     */
+    private int firstNotBefore(long start) {
+        int low = 0;
+        int high = mSize - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (isDisjointBefore(getEnd(mid), start)) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
         }
-        i = -(i + 1);
-        return i > 0 && mRanges.get(i - 1).getEnd() >= range.getEnd();
+        return low;
     }
 
-    public void keepOnly(Range range) {
-        List<Range> toKeep = new ArrayList<>();
-        int i = Collections.binarySearch(mRanges, range, COMPARATOR);
-        if (i < 0) {
-            i = -(i + 1);
-            if (i > 0) {
-                Range previous = mRanges.get(i - 1);
-                if (previous.getEnd() >= range.getStart()) {
-                    toKeep.add(new Range(range.getStart(), Math.min(previous.getEnd(), range.getEnd())));
-                }
+    /**
+     * @param x     target value
+     * @return      index of the last range which starts before or at the given value; {@code -1}
+     *              if there is no such range
+     */
+    private int lastStartingAtOrBefore(long x) {
+        int low = 0;
+        int high = mSize - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (getStart(mid) <= x) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
             }
         }
-        for (; i < mRanges.size(); i++) {
-            Range r = mRanges.get(i);
-            if (r.getEnd() < range.getEnd()) {
-                toKeep.add(r);
+        return low - 1;
+    }
+
+    /**
+     * @param x     target value
+     * @return      index of the first range which ends at or after the given value; {@link #size()}
+     *              if there is no such range
+     */
+    private int firstEndingAtOrAfter(long x) {
+        int low = 0;
+        int high = mSize - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (getEnd(mid) < x) {
+                low = mid + 1;
             } else {
-                toKeep.add(new Range(r.getStart(), range.getEnd()));
-                break;
+                high = mid - 1;
             }
         }
-        mRanges.clear();
-        mRanges.addAll(toKeep);
+        return low;
+    }
+
+    public boolean contains(Range range) {
+        int i = lastStartingAtOrBefore(range.getStart());
+        return i >= 0 && getEnd(i) >= range.getEnd();
+    }
+
+    public void keepOnly(Range range) {
+        int from = firstEndingAtOrAfter(range.getStart());
+        int to = lastStartingAtOrBefore(range.getEnd());
+        if (from > to) {
+            mSize = 0;
+            return;
+        }
+        mSize = to - from + 1;
+        if (from > 0) {
+            System.arraycopy(mBounds, from * 2, mBounds, 0, mSize * 2);
+        }
+        mBounds[0] = Math.max(mBounds[0], range.getStart());
+        mBounds[mSize * 2 - 1] = Math.min(mBounds[mSize * 2 - 1], range.getEnd());
     }
 
     @Nonnull
     public Collection<Range> getMissing(Range target) {
-        Collection<Range> result = new ArrayList<>();
-        int i = Collections.binarySearch(mRanges, target, COMPARATOR);
-        if (i < 0) {
-            i = -(i + 1);
-            if (i > 0) {
-                i--;
-            }
-        }
+        RangesList missing = new RangesList();
+        getMissing(target, missing);
+        return missing.getRanges();
+    }
 
-        long targetStart = target.getStart();
-        for (; i < mRanges.size(); i++) {
-            Range range = mRanges.get(i);
-            if (range.getStart() > target.getEnd()) {
+    /**
+     * Allocation-free version of {@link #getMissing(Range)}.
+     *
+     * @param target    target range
+     * @param holder    holder for the sub-ranges of the given range which are not covered by the current list,
+     *                  it's cleared before processing
+     */
+    public void getMissing(Range target, RangesList holder) {
+        getMissing(target.getStart(), target.getEnd(), holder);
+    }
+
+    /**
+     * @param start     start of the target range (inclusive)
+     * @param end       end of the target range (inclusive)
+     * @param holder    holder for the missing ranges, see {@link #getMissing(Range, RangesList)}
+     */
+    public void getMissing(long start, long end, RangesList holder) {
+        holder.clear();
+        long cursor = start;
+        for (int i = firstEndingAtOrAfter(cursor); i < mSize; i++) {
+            long rangeStart = getStart(i);
+            if (rangeStart > end) {
                 break;
             }
-
-            if (range.getStart() > targetStart) {
-                result.add(new Range(targetStart, range.getStart() - 1));
+            if (rangeStart > cursor) {
+                holder.append(cursor, rangeStart - 1);
             }
-            targetStart = range.getEnd() + 1;
+            if (getEnd(i) >= end) {
+                return;
+            }
+            cursor = getEnd(i) + 1;
         }
-
-        if (targetStart <= target.getEnd()) {
-            result.add(new Range(targetStart, target.getEnd()));
+        if (cursor <= end) {
+            holder.append(cursor, end);
         }
-        return result;
     }
 
+    /**
+     * @return      stored ranges. Note that a new list is created on every call, prefer
+     *              {@link #getStart(int)} and {@link #getEnd(int)} in performance-sensitive code
+     */
     @Nonnull
     public List<Range> getRanges() {
-        return mRanges;
+        List<Range> result = new ArrayList<>(mSize);
+        for (int i = 0; i < mSize; i++) {
+            result.add(new Range(getStart(i), getEnd(i)));
+        }
+        return result;
     }
 
     @Nonnull
     @Override
     public String toString() {
-        return "ranges = " + mRanges;
+        return "ranges = " + getRanges();
     }
-}
+}
\ No newline at end of file
@@ -13,6 +13,12 @@ import tech.harmonysoft.android.leonardo.model.axis.AxisLabelTextStrategy;
 import tech.harmonysoft.android.leonardo.model.config.axis.AxisConfig;
 import tech.harmonysoft.android.leonardo.model.config.chart.ChartConfig;
 import tech.harmonysoft.android.leonardo.model.data.ChartDataSource;
+import tech.harmonysoft.android.leonardo.model.plot.DownsamplingStrategy;
+import tech.harmonysoft.android.leonardo.model.plot.PlotGeometry;
+import tech.harmonysoft.android.leonardo.model.plot.PlotGeometryManager;
+import tech.harmonysoft.android.leonardo.model.plot.PlotTransform;
+import tech.harmonysoft.android.leonardo.model.plot.PointsBuffer;
+import tech.harmonysoft.android.leonardo.model.runtime.ChartDataChange;
 import tech.harmonysoft.android.leonardo.model.runtime.ChartModel;
 import tech.harmonysoft.android.leonardo.model.runtime.ChartModelListener;
 import tech.harmonysoft.android.leonardo.model.text.TextWrapper;
@@ -43,6 +49,18 @@ public class ChartView extends View {
 
     private final Map<ChartDataSource, DataSourceAnimationContext> mAnimationDataSourceInfo = new HashMap<>();
 
+    /**
+     * Plot geometry of every drawn data source, see {@link PlotGeometryManager}
+     */
+    private final PlotGeometryManager mPlotGeometry = new PlotGeometryManager(LeonardoUtil.getPlotGeometryExecutor(),
+                                                                              mHandler::post,
+                                                                              mRedrawTask,
+                                                                              this::collectPlotPoints);
+    /**
+     * Holder for mapping stale plot geometry to the current frame, see {@link PlotTransform#getMappingFrom}
+     */
+    private final float[]             mGeometryMapping = new float[4];
+
     /**
      * Keep own data sources list in order to work with them in lexicographically, e.g. when showing selection legend
      */
@@ -60,6 +78,8 @@ public class ChartView extends View {
         @Override
         public void onRangeChanged(Object anchor) {
             if (anchor == getDataAnchor()) {
+                mYRangeDirty = true;
+                mPlotGeometry.onDataChanged();
                 refreshXAxisSetupIfNecessary();
                 invalidate();
             }
@@ -67,16 +87,19 @@ public class ChartView extends View {
 
         @Override
         public void onDataSourceEnabled(ChartDataSource dataSource) {
+            mYRangeDirty = true;
             startDataSourceFadeInAnimation(dataSource);
         }
 
         @Override
         public void onDataSourceDisabled(ChartDataSource dataSource) {
+            mYRangeDirty = true;
             startDataSourceFadeOutAnimation(dataSource);
         }
 
         @Override
         public void onDataSourceAdded(ChartDataSource dataSource) {
+            mYRangeDirty = true;
             refreshDataSources();
             startDataSourceFadeInAnimation(dataSource);
             invalidate();
@@ -84,16 +107,41 @@ public class ChartView extends View {
 
         @Override
         public void onDataSourceRemoved(ChartDataSource dataSource) {
+            mYRangeDirty = true;
             refreshDataSources();
             stopDataSourceFadeAnimation(dataSource);
             invalidate();
         }
 
         @Override
-        public void onActiveDataPointsLoaded(Object anchor) {
-            if (anchor == getDataAnchor()) {
-                invalidate();
+        public void onDataPointsChanged(ChartDataChange change) {
+            ChartDataSource dataSource = change.getDataSource();
+            boolean active = mChartModel.isActive(dataSource);
+            Range range = mChartModel.getActiveRange(getDataAnchor());
+            if (change.getKind() == ChartDataChange.Kind.APPENDED
+                && mFollowTail
+                && active
+                && range != Range.NO_RANGE
+                && change.getXRange().getEnd() > range.getEnd())
+            {
+                // Active range change triggers the redraw
+                mChartModel.setActiveRange(range.shift(change.getXRange().getEnd() - range.getEnd()),
+                                           getDataAnchor());
+                return;
+            }
+
+            if (!change.affects(range)) {
+                return;
             }
+            if (active) {
+                // Only active data sources contribute to the Y range
+                mYRangeDirty = true;
+            } else if (!mAnimationDataSourceInfo.containsKey(dataSource)) {
+                // The plot is not drawn
+                return;
+            }
+            mPlotGeometry.onDataChanged();
+            invalidate();
         }
 
         @Override
@@ -137,8 +185,11 @@ public class ChartView extends View {
     private long              mYAxisStep;
     private int               mMaxYLabelWidth;
 
-    private float mLastClickVisualX;
-    private float mLastClickVisualY;
+    private float   mLastClickVisualX;
+    private float   mLastClickVisualY;
+    private boolean mFollowTail;
+    /** Flags that Y range of the active data sources' points might be changed since the last refresh */
+    private boolean mYRangeDirty = true;
 
     private RectF mLegendRect;
 
@@ -197,10 +248,40 @@ public class ChartView extends View {
         return this;
     }
 
+    public boolean isFollowTail() {
+        return mFollowTail;
+    }
+
+    /**
+     * @param followTail    {@code true} if current view's active range should be shifted to show the latest
+     *                      point every time new points are {@link ChartModel#appendPoint(ChartDataSource, long, long)
+     *                      appended} to a live data source
+     */
+    public void setFollowTail(boolean followTail) {
+        mFollowTail = followTail;
+    }
+
+    public boolean isPlotGeometryInBackground() {
+        return mPlotGeometry.isBuildInBackground();
+    }
+
+    /**
+     * @param inBackground  {@code true} if plot geometry should be built out of the UI thread, previous frame's
+     *                      geometry is moved to the current position until that; {@code false} if it should
+     *                      be built during drawing. Both ways don't allocate objects when the chart is scrolled
+     *                      within a single X unit or its Y axis is rescaled
+     */
+    public void setPlotGeometryInBackground(boolean inBackground) {
+        mPlotGeometry.setBuildInBackground(inBackground);
+    }
+
     public void apply(ChartConfig config) {
         mChartConfig = config;
         mConfigApplied = false;
+        mYRangeDirty = true;
+        mPlotGeometry.onDataChanged();
         applyConfig();
+        mayBeReportVisualWidth();
     }
 
     private void applyConfig() {
@@ -279,6 +360,9 @@ public class ChartView extends View {
     private void initPlot() {
         Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
         paint.setStrokeWidth(mChartConfig.getPlotLineWidthInPixels());
+        paint.setStyle(Paint.Style.STROKE);
+        // Plots are drawn as separate line segments, round caps make their joints look smooth
+        paint.setStrokeCap(Paint.Cap.ROUND);
         mPlotPaint = paint;
     }
 
@@ -288,11 +372,14 @@ public class ChartView extends View {
                 mChartModel.removeListener(mModelListener);
             }
             chartModel.addListener(mModelListener);
+            mPlotGeometry.clear();
         }
         mChartModel = chartModel;
         refreshDataSources();
         mCurrentXRange = null;
         mCurrentYRange = null;
+        mYRangeDirty = true;
+        mayBeReportVisualWidth();
         invalidate();
     }
 
@@ -300,6 +387,7 @@ public class ChartView extends View {
         mDataSources.clear();
         mDataSources.addAll(mChartModel.getRegisteredDataSources());
         Collections.sort(mDataSources, COMPARATOR);
+        mPlotGeometry.retainAll(mDataSources);
     }
 
     public int getChartBottom() {
@@ -348,17 +436,16 @@ public class ChartView extends View {
         if (yRange == null) {
             yRange = getCurrentYRange();
         }
+        float y = getChartBottom() - (point.getY() - yRange.getStart()) * getYUnitHeight(yRange);
+        return new VisualPoint(dataXToVisualX(point.getX()), y);
+    }
 
-        final float yUnitHeight;
+    private float getYUnitHeight(Range yRange) {
         if (isYRescaleAnimationInProgress()) {
-            yUnitHeight = mYAnimationCurrentUnitHeight;
+            return mYAnimationCurrentUnitHeight;
         } else {
-            yUnitHeight = getChartHeight() / (yRange.getPointsNumber() - 1f);
+            return getChartHeight() / (yRange.getPointsNumber() - 1f);
         }
-
-        float y = getChartBottom() - (point.getY() - yRange.getStart()) * yUnitHeight;
-
-        return new VisualPoint(dataXToVisualX(point.getX()), y);
     }
 
     public float dataXToVisualX(long dataX) {
@@ -415,6 +502,23 @@ public class ChartView extends View {
         setMeasuredDimension(edge, edge);
     }
 
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        mPlotGeometry.onDataChanged();
+        mayBeReportVisualWidth();
+    }
+
+    /**
+     * Lets the model know how many pixels are available for drawing our active range, that allows
+     * to load data in resolution which is just enough for that.
+     */
+    private void mayBeReportVisualWidth() {
+        if (mChartModel != null && mChartConfig != null && getWidth() > 0) {
+            mChartModel.setVisualWidth(getDataAnchor(), getChartWidth());
+        }
+    }
+
     @Override
     protected void onDraw(Canvas canvas) {
         super.onDraw(canvas);
@@ -522,6 +626,11 @@ public class ChartView extends View {
     }
 
     private void refreshYAxisSetupIfNecessary() {
+        if (!mYRangeDirty) {
+            // Nothing which affects the Y range is changed since the last refresh
+            return;
+        }
+        mYRangeDirty = false;
         Range previousRange = mCurrentYRange;
         Range currentYRange = getCurrentYRange();
         if (currentYRange == Range.NO_RANGE) {
@@ -569,31 +678,11 @@ public class ChartView extends View {
 
     @Nonnull
     private Range getCurrentYRange(boolean padByStepSize) {
-        long min = Long.MAX_VALUE;
-        long max = Long.MIN_VALUE;
-        for (ChartDataSource dataSource : mDataSources) {
-            if (!mChartModel.isActive(dataSource)) {
-                continue;
-            }
-
-            if (mChartModel.arePointsForActiveRangeLoaded(dataSource, getDataAnchor())) {
-                Interval interval = mChartModel.getCurrentRangePoints(dataSource, getDataAnchor());
-                for (DataPoint point : interval.getPoints()) {
-                    if (min > point.getY()) {
-                        min = point.getY();
-                    }
-                    if (max < point.getY()) {
-                        max = point.getY();
-                    }
-                }
-            }
-        }
-
-        if (min > max) {
-            return Range.NO_RANGE;
+        Range range = mChartModel.getActiveYRange(getDataAnchor());
+        if (range == Range.NO_RANGE) {
+            return range;
         }
 
-        Range range = new Range(min, max);
         if (padByStepSize) {
             return mayBeExpandYRange(range);
         } else {
@@ -677,9 +766,23 @@ public class ChartView extends View {
     }
 
     private void drawPlots(Canvas canvas) {
-        for (ChartDataSource dataSource : mDataSources) {
-            drawPlot(dataSource, canvas);
+        refreshPlotTransform();
+        // Indexed loop doesn't allocate an iterator on every frame
+        for (int i = 0, max = mDataSources.size(); i < max; i++) {
+            drawPlot(mDataSources.get(i), canvas);
+        }
+    }
+
+    private void refreshPlotTransform() {
+        refreshXAxisSetupIfNecessary();
+        Range yRange = mCurrentYRange;
+        if (yRange == null) {
+            yRange = getCurrentYRange();
         }
+        PlotTransform transform = mPlotGeometry.getTransform();
+        transform.setX(mCurrentXRange.getStart(), getChartLeft() + mXVisualShift, mXUnitVisualWidth);
+        transform.setY(yRange.getStart(), getChartBottom(), getYUnitHeight(yRange));
+        transform.setClip(getPlotLeft(), getPlotRight(), getChartBottom());
     }
 
     private void drawPlot(ChartDataSource dataSource, Canvas canvas) {
@@ -694,99 +797,59 @@ public class ChartView extends View {
         } else {
             mPlotPaint.setAlpha(animationContext.currentAlpha);
         }
-        mPlotPaint.setStyle(Paint.Style.STROKE);
-        Interval interval = mChartModel.getCurrentRangePoints(dataSource, getDataAnchor());
 
-        float minX = getPlotLeft();
-        float maxX = getPlotRight();
+        drawPlotGeometry(mPlotGeometry.getGeometry(dataSource), canvas);
+    }
 
-        List<DataPoint> points = new ArrayList<>(interval.getPoints().size() + 2);
+    private void collectPlotPoints(ChartDataSource dataSource, PointsBuffer points) {
         DataPoint previous = mChartModel.getPreviousPointForActiveRange(dataSource, getDataAnchor());
         if (previous != null) {
-            points.add(previous);
+            points.add(previous.getX(), previous.getY());
         }
-        points.addAll(interval.getPoints());
+        fillPlotPoints(mChartModel.getCurrentRangePoints(dataSource, getDataAnchor(), getChartWidth()), points);
         DataPoint next = mChartModel.getNextPointForActiveRange(dataSource, getDataAnchor());
         if (next != null) {
-            points.add(next);
+            points.add(next.getX(), next.getY());
         }
+    }
 
-        Path path = new Path();
-        boolean first = true;
-        boolean stop = false;
-        VisualPoint previousVisualPoint = null;
-        for (int i = 0; !stop && i < points.size(); i++) {
-            DataPoint point = points.get(i);
-            VisualPoint visualPoint = dataPointToVisualPoint(point);
-            if (i == 0) {
-                previousVisualPoint = visualPoint;
-                continue;
-            }
-
-            if (previousVisualPoint.getX() < minX && visualPoint.getX() <= minX) {
-                previousVisualPoint = visualPoint;
-                continue;
-            }
-
-            float x;
-            float y;
-            if (previousVisualPoint.getX() < minX) {
-                LineFormula formula = calculateLineFormula(previousVisualPoint, visualPoint);
-                x = minX;
-                y = formula.getY(x);
-                if (y > getChartBottom()) {
-                    y = getChartBottom();
-                    x = formula.getX(y);
-                }
-            } else if (visualPoint.getX() > maxX) {
-                if (first) {
-                    first = false;
-                    path.moveTo(previousVisualPoint.getX(), previousVisualPoint.getY());
-                } else {
-                    path.lineTo(previousVisualPoint.getX(), previousVisualPoint.getY());
-                }
-                LineFormula formula = calculateLineFormula(previousVisualPoint, visualPoint);
-                x = maxX;
-                y = formula.getY(x);
-                if (y > getChartBottom()) {
-                    y = getChartBottom();
-                    x = formula.getX(y);
-                }
-                stop = true;
-            } else {
-                x = previousVisualPoint.getX();
-                y = previousVisualPoint.getY();
-            }
+    private void drawPlotGeometry(PlotGeometry geometry, Canvas canvas) {
+        int size = geometry.getLinesSize();
+        if (size == 0) {
+            return;
+        }
+        PlotTransform transform = mPlotGeometry.getTransform();
+        if (geometry.getTransform().isSameAs(transform)) {
+            canvas.drawLines(geometry.getLines(), 0, size, mPlotPaint);
+            return;
+        }
 
-            if (first) {
-                first = false;
-                path.moveTo(x, y);
-            } else {
-                path.lineTo(x, y);
-            }
+        // The geometry is built for one of the previous frames, e.g. before the chart was scrolled. Move it
+        // to the current frame's position until the fresh geometry is built
+        float[] mapping = mGeometryMapping;
+        if (!mPlotGeometry.getMappingToCurrentFrame(geometry, mapping)) {
+            return;
+        }
+        int saveCount = canvas.save();
+        canvas.clipRect(transform.getMinX(),
+                        0,
+                        transform.getMaxX(),
+                        transform.getMaxY() + mPlotPaint.getStrokeWidth() / 2);
+        canvas.drawLines(mPlotGeometry.mapLines(geometry, mapping), 0, size, mPlotPaint);
+        canvas.restoreToCount(saveCount);
+    }
 
-            if (!stop && i == points.size() - 1) {
-                float endX;
-                float endY;
-                if (visualPoint.getX() <= maxX) {
-                    endX = visualPoint.getX();
-                    endY = visualPoint.getY();
-                } else {
-                    LineFormula formula = calculateLineFormula(previousVisualPoint, visualPoint);
-                    endX = maxX;
-                    endY = formula.getY(endX);
-                    if (endY > getChartBottom()) {
-                        endY = getChartBottom();
-                        endX = formula.getX(endY);
-                    }
-                }
-                path.lineTo(endX, endY);
+    private void fillPlotPoints(Interval interval, PointsBuffer points) {
+        DownsamplingStrategy strategy = mChartConfig.getDownsamplingStrategy();
+        refreshXAxisSetupIfNecessary();
+        if (strategy == null || mXUnitVisualWidth <= 0) {
+            for (int i = 0, max = interval.size(); i < max; i++) {
+                points.add(interval.getX(i), interval.getY(i));
             }
-
-            previousVisualPoint = visualPoint;
+        } else {
+            // One bucket per pixel column
+            strategy.downsample(interval, 1d / mXUnitVisualWidth, points);
         }
-
-        canvas.drawPath(path, mPlotPaint);
     }
 
     @Nonnull
@@ -816,15 +879,15 @@ public class ChartView extends View {
             if (!mChartModel.isActive(dataSource)) {
                 continue;
             }
-            List<DataPoint> points = mChartModel.getCurrentRangePoints(dataSource, getDataAnchor()).getPoints();
+            Interval points = mChartModel.getCurrentRangePoints(dataSource, getDataAnchor());
             if (points.isEmpty()) {
                 continue;
             }
 
             long dataY;
 
-            DataPoint firstDataPoint = points.get(0);
-            DataPoint lastDataPoint = points.get(points.size() - 1);
+            DataPoint firstDataPoint = new DataPoint(points.getMinX(), points.getY(0));
+            DataPoint lastDataPoint = new DataPoint(points.getMaxX(), points.getY(points.size() - 1));
             if (dataX < firstDataPoint.getX()) {
                 DataPoint previousDataPoint = mChartModel.getPreviousPointForActiveRange(dataSource, getDataAnchor());
                 if (previousDataPoint == null) {
@@ -846,15 +909,14 @@ public class ChartView extends View {
                                                                            nextDataPoint.getY()));
                 dataY = Math.round((double) formula.getY(dataX));
             } else {
-                int i = Collections.binarySearch(points, new DataPoint(dataX, 0), DataPoint.COMPARATOR_BY_X);
+                int i = points.binarySearch(dataX);
                 if (i >= 0) {
-                    dataY = points.get(i).getY();
+                    dataY = points.getY(i);
                 } else {
                     i = -(i + 1);
-                    DataPoint prev = points.get(i - 1);
-                    DataPoint next = points.get(i);
-                    LineFormula formula = calculateLineFormula(new VisualPoint(prev.getX(), prev.getY()),
-                                                               new VisualPoint(next.getX(), next.getY()));
+                    LineFormula formula = calculateLineFormula(new VisualPoint(points.getX(i - 1),
+                                                                               points.getY(i - 1)),
+                                                               new VisualPoint(points.getX(i), points.getY(i)));
                     dataY = Math.round((double) formula.getY(dataX));
                 }
             }
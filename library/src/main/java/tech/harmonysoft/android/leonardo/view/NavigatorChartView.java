@@ -16,6 +16,7 @@ import tech.harmonysoft.android.leonardo.model.config.axis.AxisConfig;
 import tech.harmonysoft.android.leonardo.model.config.chart.ChartConfig;
 import tech.harmonysoft.android.leonardo.model.config.navigator.NavigatorConfig;
 import tech.harmonysoft.android.leonardo.model.data.ChartDataSource;
+import tech.harmonysoft.android.leonardo.model.runtime.ChartDataChange;
 import tech.harmonysoft.android.leonardo.model.runtime.ChartModel;
 import tech.harmonysoft.android.leonardo.model.runtime.ChartModelListener;
 
@@ -142,8 +143,11 @@ public class NavigatorChartView extends View {
             }
 
             @Override
-            public void onActiveDataPointsLoaded(Object anchor) {
-                invalidate();
+            public void onDataPointsChanged(ChartDataChange change) {
+                // Our inner view shows only the navigator range
+                if (change.affects(mModel.getActiveRange(mView.getDataAnchor()))) {
+                    invalidate();
+                }
             }
 
             @Override
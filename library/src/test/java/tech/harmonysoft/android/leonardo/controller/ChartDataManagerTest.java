@@ -0,0 +1,142 @@
+package tech.harmonysoft.android.leonardo.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import tech.harmonysoft.android.leonardo.model.Interval;
+import tech.harmonysoft.android.leonardo.model.Range;
+import tech.harmonysoft.android.leonardo.model.config.data.impl.ChartDataSourceImpl;
+import tech.harmonysoft.android.leonardo.model.data.BatchChartDataLoader;
+import tech.harmonysoft.android.leonardo.model.data.BatchChartDataSeriesLoader;
+import tech.harmonysoft.android.leonardo.model.data.ChartDataSource;
+import tech.harmonysoft.android.leonardo.model.runtime.impl.ChartModelImpl;
+import tech.harmonysoft.android.leonardo.model.runtime.impl.SymmetricPrefetchPolicy;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the manager with a model on the current thread. Load tasks, their delivery to the model and frame
+ * callbacks are queued and run explicitly.
+ *
+ * @author Denis Zhdanov
+ * @since 14/3/19
+ */
+class ChartDataManagerTest {
+
+    private static final Object ANCHOR = "anchor";
+
+    private final List<Runnable> mLoadTasks  = new ArrayList<>();
+    private final List<Runnable> mModelTasks = new ArrayList<>();
+    private final List<Runnable> mFrames     = new ArrayList<>();
+
+    private ChartModelImpl mModel;
+    private int            mFailuresNumber;
+    private int            mLoadsNumber;
+
+    @BeforeEach
+    public void setUp() {
+        mLoadTasks.clear();
+        mModelTasks.clear();
+        mFrames.clear();
+        mFailuresNumber = 0;
+        mLoadsNumber = 0;
+        mModel = new ChartModelImpl(1, new SymmetricPrefetchPolicy(), () -> 0L, mFrames::add);
+    }
+
+    @Test
+    public void whenLoaderFails_thenRangeIsLoadedByNextPass() {
+        ChartDataSource dataSource = new ChartDataSourceImpl("1", new Range(0, 1000), 0, this::load);
+        mModel.addDataSource(dataSource);
+        mModel.setActiveRange(new Range(100, 199), ANCHOR);
+        mFailuresNumber = 1;
+        new ChartDataManager(mModel, mLoadTasks::add, null, mModelTasks::add, mFrames::add);
+
+        runAll();
+        assertThat(mLoadsNumber).isEqualTo(1);
+        assertThat(mModel.getLoadedRanges(dataSource).isEmpty()).isTrue();
+
+        mModel.setActiveRange(new Range(110, 209), ANCHOR);
+        runAll();
+        assertThat(mLoadsNumber).isGreaterThan(1);
+        assertThat(mModel.getLoadedRanges(dataSource).contains(mModel.getBufferRange())).isTrue();
+    }
+
+    @Test
+    public void whenPageIsCached_thenOnlyMissingRangesAreLoaded() {
+        ChartDataSource dataSource = new ChartDataSourceImpl("1", new Range(0, 1000), 0, this::load);
+        mModel.addDataSource(dataSource);
+        mModel.setActiveRange(new Range(100, 199), ANCHOR);
+        Range bufferRange = mModel.getBufferRange();
+        Range cachedRange = new Range(bufferRange.getStart(), 149);
+        PageCache cache = new PageCache(1_000);
+        cache.put(dataSource, ChartModelImpl.RAW_STEP, cachedRange, page(cachedRange));
+        new ChartDataManager(mModel, mLoadTasks::add, cache, mModelTasks::add, mFrames::add);
+
+        // Cached page is delivered by the loading pass itself
+        assertThat(mModel.getLoadedRanges(dataSource).contains(cachedRange)).isTrue();
+        assertThat(mLoadTasks).hasSize(1);
+
+        runAll();
+        assertThat(mLoadsNumber).isEqualTo(1);
+        assertThat(mModel.getLoadedRanges(dataSource).contains(bufferRange)).isTrue();
+    }
+
+    @Test
+    public void whenBatchedDataSourcesShareSeriesId_thenEveryOneGetsItsPoints() {
+        BatchChartDataLoader batchLoader = (range, seriesIds) -> {
+            mLoadsNumber++;
+            Map<String, Interval> result = new HashMap<>();
+            for (String seriesId : seriesIds) {
+                result.put(seriesId, page(range));
+            }
+            return result;
+        };
+        ChartDataSource dataSource1 = new ChartDataSourceImpl("1", new Range(0, 1000), 0,
+                                                              new BatchChartDataSeriesLoader(batchLoader, "y"));
+        ChartDataSource dataSource2 = new ChartDataSourceImpl("2", new Range(0, 1000), 0,
+                                                              new BatchChartDataSeriesLoader(batchLoader, "y"));
+        mModel.addDataSource(dataSource1);
+        mModel.addDataSource(dataSource2);
+        mModel.setActiveRange(new Range(100, 199), ANCHOR);
+        new ChartDataManager(mModel, mLoadTasks::add, null, mModelTasks::add, mFrames::add);
+
+        runAll();
+        assertThat(mLoadsNumber).isEqualTo(1);
+        assertThat(mModel.getLoadedRanges(dataSource1).contains(mModel.getBufferRange())).isTrue();
+        assertThat(mModel.getLoadedRanges(dataSource2).contains(mModel.getBufferRange())).isTrue();
+    }
+
+    private Interval load(Range range) {
+        mLoadsNumber++;
+        if (mFailuresNumber > 0) {
+            mFailuresNumber--;
+            throw new IllegalStateException("Disk is not available");
+        }
+        return page(range);
+    }
+
+    private static Interval page(Range range) {
+        int size = (int) range.getPointsNumber();
+        return new Interval(range.getStart(), 1, new long[size], 0, size);
+    }
+
+    private void runAll() {
+        while (!mLoadTasks.isEmpty() || !mModelTasks.isEmpty() || !mFrames.isEmpty()) {
+            runAndClear(mLoadTasks);
+            runAndClear(mModelTasks);
+            runAndClear(mFrames);
+        }
+    }
+
+    private static void runAndClear(List<Runnable> tasks) {
+        List<Runnable> toRun = new ArrayList<>(tasks);
+        tasks.clear();
+        for (Runnable task : toRun) {
+            task.run();
+        }
+    }
+}
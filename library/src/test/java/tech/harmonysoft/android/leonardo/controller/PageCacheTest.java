@@ -0,0 +1,84 @@
+package tech.harmonysoft.android.leonardo.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import tech.harmonysoft.android.leonardo.model.Interval;
+import tech.harmonysoft.android.leonardo.model.Range;
+import tech.harmonysoft.android.leonardo.model.config.data.impl.ChartDataSourceImpl;
+import tech.harmonysoft.android.leonardo.model.data.ChartDataSource;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Denis Zhdanov
+ * @since 31/3/19
+ */
+class PageCacheTest {
+
+    private static final long STEP = 1;
+
+    private final ChartDataSource mDataSource = new ChartDataSourceImpl("test", new Range(0, 1000), 0, range -> null);
+
+    private PageCache mCache;
+
+    @BeforeEach
+    public void setUp() {
+        mCache = new PageCache(20);
+    }
+
+    @Test
+    public void whenPageIntersectsTargetRange_thenItIsReturned() {
+        mCache.put(mDataSource, STEP, new Range(0, 9), page(0, 9));
+        List<PageCache.Page> pages = mCache.get(mDataSource, STEP, new Range(5, 15));
+        assertThat(pages).hasSize(1);
+        assertThat(pages.get(0).getRange()).isEqualTo(new Range(0, 9));
+        assertThat(mCache.get(mDataSource, STEP, new Range(10, 15))).isEmpty();
+        assertThat(mCache.get(mDataSource, STEP + 1, new Range(5, 15))).isEmpty();
+        assertThat(mCache.getHitCount()).isEqualTo(1);
+        assertThat(mCache.getMissCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void whenSizeIsExceeded_thenLeastRecentlyUsedPageIsEvicted() {
+        mCache.put(mDataSource, STEP, new Range(0, 9), page(0, 9));
+        mCache.put(mDataSource, STEP, new Range(10, 19), page(10, 19));
+        mCache.get(mDataSource, STEP, new Range(0, 0));
+        mCache.put(mDataSource, STEP, new Range(20, 29), page(20, 29));
+
+        assertThat(mCache.getEvictionCount()).isEqualTo(1);
+        assertThat(mCache.getSizeInPoints()).isEqualTo(20);
+        assertThat(mCache.get(mDataSource, STEP, new Range(10, 19))).isEmpty();
+        assertThat(mCache.get(mDataSource, STEP, new Range(0, 9))).hasSize(1);
+    }
+
+    @Test
+    public void whenCoveringPageIsAdded_thenCoveredPagesAreDropped() {
+        mCache.put(mDataSource, STEP, new Range(0, 4), page(0, 4));
+        mCache.put(mDataSource, STEP, new Range(5, 9), page(5, 9));
+        mCache.put(mDataSource, STEP, new Range(0, 9), page(0, 9));
+        assertThat(mCache.get(mDataSource, STEP, new Range(0, 9))).hasSize(1);
+        assertThat(mCache.getSizeInPoints()).isEqualTo(10);
+        assertThat(mCache.getEvictionCount()).isZero();
+    }
+
+    @Test
+    public void whenDataSourceIsRemoved_thenItsPagesAreDropped() {
+        mCache.put(mDataSource, STEP, new Range(0, 9), page(0, 9));
+        mCache.remove(mDataSource);
+        assertThat(mCache.getSizeInPoints()).isZero();
+        assertThat(mCache.get(mDataSource, STEP, new Range(0, 9))).isEmpty();
+    }
+
+    private static Interval page(long fromX, long toX) {
+        int size = (int) (toX - fromX + 1);
+        long[] xs = new long[size];
+        long[] ys = new long[size];
+        for (int i = 0; i < size; i++) {
+            xs[i] = fromX + i;
+            ys[i] = i;
+        }
+        return new Interval(xs, ys, 0, size);
+    }
+}
@@ -27,6 +27,13 @@ class RangeTest {
         assertThat(new Range(-2, 2).findFirstStepValue(4)).isEqualTo(Long.MIN_VALUE);
     }
 
+    @Test
+    public void whenRangesShareBoundary_thenTheyIntersect() {
+        assertThat(new Range(1, 5).intersects(new Range(5, 10))).isTrue();
+        assertThat(new Range(5, 10).intersects(new Range(1, 5))).isTrue();
+        assertThat(new Range(1, 4).intersects(new Range(5, 10))).isFalse();
+    }
+
     @Test
     public void whenStartPositive_andEndPositive_thenPadWorksCorrectly() {
         long pad = 5;
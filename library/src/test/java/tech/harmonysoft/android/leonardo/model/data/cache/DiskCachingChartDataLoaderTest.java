@@ -0,0 +1,82 @@
+package tech.harmonysoft.android.leonardo.model.data.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import tech.harmonysoft.android.leonardo.model.Interval;
+import tech.harmonysoft.android.leonardo.model.Range;
+import tech.harmonysoft.android.leonardo.model.data.ChartDataLoader;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Denis Zhdanov
+ * @since 1/4/19
+ */
+class DiskCachingChartDataLoaderTest {
+
+    private static final long MAX_X = 99;
+
+    private final List<Range> mLoadedRanges = new ArrayList<>();
+
+    @TempDir
+    File mRoot;
+
+    private ChartDataLoader mDelegate;
+    private DiskPageCache   mCache;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        mDelegate = range -> {
+            mLoadedRanges.add(range);
+            if (range.getStart() > MAX_X) {
+                return null;
+            }
+            long end = Math.min(MAX_X, range.getEnd());
+            int size = (int) (end - Math.max(0, range.getStart()) + 1);
+            long[] xs = new long[size];
+            long[] ys = new long[size];
+            for (int i = 0; i < size; i++) {
+                xs[i] = Math.max(0, range.getStart()) + i;
+                ys[i] = xs[i] * 2;
+            }
+            return new Interval(xs, ys, 0, size);
+        };
+        mCache = new DiskPageCache(mRoot, 1024 * 1024);
+    }
+
+    @Test
+    public void whenRangeSpansSeveralPages_thenPointsAreMerged() {
+        DiskCachingChartDataLoader loader = new DiskCachingChartDataLoader(mDelegate, mCache, "test", 10);
+        Interval interval = loader.load(new Range(5, 24));
+        assertThat(interval.size()).isEqualTo(20);
+        assertThat(interval.getMinX()).isEqualTo(5);
+        assertThat(interval.getMaxX()).isEqualTo(24);
+        assertThat(interval.getY(0)).isEqualTo(10);
+        assertThat(mLoadedRanges).containsExactly(new Range(0, 9), new Range(10, 19), new Range(20, 29));
+    }
+
+    @Test
+    public void whenPagesAreCached_thenDelegateIsNotCalled() {
+        new DiskCachingChartDataLoader(mDelegate, mCache, "test", 10).load(new Range(0, 29));
+        mLoadedRanges.clear();
+
+        DiskCachingChartDataLoader loader = new DiskCachingChartDataLoader(mDelegate, mCache, "test", 10);
+        Interval interval = loader.load(new Range(12, 17));
+        assertThat(mLoadedRanges).isEmpty();
+        assertThat(interval.size()).isEqualTo(6);
+        assertThat(interval.getMinX()).isEqualTo(12);
+    }
+
+    @Test
+    public void whenRangeIsOutsideOfDataset_thenNullIsReturned() {
+        DiskCachingChartDataLoader loader = new DiskCachingChartDataLoader(mDelegate, mCache, "test", 10);
+        assertThat(loader.load(new Range(200, 210))).isNull();
+        assertThat(mCache.getSizeInBytes()).isZero();
+    }
+}
@@ -0,0 +1,100 @@
+package tech.harmonysoft.android.leonardo.model.data.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import tech.harmonysoft.android.leonardo.model.Interval;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Denis Zhdanov
+ * @since 1/4/19
+ */
+class DiskPageCacheTest {
+
+    private static final String SERIES_ID = "series";
+
+    @TempDir
+    File mRoot;
+
+    private DiskPageCache mCache;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        mCache = new DiskPageCache(mRoot, 1024 * 1024);
+    }
+
+    @Test
+    public void whenPageIsStored_thenItIsReturned() {
+        Interval interval = new Interval(new long[] { 1, 2, 3 }, new long[] { 10, 20, 30 }, 0, 3);
+        mCache.put(SERIES_ID, 10, 0, interval);
+        assertThat(mCache.get(SERIES_ID, 10, 0).getPoints()).isEqualTo(interval.getPoints());
+        assertThat(mCache.get(SERIES_ID, 10, 1)).isNull();
+        assertThat(mCache.get("another", 10, 0)).isNull();
+    }
+
+    @Test
+    public void whenCacheIsRecreated_thenStoredPagesAreAvailable() throws IOException {
+        Interval interval = new Interval(new long[] { 1, 2 }, new long[] { 10, 20 }, 0, 2);
+        mCache.put(SERIES_ID, 10, 0, interval);
+
+        DiskPageCache restored = new DiskPageCache(mRoot, 1024 * 1024);
+        assertThat(restored.getSizeInBytes()).isEqualTo(mCache.getSizeInBytes());
+        assertThat(restored.get(SERIES_ID, 10, 0).getPoints()).isEqualTo(interval.getPoints());
+    }
+
+    @Test
+    public void whenSizeLimitIsExceeded_thenLeastRecentlyUsedPageIsEvicted() throws IOException {
+        Interval interval = new Interval(new long[] { 1, 2 }, new long[] { 10, 20 }, 0, 2);
+        mCache.put(SERIES_ID, 10, 0, interval);
+        long pageSize = mCache.getSizeInBytes();
+
+        mCache = new DiskPageCache(mRoot, pageSize * 2);
+        mCache.put(SERIES_ID, 10, 1, interval);
+        mCache.get(SERIES_ID, 10, 0);
+        mCache.put(SERIES_ID, 10, 2, interval);
+
+        assertThat(mCache.getSizeInBytes()).isEqualTo(pageSize * 2);
+        assertThat(mCache.get(SERIES_ID, 10, 0)).isNotNull();
+        assertThat(mCache.get(SERIES_ID, 10, 1)).isNull();
+        assertThat(mCache.get(SERIES_ID, 10, 2)).isNotNull();
+    }
+
+    @Test
+    public void whenPageFileIsCorrupted_thenItIsDropped() throws IOException {
+        Interval interval = new Interval(new long[] { 1, 2 }, new long[] { 10, 20 }, 0, 2);
+        mCache.put(SERIES_ID, 10, 0, interval);
+
+        List<File> files = new ArrayList<>();
+        collectFiles(mRoot, files);
+        assertThat(files).hasSize(1);
+        try (FileOutputStream out = new FileOutputStream(files.get(0))) {
+            out.write(new byte[] { 1, 2, 3 });
+        }
+
+        assertThat(mCache.get(SERIES_ID, 10, 0)).isNull();
+        assertThat(mCache.getSizeInBytes()).isZero();
+        assertThat(files.get(0)).doesNotExist();
+    }
+
+    private static void collectFiles(File dir, List<File> holder) {
+        File[] children = dir.listFiles();
+        if (children == null) {
+            return;
+        }
+        for (File child : children) {
+            if (child.isDirectory()) {
+                collectFiles(child, holder);
+            } else {
+                holder.add(child);
+            }
+        }
+    }
+}
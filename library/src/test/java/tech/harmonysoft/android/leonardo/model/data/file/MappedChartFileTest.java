@@ -0,0 +1,105 @@
+package tech.harmonysoft.android.leonardo.model.data.file;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import tech.harmonysoft.android.leonardo.model.Interval;
+import tech.harmonysoft.android.leonardo.model.Range;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * @author Denis Zhdanov
+ * @since 1/4/19
+ */
+class MappedChartFileTest {
+
+    private static final int POINTS_NUMBER = 100;
+
+    private final long[] mXs  = new long[POINTS_NUMBER];
+    private final long[] mYs1 = new long[POINTS_NUMBER];
+    private final long[] mYs2 = new long[POINTS_NUMBER];
+
+    @TempDir
+    File mDir;
+
+    private MappedChartFile mChartFile;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        for (int i = 0; i < POINTS_NUMBER; i++) {
+            mXs[i] = 1_550_000_000_000L + i * 10 + (i % 3);
+            mYs1[i] = i % 2 == 0 ? i * 1000 : -i;
+            mYs2[i] = i == 50 ? Long.MAX_VALUE : Long.MIN_VALUE + i;
+        }
+        File file = new File(mDir, "chart.bin");
+        try (OutputStream out = new FileOutputStream(file)) {
+            new ChartFileWriter(mXs, 16).addSeries("y1", "first", 0xFF00FF00, mYs1)
+                                        .addSeries("y2", "second", 0xFFFF0000, mYs2)
+                                        .write(out);
+        }
+        mChartFile = new MappedChartFile(file);
+    }
+
+    @Test
+    public void whenFileIsOpened_thenMetadataIsAvailable() {
+        assertThat(mChartFile.getPointsNumber()).isEqualTo(POINTS_NUMBER);
+        assertThat(mChartFile.getMinX()).isEqualTo(mXs[0]);
+        assertThat(mChartFile.getMaxX()).isEqualTo(mXs[POINTS_NUMBER - 1]);
+        assertThat(mChartFile.getSeriesIds()).containsExactly("y1", "y2");
+        assertThat(mChartFile.getLegend("y2")).isEqualTo("second");
+        assertThat(mChartFile.getColor("y1")).isEqualTo(0xFF00FF00);
+    }
+
+    @Test
+    public void whenRangeIsLoaded_thenPointsMatchTheSource() {
+        for (int from = 0; from < POINTS_NUMBER; from += 7) {
+            for (int to = from; to < POINTS_NUMBER; to += 13) {
+                Range range = new Range(mXs[from] - 1, mXs[to]);
+                Map<String, Interval> loaded = mChartFile.load(range, Arrays.asList("y1", "y2", "unknown"));
+                assertThat(loaded.keySet()).containsOnly("y1", "y2");
+                verify(loaded.get("y1"), mYs1, from, to);
+                verify(loaded.get("y2"), mYs2, from, to);
+            }
+        }
+    }
+
+    @Test
+    public void whenRangeHasNoPoints_thenNothingIsLoaded() {
+        assertThat(mChartFile.load(new Range(0, mXs[0] - 1), Arrays.asList("y1", "y2"))).isEmpty();
+        assertThat(mChartFile.load(new Range(mXs[10] + 1, mXs[11] - 1), Arrays.asList("y1", "y2"))).isEmpty();
+        assertThat(mChartFile.load(new Range(mXs[POINTS_NUMBER - 1] + 1, Long.MAX_VALUE),
+                                   Arrays.asList("y1", "y2"))).isEmpty();
+    }
+
+    @Test
+    public void whenSeriesLoaderIsUsed_thenItServesTheSeriesData() {
+        Interval interval = mChartFile.getLoader("y1").load(new Range(mXs[20], mXs[40]));
+        verify(interval, mYs1, 20, 40);
+    }
+
+    @Test
+    public void whenFileIsNotChartFile_thenExceptionIsThrown() throws IOException {
+        File file = new File(mDir, "garbage.bin");
+        try (OutputStream out = new FileOutputStream(file)) {
+            out.write(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 });
+        }
+        assertThatThrownBy(() -> new MappedChartFile(file)).isInstanceOf(IOException.class);
+    }
+
+    private void verify(Interval interval, long[] ys, int from, int to) {
+        assertThat(interval.size()).isEqualTo(to - from + 1);
+        for (int i = from; i <= to; i++) {
+            assertThat(interval.getX(i - from)).isEqualTo(mXs[i]);
+            assertThat(interval.getY(i - from)).isEqualTo(ys[i]);
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package tech.harmonysoft.android.leonardo.model.plot;
+
+import com.sun.management.ThreadMXBean;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import tech.harmonysoft.android.leonardo.model.Range;
+import tech.harmonysoft.android.leonardo.model.config.data.impl.ChartDataSourceImpl;
+import tech.harmonysoft.android.leonardo.model.data.ChartDataSource;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Drives {@link PlotGeometryManager} the same way as a chart view does on every frame - the transform is set up,
+ * geometry of every series is requested and mapped to the current frame if it's stale. Background builds and
+ * swaps are queued and run between frames like the geometry executor and the view's handler do.
+ *
+ * @author Denis Zhdanov
+ * @since 1/4/19
+ */
+class PlotGeometryManagerTest {
+
+    private static final int POINTS_NUMBER   = 2_000;
+    private static final int WARM_UP_FRAMES  = 50_000;
+    private static final int MEASURED_FRAMES = 10_000;
+
+    private final ChartDataSource mDataSource1 = new ChartDataSourceImpl("1", new Range(0, 1000), 0, range -> null);
+    private final ChartDataSource mDataSource2 = new ChartDataSourceImpl("2", new Range(0, 1000), 0, range -> null);
+    private final List<Runnable>  mBuildTasks  = new ArrayList<>();
+    private final List<Runnable>  mUiTasks     = new ArrayList<>();
+    private final float[]         mMapping     = new float[4];
+
+    private PlotGeometryManager mManager;
+    private int                 mCollectionsNumber;
+    private int                 mRedrawsNumber;
+
+    @BeforeEach
+    public void setUp() {
+        mBuildTasks.clear();
+        mUiTasks.clear();
+        mCollectionsNumber = 0;
+        mRedrawsNumber = 0;
+        mManager = new PlotGeometryManager(mBuildTasks::add, mUiTasks::add, () -> mRedrawsNumber++, this::collect);
+        mManager.getTransform().setClip(0, 1_000, 500);
+    }
+
+    @Test
+    public void whenDataIsNotChanged_thenPointsAreCollectedOnlyOnce() {
+        mManager.setBuildInBackground(false);
+        for (int i = 0; i < 10; i++) {
+            drawFrame(i);
+        }
+        assertThat(mCollectionsNumber).isEqualTo(2);
+
+        mManager.onDataChanged();
+        drawFrame(0);
+        assertThat(mCollectionsNumber).isEqualTo(4);
+    }
+
+    @Test
+    public void whenGeometryIsBuiltInBackground_thenStaleGeometryIsMappedUntilSwap() {
+        setUpTransform(0);
+        // There is no geometry to show yet, so it's built in place
+        PlotGeometry initial = mManager.getGeometry(mDataSource1);
+        assertThat(initial.getTransform().isSameAs(mManager.getTransform())).isTrue();
+
+        // Scroll and Y rescale
+        setUpTransform(3);
+        PlotGeometry stale = mManager.getGeometry(mDataSource1);
+        assertThat(stale).isSameAs(initial);
+        assertThat(mManager.getMappingToCurrentFrame(stale, mMapping)).isTrue();
+        assertThat(stale.getTransform().getVisualX(10) * mMapping[0] + mMapping[2])
+                .isCloseTo(mManager.getTransform().getVisualX(10), within(0.001f));
+        float[] lines = mManager.mapLines(stale, mMapping);
+        float[] expected = stale.getLines();
+        for (int i = 0; i < stale.getLinesSize(); i += 2) {
+            assertThat(lines[i]).isCloseTo(expected[i] * mMapping[0] + mMapping[2], within(0.001f));
+            assertThat(lines[i + 1]).isCloseTo(expected[i + 1] * mMapping[1] + mMapping[3], within(0.001f));
+        }
+
+        mBuildTasks.remove(0).run();
+        assertThat(mManager.getGeometry(mDataSource1)).isSameAs(initial);
+        assertThat(mRedrawsNumber).isZero();
+
+        mUiTasks.remove(0).run();
+        assertThat(mRedrawsNumber).isEqualTo(1);
+        PlotGeometry fresh = mManager.getGeometry(mDataSource1);
+        assertThat(fresh).isNotSameAs(initial);
+        assertThat(fresh.getTransform().isSameAs(mManager.getTransform())).isTrue();
+        assertThat(mBuildTasks).isEmpty();
+    }
+
+    @Test
+    public void whenDataSourceIsNotRetained_thenItsGeometryIsDropped() {
+        drawFrame(0);
+        PlotGeometry geometry = mManager.getGeometry(mDataSource2);
+        mManager.retainAll(Collections.singletonList(mDataSource1));
+        drawFrame(0);
+        assertThat(mManager.getGeometry(mDataSource2)).isNotSameAs(geometry);
+    }
+
+    @Test
+    public void whenSteadyStateFramesAreBuiltInPlace_thenNothingIsAllocated() {
+        mManager.setBuildInBackground(false);
+        assertNoAllocations();
+    }
+
+    @Test
+    public void whenSteadyStateFramesAreBuiltInBackground_thenNothingIsAllocated() {
+        assertNoAllocations();
+    }
+
+    private void collect(ChartDataSource dataSource, PointsBuffer points) {
+        mCollectionsNumber++;
+        int shift = dataSource == mDataSource1 ? 0 : 100;
+        for (int i = 0; i < POINTS_NUMBER; i++) {
+            points.add(i, (i % 2 == 0 ? i % 400 : 400 - i % 400) + shift);
+        }
+    }
+
+    private void setUpTransform(int frame) {
+        // Scroll within a single X unit and Y rescale animation
+        mManager.getTransform().setX(0, -(frame % 10) / 10f, 1);
+        mManager.getTransform().setY(0, 500, 1 - (frame % 5) / 10f);
+    }
+
+    private void drawFrame(int frame) {
+        setUpTransform(frame);
+        drawPlot(mDataSource1);
+        drawPlot(mDataSource2);
+        // Geometry executor and the view's handler process their tasks between frames
+        while (!mBuildTasks.isEmpty()) {
+            mBuildTasks.remove(0).run();
+        }
+        while (!mUiTasks.isEmpty()) {
+            mUiTasks.remove(0).run();
+        }
+    }
+
+    private void drawPlot(ChartDataSource dataSource) {
+        PlotGeometry geometry = mManager.getGeometry(dataSource);
+        if (!geometry.getTransform().isSameAs(mManager.getTransform())
+            && mManager.getMappingToCurrentFrame(geometry, mMapping))
+        {
+            mManager.mapLines(geometry, mMapping);
+        }
+    }
+
+    private void assertNoAllocations() {
+        ThreadMXBean bean = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled());
+        long threadId = Thread.currentThread().getId();
+
+        for (int i = 0; i < WARM_UP_FRAMES; i++) {
+            drawFrame(i);
+        }
+
+        // Allocation counter might allocate by itself, exclude that
+        long overhead = -bean.getThreadAllocatedBytes(threadId);
+        overhead += bean.getThreadAllocatedBytes(threadId);
+
+        long allocated = -bean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < MEASURED_FRAMES; i++) {
+            drawFrame(i);
+        }
+        allocated += bean.getThreadAllocatedBytes(threadId) - overhead;
+
+        assertThat(mCollectionsNumber).isEqualTo(2);
+        assertThat(mManager.getGeometry(mDataSource1).getLinesSize()).isPositive();
+        assertThat(allocated).as("bytes allocated by %d steady-state frames", MEASURED_FRAMES).isZero();
+    }
+}
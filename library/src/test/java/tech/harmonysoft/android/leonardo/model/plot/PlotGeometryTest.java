@@ -0,0 +1,87 @@
+package tech.harmonysoft.android.leonardo.model.plot;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * @author Denis Zhdanov
+ * @since 1/4/19
+ */
+class PlotGeometryTest {
+
+    private static final float PRECISION = 0.001f;
+
+    private PlotGeometry  mGeometry;
+    private PlotTransform mTransform;
+    private PointsBuffer  mPoints;
+
+    @BeforeEach
+    public void setUp() {
+        mGeometry = new PlotGeometry();
+        mTransform = new PlotTransform();
+        // Data point (x, y) is drawn at (x * 10, 100 - y * 10), plot is clipped by [0; 100] X and its bottom is at 100
+        mTransform.setX(0, 0, 10);
+        mTransform.setY(0, 100, 10);
+        mTransform.setClip(0, 100, 100);
+        mPoints = new PointsBuffer();
+    }
+
+    @Test
+    public void whenPointsAreInsidePlot_thenSegmentPerPairIsBuilt() {
+        addPoints(1, 1, 2, 3, 3, 2);
+        mGeometry.build(mPoints, mTransform, 1);
+        assertLines(10, 90, 20, 70,
+                    20, 70, 30, 80);
+        assertThat(mGeometry.getDataVersion()).isEqualTo(1);
+        assertThat(mGeometry.getTransform().isSameAs(mTransform)).isTrue();
+    }
+
+    @Test
+    public void whenSegmentsCrossPlotEdges_thenTheyAreClipped() {
+        addPoints(-4, 1, -2, 1, 2, 5, 12, 5, 14, 1);
+        mGeometry.build(mPoints, mTransform, 0);
+        assertLines(0, 70, 20, 50,
+                    20, 50, 100, 50);
+    }
+
+    @Test
+    public void whenClippedSegmentEndsBelowBottom_thenItIsCutAtBottom() {
+        addPoints(-1, -3, 1, 1);
+        mGeometry.build(mPoints, mTransform, 0);
+        assertLines(5, 100, 10, 90);
+    }
+
+    @Test
+    public void whenTransformIsChanged_thenMappingMovesGeometryToIt() {
+        PlotTransform current = new PlotTransform();
+        // Scrolled by one data unit and a half-unit visual shift, Y is rescaled twice
+        current.setX(1, -5, 10);
+        current.setY(0, 100, 20);
+        current.setClip(0, 100, 100);
+        float[] mapping = new float[4];
+        current.getMappingFrom(mTransform, mapping);
+
+        long dataX = 3;
+        long dataY = 2;
+        float mappedX = mTransform.getVisualX(dataX) * mapping[0] + mapping[2];
+        float mappedY = mTransform.getVisualY(dataY) * mapping[1] + mapping[3];
+        assertThat(mappedX).isCloseTo(current.getVisualX(dataX), within(PRECISION));
+        assertThat(mappedY).isCloseTo(current.getVisualY(dataY), within(PRECISION));
+    }
+
+    private void addPoints(long... coordinates) {
+        for (int i = 0; i < coordinates.length; i += 2) {
+            mPoints.add(coordinates[i], coordinates[i + 1]);
+        }
+    }
+
+    private void assertLines(float... expected) {
+        assertThat(mGeometry.getLinesSize()).isEqualTo(expected.length);
+        for (int i = 0; i < expected.length; i++) {
+            assertThat(mGeometry.getLines()[i]).isCloseTo(expected[i], within(PRECISION));
+        }
+    }
+}
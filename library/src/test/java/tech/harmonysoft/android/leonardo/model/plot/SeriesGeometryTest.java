@@ -0,0 +1,81 @@
+package tech.harmonysoft.android.leonardo.model.plot;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Denis Zhdanov
+ * @since 1/4/19
+ */
+class SeriesGeometryTest {
+
+    private static final long DATA_VERSION  = 1;
+    private static final int  POINTS_NUMBER = 2_000;
+
+    private final List<Runnable> mBuildTasks = new ArrayList<>();
+    private final List<Runnable> mSwapTasks  = new ArrayList<>();
+
+    private PlotTransform mTransform;
+    private int           mSwapsNumber;
+
+    @BeforeEach
+    public void setUp() {
+        mBuildTasks.clear();
+        mSwapTasks.clear();
+        mSwapsNumber = 0;
+        mTransform = new PlotTransform();
+        mTransform.setX(0, 0, 1);
+        mTransform.setY(0, 500, 1);
+        mTransform.setClip(0, 1_000, 500);
+    }
+
+    @Test
+    public void whenGeometryIsBuiltInBackground_thenFrontIsReplacedOnlyOnSwap() {
+        SeriesGeometry geometry = newGeometry(mBuildTasks::add, mSwapTasks::add);
+        fillPoints(geometry);
+        geometry.build(mTransform, true);
+        // There is no front geometry yet, so it's built in place
+        assertThat(geometry.isUpToDate(mTransform, DATA_VERSION)).isTrue();
+        PlotGeometry initialFront = geometry.getFront();
+
+        mTransform.setX(0, -5, 1);
+        geometry.build(mTransform, true);
+        assertThat(geometry.isBuildInProgress()).isTrue();
+        mBuildTasks.get(0).run();
+        assertThat(geometry.getFront()).isSameAs(initialFront);
+        assertThat(mSwapsNumber).isZero();
+
+        mSwapTasks.get(0).run();
+        assertThat(geometry.isBuildInProgress()).isFalse();
+        assertThat(geometry.isUpToDate(mTransform, DATA_VERSION)).isTrue();
+        assertThat(geometry.getFront()).isNotSameAs(initialFront);
+        assertThat(mSwapsNumber).isEqualTo(1);
+    }
+
+    @Test
+    public void whenDataVersionIsChanged_thenPointsAndGeometryAreStale() {
+        SeriesGeometry geometry = newGeometry(Runnable::run, Runnable::run);
+        fillPoints(geometry);
+        geometry.build(mTransform, false);
+        assertThat(geometry.hasPoints(DATA_VERSION)).isTrue();
+        assertThat(geometry.hasPoints(DATA_VERSION + 1)).isFalse();
+        assertThat(geometry.isUpToDate(mTransform, DATA_VERSION + 1)).isFalse();
+    }
+
+    private SeriesGeometry newGeometry(Executor buildExecutor, Executor swapExecutor) {
+        return new SeriesGeometry(buildExecutor, swapExecutor, () -> mSwapsNumber++);
+    }
+
+    private void fillPoints(SeriesGeometry geometry) {
+        PointsBuffer points = geometry.resetPoints(DATA_VERSION);
+        for (int i = 0; i < POINTS_NUMBER; i++) {
+            points.add(i, i % 2 == 0 ? i % 500 : 500 - i % 500);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package tech.harmonysoft.android.leonardo.model.plot.impl;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import tech.harmonysoft.android.leonardo.model.Interval;
+import tech.harmonysoft.android.leonardo.model.plot.PointsBuffer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Denis Zhdanov
+ * @since 28/3/19
+ */
+class LttbDownsamplingStrategyTest {
+
+    private PointsBuffer mResult;
+
+    @BeforeEach
+    public void setUp() {
+        mResult = new PointsBuffer();
+    }
+
+    @Test
+    public void whenThereAreLessPointsThanThreshold_thenAllPointsAreKept() {
+        Interval interval = new Interval(new long[]{0, 10, 20}, new long[]{1, 2, 3}, 0, 3);
+        LttbDownsamplingStrategy.INSTANCE.downsample(interval, 5, mResult);
+        assertThat(mResult.size()).isEqualTo(3);
+    }
+
+    @Test
+    public void whenPointsAreDownsampled_thenEdgesAndPeakAreKept() {
+        int size = 10_000;
+        long[] xs = new long[size];
+        long[] ys = new long[size];
+        for (int i = 0; i < size; i++) {
+            xs[i] = i;
+            ys[i] = i == 5_000 ? 1_000_000 : i % 7;
+        }
+        LttbDownsamplingStrategy.INSTANCE.downsample(new Interval(xs, ys, 0, size), 100, mResult);
+
+        assertThat(mResult.size()).isLessThanOrEqualTo(200);
+        assertThat(mResult.getX(0)).isEqualTo(0);
+        assertThat(mResult.getX(mResult.size() - 1)).isEqualTo(size - 1);
+        boolean peakFound = false;
+        for (int i = 0; i < mResult.size(); i++) {
+            if (i > 0) {
+                assertThat(mResult.getX(i)).isGreaterThan(mResult.getX(i - 1));
+            }
+            peakFound |= mResult.getY(i) == 1_000_000;
+        }
+        assertThat(peakFound).isTrue();
+    }
+}
@@ -0,0 +1,48 @@
+package tech.harmonysoft.android.leonardo.model.plot.impl;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import tech.harmonysoft.android.leonardo.model.Interval;
+import tech.harmonysoft.android.leonardo.model.plot.PointsBuffer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Denis Zhdanov
+ * @since 28/3/19
+ */
+class MinMaxDownsamplingStrategyTest {
+
+    private PointsBuffer mResult;
+
+    @BeforeEach
+    public void setUp() {
+        mResult = new PointsBuffer();
+    }
+
+    @Test
+    public void whenThereAreLessPointsThanBuckets_thenAllPointsAreKept() {
+        Interval interval = new Interval(new long[]{0, 10, 20}, new long[]{1, 2, 3}, 0, 3);
+        MinMaxDownsamplingStrategy.INSTANCE.downsample(interval, 5, mResult);
+        assertThat(mResult.size()).isEqualTo(3);
+    }
+
+    @Test
+    public void whenManyPointsMapToTheSameBucket_thenOnlyMinAndMaxAreKept() {
+        int size = 1000;
+        long[] xs = new long[size];
+        long[] ys = new long[size];
+        for (int i = 0; i < size; i++) {
+            xs[i] = i;
+            ys[i] = i % 100 == 50 ? 1000 : i % 100 == 70 ? -1000 : 0;
+        }
+        MinMaxDownsamplingStrategy.INSTANCE.downsample(new Interval(xs, ys, 0, size), 100, mResult);
+
+        assertThat(mResult.size()).isEqualTo(20);
+        for (int i = 0; i < mResult.size(); i += 2) {
+            assertThat(mResult.getY(i)).isEqualTo(1000);
+            assertThat(mResult.getY(i + 1)).isEqualTo(-1000);
+            assertThat(mResult.getX(i)).isLessThan(mResult.getX(i + 1));
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package tech.harmonysoft.android.leonardo.model.runtime;
+
+import org.junit.jupiter.api.Test;
+import tech.harmonysoft.android.leonardo.model.Range;
+import tech.harmonysoft.android.leonardo.model.config.data.impl.ChartDataSourceImpl;
+import tech.harmonysoft.android.leonardo.model.data.ChartDataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Denis Zhdanov
+ * @since 1/4/19
+ */
+class ChartDataChangeTest {
+
+    private final ChartDataSource mDataSource = new ChartDataSourceImpl("test", new Range(0, 1000), 0, range -> null);
+
+    @Test
+    public void whenChangeIntersectsRange_thenItAffectsIt() {
+        ChartDataChange change = new ChartDataChange(mDataSource,
+                                                     new Range(10, 20),
+                                                     ChartModel.RAW_STEP,
+                                                     ChartDataChange.Kind.LOADED);
+        assertThat(change.affects(new Range(0, 10))).isTrue();
+        assertThat(change.affects(new Range(15, 16))).isTrue();
+        assertThat(change.affects(new Range(20, 30))).isTrue();
+    }
+
+    @Test
+    public void whenChangeIsOutsideRange_thenItDoesNotAffectIt() {
+        ChartDataChange change = new ChartDataChange(mDataSource,
+                                                     new Range(10, 20),
+                                                     ChartModel.RAW_STEP,
+                                                     ChartDataChange.Kind.APPENDED);
+        assertThat(change.affects(new Range(0, 9))).isFalse();
+        assertThat(change.affects(new Range(21, 30))).isFalse();
+    }
+
+    @Test
+    public void whenRangeIsNotDefined_thenChangeDoesNotAffectIt() {
+        ChartDataChange change = new ChartDataChange(mDataSource,
+                                                     new Range(-10, 10),
+                                                     ChartModel.RAW_STEP,
+                                                     ChartDataChange.Kind.LOADED);
+        assertThat(change.affects(Range.NO_RANGE)).isFalse();
+    }
+}
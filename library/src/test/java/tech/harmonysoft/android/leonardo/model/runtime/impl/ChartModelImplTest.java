@@ -0,0 +1,104 @@
+package tech.harmonysoft.android.leonardo.model.runtime.impl;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import tech.harmonysoft.android.leonardo.model.Interval;
+import tech.harmonysoft.android.leonardo.model.Range;
+import tech.harmonysoft.android.leonardo.model.config.data.impl.ChartDataSourceImpl;
+import tech.harmonysoft.android.leonardo.model.data.ChartDataSource;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Denis Zhdanov
+ * @since 13/3/19
+ */
+class ChartModelImplTest {
+
+    private static final Object ANCHOR = "anchor";
+    private static final long   DAY    = 24 * 60 * 60 * 1000L;
+
+    private final ChartDataSource mDataSource = new ChartDataSourceImpl("1", new Range(0, 100_000), 0, range -> null);
+    private final List<Runnable>  mFrames     = new ArrayList<>();
+
+    private ChartModelImpl mModel;
+    private long           mTime;
+
+    @BeforeEach
+    public void setUp() {
+        mFrames.clear();
+        mTime = 0;
+        mModel = new ChartModelImpl(1, new VelocityPrefetchPolicy(), () -> mTime, mFrames::add);
+        mModel.addDataSource(mDataSource);
+    }
+
+    @Test
+    public void whenFlingStops_thenAnchorBufferStillMatchesCompoundBuffer() {
+        Range range = null;
+        for (int i = 0; i < 5; i++) {
+            range = new Range(10_000 + i * 20, 10_099 + i * 20);
+            mTime = i * 16;
+            mModel.setActiveRange(range, ANCHOR);
+        }
+        Range skewed = mModel.getBufferRange(ANCHOR);
+        assertThat(skewed.getEnd() - range.getEnd()).isGreaterThan(range.getStart() - skewed.getStart());
+
+        mTime += 10_000;
+        Range buffer = mModel.getBufferRange(ANCHOR);
+        assertThat(buffer).isEqualTo(skewed);
+        assertThat(mModel.getBufferRange()).isEqualTo(buffer);
+
+        // Points requested for the anchor's buffer are not dropped by the model
+        mModel.onPointsLoaded(mDataSource, buffer, new Interval(buffer.getStart(), 1, new long[1], 0, 1));
+        assertThat(mModel.getLoadedRanges(mDataSource).contains(buffer)).isTrue();
+    }
+
+    @Test
+    public void whenAnchorIsChangedAfterFling_thenBuffersBecomeSymmetric() {
+        for (int i = 0; i < 5; i++) {
+            mTime = i * 16;
+            mModel.setActiveRange(new Range(10_000 + i * 20, 10_099 + i * 20), ANCHOR);
+        }
+        mTime += 10_000;
+        Range range = new Range(10_080, 10_179);
+        mModel.setActiveRange(range, ANCHOR);
+
+        Range expected = new Range(range.getStart() - 100, range.getEnd() + 100);
+        assertThat(mModel.getBufferRange(ANCHOR)).isEqualTo(expected);
+        assertThat(mModel.getBufferRange()).isEqualTo(expected);
+    }
+
+    @Test
+    public void whenXIsSparse_thenStepIsBasedOnXSpacing() {
+        Range range = new Range(0, 365 * DAY - 1);
+        mModel.setActiveRange(range, ANCHOR);
+        mModel.onPointsLoaded(mDataSource, range, new Interval(0, DAY, new long[365], 0, 365));
+        assertThat(mModel.getXSpacing()).isEqualTo(DAY);
+
+        // Less than four points per pixel
+        mModel.setVisualWidth(ANCHOR, 100);
+        assertThat(mModel.getStep(ANCHOR)).isEqualTo(ChartModelImpl.RAW_STEP);
+
+        mModel.setVisualWidth(ANCHOR, 10);
+        assertThat(mModel.getStep(ANCHOR)).isEqualTo(16 * DAY);
+    }
+
+    @Test
+    public void whenReducedResolutionPageHasRawPoints_thenStepIsRecomputed() {
+        Range range = new Range(0, 365 * DAY - 1);
+        mModel.setActiveRange(range, ANCHOR);
+        mModel.setVisualWidth(ANCHOR, 1000);
+        long step = mModel.getStep(ANCHOR);
+        assertThat(step).isGreaterThan(ChartModelImpl.RAW_STEP).isLessThan(DAY);
+
+        // The loader has nothing aggregated for such a small step and returns raw points
+        mModel.onPointsLoaded(mDataSource, range, step, new Interval(0, DAY, new long[365], 0, 365));
+
+        assertThat(mModel.getXSpacing()).isEqualTo(DAY);
+        assertThat(mModel.getStep(ANCHOR)).isEqualTo(ChartModelImpl.RAW_STEP);
+        assertThat(mModel.getLoadedSteps(mDataSource)).doesNotContain(step);
+    }
+}
@@ -0,0 +1,151 @@
+package tech.harmonysoft.android.leonardo.model.runtime.impl;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import tech.harmonysoft.android.leonardo.model.Range;
+import tech.harmonysoft.android.leonardo.model.config.data.impl.ChartDataSourceImpl;
+import tech.harmonysoft.android.leonardo.model.data.ChartDataSource;
+import tech.harmonysoft.android.leonardo.model.runtime.ChartDataChange;
+import tech.harmonysoft.android.leonardo.model.runtime.ChartModel;
+import tech.harmonysoft.android.leonardo.model.runtime.ChartModelListener;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Denis Zhdanov
+ * @since 1/4/19
+ */
+class ChartModelListenerDispatcherTest {
+
+    private final ChartDataSource mDataSource1 = new ChartDataSourceImpl("1", new Range(0, 1000), 0, range -> null);
+    private final ChartDataSource mDataSource2 = new ChartDataSourceImpl("2", new Range(0, 1000), 0, range -> null);
+
+    private ChartModelListenerDispatcher mDispatcher;
+    private RecordingListener            mListener;
+    private int                          mScheduledFlushes;
+
+    @BeforeEach
+    public void setUp() {
+        mScheduledFlushes = 0;
+        mDispatcher = new ChartModelListenerDispatcher(() -> mScheduledFlushes++);
+        mListener = new RecordingListener();
+        mDispatcher.addListener(mListener, false);
+    }
+
+    @Test
+    public void whenChangesForTheSameDataSourceArrive_thenTheyAreMergedUntilFlush() {
+        loaded(mDataSource1, 10, 20);
+        loaded(mDataSource1, 40, 50);
+        loaded(mDataSource1, 0, 5);
+        assertThat(mListener.mChanges).isEmpty();
+        assertThat(mScheduledFlushes).isEqualTo(1);
+
+        mDispatcher.flush();
+        assertThat(mListener.mChanges).hasSize(1);
+        ChartDataChange change = mListener.mChanges.get(0);
+        assertThat(change.getDataSource()).isSameAs(mDataSource1);
+        assertThat(change.getXRange()).isEqualTo(new Range(0, 50));
+        assertThat(mDispatcher.hasPendingChanges()).isFalse();
+    }
+
+    @Test
+    public void whenChangesForDifferentDataSourcesArrive_thenTheyAreDeliveredSeparately() {
+        loaded(mDataSource1, 10, 20);
+        loaded(mDataSource2, 10, 20);
+        mDispatcher.flush();
+        assertThat(mListener.mChanges).hasSize(2);
+    }
+
+    @Test
+    public void whenListenerIsSynchronous_thenChangesAreDeliveredImmediately() {
+        RecordingListener synchronousListener = new RecordingListener();
+        mDispatcher.addListener(synchronousListener, true);
+        loaded(mDataSource1, 10, 20);
+        loaded(mDataSource1, 30, 40);
+        assertThat(synchronousListener.mChanges).hasSize(2);
+
+        mDispatcher.flush();
+        assertThat(synchronousListener.mChanges).hasSize(2);
+        assertThat(mListener.mChanges).hasSize(1);
+    }
+
+    @Test
+    public void whenThereAreOnlySynchronousListeners_thenNoFlushIsScheduled() {
+        mDispatcher.removeListener(mListener);
+        mDispatcher.addListener(new RecordingListener(), true);
+        loaded(mDataSource1, 10, 20);
+        assertThat(mScheduledFlushes).isZero();
+        assertThat(mDispatcher.hasPendingChanges()).isFalse();
+    }
+
+    @Test
+    public void whenDataSourceIsRemoved_thenItsPendingChangesAreDropped() {
+        loaded(mDataSource1, 10, 20);
+        loaded(mDataSource2, 10, 20);
+        mDispatcher.dropPendingChanges(mDataSource1);
+        mDispatcher.flush();
+        assertThat(mListener.mChanges).hasSize(1);
+        assertThat(mListener.mChanges.get(0).getDataSource()).isSameAs(mDataSource2);
+    }
+
+    @Test
+    public void whenPendingChangesAreDroppedOrFlushed_thenNewChangesAreNotMergedWithThem() {
+        ChartDataSource dataSource3 = new ChartDataSourceImpl("3", new Range(0, 1000), 0, range -> null);
+        loaded(mDataSource1, 10, 20);
+        loaded(mDataSource2, 30, 40);
+        loaded(dataSource3, 50, 60);
+        mDispatcher.dropPendingChanges(mDataSource2);
+        loaded(mDataSource2, 70, 80);
+        loaded(mDataSource1, 0, 5);
+        mDispatcher.flush();
+        assertThat(mListener.mChanges).extracting(ChartDataChange::getXRange)
+                                      .containsExactly(new Range(0, 20), new Range(50, 60), new Range(70, 80));
+
+        mListener.mChanges.clear();
+        loaded(dataSource3, 100, 110);
+        mDispatcher.flush();
+        assertThat(mListener.mChanges).extracting(ChartDataChange::getXRange).containsExactly(new Range(100, 110));
+        assertThat(mScheduledFlushes).isEqualTo(2);
+    }
+
+    private void loaded(ChartDataSource dataSource, long from, long to) {
+        mDispatcher.onDataPointsChanged(dataSource, from, to, ChartModel.RAW_STEP, ChartDataChange.Kind.LOADED);
+    }
+
+    private static class RecordingListener implements ChartModelListener {
+
+        final List<ChartDataChange> mChanges = new ArrayList<>();
+
+        @Override
+        public void onRangeChanged(Object anchor) {
+        }
+
+        @Override
+        public void onDataSourceEnabled(ChartDataSource dataSource) {
+        }
+
+        @Override
+        public void onDataSourceDisabled(ChartDataSource dataSource) {
+        }
+
+        @Override
+        public void onDataSourceAdded(ChartDataSource dataSource) {
+        }
+
+        @Override
+        public void onDataSourceRemoved(ChartDataSource dataSource) {
+        }
+
+        @Override
+        public void onDataPointsChanged(ChartDataChange change) {
+            mChanges.add(change);
+        }
+
+        @Override
+        public void onSelectionChange() {
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package tech.harmonysoft.android.leonardo.model.runtime.impl;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import tech.harmonysoft.android.leonardo.model.Interval;
+import tech.harmonysoft.android.leonardo.model.Range;
+import tech.harmonysoft.android.leonardo.model.config.data.impl.ChartDataSourceImpl;
+import tech.harmonysoft.android.leonardo.model.data.ChartDataSource;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Denis Zhdanov
+ * @since 1/4/19
+ */
+class ChartModelSnapshotTest {
+
+    private static final Object ANCHOR1 = "anchor1";
+    private static final Object ANCHOR2 = "anchor2";
+    private static final Range  PAGE    = new Range(100, 199);
+
+    private final ChartDataSource mDataSource = new ChartDataSourceImpl("1", new Range(0, 1000), 0, range -> null);
+    private final List<Runnable>  mFrames     = new ArrayList<>();
+
+    private ChartModelImpl mModel;
+
+    @BeforeEach
+    public void setUp() {
+        mFrames.clear();
+        mModel = new ChartModelImpl(1, new VelocityPrefetchPolicy(), () -> 0L, mFrames::add);
+        mModel.addDataSource(mDataSource);
+        mModel.setActiveRange(new Range(120, 179), ANCHOR1);
+        mModel.setActiveRange(new Range(120, 179), ANCHOR2);
+    }
+
+    @Test
+    public void whenAnchorIsNotChanged_thenItsStateIsReused() {
+        ChartModelSnapshot first = capture(ChartModelSnapshot.EMPTY, ANCHOR1, ANCHOR2);
+        mModel.setActiveRange(new Range(130, 179), ANCHOR1);
+        ChartModelSnapshot second = capture(first, ANCHOR1);
+
+        assertThat(second.getVersion()).isEqualTo(first.getVersion() + 1);
+        assertThat(second.getAnchorState(ANCHOR2)).isSameAs(first.getAnchorState(ANCHOR2));
+        assertThat(second.getAnchorState(ANCHOR1)).isNotSameAs(first.getAnchorState(ANCHOR1));
+        assertThat(second.getAnchorState(ANCHOR1).getActiveRange()).isEqualTo(new Range(130, 179));
+        assertThat(first.getAnchorState(ANCHOR1).getActiveRange()).isEqualTo(new Range(120, 179));
+    }
+
+    @Test
+    public void whenAnchorIsNotCapturedYet_thenItIsCapturedEvenIfNotMarkedAsChanged() {
+        ChartModelSnapshot snapshot = capture(ChartModelSnapshot.EMPTY);
+        assertThat(snapshot.getAnchorState(ANCHOR1)).isNotNull();
+        assertThat(snapshot.getAnchorState(ANCHOR2)).isNotNull();
+    }
+
+    @Test
+    public void whenPointsAreEvenlySpaced_thenActiveRangeWindowIsCopied() {
+        long[] ys = new long[(int) PAGE.getPointsNumber()];
+        for (int i = 0; i < ys.length; i++) {
+            ys[i] = i * 2;
+        }
+        mModel.onPointsLoaded(mDataSource, PAGE, new Interval(PAGE.getStart(), 1, ys, 0, ys.length));
+        ChartModelSnapshot snapshot = capture(ChartModelSnapshot.EMPTY, ANCHOR1);
+
+        // Points with the same X are replaced in place, the snapshot should not see that
+        mModel.onPointsLoaded(mDataSource, PAGE, new Interval(PAGE.getStart(), 1, new long[ys.length], 0, ys.length));
+
+        Interval points = getPoints(snapshot);
+        assertThat(points.getImplicitXStep()).isEqualTo(1);
+        assertThat(points.size()).isEqualTo(60);
+        for (int i = 0; i < points.size(); i++) {
+            long x = 120 + i;
+            assertThat(points.getX(i)).isEqualTo(x);
+            assertThat(points.getY(i)).isEqualTo((x - PAGE.getStart()) * 2);
+        }
+    }
+
+    @Test
+    public void whenPointsAreIrregular_thenActiveRangeWindowIsCopied() {
+        long[] xs = { 100, 110, 125, 150, 151, 178, 190 };
+        long[] ys = { 1, 2, 3, 4, 5, 6, 7 };
+        mModel.onPointsLoaded(mDataSource, PAGE, new Interval(xs, ys, 0, xs.length));
+        ChartModelSnapshot snapshot = capture(ChartModelSnapshot.EMPTY, ANCHOR1);
+
+        mModel.onPointsLoaded(mDataSource, PAGE, new Interval(xs, new long[ys.length], 0, xs.length));
+
+        Interval points = getPoints(snapshot);
+        assertThat(points.getImplicitXStep()).isNegative();
+        assertThat(points.size()).isEqualTo(4);
+        for (int i = 0; i < points.size(); i++) {
+            assertThat(points.getX(i)).isEqualTo(xs[i + 2]);
+            assertThat(points.getY(i)).isEqualTo(ys[i + 2]);
+        }
+        assertThat(snapshot.getAnchorState(ANCHOR1).getSeriesState(mDataSource).getPreviousPoint().getX())
+                .isEqualTo(110);
+        assertThat(snapshot.getAnchorState(ANCHOR1).getSeriesState(mDataSource).getNextPoint().getX())
+                .isEqualTo(190);
+    }
+
+    @Test
+    public void whenRangesAreLoaded_thenTheyAreCopied() {
+        mModel.onPointsLoaded(mDataSource, PAGE, new Interval(PAGE.getStart(), 1, new long[1], 0, 1));
+        ChartModelSnapshot snapshot = capture(ChartModelSnapshot.EMPTY);
+        mModel.onPointsLoaded(mDataSource, new Range(200, 299), new Interval(200, 1, new long[1], 0, 1));
+
+        assertThat(snapshot.getLoadedRanges(mDataSource).size()).isEqualTo(1);
+        assertThat(snapshot.getLoadedRanges(mDataSource).getEnd(0)).isEqualTo(PAGE.getEnd());
+        assertThat(mModel.getLoadedRanges(mDataSource).getEnd(0)).isGreaterThan(PAGE.getEnd());
+    }
+
+    private ChartModelSnapshot capture(ChartModelSnapshot previous, Object... changedAnchors) {
+        List<Object> anchors = new ArrayList<>();
+        Collections.addAll(anchors, changedAnchors);
+        return ChartModelSnapshot.capture(mModel, previous, anchors);
+    }
+
+    private Interval getPoints(ChartModelSnapshot snapshot) {
+        return snapshot.getAnchorState(ANCHOR1).getSeriesState(mDataSource).getPoints();
+    }
+}
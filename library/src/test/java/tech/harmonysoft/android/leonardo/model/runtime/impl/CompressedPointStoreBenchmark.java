@@ -0,0 +1,99 @@
+package tech.harmonysoft.android.leonardo.model.runtime.impl;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+import tech.harmonysoft.android.leonardo.model.Interval;
+
+import java.util.Locale;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Reports memory footprint and decode throughput of {@link CompressedPointStore} for evenly spaced series
+ * (one point per day with a random walk Y, like the bundled charts) and for irregular series. Compressed size
+ * is compared with the size of the same points in a {@link DataPointStore}. Results are published as test
+ * report entries.
+ * <p/>
+ * JMH is not a part of the build, so the measurement is a plain warmed-up loop. Is excluded from the default
+ * test run, use {@code ./gradlew test -Pbenchmark} to run benchmarks.
+ *
+ * @author Denis Zhdanov
+ * @since 1/4/19
+ */
+@Tag("benchmark")
+class CompressedPointStoreBenchmark {
+
+    private static final int  POINTS_NUMBER    = 200_000;
+    private static final int  WARM_UP_RUNS     = 5;
+    private static final int  MEASUREMENT_RUNS = 10;
+    private static final long DAY_MILLIS       = 86_400_000L;
+
+    private TestReporter mReporter;
+
+    @BeforeEach
+    public void setUp(TestReporter reporter) {
+        mReporter = reporter;
+    }
+
+    @Test
+    public void measureEvenlySpacedSeries() {
+        measure("evenly spaced", generate(false));
+    }
+
+    @Test
+    public void measureIrregularSeries() {
+        measure("irregular", generate(true));
+    }
+
+    private static Interval generate(boolean irregular) {
+        Random random = new Random(1);
+        long[] xs = new long[POINTS_NUMBER];
+        long[] ys = new long[POINTS_NUMBER];
+        long x = 1_546_300_800_000L;
+        long y = 5_000;
+        for (int i = 0; i < POINTS_NUMBER; i++) {
+            xs[i] = x;
+            ys[i] = y;
+            x += irregular ? 1 + random.nextInt(60_000) : DAY_MILLIS;
+            y = Math.max(0, y + random.nextInt(201) - 100);
+        }
+        return new Interval(xs, ys, 0, POINTS_NUMBER);
+    }
+
+    private void measure(String name, Interval points) {
+        CompressedPointStore store = new CompressedPointStore();
+        store.addAll(points);
+        double bytesPerPoint = store.getEncodedSize() / (double) store.size();
+
+        DataPointStore target = new DataPointStore();
+        for (int i = 0; i < WARM_UP_RUNS; i++) {
+            decode(store, target);
+        }
+        long totalTimeNanos = 0;
+        for (int i = 0; i < MEASUREMENT_RUNS; i++) {
+            long start = System.nanoTime();
+            decode(store, target);
+            totalTimeNanos += System.nanoTime() - start;
+        }
+        assertThat(target.size()).isEqualTo(points.size());
+
+        double rawBytesPerPoint = target.getPointsSizeInBytes() / (double) target.size();
+        double pointsPerSecond = MEASUREMENT_RUNS * (double) POINTS_NUMBER * 1_000_000_000L / totalTimeNanos;
+        mReporter.publishEntry(name + " series, compressed bytes per point", format(bytesPerPoint));
+        mReporter.publishEntry(name + " series, raw bytes per point", format(rawBytesPerPoint));
+        mReporter.publishEntry(name + " series, compressed % of raw", format(bytesPerPoint * 100 / rawBytesPerPoint));
+        mReporter.publishEntry(name + " series, decoded M points per second", format(pointsPerSecond / 1_000_000));
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.US, "%.2f", value);
+    }
+
+    private static void decode(CompressedPointStore store, DataPointStore target) {
+        target.clear();
+        store.copyTo(Long.MIN_VALUE, Long.MAX_VALUE, target);
+    }
+}
@@ -0,0 +1,116 @@
+package tech.harmonysoft.android.leonardo.model.runtime.impl;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import tech.harmonysoft.android.leonardo.model.DataPoint;
+import tech.harmonysoft.android.leonardo.model.Interval;
+import tech.harmonysoft.android.leonardo.model.Range;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Denis Zhdanov
+ * @since 1/4/19
+ */
+class CompressedPointStoreTest {
+
+    private CompressedPointStore mStore;
+
+    @BeforeEach
+    public void setUp() {
+        mStore = new CompressedPointStore();
+    }
+
+    @Test
+    public void whenPointsAreEvenlySpaced_thenTheyTakeFewBytes() {
+        int size = CompressedPointStore.BLOCK_SIZE * 3;
+        long[] xs = new long[size];
+        long[] ys = new long[size];
+        for (int i = 0; i < size; i++) {
+            xs[i] = 1_546_300_800_000L + 86_400_000L * i;
+            ys[i] = 1000 + (i % 50);
+        }
+        mStore.addAll(new Interval(xs, ys, 0, size));
+
+        assertThat(mStore.size()).isEqualTo(size);
+        assertThat(mStore.getEncodedSize()).isLessThan(size * 3L);
+        assertThat(getPoints(Long.MIN_VALUE, Long.MAX_VALUE)).isEqualTo(new Interval(xs, ys, 0, size).getPoints());
+    }
+
+    @Test
+    public void whenExtremeValuesAreStored_thenTheyAreDecodedAsIs() {
+        long[] xs = { Long.MIN_VALUE, -1, 0, 1, Long.MAX_VALUE };
+        long[] ys = { Long.MAX_VALUE, Long.MIN_VALUE, 0, -7, Long.MAX_VALUE };
+        mStore.addAll(new Interval(xs, ys, 0, xs.length));
+        assertThat(getPoints(Long.MIN_VALUE, Long.MAX_VALUE))
+                .isEqualTo(new Interval(xs, ys, 0, xs.length).getPoints());
+    }
+
+    @Test
+    public void whenKeepOnlyIsCalled_thenBoundaryBlocksAreTrimmed() {
+        addRange(0, CompressedPointStore.BLOCK_SIZE * 4);
+        mStore.keepOnly(new Range(100, CompressedPointStore.BLOCK_SIZE * 2 + 10));
+        assertThat(mStore.size()).isEqualTo(CompressedPointStore.BLOCK_SIZE * 2 + 10 - 100 + 1);
+        assertThat(getPoints(Long.MIN_VALUE, Long.MAX_VALUE).get(0)).isEqualTo(new DataPoint(100, 100));
+        assertThat(mStore.getLastPointBefore(100)).isNull();
+        assertThat(mStore.getFirstPointAfter(CompressedPointStore.BLOCK_SIZE * 2 + 10)).isNull();
+    }
+
+    @Test
+    public void whenNeighbourPointsAreRequested_thenTheyAreFoundAcrossBlocks() {
+        addRange(0, CompressedPointStore.BLOCK_SIZE * 2);
+        int border = CompressedPointStore.BLOCK_SIZE;
+        assertThat(mStore.getLastPointBefore(border)).isEqualTo(new DataPoint(border - 1, border - 1));
+        assertThat(mStore.getFirstPointAfter(border - 1)).isEqualTo(new DataPoint(border, border));
+        assertThat(mStore.getLastPointBefore(0)).isNull();
+        assertThat(mStore.getFirstPointAfter(-5)).isEqualTo(new DataPoint(0, 0));
+    }
+
+    @Test
+    public void whenPagesAreAddedRandomly_thenStoreMatchesReference() {
+        Random random = new Random(7);
+        Map<Long, Long> expected = new TreeMap<>();
+        for (int page = 0; page < 300; page++) {
+            int size = 1 + random.nextInt(300);
+            long x = random.nextInt(100_000);
+            long[] xs = new long[size];
+            long[] ys = new long[size];
+            for (int i = 0; i < size; i++) {
+                xs[i] = x;
+                ys[i] = random.nextLong();
+                expected.put(x, ys[i]);
+                x += 1 + random.nextInt(random.nextBoolean() ? 1 : 5);
+            }
+            mStore.addAll(new Interval(xs, ys, 0, size));
+        }
+
+        assertThat(mStore.size()).isEqualTo(expected.size());
+        DataPointStore actual = new DataPointStore();
+        mStore.copyTo(Long.MIN_VALUE, Long.MAX_VALUE, actual);
+        assertThat(actual.size()).isEqualTo(expected.size());
+        int i = 0;
+        for (Map.Entry<Long, Long> entry : expected.entrySet()) {
+            assertThat(actual.getX(i)).isEqualTo(entry.getKey());
+            assertThat(actual.getY(i++)).isEqualTo(entry.getValue());
+        }
+    }
+
+    private void addRange(long fromX, long toX) {
+        DataPointStore points = new DataPointStore();
+        for (long x = fromX; x < toX; x++) {
+            points.add(x, x);
+        }
+        mStore.addAll(points.getInterval(0, points.size() - 1));
+    }
+
+    private List<DataPoint> getPoints(long fromX, long toX) {
+        DataPointStore points = new DataPointStore();
+        mStore.copyTo(fromX, toX, points);
+        return points.getInterval(0, points.size() - 1).getPoints();
+    }
+}
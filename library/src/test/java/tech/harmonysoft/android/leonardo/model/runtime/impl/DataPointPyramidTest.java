@@ -0,0 +1,125 @@
+package tech.harmonysoft.android.leonardo.model.runtime.impl;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import tech.harmonysoft.android.leonardo.model.Interval;
+import tech.harmonysoft.android.leonardo.model.Range;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Denis Zhdanov
+ * @since 29/3/19
+ */
+class DataPointPyramidTest {
+
+    private DataPointStore   mRaw;
+    private DataPointPyramid mPyramid;
+
+    @BeforeEach
+    public void setUp() {
+        mRaw = new DataPointStore();
+        mPyramid = new DataPointPyramid(mRaw);
+    }
+
+    @Test
+    public void whenThereAreNotEnoughPoints_thenRawPointsAreUsed() {
+        mRaw.add(1, 1);
+        mPyramid.onPointsAdded(1, 1);
+        assertThat(mPyramid.getLevelsNumber()).isEqualTo(0);
+        assertThat(mPyramid.getInterval(new Range(0, 10), 1).size()).isEqualTo(1);
+    }
+
+    @Test
+    public void whenPyramidIsBuilt_thenEveryLevelKeepsPeaks() {
+        addPoints(0, 10_000);
+        for (int level = 1; level <= mPyramid.getLevelsNumber(); level++) {
+            DataPointStore store = mPyramid.getLevel(level);
+            assertThat(store.size()).isLessThan(mPyramid.getLevel(level - 1).size());
+            assertThat(store.getMinY(0, store.size() - 1)).isEqualTo(-1_000);
+            assertThat(store.getMaxY(0, store.size() - 1)).isEqualTo(1_000);
+        }
+    }
+
+    @Test
+    public void whenPointsAreAddedIncrementally_thenResultIsTheSameAsForBulkBuild() {
+        addPoints(5_000, 10_000);
+        addPoints(0, 5_000);
+        addPoints(10_000, 12_000);
+
+        DataPointStore raw = new DataPointStore();
+        DataPointPyramid expected = new DataPointPyramid(raw);
+        for (long x = 0; x < 12_000; x++) {
+            raw.add(x, getY(x));
+        }
+        expected.onPointsAdded(0, 11_999);
+
+        for (int level = 1; level <= DataPointPyramid.LEVELS_NUMBER; level++) {
+            DataPointStore actualLevel = mPyramid.getLevel(level);
+            DataPointStore expectedLevel = expected.getLevel(level);
+            assertThat(actualLevel.size()).isEqualTo(expectedLevel.size());
+            for (int i = 0; i < expectedLevel.size(); i++) {
+                assertThat(actualLevel.getX(i)).isEqualTo(expectedLevel.getX(i));
+                assertThat(actualLevel.getY(i)).isEqualTo(expectedLevel.getY(i));
+            }
+        }
+    }
+
+    @Test
+    public void whenPointsWithSmallerStepArrive_thenPyramidIsRebuiltForThem() {
+        // E.g. a page loaded in reduced resolution comes first
+        for (long x = 0; x < 10_000; x += 10) {
+            mRaw.add(x, getY(x));
+        }
+        mPyramid.onPointsAdded(0, 9_990);
+        assertThat(mPyramid.getBucketWidth(0)).isEqualTo(10);
+
+        addPoints(10_000, 12_000);
+        assertThat(mPyramid.getBucketWidth(0)).isEqualTo(1);
+
+        DataPointStore raw = new DataPointStore();
+        DataPointPyramid expected = new DataPointPyramid(raw);
+        for (int i = 0; i < mRaw.size(); i++) {
+            raw.add(mRaw.getX(i), mRaw.getY(i));
+        }
+        expected.onPointsAdded(raw.getFirstX(), raw.getLastX());
+        for (int level = 1; level <= DataPointPyramid.LEVELS_NUMBER; level++) {
+            assertThat(mPyramid.getBucketWidth(level)).isEqualTo(expected.getBucketWidth(level));
+            DataPointStore actualLevel = mPyramid.getLevel(level);
+            DataPointStore expectedLevel = expected.getLevel(level);
+            assertThat(actualLevel.size()).isEqualTo(expectedLevel.size());
+            for (int i = 0; i < expectedLevel.size(); i++) {
+                assertThat(actualLevel.getX(i)).isEqualTo(expectedLevel.getX(i));
+                assertThat(actualLevel.getY(i)).isEqualTo(expectedLevel.getY(i));
+            }
+        }
+    }
+
+    @Test
+    public void whenIntervalIsRequested_thenCoarsestLevelWithEnoughPointsIsUsed() {
+        addPoints(0, 100_000);
+        Interval interval = mPyramid.getInterval(new Range(0, 99_999), 500);
+        assertThat(interval.size()).isGreaterThanOrEqualTo(500).isLessThan(100_000 / 16);
+        assertThat(interval.getMinY()).isEqualTo(-1_000);
+        assertThat(interval.getMaxY()).isEqualTo(1_000);
+
+        assertThat(mPyramid.getInterval(new Range(0, 999), 1000).size()).isEqualTo(1000);
+    }
+
+    private void addPoints(long fromX, long toX) {
+        for (long x = fromX; x < toX; x++) {
+            mRaw.add(x, getY(x));
+        }
+        mPyramid.onPointsAdded(fromX, toX - 1);
+    }
+
+    private static long getY(long x) {
+        if (x % 1_000 == 500) {
+            return 1_000;
+        } else if (x % 1_000 == 700) {
+            return -1_000;
+        } else {
+            return x % 13;
+        }
+    }
+}
@@ -0,0 +1,338 @@
+package tech.harmonysoft.android.leonardo.model.runtime.impl;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import tech.harmonysoft.android.leonardo.model.DataPoint;
+import tech.harmonysoft.android.leonardo.model.Interval;
+import tech.harmonysoft.android.leonardo.model.Range;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Denis Zhdanov
+ * @since 26/3/19
+ */
+class DataPointStoreTest {
+
+    private DataPointStore mStore;
+
+    @BeforeEach
+    public void setUp() {
+        mStore = new DataPointStore();
+    }
+
+    @Test
+    public void whenPointsAreAppended_thenTheyAreKeptSorted() {
+        for (long x = 0; x < 100; x++) {
+            mStore.add(x, x * 2);
+        }
+        assertThat(getXs()).hasSize(100).isSorted();
+        assertThat(mStore.getY(42)).isEqualTo(84);
+    }
+
+    @Test
+    public void whenPointsArePrepended_thenTheyAreKeptSorted() {
+        for (long x = 100; x > 0; x--) {
+            mStore.add(x, x);
+        }
+        assertThat(getXs()).hasSize(100).isSorted();
+        assertThat(mStore.getFirstX()).isEqualTo(1);
+        assertThat(mStore.getLastX()).isEqualTo(100);
+    }
+
+    @Test
+    public void whenPointIsInsertedInTheMiddle_thenItIsKeptSorted() {
+        mStore.add(1, 1);
+        mStore.add(5, 5);
+        mStore.add(3, 3);
+        assertThat(getXs()).containsExactly(1L, 3L, 5L);
+    }
+
+    @Test
+    public void whenPointWithExistingXIsAdded_thenItReplacesExistingOne() {
+        mStore.add(1, 1);
+        mStore.add(2, 2);
+        mStore.add(1, 10);
+        assertThat(getXs()).containsExactly(1L, 2L);
+        assertThat(mStore.getY(0)).isEqualTo(10);
+    }
+
+    @Test
+    public void whenCeilingAndFloorAreRequested_thenCorrectIndicesAreReturned() {
+        mStore.add(2, 0);
+        mStore.add(4, 0);
+        mStore.add(6, 0);
+        assertThat(mStore.ceilingIndex(1)).isEqualTo(0);
+        assertThat(mStore.ceilingIndex(4)).isEqualTo(1);
+        assertThat(mStore.ceilingIndex(5)).isEqualTo(2);
+        assertThat(mStore.ceilingIndex(7)).isEqualTo(3);
+        assertThat(mStore.floorIndex(1)).isEqualTo(-1);
+        assertThat(mStore.floorIndex(4)).isEqualTo(1);
+        assertThat(mStore.floorIndex(5)).isEqualTo(1);
+        assertThat(mStore.floorIndex(7)).isEqualTo(2);
+    }
+
+    @Test
+    public void whenKeepOnlyIsCalled_thenPointsOutsideTheRangeAreDropped() {
+        for (long x = 0; x < 10; x++) {
+            mStore.add(x, x);
+        }
+        mStore.keepOnly(new Range(3, 6));
+        assertThat(getXs()).containsExactly(3L, 4L, 5L, 6L);
+
+        mStore.add(2, 2);
+        mStore.add(7, 7);
+        assertThat(getXs()).containsExactly(2L, 3L, 4L, 5L, 6L, 7L);
+    }
+
+    @Test
+    public void whenKeepOnlyRangeDoesNotIntersect_thenStoreIsCleared() {
+        mStore.add(1, 1);
+        mStore.add(2, 2);
+        mStore.keepOnly(new Range(5, 6));
+        assertThat(mStore.isEmpty()).isTrue();
+    }
+
+    @Test
+    public void whenWindowIsSlidRepeatedly_thenPointsAreKept() {
+        for (long x = 0; x < 10_000; x++) {
+            mStore.add(x, x);
+            mStore.keepOnly(new Range(x - 10, x));
+        }
+        assertThat(getXs()).hasSize(11).isSorted();
+        assertThat(mStore.getFirstX()).isEqualTo(9_989);
+    }
+
+    @Test
+    public void whenIntervalIsRequested_thenItReflectsTargetPoints() {
+        for (long x = 0; x < 10; x++) {
+            mStore.add(x, x * 10);
+        }
+        Interval interval = mStore.getInterval(mStore.ceilingIndex(3), mStore.floorIndex(5));
+        assertThat(interval.size()).isEqualTo(3);
+        assertThat(interval.getMinX()).isEqualTo(3);
+        assertThat(interval.getMaxX()).isEqualTo(5);
+        assertThat(interval.getMinY()).isEqualTo(30);
+        assertThat(interval.getMaxY()).isEqualTo(50);
+        assertThat(interval.getPoints()).containsExactly(new DataPoint(3, 30),
+                                                         new DataPoint(4, 40),
+                                                         new DataPoint(5, 50));
+    }
+
+    @Test
+    public void whenPagesAreAddedAfterAndBeforeStoredPoints_thenTheyAreCopiedAsBlocks() {
+        mStore.addAll(interval(10, 11, 12));
+        mStore.addAll(interval(20, 21));
+        mStore.addAll(interval(1, 2));
+        assertThat(getXs()).containsExactly(1L, 2L, 10L, 11L, 12L, 20L, 21L);
+        assertThat(mStore.getMinY(0, 6)).isEqualTo(1);
+        assertThat(mStore.getMaxY(2, 4)).isEqualTo(12);
+    }
+
+    @Test
+    public void whenPageOverlapsStoredPoints_thenItIsMerged() {
+        for (long x = 0; x < 10; x += 2) {
+            mStore.add(x, x);
+        }
+        mStore.addAll(new Interval(new long[] { 3, 4, 5, 11 }, new long[] { 30, 40, 50, 110 }, 0, 4));
+        assertThat(getXs()).containsExactly(0L, 2L, 3L, 4L, 5L, 6L, 8L, 11L);
+        assertThat(mStore.getY(3)).isEqualTo(40);
+        assertThat(mStore.getMaxY(0, 7)).isEqualTo(110);
+        assertThat(mStore.getMaxY(0, 6)).isEqualTo(50);
+    }
+
+    @Test
+    public void whenRandomPagesAreAdded_thenResultIsTheSameAsForAddingPointByPoint() {
+        Random random = new Random(1);
+        DataPointStore expected = new DataPointStore();
+        for (int page = 0; page < 200; page++) {
+            int size = random.nextInt(50);
+            long x = random.nextInt(2_000);
+            long[] xs = new long[size];
+            long[] ys = new long[size];
+            for (int i = 0; i < size; i++) {
+                x += 1 + random.nextInt(5);
+                xs[i] = x;
+                ys[i] = random.nextInt(1_000) - 500;
+                expected.add(xs[i], ys[i]);
+            }
+            mStore.addAll(new Interval(xs, ys, 0, size));
+        }
+        assertThat(mStore.getInterval(0, mStore.size() - 1).getPoints())
+                .isEqualTo(expected.getInterval(0, expected.size() - 1).getPoints());
+        assertThat(mStore.getMinY(10, 100)).isEqualTo(expected.getMinY(10, 100));
+        assertThat(mStore.getMaxY(10, 100)).isEqualTo(expected.getMaxY(10, 100));
+    }
+
+    @Test
+    public void whenBoundedStoreWrapsAround_thenLatestPointsAreKept() {
+        mStore = new DataPointStore(10);
+        for (long x = 0; x < 25; x++) {
+            mStore.append(x, x);
+        }
+        assertThat(getXs()).containsExactly(15L, 16L, 17L, 18L, 19L, 20L, 21L, 22L, 23L, 24L);
+        Interval interval = mStore.getInterval(0, mStore.size() - 1);
+        assertThat(interval.getMinX()).isEqualTo(15);
+        assertThat(interval.getMaxX()).isEqualTo(24);
+        assertThat(interval.getPoints()).hasSize(10);
+    }
+
+    @Test
+    public void whenBoundedStoreWrapsAround_thenMinMaxYAreCorrect() {
+        mStore = new DataPointStore(8);
+        mStore.append(0, 1_000);
+        assertThat(mStore.getMaxY(0, 0)).isEqualTo(1_000);
+        for (long x = 1; x < 20; x++) {
+            mStore.append(x, x % 2 == 0 ? x : -x);
+            int last = mStore.size() - 1;
+            long expectedMin = Long.MAX_VALUE;
+            long expectedMax = Long.MIN_VALUE;
+            for (int i = 0; i <= last; i++) {
+                expectedMin = Math.min(expectedMin, mStore.getY(i));
+                expectedMax = Math.max(expectedMax, mStore.getY(i));
+            }
+            assertThat(mStore.getMinY(0, last)).isEqualTo(expectedMin);
+            assertThat(mStore.getMaxY(0, last)).isEqualTo(expectedMax);
+        }
+    }
+
+    @Test
+    public void whenPointIsInsertedIntoFullBoundedStore_thenTheOldestPointIsDropped() {
+        mStore = new DataPointStore(4);
+        for (long x = 0; x < 13; x += 2) {
+            mStore.append(x, x);
+        }
+        assertThat(getXs()).containsExactly(6L, 8L, 10L, 12L);
+        mStore.add(9, 9);
+        assertThat(getXs()).containsExactly(8L, 9L, 10L, 12L);
+        mStore.add(1, 1);
+        assertThat(getXs()).containsExactly(8L, 9L, 10L, 12L);
+        mStore.append(14, 14);
+        assertThat(getXs()).containsExactly(9L, 10L, 12L, 14L);
+        assertThat(mStore.getMaxY(0, 3)).isEqualTo(14);
+        assertThat(mStore.getMinY(0, 3)).isEqualTo(9);
+    }
+
+    @Test
+    public void whenPointsAreRemovedFromBoundedStore_thenAppendStillWorks() {
+        mStore = new DataPointStore(4);
+        for (long x = 0; x < 6; x++) {
+            mStore.append(x, x);
+        }
+        mStore.remove(3, 3);
+        assertThat(getXs()).containsExactly(2L, 4L, 5L);
+        for (long x = 6; x < 9; x++) {
+            mStore.append(x, x);
+        }
+        assertThat(getXs()).containsExactly(5L, 6L, 7L, 8L);
+        assertThat(mStore.getMinY(0, 3)).isEqualTo(5);
+    }
+
+    @Test
+    public void whenAllExplicitPointsAreRemoved_thenStoreIsEmpty() {
+        for (int size = 1; size < 40; size++) {
+            mStore.clear();
+            // Irregular X values are stored explicitly
+            mStore.add(0, 0);
+            mStore.add(1, 1);
+            for (long x = 5; mStore.size() < size; x += 1 + x % 3) {
+                mStore.add(x, x);
+            }
+            mStore.remove(Long.MIN_VALUE, Long.MAX_VALUE);
+            assertThat(mStore.size()).isZero();
+
+            mStore.addAll(interval(10, 20, 30));
+            assertThat(getXs()).containsExactly(10L, 20L, 30L);
+        }
+    }
+
+    @Test
+    public void whenPointsAreEvenlySpaced_thenXValuesAreImplicit() {
+        mStore.addAll(interval(40, 50, 60));
+        mStore.addAll(interval(10, 20, 30));
+        mStore.add(70, 70);
+        mStore.add(0, 0);
+        mStore.addAll(interval(30, 40));
+        assertThat(getXs()).containsExactly(0L, 10L, 20L, 30L, 40L, 50L, 60L, 70L);
+        assertThat(mStore.getInterval(2, 4).getImplicitXStep()).isEqualTo(10);
+        assertThat(mStore.binarySearch(30)).isEqualTo(3);
+        assertThat(mStore.binarySearch(35)).isEqualTo(-5);
+        assertThat(mStore.binarySearch(-5)).isEqualTo(-1);
+        assertThat(mStore.binarySearch(75)).isEqualTo(-9);
+        assertThat(mStore.ceilingIndex(41)).isEqualTo(5);
+        assertThat(mStore.floorIndex(41)).isEqualTo(4);
+        assertThat(mStore.getMaxY(0, 7)).isEqualTo(70);
+
+        mStore.keepOnly(new Range(15, 55));
+        assertThat(getXs()).containsExactly(20L, 30L, 40L, 50L);
+        assertThat(mStore.getInterval(0, 3).getSubInterval(25, 45).getPoints())
+                .containsExactly(new DataPoint(30, 30), new DataPoint(40, 40));
+    }
+
+    @Test
+    public void whenIrregularPointIsAdded_thenXValuesAreMaterialized() {
+        mStore.addAll(interval(10, 20, 30));
+        mStore.add(25, 25);
+        mStore.addAll(interval(40, 45));
+        assertThat(getXs()).containsExactly(10L, 20L, 25L, 30L, 40L, 45L);
+        assertThat(mStore.getInterval(0, 5).getImplicitXStep()).isEqualTo(-1);
+        assertThat(mStore.binarySearch(25)).isEqualTo(2);
+        assertThat(mStore.binarySearch(35)).isEqualTo(-5);
+        assertThat(mStore.getPointsSizeInBytes()).isEqualTo(6 * 16);
+
+        mStore.clear();
+        mStore.addAll(interval(1, 3, 5));
+        assertThat(mStore.getInterval(0, 2).getImplicitXStep()).isEqualTo(2);
+        assertThat(mStore.getPointsSizeInBytes()).isEqualTo(3 * 8);
+    }
+
+    @Test
+    public void whenGridAndIrregularPointsAreMixed_thenStoreMatchesReference() {
+        Random random = new Random(42);
+        for (int iteration = 0; iteration < 200; iteration++) {
+            mStore.clear();
+            TreeMap<Long, Long> expected = new TreeMap<>();
+            for (int page = 0; page < 5; page++) {
+                long step = random.nextInt(10) < 8 ? 3 : 1 + random.nextInt(5);
+                long start = random.nextInt(60) - 30;
+                int size = 1 + random.nextInt(8);
+                long[] xs = new long[size];
+                long[] ys = new long[size];
+                for (int i = 0; i < size; i++) {
+                    xs[i] = start + step * i;
+                    ys[i] = random.nextInt(100);
+                    expected.put(xs[i], ys[i]);
+                }
+                mStore.addAll(new Interval(xs, ys, 0, size));
+            }
+
+            assertThat(getXs()).containsExactlyElementsOf(expected.keySet());
+            int i = 0;
+            for (Long y : expected.values()) {
+                assertThat(mStore.getY(i++)).isEqualTo(y);
+            }
+            for (long x = -40; x < 60; x++) {
+                Long floor = expected.floorKey(x);
+                int floorIndex = mStore.floorIndex(x);
+                assertThat(floorIndex < 0 ? null : mStore.getX(floorIndex)).isEqualTo(floor);
+            }
+        }
+    }
+
+    private static Interval interval(long... xs) {
+        return new Interval(xs, xs.clone(), 0, xs.length);
+    }
+
+    private List<Long> getXs() {
+        List<Long> result = new ArrayList<>();
+        for (int i = 0; i < mStore.size(); i++) {
+            result.add(mStore.getX(i));
+        }
+        return result;
+    }
+}
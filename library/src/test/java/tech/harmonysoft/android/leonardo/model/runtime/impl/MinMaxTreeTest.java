@@ -0,0 +1,78 @@
+package tech.harmonysoft.android.leonardo.model.runtime.impl;
+
+import org.junit.jupiter.api.Test;
+import tech.harmonysoft.android.leonardo.model.Range;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Denis Zhdanov
+ * @since 27/3/19
+ */
+class MinMaxTreeTest {
+
+    private final Random mRandom = new Random(42);
+
+    @Test
+    public void whenTreeIsBuilt_thenItsQueriesMatchLinearScan() {
+        long[] values = randomValues(37);
+        MinMaxTree tree = new MinMaxTree();
+        tree.rebuild(values, 0, values.length);
+        verify(tree, values);
+    }
+
+    @Test
+    public void whenValueIsUpdated_thenQueriesReflectIt() {
+        long[] values = randomValues(64);
+        MinMaxTree tree = new MinMaxTree();
+        tree.rebuild(values, 0, values.length);
+        for (int i = 0; i < 100; i++) {
+            int index = mRandom.nextInt(values.length);
+            values[index] = mRandom.nextInt(10_000) - 5_000;
+            tree.set(index, values[index]);
+        }
+        verify(tree, values);
+    }
+
+    @Test
+    public void whenStorePointsAreTrimmed_thenYBoundsAreCalculatedOnlyForStoredPoints() {
+        DataPointStore store = new DataPointStore();
+        for (long x = 0; x < 100; x++) {
+            store.add(x, x);
+        }
+        assertThat(store.getMinY(0, store.size() - 1)).isEqualTo(0);
+
+        store.keepOnly(new Range(10, 20));
+        assertThat(store.getMinY(0, store.size() - 1)).isEqualTo(10);
+        assertThat(store.getMaxY(0, store.size() - 1)).isEqualTo(20);
+
+        store.add(21, -1);
+        store.add(9, 500);
+        assertThat(store.getMinY(0, store.size() - 1)).isEqualTo(-1);
+        assertThat(store.getMaxY(0, store.size() - 1)).isEqualTo(500);
+        assertThat(store.getMaxY(1, store.size() - 2)).isEqualTo(20);
+    }
+
+    private long[] randomValues(int size) {
+        long[] result = new long[size];
+        for (int i = 0; i < size; i++) {
+            result[i] = mRandom.nextInt(10_000) - 5_000;
+        }
+        return result;
+    }
+
+    private static void verify(MinMaxTree tree, long[] values) {
+        for (int from = 0; from < values.length; from++) {
+            long min = Long.MAX_VALUE;
+            long max = Long.MIN_VALUE;
+            for (int to = from; to < values.length; to++) {
+                min = Math.min(min, values[to]);
+                max = Math.max(max, values[to]);
+                assertThat(tree.getMin(from, to)).isEqualTo(min);
+                assertThat(tree.getMax(from, to)).isEqualTo(max);
+            }
+        }
+    }
+}
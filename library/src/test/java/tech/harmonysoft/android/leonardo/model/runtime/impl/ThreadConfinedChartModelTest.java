@@ -0,0 +1,200 @@
+package tech.harmonysoft.android.leonardo.model.runtime.impl;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import tech.harmonysoft.android.leonardo.model.Interval;
+import tech.harmonysoft.android.leonardo.model.Range;
+import tech.harmonysoft.android.leonardo.model.config.data.impl.ChartDataSourceImpl;
+import tech.harmonysoft.android.leonardo.model.data.ChartDataSource;
+import tech.harmonysoft.android.leonardo.model.runtime.ChartDataChange;
+import tech.harmonysoft.android.leonardo.model.runtime.ChartModelListener;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Denis Zhdanov
+ * @since 1/4/19
+ */
+class ThreadConfinedChartModelTest {
+
+    private static final Object ANCHOR1 = "anchor1";
+    private static final Object ANCHOR2 = "anchor2";
+    private static final Range  PAGE    = new Range(100, 199);
+
+    private final ChartDataSource mDataSource = new ChartDataSourceImpl("1", new Range(0, 100_000), 0, range -> null);
+    private final List<Runnable>  mEngineTasks = new ArrayList<>();
+    private final List<Runnable>  mUiTasks     = new ArrayList<>();
+    private final List<String>    mEvents      = new ArrayList<>();
+
+    private ThreadConfinedChartModel mModel;
+
+    @BeforeEach
+    public void setUp() {
+        mEngineTasks.clear();
+        mUiTasks.clear();
+        mEvents.clear();
+        // Engine's frames are run by the engine's thread as well
+        ChartModelImpl engine = new ChartModelImpl(1, new VelocityPrefetchPolicy(), () -> 0L, mEngineTasks::add);
+        mModel = new ThreadConfinedChartModel(engine, null, mEngineTasks::add, mUiTasks::add);
+    }
+
+    @Test
+    public void whenEngineStateIsChanged_thenListenersAreNotifiedOnlyOnUiThread() {
+        mModel.addListener(new RecordingListener());
+        mModel.addDataSource(mDataSource);
+        mModel.setActiveRange(new Range(120, 179), ANCHOR1);
+        mModel.onPointsLoaded(mDataSource, PAGE, newPage());
+        runEngine();
+        assertThat(mEvents).isEmpty();
+
+        runUi();
+        assertThat(mEvents).containsExactly("added 1", "range anchor1", "points 1 (100; 199)");
+    }
+
+    @Test
+    public void whenListenersAreNotified_thenSnapshotReflectsTheChange() {
+        mModel.addListener(new RecordingListener() {
+            @Override
+            public void onRangeChanged(Object anchor) {
+                mEvents.add("active Y " + mModel.getActiveYRange(anchor));
+            }
+
+            @Override
+            public void onDataPointsChanged(ChartDataChange change) {
+                mEvents.add("loaded " + mModel.arePointsForActiveRangeLoaded(mDataSource, ANCHOR1));
+                mEvents.add("points " + mModel.getCurrentRangePoints(mDataSource, ANCHOR1).size());
+            }
+        });
+        mModel.addDataSource(mDataSource);
+        mModel.setActiveRange(new Range(120, 179), ANCHOR1);
+        runAll();
+        mModel.onPointsLoaded(mDataSource, PAGE, newPage());
+        runAll();
+
+        assertThat(mEvents).containsExactly("added 1",
+                                            "active Y " + Range.NO_RANGE,
+                                            "loaded true",
+                                            "points 60");
+    }
+
+    @Test
+    public void whenAnchorIsChanged_thenOnlyItsStateIsRecaptured() {
+        mModel.addDataSource(mDataSource);
+        mModel.setActiveRange(new Range(120, 179), ANCHOR1);
+        mModel.setActiveRange(new Range(120, 179), ANCHOR2);
+        runAll();
+        ChartModelSnapshot first = mModel.getSnapshot();
+
+        mModel.setActiveRange(new Range(130, 179), ANCHOR1);
+        runAll();
+        ChartModelSnapshot second = mModel.getSnapshot();
+
+        assertThat(second.getVersion()).isGreaterThan(first.getVersion());
+        assertThat(second.getAnchorState(ANCHOR2)).isSameAs(first.getAnchorState(ANCHOR2));
+        assertThat(second.getAnchorState(ANCHOR1).getActiveRange()).isEqualTo(new Range(130, 179));
+    }
+
+    @Test
+    public void whenPointsAreLoaded_thenAffectedAnchorsAreRecaptured() {
+        mModel.addDataSource(mDataSource);
+        mModel.setActiveRange(new Range(120, 179), ANCHOR1);
+        mModel.setActiveRange(new Range(50_000, 50_059), ANCHOR2);
+        runAll();
+        ChartModelSnapshot first = mModel.getSnapshot();
+
+        mModel.onPointsLoaded(mDataSource, PAGE, newPage());
+        runAll();
+        ChartModelSnapshot second = mModel.getSnapshot();
+
+        assertThat(second.getAnchorState(ANCHOR2)).isSameAs(first.getAnchorState(ANCHOR2));
+        assertThat(second.getAnchorState(ANCHOR1)).isNotSameAs(first.getAnchorState(ANCHOR1));
+        assertThat(mModel.getCurrentRangePoints(mDataSource, ANCHOR1).size()).isEqualTo(60);
+    }
+
+    @Test
+    public void whenPagesAreLoadedInReducedResolution_thenTheirRangesArePublished() {
+        Range range = new Range(0, 9_999);
+        mModel.addDataSource(mDataSource);
+        mModel.setActiveRange(range, ANCHOR1);
+        mModel.setVisualWidth(ANCHOR1, 10);
+        runAll();
+        long step = mModel.getStep(ANCHOR1);
+        assertThat(step).isGreaterThan(ChartModelImpl.RAW_STEP);
+
+        mModel.onPointsLoaded(mDataSource, range, step, new Interval(0, step, new long[4], 0, 4));
+        runAll();
+        assertThat(mModel.getLoadedRanges(mDataSource, step).contains(range)).isTrue();
+        assertThat(mModel.getLoadedRanges(mDataSource).isEmpty()).isTrue();
+    }
+
+    private Interval newPage() {
+        long[] ys = new long[(int) PAGE.getPointsNumber()];
+        for (int i = 0; i < ys.length; i++) {
+            ys[i] = i;
+        }
+        return new Interval(PAGE.getStart(), 1, ys, 0, ys.length);
+    }
+
+    private void runEngine() {
+        while (!mEngineTasks.isEmpty()) {
+            mEngineTasks.remove(0).run();
+        }
+    }
+
+    private void runUi() {
+        while (!mUiTasks.isEmpty()) {
+            mUiTasks.remove(0).run();
+        }
+    }
+
+    /**
+     * Runs engine tasks one by one and lets the UI thread process everything posted by every task.
+     */
+    private void runAll() {
+        while (!mEngineTasks.isEmpty()) {
+            mEngineTasks.remove(0).run();
+            runUi();
+        }
+    }
+
+    private class RecordingListener implements ChartModelListener {
+
+        @Override
+        public void onRangeChanged(Object anchor) {
+            mEvents.add("range " + anchor);
+        }
+
+        @Override
+        public void onDataSourceEnabled(ChartDataSource dataSource) {
+            mEvents.add("enabled " + dataSource.getLegend());
+        }
+
+        @Override
+        public void onDataSourceDisabled(ChartDataSource dataSource) {
+            mEvents.add("disabled " + dataSource.getLegend());
+        }
+
+        @Override
+        public void onDataSourceAdded(ChartDataSource dataSource) {
+            mEvents.add("added " + dataSource.getLegend());
+        }
+
+        @Override
+        public void onDataSourceRemoved(ChartDataSource dataSource) {
+            mEvents.add("removed " + dataSource.getLegend());
+        }
+
+        @Override
+        public void onDataPointsChanged(ChartDataChange change) {
+            mEvents.add("points " + change.getDataSource().getLegend() + " " + change.getXRange());
+        }
+
+        @Override
+        public void onSelectionChange() {
+            mEvents.add("selection");
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package tech.harmonysoft.android.leonardo.model.runtime.impl;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import tech.harmonysoft.android.leonardo.model.Range;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Denis Zhdanov
+ * @since 30/3/19
+ */
+class VelocityPrefetchPolicyTest {
+
+    private static final Object ANCHOR = new Object();
+
+    private VelocityPrefetchPolicy mPolicy;
+
+    @BeforeEach
+    public void setUp() {
+        mPolicy = new VelocityPrefetchPolicy();
+    }
+
+    @Test
+    public void whenRangeDoesNotMove_thenBufferIsSymmetric() {
+        Range range = new Range(100, 199);
+        mPolicy.onActiveRangeChanged(ANCHOR, range, 0);
+        assertThat(mPolicy.getBufferRange(ANCHOR, range, 1, 10)).isEqualTo(new Range(0, 299));
+        assertThat(mPolicy.getFocusX(ANCHOR, range, 10)).isEqualTo(150);
+    }
+
+    @Test
+    public void whenRangeMovesLeft_thenBufferIsSkewedToTheLeft() {
+        Range range = null;
+        for (int i = 0; i < 5; i++) {
+            range = new Range(1000 - i * 100, 1099 - i * 100);
+            mPolicy.onActiveRangeChanged(ANCHOR, range, i * 16);
+        }
+        Range buffer = mPolicy.getBufferRange(ANCHOR, range, 1, 64);
+        long leftPadding = range.getStart() - buffer.getStart();
+        long rightPadding = buffer.getEnd() - range.getEnd();
+        assertThat(leftPadding + rightPadding).isEqualTo(200);
+        assertThat(leftPadding).isGreaterThan(rightPadding);
+        assertThat(rightPadding).isGreaterThanOrEqualTo(Math.round(100 * (1 - VelocityPrefetchPolicy.MAX_SKEW)));
+        assertThat(mPolicy.getFocusX(ANCHOR, range, 64)).isLessThan(range.getStart() + 50);
+    }
+
+    @Test
+    public void whenScrollStops_thenBufferBecomesSymmetric() {
+        Range range = null;
+        for (int i = 0; i < 5; i++) {
+            range = new Range(i * 10, i * 10 + 99);
+            mPolicy.onActiveRangeChanged(ANCHOR, range, i * 16);
+        }
+        Range buffer = mPolicy.getBufferRange(ANCHOR, range, 1, 10_000);
+        assertThat(buffer).isEqualTo(new Range(range.getStart() - 100, range.getEnd() + 100));
+    }
+
+    @Test
+    public void whenRangeIsZoomed_thenItIsNotConsideredAsMovement() {
+        mPolicy.onActiveRangeChanged(ANCHOR, new Range(0, 99), 0);
+        Range range = new Range(0, 199);
+        mPolicy.onActiveRangeChanged(ANCHOR, range, 16);
+        assertThat(mPolicy.getBufferRange(ANCHOR, range, 1, 20)).isEqualTo(new Range(-200, 399));
+    }
+}
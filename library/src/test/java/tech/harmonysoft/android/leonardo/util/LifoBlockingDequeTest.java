@@ -0,0 +1,54 @@
+package tech.harmonysoft.android.leonardo.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Denis Zhdanov
+ * @since 28/3/19
+ */
+class LifoBlockingDequeTest {
+
+    @Test
+    public void whenElementsAreOffered_thenTheLatestIsTakenFirst() throws InterruptedException {
+        LifoBlockingDeque<Integer> deque = new LifoBlockingDeque<>();
+        deque.offer(1);
+        deque.offer(2);
+        deque.put(3);
+        assertThat(deque.take()).isEqualTo(3);
+        assertThat(deque.take()).isEqualTo(2);
+        assertThat(deque.poll()).isEqualTo(1);
+    }
+
+    @Test
+    public void whenUsedByExecutor_thenTheLatestTaskIsExecutedFirst() throws Exception {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new LifoBlockingDeque<>());
+        try {
+            CountDownLatch latch = new CountDownLatch(1);
+            List<Integer> executed = new CopyOnWriteArrayList<>();
+            executor.execute(() -> {
+                try {
+                    latch.await();
+                } catch (InterruptedException ignore) {
+                }
+            });
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                int id = i;
+                futures.add(executor.submit(() -> executed.add(id)));
+            }
+            latch.countDown();
+            for (Future<?> future : futures) {
+                future.get(1, TimeUnit.SECONDS);
+            }
+            assertThat(executed).containsExactly(2, 1, 0);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
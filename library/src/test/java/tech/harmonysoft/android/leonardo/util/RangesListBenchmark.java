@@ -0,0 +1,187 @@
+package tech.harmonysoft.android.leonardo.util;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+import tech.harmonysoft.android.leonardo.model.Range;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares {@link RangesList} with the previous {@code ArrayList<Range>}-based implementation on the
+ * {@code ChartDataManager} access pattern - pages are added, the list is trimmed on every active range change
+ * and missing ranges are requested for the buffer range. Results are published as test report entries.
+ * <p/>
+ * JMH is not a part of the build, so the measurement is a plain warmed-up loop. Is excluded from the default
+ * test run, use {@code ./gradlew test -Pbenchmark} to run benchmarks.
+ *
+ * @author Denis Zhdanov
+ * @since 1/4/19
+ */
+@Tag("benchmark")
+class RangesListBenchmark {
+
+    private static final int  OPERATIONS_NUMBER = 200_000;
+    private static final int  WARM_UP_RUNS      = 5;
+    private static final int  MEASUREMENT_RUNS  = 10;
+    private static final long PAGE_SIZE         = 100;
+    private static final long BUFFER_SIZE       = PAGE_SIZE * 20;
+
+    private long[]       mShifts;
+    private TestReporter mReporter;
+
+    @BeforeEach
+    public void setUp(TestReporter reporter) {
+        mReporter = reporter;
+        Random random = new Random(1);
+        mShifts = new long[OPERATIONS_NUMBER];
+        for (int i = 0; i < mShifts.length; i++) {
+            // Mostly forward scroll with occasional jumps back
+            mShifts[i] = random.nextInt(10) == 0 ? -random.nextInt((int) BUFFER_SIZE) : random.nextInt(30);
+        }
+    }
+
+    @Test
+    public void compareImplementations() {
+        long expected = measure("ArrayList<Range>", this::runLegacy);
+        long actual = measure("packed long[]", this::runPrimitive);
+        assertThat(actual).isEqualTo(expected);
+    }
+
+    private long measure(String name, Scenario scenario) {
+        for (int i = 0; i < WARM_UP_RUNS; i++) {
+            scenario.run();
+        }
+        long result = 0;
+        long totalTimeNanos = 0;
+        for (int i = 0; i < MEASUREMENT_RUNS; i++) {
+            long start = System.nanoTime();
+            result = scenario.run();
+            totalTimeNanos += System.nanoTime() - start;
+        }
+        mReporter.publishEntry(name + " ranges list, ns per operation",
+                               String.format(Locale.US, "%.1f",
+                                             totalTimeNanos / ((double) MEASUREMENT_RUNS * OPERATIONS_NUMBER)));
+        return result;
+    }
+
+    private long runPrimitive() {
+        RangesList list = new RangesList();
+        RangesList missing = new RangesList();
+        long start = 0;
+        long checksum = 0;
+        for (long shift : mShifts) {
+            start += shift;
+            Range buffer = new Range(start, start + BUFFER_SIZE);
+            list.keepOnly(buffer);
+            list.getMissing(buffer, missing);
+            for (int i = 0; i < missing.size(); i++) {
+                long pageStart = missing.getStart(i);
+                list.add(pageStart, Math.min(missing.getEnd(i), pageStart + PAGE_SIZE - 1));
+                checksum += pageStart;
+            }
+        }
+        return checksum + list.size();
+    }
+
+    private long runLegacy() {
+        LegacyRangesList list = new LegacyRangesList();
+        long start = 0;
+        long checksum = 0;
+        for (long shift : mShifts) {
+            start += shift;
+            Range buffer = new Range(start, start + BUFFER_SIZE);
+            list.keepOnly(buffer);
+            for (Range range : list.getMissing(buffer)) {
+                long pageStart = range.getStart();
+                list.add(new Range(pageStart, Math.min(range.getEnd(), pageStart + PAGE_SIZE - 1)));
+                checksum += pageStart;
+            }
+        }
+        return checksum + list.mRanges.size();
+    }
+
+    private interface Scenario {
+        long run();
+    }
+
+    /**
+     * Previous implementation which keeps ranges as objects.
+     */
+    private static class LegacyRangesList {
+
+        private static final Comparator<Range> COMPARATOR = (r1, r2) -> Long.compare(r1.getStart(), r2.getStart());
+
+        final List<Range> mRanges = new ArrayList<>();
+
+        void add(Range range) {
+            int i = Collections.binarySearch(mRanges, range, COMPARATOR);
+            if (i >= 0) {
+                if (mRanges.get(i).getEnd() >= range.getEnd()) {
+                    return;
+                }
+                mRanges.set(i, range);
+                mayBeMerge(i);
+                return;
+            }
+            i = -(i + 1);
+            mRanges.add(i, range);
+            mayBeMerge(i > 0 ? i - 1 : i);
+        }
+
+        private void mayBeMerge(int i) {
+            Range previous = mRanges.get(i++);
+            while (i < mRanges.size()) {
+                Range next = mRanges.get(i);
+                if (previous.getEnd() < next.getStart() - 1) {
+                    return;
+                }
+                mRanges.set(i - 1, previous = new Range(previous.getStart(),
+                                                        Math.max(previous.getEnd(), next.getEnd())));
+                mRanges.remove(i);
+            }
+        }
+
+        void keepOnly(Range range) {
+            List<Range> toKeep = new ArrayList<>();
+            for (Range r : mRanges) {
+                if (r.intersects(range)) {
+                    toKeep.add(new Range(Math.max(r.getStart(), range.getStart()),
+                                         Math.min(r.getEnd(), range.getEnd())));
+                }
+            }
+            mRanges.clear();
+            mRanges.addAll(toKeep);
+        }
+
+        Collection<Range> getMissing(Range target) {
+            Collection<Range> result = new ArrayList<>();
+            long targetStart = target.getStart();
+            for (Range range : mRanges) {
+                if (range.getEnd() < targetStart) {
+                    continue;
+                }
+                if (range.getStart() > target.getEnd()) {
+                    break;
+                }
+                if (range.getStart() > targetStart) {
+                    result.add(new Range(targetStart, range.getStart() - 1));
+                }
+                targetStart = range.getEnd() + 1;
+            }
+            if (targetStart <= target.getEnd()) {
+                result.add(new Range(targetStart, target.getEnd()));
+            }
+            return result;
+        }
+    }
+}
@@ -4,6 +4,8 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import tech.harmonysoft.android.leonardo.model.Range;
 
+import java.util.Random;
+
 import static org.assertj.core.api.Assertions.assertThat;
 
 /**
@@ -435,4 +437,57 @@ class RangesListTest {
     public void givenNoCurrentRange_whenRangeWithNegativeStartIsGiven_thenMissingIsCorrect() {
         assertThat(mCollection.getMissing(new Range(-401, 543))).containsOnly(new Range(-401, 543));
     }
+
+    @Test
+    public void whenMissingRangesAreRequestedIntoHolder_thenHolderIsRefilled() {
+        RangesList holder = new RangesList();
+        holder.add(new Range(100, 200));
+        mCollection.add(new Range(1, 3));
+        mCollection.add(new Range(6, 8));
+        mCollection.getMissing(new Range(0, 10), holder);
+        assertThat(holder.getRanges()).containsExactly(new Range(0, 0), new Range(4, 5), new Range(9, 10));
+        mCollection.getMissing(new Range(2, 7), holder);
+        assertThat(holder.getRanges()).containsExactly(new Range(4, 5));
+    }
+
+    @Test
+    public void whenRangeBeforeTargetIsStored_thenItDoesNotAffectMissing() {
+        mCollection.add(new Range(1, 2));
+        mCollection.add(new Range(7, 8));
+        assertThat(mCollection.getMissing(new Range(5, 10))).containsExactly(new Range(5, 6), new Range(9, 10));
+    }
+
+    @Test
+    public void whenRandomRangesAreAdded_thenResultMatchesBruteForce() {
+        Random random = new Random(1);
+        boolean[] covered = new boolean[500];
+        for (int i = 0; i < 300; i++) {
+            int start = random.nextInt(covered.length - 10);
+            int end = start + random.nextInt(10);
+            mCollection.add(new Range(start, end));
+            for (int x = start; x <= end; x++) {
+                covered[x] = true;
+            }
+            if (i % 50 == 49) {
+                int keepStart = random.nextInt(100);
+                int keepEnd = covered.length - 1 - random.nextInt(100);
+                mCollection.keepOnly(new Range(keepStart, keepEnd));
+                for (int x = 0; x < covered.length; x++) {
+                    covered[x] &= x >= keepStart && x <= keepEnd;
+                }
+            }
+        }
+
+        RangesList expected = new RangesList();
+        for (int x = 0; x < covered.length; x++) {
+            if (covered[x]) {
+                expected.add(new Range(x, x));
+            }
+        }
+        assertThat(mCollection.getRanges()).isEqualTo(expected.getRanges());
+        for (int i = 1; i < mCollection.size(); i++) {
+            // Adjacent ranges are expected to be merged
+            assertThat(mCollection.getStart(i)).isGreaterThan(mCollection.getEnd(i - 1) + 1);
+        }
+    }
 }
\ No newline at end of file